@@ -0,0 +1,154 @@
+package com.lijay.lijayaiagent.advisor;
+
+import com.lijay.lijayaiagent.chatmemory.AsyncChatMemory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 基于 {@link AsyncChatMemory} 的对话记忆 Advisor，替代 MessageChatMemoryAdvisor
+ *
+ * 流式调用：
+ * - 历史在 AsyncChatMemory 的 Scheduler 上加载，加载完成后才向模型发起请求，不阻塞订阅线程
+ * - 模型输出边转发边拼接，流结束后把用户消息和完整回复一次写入记忆（同样在 Scheduler 上执行），
+ *   写入完成后下游才收到 onComplete，下一轮对话一定能读到本轮内容
+ * - 下游取消（例如客户端断开）时保存已收到的部分回复；模型报错时本轮不写入记忆
+ * - 写入失败只记录日志，不影响已经输出给用户的内容
+ *
+ * 同步调用在调用线程上等待读写完成，行为与 MessageChatMemoryAdvisor 一致（用户消息与回复合并为一次写入）。
+ */
+@Slf4j
+public class AsyncChatMemoryAdvisor implements CallAdvisor, StreamAdvisor {
+
+    private final AsyncChatMemory chatMemory;
+
+    private final String defaultConversationId;
+
+    private final int order;
+
+    public AsyncChatMemoryAdvisor(AsyncChatMemory chatMemory) {
+        this(chatMemory, ChatMemory.DEFAULT_CONVERSATION_ID, Advisor.DEFAULT_CHAT_MEMORY_PRECEDENCE_ORDER);
+    }
+
+    public AsyncChatMemoryAdvisor(AsyncChatMemory chatMemory, String defaultConversationId, int order) {
+        this.chatMemory = Objects.requireNonNull(chatMemory, "chatMemory 不能为空");
+        this.defaultConversationId = Objects.requireNonNull(defaultConversationId, "defaultConversationId 不能为空");
+        this.order = order;
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest chatClientRequest, CallAdvisorChain callAdvisorChain) {
+        String conversationId = conversationId(chatClientRequest);
+        List<Message> history = chatMemory.get(conversationId).block();
+        ChatClientResponse chatClientResponse = callAdvisorChain.nextCall(withHistory(chatClientRequest, history));
+
+        List<Message> turn = new ArrayList<>();
+        turn.add(chatClientRequest.prompt().getUserMessage());
+        ChatResponse chatResponse = chatClientResponse.chatResponse();
+        if (chatResponse != null) {
+            chatResponse.getResults().stream().map(Generation::getOutput).forEach(turn::add);
+        }
+        chatMemory.add(conversationId, turn).block();
+        return chatClientResponse;
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest chatClientRequest, StreamAdvisorChain streamAdvisorChain) {
+        String conversationId = conversationId(chatClientRequest);
+        UserMessage userMessage = chatClientRequest.prompt().getUserMessage();
+        return chatMemory.get(conversationId).flatMapMany(history -> {
+            StringBuilder text = new StringBuilder();
+            AtomicBoolean saved = new AtomicBoolean();
+            return streamAdvisorChain.nextStream(withHistory(chatClientRequest, history))
+                    .doOnNext(chatClientResponse -> append(text, chatClientResponse))
+                    .concatWith(Mono.defer(() -> save(conversationId, userMessage, text, saved)).then(Mono.empty()))
+                    .doOnCancel(() -> save(conversationId, userMessage, text, saved).subscribe());
+        });
+    }
+
+    /**
+     * 历史消息放在本次请求的消息之前，system 消息保持在最前面
+     */
+    private static ChatClientRequest withHistory(ChatClientRequest chatClientRequest, List<Message> history) {
+        List<Message> instructions = chatClientRequest.prompt().getInstructions();
+        List<Message> messages = new ArrayList<>(instructions.size() + (history != null ? history.size() : 0));
+        instructions.stream().filter(message -> message instanceof SystemMessage).forEach(messages::add);
+        if (history != null) {
+            messages.addAll(history);
+        }
+        instructions.stream().filter(message -> !(message instanceof SystemMessage)).forEach(messages::add);
+        Prompt prompt = chatClientRequest.prompt().mutate().messages(messages).build();
+        return chatClientRequest.mutate().prompt(prompt).build();
+    }
+
+    private Mono<Void> save(String conversationId, UserMessage userMessage, StringBuilder text, AtomicBoolean saved) {
+        if (!saved.compareAndSet(false, true)) {
+            return Mono.empty();
+        }
+        String content;
+        synchronized (text) {
+            content = text.toString();
+        }
+        List<Message> turn = content.isEmpty()
+                ? List.of(userMessage)
+                : List.of(userMessage, new AssistantMessage(content));
+        return chatMemory.add(conversationId, turn)
+                .onErrorResume(e -> {
+                    log.warn("对话 {} 写入记忆失败", conversationId, e);
+                    return Mono.empty();
+                });
+    }
+
+    private static void append(StringBuilder text, ChatClientResponse chatClientResponse) {
+        ChatResponse chatResponse = chatClientResponse.chatResponse();
+        if (chatResponse == null || chatResponse.getResult() == null) {
+            return;
+        }
+        String chunk = chatResponse.getResult().getOutput().getText();
+        if (chunk != null) {
+            synchronized (text) {
+                text.append(chunk);
+            }
+        }
+    }
+
+    private String conversationId(ChatClientRequest chatClientRequest) {
+        Object conversationId = chatClientRequest.context().get(ChatMemory.CONVERSATION_ID);
+        return conversationId != null ? conversationId.toString() : defaultConversationId;
+    }
+
+    @Override
+    public String getName() {
+        return this.getClass().getSimpleName();
+    }
+
+    @Override
+    public int getOrder() {
+        return order;
+    }
+
+    @Override
+    public String toString() {
+        return AsyncChatMemoryAdvisor.class.getSimpleName();
+    }
+}
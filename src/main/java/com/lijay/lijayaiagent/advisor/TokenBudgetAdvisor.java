@@ -0,0 +1,67 @@
+package com.lijay.lijayaiagent.advisor;
+
+import com.lijay.lijayaiagent.chatmemory.ContextTrimmer;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 上下文预算 Advisor：把对话记忆拼接后的完整 Prompt 裁剪到 {@link ContextTrimmer} 的 token 预算内
+ *
+ * 默认排在对话记忆 Advisor 之后执行，只影响发送给模型的消息，不修改记忆中保存的历史。
+ */
+public class TokenBudgetAdvisor implements CallAdvisor, StreamAdvisor {
+
+    private final ContextTrimmer contextTrimmer;
+
+    private final int order;
+
+    public TokenBudgetAdvisor(ContextTrimmer contextTrimmer) {
+        this(contextTrimmer, Advisor.DEFAULT_CHAT_MEMORY_PRECEDENCE_ORDER + 1);
+    }
+
+    public TokenBudgetAdvisor(ContextTrimmer contextTrimmer, int order) {
+        this.contextTrimmer = Objects.requireNonNull(contextTrimmer, "contextTrimmer 不能为空");
+        this.order = order;
+    }
+
+    private ChatClientRequest before(ChatClientRequest chatClientRequest) {
+        List<Message> instructions = chatClientRequest.prompt().getInstructions();
+        List<Message> trimmed = contextTrimmer.trim(instructions);
+        if (trimmed == instructions) {
+            return chatClientRequest;
+        }
+        Prompt prompt = chatClientRequest.prompt().mutate().messages(trimmed).build();
+        return chatClientRequest.mutate().prompt(prompt).build();
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest chatClientRequest, CallAdvisorChain chain) {
+        return chain.nextCall(this.before(chatClientRequest));
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest chatClientRequest, StreamAdvisorChain chain) {
+        return chain.nextStream(this.before(chatClientRequest));
+    }
+
+    @Override
+    public int getOrder() {
+        return order;
+    }
+
+    @Override
+    public String getName() {
+        return this.getClass().getSimpleName();
+    }
+}
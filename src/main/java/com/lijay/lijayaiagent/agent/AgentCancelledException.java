@@ -0,0 +1,11 @@
+package com.lijay.lijayaiagent.agent;
+
+/**
+ * 智能体运行已被取消，由步骤循环捕获后结束运行
+ */
+public class AgentCancelledException extends RuntimeException {
+
+    public AgentCancelledException(String reason) {
+        super("智能体运行已取消：" + reason);
+    }
+}
@@ -0,0 +1,94 @@
+package com.lijay.lijayaiagent.agent;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.lijay.lijayaiagent.agent.model.AgentCheckpoint;
+import com.lijay.lijayaiagent.agent.model.AgentState;
+import com.lijay.lijayaiagent.chatmemory.MessageCodec;
+import org.springframework.ai.chat.messages.Message;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 检查点的序列化格式，消息沿用对话记忆的 {@link MessageCodec}
+ *
+ * <pre>
+ * [version 1 字节][updatedAt 8 字节][runId][agentName][state][currentStep varint]
+ * [结果数 varint]([结果])*
+ * [消息数 varint]([长度 varint][MessageCodec 编码的消息])*
+ * </pre>
+ *
+ * updatedAt 在固定位置，清理过期检查点时不需要反序列化消息（{@link #readUpdatedAt}）。
+ */
+final class AgentCheckpointCodec {
+
+    static final byte VERSION = 1;
+
+    /**
+     * 消息序列化后达到该大小才压缩（网页抓取等较大的工具结果）
+     */
+    private static final int COMPRESSION_THRESHOLD = 512;
+
+    private AgentCheckpointCodec() {
+    }
+
+    static byte[] encode(AgentCheckpoint checkpoint) {
+        try (Output output = new Output(1024, -1)) {
+            output.writeByte(VERSION);
+            output.writeLong(checkpoint.updatedAt());
+            output.writeString(checkpoint.runId());
+            output.writeString(checkpoint.agentName());
+            output.writeString(checkpoint.state().name());
+            output.writeVarInt(checkpoint.currentStep(), true);
+            output.writeVarInt(checkpoint.stepResults().size(), true);
+            for (String result : checkpoint.stepResults()) {
+                output.writeString(result);
+            }
+            output.writeVarInt(checkpoint.messages().size(), true);
+            for (Message message : checkpoint.messages()) {
+                byte[] bytes = MessageCodec.encode(message, COMPRESSION_THRESHOLD);
+                output.writeVarInt(bytes.length, true);
+                output.writeBytes(bytes);
+            }
+            return output.toBytes();
+        }
+    }
+
+    static AgentCheckpoint decode(byte[] bytes) {
+        try (Input input = new Input(bytes)) {
+            checkVersion(input.readByte());
+            long updatedAt = input.readLong();
+            String runId = input.readString();
+            String agentName = input.readString();
+            AgentState state = AgentState.valueOf(input.readString());
+            int currentStep = input.readVarInt(true);
+            int resultCount = input.readVarInt(true);
+            List<String> stepResults = new ArrayList<>(resultCount);
+            for (int i = 0; i < resultCount; i++) {
+                stepResults.add(input.readString());
+            }
+            int messageCount = input.readVarInt(true);
+            List<Message> messages = new ArrayList<>(messageCount);
+            for (int i = 0; i < messageCount; i++) {
+                int length = input.readVarInt(true);
+                messages.add(MessageCodec.decode(bytes, input.position(), length));
+                input.skip(length);
+            }
+            return new AgentCheckpoint(runId, agentName, state, currentStep, messages, stepResults, updatedAt);
+        }
+    }
+
+    static long readUpdatedAt(byte[] bytes) {
+        try (Input input = new Input(bytes)) {
+            checkVersion(input.readByte());
+            return input.readLong();
+        }
+    }
+
+    private static void checkVersion(byte version) {
+        if (version != VERSION) {
+            throw new IllegalStateException("不支持的检查点格式版本：" + version);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.lijay.lijayaiagent.agent;
+
+import com.lijay.lijayaiagent.agent.model.AgentCheckpoint;
+
+import java.util.Optional;
+
+/**
+ * 智能体运行检查点的存储，同一个运行ID只保留最新的检查点
+ *
+ * 实现需要线程安全：不同运行在各自的线程上保存。
+ */
+public interface AgentCheckpointStore {
+
+    /**
+     * 不保存检查点
+     */
+    AgentCheckpointStore NONE = new AgentCheckpointStore() {
+        @Override
+        public void save(AgentCheckpoint checkpoint) {
+        }
+
+        @Override
+        public Optional<AgentCheckpoint> load(String runId) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void delete(String runId) {
+        }
+    };
+
+    /**
+     * 保存检查点，覆盖该运行之前的检查点
+     */
+    void save(AgentCheckpoint checkpoint);
+
+    /**
+     * @return 该运行最新的检查点，不存在或已过期时为空
+     */
+    Optional<AgentCheckpoint> load(String runId);
+
+    void delete(String runId);
+}
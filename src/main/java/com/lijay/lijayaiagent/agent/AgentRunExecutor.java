@@ -0,0 +1,187 @@
+package com.lijay.lijayaiagent.agent;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 智能体运行的专用线程池（{@link BaseAgent#runStream} 使用），避免长时间的模型调用和工具 I/O 占用公共 ForkJoinPool
+ *
+ * - 虚拟线程模式（默认）：每次运行一个虚拟线程，由信号量限制同时运行数，排队的运行阻塞在信号量上（不占用平台线程）
+ * - 平台线程模式：maxConcurrentRuns 个固定线程
+ * - 准入控制：运行中 + 排队的数量达到 maxConcurrentRuns + queueCapacity 时 execute 直接抛出 {@link RejectedExecutionException}
+ *
+ * 运行中、排队、完成、拒绝、取消的数量和取消避免的步骤数注册到 MeterRegistry。
+ */
+@Slf4j
+public class AgentRunExecutor implements Executor, MeterBinder, AutoCloseable {
+
+    private final ExecutorService threads;
+
+    /**
+     * 虚拟线程模式下限制同时运行数，平台线程模式和不限制时为 null
+     */
+    private final Semaphore permits;
+
+    private final int maxConcurrentRuns;
+
+    private final int queueCapacity;
+
+    /**
+     * 已接受的运行数（运行中 + 排队）
+     */
+    private final AtomicInteger admitted = new AtomicInteger();
+
+    private final AtomicInteger active = new AtomicInteger();
+
+    private final LongAdder completed = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder cancelled = new LongAdder();
+
+    private final LongAdder avoidedSteps = new LongAdder();
+
+    /**
+     * @param maxConcurrentRuns 同时运行的上限，0 表示不限制（仅虚拟线程模式）
+     * @param queueCapacity     达到上限后最多排队的运行数
+     * @param virtualThreads    是否使用虚拟线程
+     */
+    public AgentRunExecutor(int maxConcurrentRuns, int queueCapacity, boolean virtualThreads) {
+        if (maxConcurrentRuns < 0 || queueCapacity < 0) {
+            throw new IllegalArgumentException("maxConcurrentRuns 和 queueCapacity 不能为负数");
+        }
+        if (!virtualThreads && maxConcurrentRuns == 0) {
+            throw new IllegalArgumentException("平台线程模式必须设置 maxConcurrentRuns");
+        }
+        this.maxConcurrentRuns = maxConcurrentRuns;
+        this.queueCapacity = queueCapacity;
+        if (virtualThreads) {
+            this.threads = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("agent-run-", 0).factory());
+            this.permits = maxConcurrentRuns > 0 ? new Semaphore(maxConcurrentRuns, true) : null;
+        } else {
+            this.threads = Executors.newFixedThreadPool(maxConcurrentRuns, Thread.ofPlatform().name("agent-run-", 0).factory());
+            this.permits = null;
+        }
+    }
+
+    /**
+     * @throws RejectedExecutionException 运行中和排队的数量已达上限，或已关闭
+     */
+    @Override
+    public void execute(Runnable command) {
+        int count = admitted.incrementAndGet();
+        if (maxConcurrentRuns > 0 && count > maxConcurrentRuns + queueCapacity) {
+            admitted.decrementAndGet();
+            rejected.increment();
+            throw new RejectedExecutionException("智能体运行数已达上限：" + maxConcurrentRuns + "，排队：" + queueCapacity);
+        }
+        try {
+            threads.execute(() -> run(command));
+        } catch (RejectedExecutionException e) {
+            admitted.decrementAndGet();
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    private void run(Runnable command) {
+        boolean acquired = false;
+        try {
+            if (permits != null) {
+                permits.acquire();
+                acquired = true;
+            }
+            active.incrementAndGet();
+            try {
+                command.run();
+            } finally {
+                active.decrementAndGet();
+                completed.increment();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("排队中的智能体运行被中断");
+        } finally {
+            if (acquired) {
+                permits.release();
+            }
+            admitted.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("agent.runs.active", active, AtomicInteger::get)
+                .description("运行中的智能体数")
+                .register(registry);
+        Gauge.builder("agent.runs.queued", this, AgentRunExecutor::queuedCount)
+                .description("等待运行的智能体数")
+                .register(registry);
+        FunctionCounter.builder("agent.runs.completed", completed, LongAdder::sum)
+                .description("已结束的智能体运行数")
+                .register(registry);
+        FunctionCounter.builder("agent.runs.rejected", rejected, LongAdder::sum)
+                .description("因达到上限被拒绝的智能体运行数")
+                .register(registry);
+        FunctionCounter.builder("agent.runs.cancelled", cancelled, LongAdder::sum)
+                .description("因客户端断开、超时或主动取消而停止的智能体运行数")
+                .register(registry);
+        FunctionCounter.builder("agent.steps.avoided", avoidedSteps, LongAdder::sum)
+                .description("取消后不再执行的剩余步骤数")
+                .register(registry);
+    }
+
+    /**
+     * 记录一次取消的运行
+     *
+     * @param avoidedSteps 取消后不再执行的剩余步骤数
+     */
+    public void recordCancelled(int avoidedSteps) {
+        cancelled.increment();
+        this.avoidedSteps.add(avoidedSteps);
+    }
+
+    public long cancelledCount() {
+        return cancelled.sum();
+    }
+
+    public long avoidedStepCount() {
+        return avoidedSteps.sum();
+    }
+
+    public int activeCount() {
+        return active.get();
+    }
+
+    public int queuedCount() {
+        return Math.max(0, admitted.get() - active.get());
+    }
+
+    public long completedCount() {
+        return completed.sum();
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * 中断运行中和排队的智能体
+     */
+    @Override
+    public void close() {
+        threads.shutdownNow();
+        log.info("智能体线程池已关闭，中断运行中 {} 个、排队 {} 个", activeCount(), queuedCount());
+    }
+}
@@ -1,18 +1,25 @@
 package com.lijay.lijayaiagent.agent;
 
+import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.StrUtil;
+import com.lijay.lijayaiagent.agent.model.AgentCheckpoint;
+import com.lijay.lijayaiagent.agent.model.AgentEvent;
 import com.lijay.lijayaiagent.agent.model.AgentState;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.http.MediaType;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 
 /**
  * 抽象基础代理类，用于管理代理状态和执行流程。
@@ -44,6 +51,27 @@ public abstract class BaseAgent {
     // Memory 记忆（需要自主维护会话上下文）
     private List<Message> messageList = new ArrayList<>();
 
+    // runStream 的执行线程池，默认每次运行一个虚拟线程（不限制并发），由 LijayManusFactory 设置为配置的 AgentRunExecutor
+    private Executor runExecutor = command -> Thread.ofVirtual().name("agent-run").start(command);
+
+    // 执行过程事件的监听（runStream 设置为推送到 SSE），为空时不产生事件
+    private Consumer<AgentEvent> eventListener;
+
+    // 是否流式调用模型，思考内容边生成边作为 thinking 事件推送；runStream 设置为 true，与是否设置事件监听无关
+    private boolean streamModelOutput;
+
+    // 运行ID，检查点按运行ID保存，断线后据此恢复
+    private String runId = IdUtil.fastSimpleUUID();
+
+    // 已完成步骤的结果
+    private List<String> stepResults = new ArrayList<>();
+
+    // 检查点存储，每完成一步保存一次，为空时不保存
+    private AgentCheckpointStore checkpointStore;
+
+    // 取消令牌：客户端断开、SSE 超时或调用 cancel 时停止运行，中断正在进行的模型调用和工具执行
+    private final CancellationToken cancellationToken = new CancellationToken();
+
     /**
      * 运行代理
      *
@@ -58,124 +86,308 @@ public abstract class BaseAgent {
         if (StrUtil.isBlank(userPrompt)) {
             throw new RuntimeException("Cannot run agent with empty user prompt");
         }
-        // 2、执行，更改状态
-        this.state = AgentState.RUNNING;
         // 记录消息上下文
         messageList.add(new UserMessage(userPrompt));
-        // 保存结果列表
-        List<String> results = new ArrayList<>();
-        try {
-            // 执行循环
-            for (int i = 0; i < maxSteps && state != AgentState.FINISHED; i++) {
-                int stepNumber = i + 1;
-                currentStep = stepNumber;
-                log.info("Executing step {}/{}", stepNumber, maxSteps);
-                // 单步执行
-                String stepResult = step();
-                String result = "Step " + stepNumber + ": " + stepResult;
-                results.add(result);
-            }
-            // 检查是否超出步骤限制
-            if (currentStep >= maxSteps) {
-                state = AgentState.FINISHED;
-                results.add("Terminated: Reached max steps (" + maxSteps + ")");
-            }
-            return String.join("\n", results);
+        return runSteps();
+    }
+
+    /**
+     * 从 {@link #restore} 恢复的检查点继续运行，已完成的步骤不再执行
+     *
+     * @return 执行结果（包括恢复前已完成步骤的结果）
+     */
+    public String resume() {
+        if (this.state == AgentState.FINISHED) {
+            return String.join("\n", stepResults);
+        }
+        if (this.state != AgentState.IDLE) {
+            throw new RuntimeException("Cannot resume agent from state: " + this.state);
+        }
+        return runSteps();
+    }
+
+    /**
+     * 从检查点恢复运行ID、已完成的步骤和消息上下文，只能在新创建的代理上调用
+     */
+    public void restore(AgentCheckpoint checkpoint) {
+        if (this.state != AgentState.IDLE || this.currentStep > 0) {
+            throw new RuntimeException("Cannot restore agent from state: " + this.state);
+        }
+        this.runId = checkpoint.runId();
+        this.currentStep = checkpoint.currentStep();
+        this.messageList = new ArrayList<>(checkpoint.messages());
+        this.stepResults = new ArrayList<>(checkpoint.stepResults());
+        this.state = checkpoint.isFinished() ? AgentState.FINISHED : AgentState.IDLE;
+    }
+
+    private String runSteps() {
+        // 2、执行，更改状态
+        this.state = AgentState.RUNNING;
+        try (CancellationToken.Registration ignored = cancellationToken.register(interruptCurrentThread())) {
+            executeSteps();
+            emit(AgentEvent.done(currentStep, "执行结束"));
+            return String.join("\n", stepResults);
         } catch (Exception e) {
+            // 中断可能以任意异常的形式从模型调用或工具中抛出
+            if (cancellationToken.isCancelled()) {
+                onCancelled();
+                return "执行已取消：" + cancellationToken.getReason();
+            }
             state = AgentState.ERROR;
             log.error("error executing agent", e);
             return "执行错误" + e.getMessage();
         } finally {
-            // 3、清理资源
+            // 3、清理资源（清除取消时设置的中断标记，线程可能归还线程池）
+            Thread.interrupted();
             this.cleanup();
         }
     }
 
     /**
-     * 运行代理（流式输出）
+     * 从 currentStep 的下一步开始执行步骤循环，每完成一步保存一次检查点
+     */
+    private void executeSteps() {
+        for (int i = currentStep; i < maxSteps && state != AgentState.FINISHED; i++) {
+            cancellationToken.throwIfCancelled();
+            int stepNumber = i + 1;
+            currentStep = stepNumber;
+            log.info("Executing step {}/{}", stepNumber, maxSteps);
+            emit(AgentEvent.step(stepNumber));
+            // 单步执行
+            String stepResult = step();
+            // 取消时被中断的工具调用也会返回结果，这一步没有真正完成，不记录也不保存检查点
+            cancellationToken.throwIfCancelled();
+            String result = "Step " + stepNumber + ": " + stepResult;
+            stepResults.add(result);
+            emit(AgentEvent.result(stepNumber, result));
+            saveCheckpoint();
+        }
+        // 检查是否超出步骤限制
+        if (currentStep >= maxSteps) {
+            state = AgentState.FINISHED;
+            stepResults.add("Terminated: Reached max steps (" + maxSteps + ")");
+            saveCheckpoint();
+        }
+    }
+
+    /**
+     * 保存检查点，失败时只记录日志
+     */
+    private void saveCheckpoint() {
+        if (checkpointStore == null) {
+            return;
+        }
+        try {
+            checkpointStore.save(new AgentCheckpoint(runId, name, state, currentStep, messageList, stepResults,
+                    System.currentTimeMillis()));
+        } catch (RuntimeException e) {
+            // 检查点只用于恢复，保存失败不影响本次运行
+            log.warn("保存智能体检查点失败，runId：{}", runId, e);
+        }
+    }
+
+    /**
+     * 运行代理（流式输出），第一个事件为 run，其中的运行ID用于断线后调用 {@link #resumeStream} 恢复
      *
      * @param userPrompt 用户提示词
      * @return 执行结果
      */
     public SseEmitter runStream(String userPrompt) {
+        return stream(userPrompt, false);
+    }
+
+    /**
+     * 从 {@link #restore} 恢复的检查点继续运行（流式输出），先重放已完成步骤的结果，再从下一步继续执行
+     */
+    public SseEmitter resumeStream() {
+        return stream(null, true);
+    }
+
+    private SseEmitter stream(String userPrompt, boolean resume) {
         // 创建一个超时时间较长的 SseEmitter
         SseEmitter sseEmitter = new SseEmitter(300000L); // 5 分钟超时
-        // 使用线程异步处理，避免阻塞主线程
-        CompletableFuture.runAsync(() -> {
-            // 1、基础校验
-            try {
-                if (this.state != AgentState.IDLE) {
-                    sseEmitter.send("错误：无法从状态运行代理：" + this.state);
-                    sseEmitter.complete();
-                    return;
-                }
-                if (StrUtil.isBlank(userPrompt)) {
-                    sseEmitter.send("错误：不能使用空提示词运行代理");
-                    sseEmitter.complete();
-                    return;
-                }
-            } catch (Exception e) {
-                sseEmitter.completeWithError(e);
-            }
-            // 2、执行，更改状态
-            this.state = AgentState.RUNNING;
-            // 记录消息上下文
-            messageList.add(new UserMessage(userPrompt));
-            // 保存结果列表
-            List<String> results = new ArrayList<>();
+        // 在智能体专用线程池上异步处理，避免阻塞主线程和公共 ForkJoinPool
+        try {
+            runExecutor.execute(() -> runStreamSteps(userPrompt, resume, sseEmitter));
+        } catch (RejectedExecutionException e) {
+            log.warn("拒绝运行智能体：{}", e.getMessage());
+            this.state = AgentState.ERROR;
             try {
-                // 执行循环
-                for (int i = 0; i < maxSteps && state != AgentState.FINISHED; i++) {
-                    int stepNumber = i + 1;
-                    currentStep = stepNumber;
-                    log.info("Executing step {}/{}", stepNumber, maxSteps);
-                    // 单步执行
-                    String stepResult = step();
-                    String result = "Step " + stepNumber + ": " + stepResult;
-                    results.add(result);
-                    // 输出当前每一步的结果到 SSE
-                    sseEmitter.send(result);
-                }
-                // 检查是否超出步骤限制
-                if (currentStep >= maxSteps) {
-                    state = AgentState.FINISHED;
-                    results.add("Terminated: Reached max steps (" + maxSteps + ")");
-                    sseEmitter.send("执行结束：达到最大步骤（" + maxSteps + "）");
-                }
-                // 正常完成
+                send(sseEmitter, AgentEvent.error(0, "当前运行的智能体过多，请稍后重试"));
                 sseEmitter.complete();
-            } catch (Exception e) {
-                state = AgentState.ERROR;
-                log.error("error executing agent", e);
-                try {
-                    sseEmitter.send("执行错误：" + e.getMessage());
-                    sseEmitter.complete();
-                } catch (IOException ex) {
-                    sseEmitter.completeWithError(ex);
-                }
-            } finally {
-                // 3、清理资源
-                this.cleanup();
+            } catch (UncheckedIOException ex) {
+                sseEmitter.completeWithError(ex);
             }
-        });
+            return sseEmitter;
+        }
 
-        // 设置超时回调
+        // 超时、连接出错（客户端断开）或连接关闭时取消运行，后台的步骤循环随之停止（包括还在排队的运行）
         sseEmitter.onTimeout(() -> {
-            this.state = AgentState.ERROR;
-            this.cleanup();
             log.warn("SSE connection timeout");
+            cancel("SSE 连接超时");
+        });
+        sseEmitter.onError(e -> {
+            log.warn("SSE connection error: {}", e.getMessage());
+            cancel("SSE 连接断开");
         });
-        // 设置完成回调
         sseEmitter.onCompletion(() -> {
-            if (this.state == AgentState.RUNNING) {
-                this.state = AgentState.FINISHED;
-            }
-            this.cleanup();
+            // 正常结束时运行已经停止，取消不产生任何影响
+            cancel("SSE 连接已关闭");
             log.info("SSE connection completed");
         });
         return sseEmitter;
     }
 
+    /**
+     * runStream / resumeStream 在 runExecutor 线程上执行的步骤循环，执行过程以 {@link AgentEvent} 推送到 SSE
+     */
+    private void runStreamSteps(String userPrompt, boolean resume, SseEmitter sseEmitter) {
+        // 1、基础校验
+        try {
+            if (resume && this.state == AgentState.FINISHED) {
+                // 运行在断线前已经结束，重放结果即可
+                send(sseEmitter, AgentEvent.run(runId, currentStep));
+                replayStepResults(sseEmitter);
+                send(sseEmitter, AgentEvent.done(currentStep, "执行结束"));
+                sseEmitter.complete();
+                return;
+            }
+            if (this.state != AgentState.IDLE) {
+                send(sseEmitter, AgentEvent.error(0, "无法从状态运行代理：" + this.state));
+                sseEmitter.complete();
+                return;
+            }
+            if (!resume && StrUtil.isBlank(userPrompt)) {
+                send(sseEmitter, AgentEvent.error(0, "不能使用空提示词运行代理"));
+                sseEmitter.complete();
+                return;
+            }
+            send(sseEmitter, AgentEvent.run(runId, currentStep));
+            if (resume) {
+                replayStepResults(sseEmitter);
+            }
+        } catch (Exception e) {
+            sseEmitter.completeWithError(e);
+            return;
+        }
+        // 2、执行，更改状态
+        this.state = AgentState.RUNNING;
+        this.streamModelOutput = true;
+        this.eventListener = event -> {
+            try {
+                send(sseEmitter, event);
+            } catch (UncheckedIOException e) {
+                // 客户端已断开，不再继续执行
+                cancel("SSE 连接断开");
+            }
+        };
+        // 记录消息上下文
+        if (!resume) {
+            messageList.add(new UserMessage(userPrompt));
+        }
+        try (CancellationToken.Registration ignored = cancellationToken.register(interruptCurrentThread())) {
+            // 执行循环，每一步的思考片段、工具调用和结果由 emit 实时推送
+            executeSteps();
+            if (currentStep >= maxSteps) {
+                emit(AgentEvent.done(currentStep, "执行结束：达到最大步骤（" + maxSteps + "）"));
+            } else {
+                emit(AgentEvent.done(currentStep, "执行结束"));
+            }
+            // 正常完成
+            sseEmitter.complete();
+        } catch (Exception e) {
+            if (cancellationToken.isCancelled()) {
+                onCancelled();
+                // 主动取消时客户端仍在连接，告知结果；已断开时发送失败直接忽略
+                // 先清除中断标记，否则向可中断通道写入会直接关闭连接
+                Thread.interrupted();
+                try {
+                    send(sseEmitter, AgentEvent.done(currentStep, "执行已取消：" + cancellationToken.getReason()));
+                    sseEmitter.complete();
+                } catch (RuntimeException ignored) {
+                    // 连接已关闭
+                }
+                return;
+            }
+            state = AgentState.ERROR;
+            log.error("error executing agent", e);
+            try {
+                send(sseEmitter, AgentEvent.error(currentStep, "执行错误：" + e.getMessage()));
+                sseEmitter.complete();
+            } catch (UncheckedIOException ex) {
+                sseEmitter.completeWithError(ex);
+            }
+        } finally {
+            // 3、清理资源（清除取消时设置的中断标记，线程可能归还线程池）
+            Thread.interrupted();
+            this.cleanup();
+        }
+    }
+
+    /**
+     * 恢复时把断线前已完成步骤的结果重新推送给客户端
+     */
+    private void replayStepResults(SseEmitter sseEmitter) {
+        for (int i = 0; i < stepResults.size(); i++) {
+            // 达到最大步骤时最后一条结果不属于任何步骤
+            send(sseEmitter, AgentEvent.result(Math.min(i + 1, currentStep), stepResults.get(i)));
+        }
+    }
+
+    /**
+     * 取消运行：停止步骤循环并中断正在进行的模型调用和工具执行，可以在任意线程调用
+     *
+     * @param reason 取消原因
+     * @return 是否由本次调用取消
+     */
+    public boolean cancel(String reason) {
+        return cancellationToken.cancel(reason);
+    }
+
+    /**
+     * 运行因取消而结束：记录状态和避免执行的剩余步骤数
+     */
+    private void onCancelled() {
+        state = AgentState.CANCELLED;
+        int avoidedSteps = Math.max(0, maxSteps - currentStep);
+        log.info("{} 已取消（{}），停止于第 {} 步，剩余 {} 步不再执行", name, cancellationToken.getReason(), currentStep, avoidedSteps);
+        if (runExecutor instanceof AgentRunExecutor agentRunExecutor) {
+            agentRunExecutor.recordCancelled(avoidedSteps);
+        }
+    }
+
+    private static Runnable interruptCurrentThread() {
+        Thread thread = Thread.currentThread();
+        return thread::interrupt;
+    }
+
+    /**
+     * 发出执行过程事件，没有监听时忽略
+     */
+    protected void emit(AgentEvent event) {
+        Consumer<AgentEvent> listener = this.eventListener;
+        if (listener != null) {
+            listener.accept(event);
+        }
+    }
+
+    /**
+     * 以 SSE 命名事件发送，event 为事件类型，data 为 JSON（工具事件可能来自多个线程，串行发送）
+     *
+     * @throws UncheckedIOException 连接已断开
+     */
+    private static void send(SseEmitter sseEmitter, AgentEvent event) {
+        try {
+            synchronized (sseEmitter) {
+                sseEmitter.send(SseEmitter.event()
+                        .name(event.type().getEventName())
+                        .data(event, MediaType.APPLICATION_JSON));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     /**
      * 定义单个步骤
      *
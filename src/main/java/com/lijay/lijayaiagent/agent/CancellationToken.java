@@ -0,0 +1,102 @@
+package com.lijay.lijayaiagent.agent;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 智能体运行的取消令牌
+ *
+ * - 步骤循环在每一步之前、ReActAgent 在思考和行动之间检查 {@link #throwIfCancelled()}，协作式退出
+ * - 正在进行的阻塞操作（模型调用、工具的 HTTP 请求）通过 {@link #register(Runnable)} 注册的回调中断，
+ *   运行线程注册的是 Thread::interrupt，虚拟线程上的阻塞 Socket I/O 会因中断立即返回
+ * - cancel 只生效一次；取消后注册的回调立即执行
+ *
+ * 线程安全。
+ */
+@Slf4j
+public class CancellationToken {
+
+    private final List<Runnable> callbacks = new ArrayList<>();
+
+    private volatile String reason;
+
+    /**
+     * 取消运行
+     *
+     * @param reason 取消原因（客户端断开、超时、用户取消等）
+     * @return 是否由本次调用取消（已经取消时返回 false）
+     */
+    public boolean cancel(String reason) {
+        synchronized (callbacks) {
+            if (this.reason != null) {
+                return false;
+            }
+            this.reason = reason;
+            // 在锁内执行，保证回调注销之后不会再被调用（例如中断已经归还线程池的线程）
+            callbacks.forEach(CancellationToken::runQuietly);
+            callbacks.clear();
+        }
+        return true;
+    }
+
+    public boolean isCancelled() {
+        return reason != null;
+    }
+
+    /**
+     * @return 取消原因，未取消时为 null
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * @throws AgentCancelledException 已取消
+     */
+    public void throwIfCancelled() {
+        String reason = this.reason;
+        if (reason != null) {
+            throw new AgentCancelledException(reason);
+        }
+    }
+
+    /**
+     * 注册取消时执行的回调，回调应当快速返回
+     *
+     * @return 注销句柄，操作结束后必须关闭
+     */
+    public Registration register(Runnable callback) {
+        synchronized (callbacks) {
+            if (reason != null) {
+                runQuietly(callback);
+                return () -> {
+                };
+            }
+            callbacks.add(callback);
+        }
+        return () -> {
+            synchronized (callbacks) {
+                callbacks.remove(callback);
+            }
+        };
+    }
+
+    private static void runQuietly(Runnable callback) {
+        try {
+            callback.run();
+        } catch (RuntimeException e) {
+            log.warn("取消回调执行失败", e);
+        }
+    }
+
+    /**
+     * 回调注册句柄
+     */
+    public interface Registration extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
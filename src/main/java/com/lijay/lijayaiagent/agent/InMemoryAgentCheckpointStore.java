@@ -0,0 +1,53 @@
+package com.lijay.lijayaiagent.agent;
+
+import com.lijay.lijayaiagent.agent.model.AgentCheckpoint;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 进程内的检查点存储：支持客户端断线后重连到同一实例继续运行，进程重启后丢失
+ *
+ * 按最近保存的顺序最多保留 maxRuns 个运行，超出时丢弃最久未更新的运行。
+ */
+public class InMemoryAgentCheckpointStore implements AgentCheckpointStore {
+
+    private final Map<String, AgentCheckpoint> checkpoints;
+
+    /**
+     * @param maxRuns 最多保留的运行数
+     */
+    public InMemoryAgentCheckpointStore(int maxRuns) {
+        if (maxRuns <= 0) {
+            throw new IllegalArgumentException("maxRuns 必须大于 0");
+        }
+        this.checkpoints = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, AgentCheckpoint> eldest) {
+                return size() > maxRuns;
+            }
+        };
+    }
+
+    @Override
+    public synchronized void save(AgentCheckpoint checkpoint) {
+        // 先删除再放入，使最近保存的运行排在最后
+        checkpoints.remove(checkpoint.runId());
+        checkpoints.put(checkpoint.runId(), checkpoint);
+    }
+
+    @Override
+    public synchronized Optional<AgentCheckpoint> load(String runId) {
+        return Optional.ofNullable(checkpoints.get(runId));
+    }
+
+    @Override
+    public synchronized void delete(String runId) {
+        checkpoints.remove(runId);
+    }
+
+    public synchronized int size() {
+        return checkpoints.size();
+    }
+}
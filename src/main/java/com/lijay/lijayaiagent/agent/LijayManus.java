@@ -1,24 +1,27 @@
 package com.lijay.lijayaiagent.agent;
 
-import com.lijay.lijayaiagent.advisor.MyLoggerAdvisor;
+import com.lijay.lijayaiagent.chatmemory.ContextTrimmer;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
 import org.springframework.ai.tool.ToolCallback;
-import org.springframework.stereotype.Component;
 
 /**
  * lijay的 AI 超级智能体（拥有自主规划能力，可以直接使用）
+ *
+ * 代理实例保存一次运行的状态和消息上下文，只能运行一次，每个请求通过 {@link LijayManusFactory#create()} 创建新实例
  */
-@Component
 public class LijayManus extends ToolCallAgent {
 
-    public LijayManus(ToolCallback[] allTools, ChatModel dashscopeChatModel) {
-        super(allTools);
+    static final String SYSTEM_PROMPT = """
+            You are lijayManus, an all-capable AI assistant, aimed at solving any task presented by the user.
+            You have various tools at your disposal that you can call upon to efficiently complete complex requests.
+            """;
+
+    public LijayManus(ToolCallback[] allTools, ChatClient chatClient, ToolCallingManager toolCallingManager,
+                      ChatOptions chatOptions, ContextTrimmer contextTrimmer) {
+        super(allTools, toolCallingManager, chatOptions);
         this.setName("liajyManus");
-        String SYSTEM_PROMPT = """
-                You are lijayManus, an all-capable AI assistant, aimed at solving any task presented by the user.
-                You have various tools at your disposal that you can call upon to efficiently complete complex requests.
-                """;
         this.setSystemPrompt(SYSTEM_PROMPT);
         String NEXT_STEP_PROMPT = """
                 Based on user needs, proactively select the most appropriate tool or combination of tools.
@@ -28,10 +31,9 @@ public class LijayManus extends ToolCallAgent {
                 """;
         this.setNextStepPrompt(NEXT_STEP_PROMPT);
         this.setMaxSteps(10);
-        // 初始化 AI 对话客户端
-        ChatClient chatClient = ChatClient.builder(dashscopeChatModel)
-                .defaultAdvisors(new MyLoggerAdvisor())
-                .build();
+        // 每一步发送给模型的上下文按 token 预算裁剪，网页抓取等超长工具结果截断
+        this.setContextTrimmer(contextTrimmer);
+        // AI 对话客户端由工厂创建，所有代理实例共享
         this.setChatClient(chatClient);
     }
-}
\ No newline at end of file
+}
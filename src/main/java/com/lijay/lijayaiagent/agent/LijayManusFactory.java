@@ -0,0 +1,125 @@
+package com.lijay.lijayaiagent.agent;
+
+import com.lijay.lijayaiagent.advisor.MyLoggerAdvisor;
+import com.lijay.lijayaiagent.chatmemory.ContextTrimmer;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.resolution.StaticToolCallbackResolver;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * LijayManus 工厂：每次运行创建一个新的代理实例
+ *
+ * 代理的状态（state、currentStep、messageList）属于单次运行，不能在请求之间共享；
+ * 无状态且创建成本高的部分（ChatClient、工具列表及其调用选项、ToolCallingManager、上下文裁剪、运行和工具线程池、检查点存储）在工厂中创建一次，由所有实例共享。
+ * 新实例只有几个字段，创建成本可以忽略，不需要池化；并发运行数只受模型调用和工具执行的限制。
+ */
+@Component
+public class LijayManusFactory {
+
+    private final ToolCallback[] allTools;
+
+    private final ChatClient chatClient;
+
+    private final ToolCallingManager toolCallingManager;
+
+    private final ChatOptions chatOptions;
+
+    private final ContextTrimmer contextTrimmer;
+
+    private final AgentRunExecutor agentRunExecutor;
+
+    private final ParallelToolExecutor parallelToolExecutor;
+
+    private final AgentCheckpointStore checkpointStore;
+
+    private final ToolPlanExecutor toolPlanExecutor;
+
+    @Autowired
+    public LijayManusFactory(ToolCallback[] allTools, ChatModel dashscopeChatModel, ContextTrimmer contextTrimmer,
+                             AgentRunExecutor agentRunExecutor, ObjectProvider<ParallelToolExecutor> parallelToolExecutor,
+                             AgentCheckpointStore agentCheckpointStore) {
+        this(allTools, dashscopeChatModel, contextTrimmer, agentRunExecutor, parallelToolExecutor.getIfAvailable(),
+                agentCheckpointStore);
+    }
+
+    public LijayManusFactory(ToolCallback[] allTools, ChatModel dashscopeChatModel, ContextTrimmer contextTrimmer,
+                             AgentRunExecutor agentRunExecutor, ParallelToolExecutor parallelToolExecutor) {
+        this(allTools, dashscopeChatModel, contextTrimmer, agentRunExecutor, parallelToolExecutor, AgentCheckpointStore.NONE);
+    }
+
+    /**
+     * @param parallelToolExecutor 为 null 时工具逐个执行
+     */
+    public LijayManusFactory(ToolCallback[] allTools, ChatModel dashscopeChatModel, ContextTrimmer contextTrimmer,
+                             AgentRunExecutor agentRunExecutor, ParallelToolExecutor parallelToolExecutor,
+                             AgentCheckpointStore checkpointStore) {
+        this.allTools = allTools;
+        // 初始化 AI 对话客户端
+        this.chatClient = ChatClient.builder(dashscopeChatModel)
+                .defaultAdvisors(new MyLoggerAdvisor())
+                .build();
+        // 工具按名称从固定的工具列表解析，不依赖每次请求的 ChatOptions
+        this.toolCallingManager = ToolCallingManager.builder()
+                .toolCallbackResolver(new StaticToolCallbackResolver(List.of(allTools)))
+                .build();
+        // 带工具定义的调用选项只创建一次
+        this.chatOptions = ToolCallAgent.toolCallingOptions(allTools);
+        this.contextTrimmer = contextTrimmer;
+        this.agentRunExecutor = agentRunExecutor;
+        this.parallelToolExecutor = parallelToolExecutor;
+        this.checkpointStore = checkpointStore;
+        this.toolPlanExecutor = parallelToolExecutor != null ? new ToolPlanExecutor(parallelToolExecutor) : null;
+    }
+
+    /**
+     * @return 处于 IDLE 状态的新代理实例
+     */
+    public LijayManus create() {
+        LijayManus lijayManus = new LijayManus(allTools, chatClient, toolCallingManager, chatOptions, contextTrimmer);
+        lijayManus.setRunExecutor(agentRunExecutor);
+        lijayManus.setParallelToolExecutor(parallelToolExecutor);
+        lijayManus.setCheckpointStore(checkpointStore);
+        return lijayManus;
+    }
+
+    /**
+     * 先规划后执行模式：一次模型调用规划多个工具调用，按依赖并行执行，只在每轮计划结束时再调用模型
+     *
+     * @return 处于 IDLE 状态的新代理实例
+     * @throws IllegalStateException 没有开启并行工具执行（agent.tools.parallel）
+     */
+    public PlanExecuteAgent createPlanExecute() {
+        if (toolPlanExecutor == null) {
+            throw new IllegalStateException("先规划后执行模式需要开启 agent.tools.parallel");
+        }
+        PlanExecuteAgent planExecuteAgent = new PlanExecuteAgent(allTools, toolPlanExecutor);
+        planExecuteAgent.setSystemPrompt(LijayManus.SYSTEM_PROMPT);
+        planExecuteAgent.setContextTrimmer(contextTrimmer);
+        planExecuteAgent.setChatClient(chatClient);
+        planExecuteAgent.setRunExecutor(agentRunExecutor);
+        planExecuteAgent.setCheckpointStore(checkpointStore);
+        return planExecuteAgent;
+    }
+
+    /**
+     * 按运行ID从检查点恢复代理（与原运行的模式相同），之后调用 resume / resumeStream 从最后完成的步骤继续执行
+     *
+     * @return 检查点不存在或已过期时为空
+     */
+    public Optional<BaseAgent> restore(String runId) {
+        return checkpointStore.load(runId).map(checkpoint -> {
+            BaseAgent agent = PlanExecuteAgent.NAME.equals(checkpoint.agentName()) ? createPlanExecute() : create();
+            agent.restore(checkpoint);
+            return agent;
+        });
+    }
+}
@@ -0,0 +1,143 @@
+package com.lijay.lijayaiagent.agent;
+
+import com.lijay.lijayaiagent.agent.model.AgentCheckpoint;
+import lombok.extern.slf4j.Slf4j;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 H2 MVStore 本地文件的检查点存储，进程重启后仍可恢复运行（单节点部署）
+ *
+ * - key 为运行ID，value 为 {@link AgentCheckpointCodec} 编码的字节，每次保存覆盖
+ * - 每次保存后立即提交：检查点每步只写一次，步骤本身以秒计，提交开销可以忽略
+ * - 超过 ttl 未更新的检查点在打开时和 {@link #start(Duration)} 的每个周期清理，读取时视为不存在
+ */
+@Slf4j
+public class MvStoreAgentCheckpointStore implements AgentCheckpointStore, AutoCloseable {
+
+    private static final String MAP_NAME = "agentCheckpoint";
+
+    private final MVStore store;
+
+    private final MVMap<String, byte[]> checkpoints;
+
+    private final Duration ttl;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param file MVStore 文件路径，父目录不存在时自动创建
+     * @param ttl  检查点的保留时长
+     */
+    public MvStoreAgentCheckpointStore(String file, Duration ttl) {
+        File parent = new File(file).getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IllegalStateException("无法创建目录：" + parent);
+        }
+        // 取消运行会中断正在保存检查点的线程，retry: 文件系统在通道被中断关闭后重新打开，避免存储因此失效
+        this.store = new MVStore.Builder().fileName("retry:" + file).open();
+        this.checkpoints = store.openMap(MAP_NAME);
+        this.ttl = ttl;
+        purgeExpired();
+    }
+
+    @Override
+    public void save(AgentCheckpoint checkpoint) {
+        checkpoints.put(checkpoint.runId(), AgentCheckpointCodec.encode(checkpoint));
+        store.commit();
+    }
+
+    @Override
+    public Optional<AgentCheckpoint> load(String runId) {
+        byte[] bytes = checkpoints.get(runId);
+        if (bytes == null || isExpired(AgentCheckpointCodec.readUpdatedAt(bytes))) {
+            return Optional.empty();
+        }
+        return Optional.of(AgentCheckpointCodec.decode(bytes));
+    }
+
+    @Override
+    public void delete(String runId) {
+        if (checkpoints.remove(runId) != null) {
+            store.commit();
+        }
+    }
+
+    /**
+     * 按固定间隔在后台清理过期的检查点，首次在一个间隔之后执行
+     */
+    public synchronized void start(Duration interval) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "agent-checkpoint-purger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                purgeExpired();
+            } catch (Exception e) {
+                log.warn("清理过期的智能体检查点失败，下个周期重试", e);
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 删除超过 ttl 未更新的检查点
+     *
+     * @return 删除的数量
+     */
+    public int purgeExpired() {
+        List<String> expired = new ArrayList<>();
+        for (Map.Entry<String, byte[]> entry : checkpoints.entrySet()) {
+            if (isExpired(AgentCheckpointCodec.readUpdatedAt(entry.getValue()))) {
+                expired.add(entry.getKey());
+            }
+        }
+        expired.forEach(checkpoints::remove);
+        if (!expired.isEmpty()) {
+            store.commit();
+            log.info("清理过期的智能体检查点 {} 个", expired.size());
+        }
+        return expired.size();
+    }
+
+    /**
+     * @return 存储中的检查点数（含尚未清理的过期检查点）
+     */
+    public int size() {
+        return checkpoints.size();
+    }
+
+    private boolean isExpired(long updatedAt) {
+        return System.currentTimeMillis() - updatedAt > ttl.toMillis();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            try {
+                scheduler.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!store.isClosed()) {
+            store.close();
+            log.info("智能体检查点存储已关闭");
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.lijay.lijayaiagent.agent;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.tool.ToolCallback;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * 并行执行一条助手消息中的多个工具调用，代替 ToolCallingManager 的逐个执行
+ *
+ * - 相邻的可并行调用作为一批同时执行（虚拟线程，信号量限制同时执行数），耗时取决于最慢的调用而不是总和
+ * - sequentialTools 中的工具（终止、写文件等有副作用的工具）是屏障：等待之前的调用全部结束后单独执行，之后的调用再开始
+ * - 每个调用单独计时，超时的调用被中断，工具结果为超时提示；工具抛出异常时结果为错误信息，不影响其它调用
+ * - 返回的 {@link ToolResponseMessage} 中工具结果的顺序与工具调用的顺序一致
+ *
+ * 调用方线程被中断（智能体取消）时，正在执行的调用被中断，尚未提交的调用不再执行。
+ * 超时从提交开始计算，包含等待执行许可的时间。线程安全，可以在多个代理实例之间共享。
+ */
+@Slf4j
+public class ParallelToolExecutor implements AutoCloseable {
+
+    /**
+     * 本类给出的失败提示
+     */
+    private static final List<String> FAILURE_PREFIXES = List.of("工具执行超时（", "工具执行失败：", "工具执行被中断", "未找到工具：");
+
+    /**
+     * tools 包中的工具捕获异常后返回的错误信息（FileOperationTool、PDFGenerationTool、ResourceDownloadTool、
+     * TerminalOperationTool、WebScrapingTool 的 Error 前缀，WebSearchTool 的 success=false JSON 和解析失败提示），
+     * 只匹配这些完整的前缀，正文恰好以 Error 开头的正常结果不算失败
+     */
+    private static final List<String> TOOL_ERROR_PREFIXES = List.of("Error reading file: ", "Error writing to file: ",
+            "Error generating PDF: ", "Error downloading resource: ", "Error executing command: ", "Error scraping web page: ",
+            "{\"success\":false,", "解析搜索结果失败: ");
+
+    private final Map<String, ToolCallback> tools = new HashMap<>();
+
+    private final Set<String> sequentialTools;
+
+    private final Duration timeout;
+
+    private final Semaphore permits;
+
+    private final ExecutorService threads = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("agent-tool-", 0).factory());
+
+    /**
+     * @param tools           可调用的工具
+     * @param maxParallel     同时执行的工具调用上限
+     * @param timeout         单个工具调用的超时时间
+     * @param sequentialTools 不能与其它调用同时执行的工具名
+     */
+    public ParallelToolExecutor(ToolCallback[] tools, int maxParallel, Duration timeout, Set<String> sequentialTools) {
+        if (maxParallel <= 0) {
+            throw new IllegalArgumentException("maxParallel 必须大于 0");
+        }
+        for (ToolCallback tool : tools) {
+            this.tools.put(tool.getToolDefinition().name(), tool);
+        }
+        this.permits = new Semaphore(maxParallel);
+        this.timeout = Objects.requireNonNull(timeout, "timeout 不能为空");
+        this.sequentialTools = Set.copyOf(sequentialTools);
+    }
+
+    /**
+     * 执行工具调用
+     *
+     * @return 按调用顺序排列的工具结果
+     */
+    public ToolResponseMessage execute(List<AssistantMessage.ToolCall> toolCalls) {
+        return execute(toolCalls, Listener.NONE);
+    }
+
+    /**
+     * 执行工具调用，每个调用开始和结束时通知 listener（在执行工具的线程上，按实际完成顺序）
+     *
+     * @return 按调用顺序排列的工具结果
+     */
+    public ToolResponseMessage execute(List<AssistantMessage.ToolCall> toolCalls, Listener listener) {
+        List<Invocation> batch = new ArrayList<>();
+        List<Invocation> invocations = new ArrayList<>(toolCalls.size());
+        for (AssistantMessage.ToolCall toolCall : toolCalls) {
+            Invocation invocation = new Invocation(toolCall, listener);
+            invocations.add(invocation);
+            if (Thread.currentThread().isInterrupted()) {
+                // 调用方已被中断（智能体取消），剩余的调用不再提交
+                invocation.result = "工具执行被中断";
+            } else if (sequentialTools.contains(toolCall.name())) {
+                // 屏障：等待之前的调用全部结束后单独执行
+                batch.forEach(this::await);
+                batch.clear();
+                if (Thread.currentThread().isInterrupted()) {
+                    invocation.result = "工具执行被中断";
+                    continue;
+                }
+                submit(invocation, () -> invocation.run(this::call));
+                await(invocation);
+            } else {
+                submit(invocation, () -> {
+                    permits.acquire();
+                    try {
+                        return invocation.run(this::call);
+                    } finally {
+                        permits.release();
+                    }
+                });
+                batch.add(invocation);
+            }
+        }
+        batch.forEach(this::await);
+
+        List<ToolResponseMessage.ToolResponse> responses = new ArrayList<>(toolCalls.size());
+        for (Invocation invocation : invocations) {
+            AssistantMessage.ToolCall toolCall = invocation.toolCall;
+            responses.add(new ToolResponseMessage.ToolResponse(toolCall.id(), toolCall.name(), invocation.result));
+        }
+        return ToolResponseMessage.builder().responses(responses).build();
+    }
+
+    /**
+     * @return 结果是否表示调用没有成功：本类给出的超时、失败、中断、未找到工具提示，或工具自身返回的错误信息
+     */
+    public static boolean isFailure(String result) {
+        if (result == null) {
+            return true;
+        }
+        if (FAILURE_PREFIXES.stream().anyMatch(result::startsWith)) {
+            return true;
+        }
+        // 工具返回的字符串经过 JSON 序列化，带引号和转义；前缀都很短，只还原开头一段
+        String head = result.startsWith("\"")
+                ? result.substring(1, Math.min(result.length(), 65)).replace("\\\"", "\"")
+                : result;
+        return TOOL_ERROR_PREFIXES.stream().anyMatch(head::startsWith);
+    }
+
+    /**
+     * @return 该工具是否只能单独执行
+     */
+    public boolean isSequential(String toolName) {
+        return sequentialTools.contains(toolName);
+    }
+
+    /**
+     * 提交调用并记录截止时间，等待结果时只等到截止时间为止
+     */
+    private void submit(Invocation invocation, Callable<String> task) {
+        invocation.deadlineNanos = System.nanoTime() + timeout.toNanos();
+        invocation.future = threads.submit(task);
+    }
+
+    private void await(Invocation invocation) {
+        AssistantMessage.ToolCall toolCall = invocation.toolCall;
+        Future<String> future = invocation.future;
+        if (future == null) {
+            return;
+        }
+        try {
+            // 同一批的调用同时提交，依次等待时不能每个都重新计时，否则 N 个卡住的调用要等 N 倍超时
+            long remainingNanos = Math.max(0, invocation.deadlineNanos - System.nanoTime());
+            invocation.result = future.get(remainingNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("工具 {} 执行超时（{}）", toolCall.name(), timeout);
+            invocation.result = "工具执行超时（" + timeout.toSeconds() + " 秒），请换一种方式继续";
+            invocation.finish(invocation.result);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            log.warn("工具 {} 执行失败", toolCall.name(), cause);
+            invocation.result = "工具执行失败：" + cause.getMessage();
+            invocation.finish(invocation.result);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            invocation.result = "工具执行被中断";
+            invocation.finish(invocation.result);
+        }
+    }
+
+    private String call(AssistantMessage.ToolCall toolCall) {
+        ToolCallback tool = tools.get(toolCall.name());
+        if (tool == null) {
+            return "未找到工具：" + toolCall.name() + "，可用的工具：" + tools.keySet();
+        }
+        return tool.call(toolCall.arguments());
+    }
+
+    /**
+     * 工具调用开始、结束的回调，实现需要线程安全，不应抛出异常
+     */
+    public interface Listener {
+
+        Listener NONE = new Listener() {
+        };
+
+        default void onStart(AssistantMessage.ToolCall toolCall) {
+        }
+
+        /**
+         * @param result 工具结果，超时或失败时为提示信息
+         */
+        default void onFinish(AssistantMessage.ToolCall toolCall, String result, long elapsedMs) {
+        }
+    }
+
+    /**
+     * 一次工具调用的执行状态，保证 onFinish 只通知一次（超时后工具线程可能仍然返回）
+     */
+    private static final class Invocation {
+
+        private final AssistantMessage.ToolCall toolCall;
+
+        private final Listener listener;
+
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        private volatile long startNanos = System.nanoTime();
+
+        private Future<String> future;
+
+        /**
+         * 提交时计算的截止时间（System.nanoTime）
+         */
+        private long deadlineNanos;
+
+        /**
+         * 写入给模型的结果，只由调用方线程设置
+         */
+        private String result;
+
+        private Invocation(AssistantMessage.ToolCall toolCall, Listener listener) {
+            this.toolCall = toolCall;
+            this.listener = listener;
+        }
+
+        private String run(Function<AssistantMessage.ToolCall, String> call) {
+            startNanos = System.nanoTime();
+            notify(() -> listener.onStart(toolCall));
+            String result = call.apply(toolCall);
+            finish(result);
+            log.debug("工具 {} 执行耗时 {} ms", toolCall.name(), elapsedMs());
+            return result;
+        }
+
+        private void finish(String result) {
+            if (finished.compareAndSet(false, true)) {
+                notify(() -> listener.onFinish(toolCall, result, elapsedMs()));
+            }
+        }
+
+        private long elapsedMs() {
+            return (System.nanoTime() - startNanos) / 1_000_000;
+        }
+
+        private void notify(Runnable callback) {
+            try {
+                callback.run();
+            } catch (RuntimeException e) {
+                log.debug("工具事件回调失败：{}", e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        threads.shutdownNow();
+    }
+}
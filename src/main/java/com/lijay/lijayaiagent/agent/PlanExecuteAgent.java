@@ -0,0 +1,171 @@
+package com.lijay.lijayaiagent.agent;
+
+import cn.hutool.core.util.StrUtil;
+import com.lijay.lijayaiagent.agent.model.AgentEvent;
+import com.lijay.lijayaiagent.agent.model.AgentState;
+import com.lijay.lijayaiagent.agent.model.ToolPlan;
+import com.lijay.lijayaiagent.chatmemory.ContextTrimmer;
+import com.lijay.lijayaiagent.chatmemory.TokenEstimator;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.util.List;
+
+/**
+ * 先规划后执行的代理：一次模型调用生成工具调用的依赖图（计划），没有依赖关系的步骤并行执行，
+ * 计划执行完（汇合点）或有步骤失败时才再次调用模型，决定下一轮计划或给出最终答案
+ *
+ * 每一步是一轮：think 生成计划，act 按依赖执行计划（{@link ToolPlanExecutor}）。
+ * 与 {@link ToolCallAgent} 每次工具调用后都要调用一次模型相比，多步骤任务的模型调用次数更少。
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+@Slf4j
+public class PlanExecuteAgent extends ReActAgent {
+
+    public static final String NAME = "lijayManusPlanner";
+
+    /**
+     * 写入消息上下文的单个步骤结果的最大长度，完整结果仍用于替换后续步骤参数中的 {{id}}
+     */
+    static final int MAX_RESULT_LENGTH = 2000;
+
+    private static final String PLANNING_PROMPT = """
+
+            Plan the work as a dependency graph of tool calls and reply with JSON only, in this format:
+            {"steps":[{"id":"s1","tool":"<tool name>","arguments":{...},"dependsOn":[]}],"answer":null}
+            - Steps run in parallel unless one lists another in "dependsOn"; only add a dependency when a step needs that step's result.
+            - Write "{{s1}}" inside an argument string to insert the result of step s1 (s1 must be in "dependsOn").
+            - Plan as many steps as you can without seeing their results. You will get the results and can plan again.
+            - When the task is complete, reply with "steps":[] and put the final answer for the user in "answer".
+            Available tools:
+            """;
+
+    // 可用的工具
+    private final ToolCallback[] availableTools;
+
+    // 计划执行器
+    private final ToolPlanExecutor toolPlanExecutor;
+
+    // 工具说明，追加在系统提示词之后
+    private final String planningPrompt;
+
+    // 上下文预算裁剪，为空时发送完整的消息上下文
+    private ContextTrimmer contextTrimmer;
+
+    // 本轮的计划（think 生成，act 执行）
+    private ToolPlan plan;
+
+    public PlanExecuteAgent(ToolCallback[] availableTools, ToolPlanExecutor toolPlanExecutor) {
+        super();
+        this.availableTools = availableTools;
+        this.toolPlanExecutor = toolPlanExecutor;
+        this.planningPrompt = PLANNING_PROMPT + toolCatalog(availableTools);
+        this.setName(NAME);
+    }
+
+    /**
+     * 调用一次模型生成本轮计划
+     *
+     * @return 是否得到了可以执行的计划（包括表示任务完成的空计划）
+     */
+    @Override
+    public boolean think() {
+        String systemPrompt = getSystemPrompt() + planningPrompt;
+        List<Message> messageList = getMessageList();
+        if (contextTrimmer != null) {
+            messageList = contextTrimmer.trim(messageList, TokenEstimator.estimate(systemPrompt));
+        }
+        String text;
+        try {
+            text = getChatClient().prompt(new Prompt(messageList))
+                    .system(systemPrompt)
+                    .call()
+                    .content();
+        } catch (Exception e) {
+            // 取消时中断了模型调用，不作为规划错误记录
+            getCancellationToken().throwIfCancelled();
+            log.error(getName() + "的规划过程遇到了问题：" + e.getMessage());
+            getMessageList().add(new AssistantMessage("处理时遇到了错误：" + e.getMessage()));
+            return false;
+        }
+        text = StrUtil.nullToEmpty(text);
+        getMessageList().add(new AssistantMessage(text));
+        emit(AgentEvent.thinking(getCurrentStep(), text));
+        try {
+            this.plan = ToolPlan.parse(text);
+        } catch (IllegalArgumentException e) {
+            log.warn(getName() + "的计划无法解析：" + e.getMessage());
+            getMessageList().add(new UserMessage("计划无法解析（" + e.getMessage() + "），请只输出符合格式的 JSON"));
+            return false;
+        }
+        log.info(getName() + "规划了 " + plan.steps().size() + " 个步骤");
+        plan.steps().forEach(step -> emit(AgentEvent.toolCall(getCurrentStep(),
+                ToolPlanExecutor.toToolCall(step, step.arguments()))));
+        return true;
+    }
+
+    /**
+     * 执行本轮计划，结果写入消息上下文供下一轮规划使用
+     *
+     * @return 执行结果
+     */
+    @Override
+    public String act() {
+        if (plan.isComplete()) {
+            setState(AgentState.FINISHED);
+            return StrUtil.blankToDefault(plan.answer(), "任务完成");
+        }
+        List<ToolPlanExecutor.StepOutcome> outcomes = toolPlanExecutor.execute(plan, new ParallelToolExecutor.Listener() {
+            @Override
+            public void onStart(AssistantMessage.ToolCall toolCall) {
+                emit(AgentEvent.toolStart(getCurrentStep(), toolCall));
+            }
+
+            @Override
+            public void onFinish(AssistantMessage.ToolCall toolCall, String result, long elapsedMs) {
+                emit(AgentEvent.toolEnd(getCurrentStep(), toolCall, result, elapsedMs));
+            }
+        });
+        StringBuilder report = new StringBuilder("计划执行结果：\n");
+        boolean allSucceeded = true;
+        boolean terminated = false;
+        for (ToolPlanExecutor.StepOutcome outcome : outcomes) {
+            allSucceeded &= outcome.succeeded();
+            terminated |= outcome.succeeded() && "doTerminate".equals(outcome.step().tool());
+            report.append('[').append(outcome.step().id()).append("] ")
+                    .append(outcome.step().tool()).append(' ')
+                    .append(outcome.succeeded() ? "成功" : outcome.status() == ToolPlanExecutor.Status.FAILED ? "失败" : "跳过")
+                    .append("：").append(StrUtil.maxLength(outcome.result(), MAX_RESULT_LENGTH)).append('\n');
+        }
+        if (terminated) {
+            // 任务结束，更改状态
+            setState(AgentState.FINISHED);
+        } else if (allSucceeded) {
+            report.append("请根据结果继续规划；任务已完成时返回空的 steps 并给出 answer。");
+        } else {
+            report.append("有步骤失败或被跳过，请根据原因调整计划；任务已完成时返回空的 steps 并给出 answer。");
+        }
+        String result = report.toString();
+        getMessageList().add(new UserMessage(result));
+        log.info(result);
+        return result;
+    }
+
+    private static String toolCatalog(ToolCallback[] tools) {
+        StringBuilder catalog = new StringBuilder();
+        for (ToolCallback tool : tools) {
+            ToolDefinition definition = tool.getToolDefinition();
+            catalog.append("- ").append(definition.name()).append(": ").append(definition.description())
+                    .append("\n  arguments schema: ").append(definition.inputSchema()).append('\n');
+        }
+        return catalog.toString();
+    }
+}
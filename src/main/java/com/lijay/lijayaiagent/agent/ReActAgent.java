@@ -40,11 +40,16 @@ public abstract class ReActAgent extends BaseAgent {
             if (!shouldAct) {
                 return "思考完成 - 无需行动";
             }
+            // 思考期间被取消时不再执行工具
+            getCancellationToken().throwIfCancelled();
             // 再行动
             return act();
+        } catch (AgentCancelledException e) {
+            throw e;
         } catch (Exception e) {
-            // 记录异常日志
-            e.printStackTrace();
+            // 取消导致的中断交给步骤循环处理
+            getCancellationToken().throwIfCancelled();
+            log.error("智能体 {} 第 {} 步执行失败", getName(), getCurrentStep(), e);
             return "步骤执行失败：" + e.getMessage();
         }
     }
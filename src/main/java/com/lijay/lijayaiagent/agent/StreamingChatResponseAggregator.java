@@ -0,0 +1,104 @@
+package com.lijay.lijayaiagent.agent;
+
+import cn.hutool.core.util.StrUtil;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 把流式调用的 ChatResponse 片段合并为一个完整的 ChatResponse（文本和工具调用），供 act 使用
+ *
+ * 工具调用片段的合并规则（兼容模型已合并和逐片段输出两种情况）：
+ * - 带 id 的片段：id 首次出现时新建工具调用，再次出现时追加参数片段
+ * - 不带 id 的片段：追加到最近的工具调用
+ * - 名称取第一个非空值
+ *
+ * 非线程安全，一次流式调用使用一个实例。
+ */
+public class StreamingChatResponseAggregator {
+
+    private final StringBuilder text = new StringBuilder();
+
+    private final Map<String, ToolCallBuilder> toolCalls = new LinkedHashMap<>();
+
+    private ToolCallBuilder lastToolCall;
+
+    /**
+     * 合并一个片段
+     *
+     * @return 该片段新增的文本，没有时为空字符串
+     */
+    public String add(ChatResponse chunk) {
+        if (chunk == null || chunk.getResult() == null || chunk.getResult().getOutput() == null) {
+            return "";
+        }
+        AssistantMessage output = chunk.getResult().getOutput();
+        String delta = StrUtil.nullToEmpty(output.getText());
+        text.append(delta);
+        for (AssistantMessage.ToolCall toolCall : output.getToolCalls()) {
+            ToolCallBuilder builder;
+            if (StrUtil.isNotEmpty(toolCall.id())) {
+                builder = toolCalls.computeIfAbsent(toolCall.id(), ToolCallBuilder::new);
+            } else if (lastToolCall != null) {
+                builder = lastToolCall;
+            } else {
+                continue;
+            }
+            builder.merge(toolCall);
+            lastToolCall = builder;
+        }
+        return delta;
+    }
+
+    /**
+     * @return 合并后的完整响应
+     */
+    public ChatResponse toChatResponse() {
+        List<AssistantMessage.ToolCall> merged = new ArrayList<>(toolCalls.size());
+        for (ToolCallBuilder builder : toolCalls.values()) {
+            merged.add(builder.build());
+        }
+        AssistantMessage message = AssistantMessage.builder()
+                .content(text.toString())
+                .toolCalls(merged)
+                .build();
+        return new ChatResponse(List.of(new Generation(message)));
+    }
+
+    private static final class ToolCallBuilder {
+
+        private final String id;
+
+        private String type;
+
+        private String name;
+
+        private final StringBuilder arguments = new StringBuilder();
+
+        private ToolCallBuilder(String id) {
+            this.id = id;
+        }
+
+        private void merge(AssistantMessage.ToolCall toolCall) {
+            if (StrUtil.isEmpty(type)) {
+                type = toolCall.type();
+            }
+            if (StrUtil.isEmpty(name)) {
+                name = toolCall.name();
+            }
+            if (toolCall.arguments() != null) {
+                arguments.append(toolCall.arguments());
+            }
+        }
+
+        private AssistantMessage.ToolCall build() {
+            String args = arguments.isEmpty() ? "{}" : arguments.toString();
+            return new AssistantMessage.ToolCall(id, StrUtil.blankToDefault(type, "function"), name, args);
+        }
+    }
+}
@@ -3,7 +3,10 @@ package com.lijay.lijayaiagent.agent;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.StrUtil;
 import com.alibaba.cloud.ai.dashscope.chat.DashScopeChatOptions;
+import com.lijay.lijayaiagent.agent.model.AgentEvent;
 import com.lijay.lijayaiagent.agent.model.AgentState;
+import com.lijay.lijayaiagent.chatmemory.ContextTrimmer;
+import com.lijay.lijayaiagent.chatmemory.TokenEstimator;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.extern.slf4j.Slf4j;
@@ -18,7 +21,9 @@ import org.springframework.ai.model.tool.ToolCallingManager;
 import org.springframework.ai.model.tool.ToolExecutionResult;
 import org.springframework.ai.tool.ToolCallback;
 
+import java.util.AbstractList;
 import java.util.List;
+import java.util.RandomAccess;
 import java.util.stream.Collectors;
 
 /**
@@ -38,15 +43,42 @@ public class ToolCallAgent extends ReActAgent {
     // 工具调用管理者
     private final ToolCallingManager toolCallingManager;
 
-    // 禁用 Spring AI 内置的工具调用机制，自己维护选项和消息上下文
+    // 带工具定义的调用选项（禁用 Spring AI 内置的工具调用机制，自己维护消息上下文），每个工具列表只创建一次
     private final ChatOptions chatOptions;
 
+    // 上下文预算裁剪，为空时发送完整的消息上下文
+    private ContextTrimmer contextTrimmer;
+
+    // 并行工具执行，为空时由 toolCallingManager 逐个执行
+    private ParallelToolExecutor parallelToolExecutor;
+
     public ToolCallAgent(ToolCallback[] availableTools) {
+        this(availableTools, ToolCallingManager.builder().build());
+    }
+
+    /**
+     * @param toolCallingManager 无状态，可以在多个代理实例之间共享
+     */
+    public ToolCallAgent(ToolCallback[] availableTools, ToolCallingManager toolCallingManager) {
+        this(availableTools, toolCallingManager, toolCallingOptions(availableTools));
+    }
+
+    /**
+     * @param chatOptions {@link #toolCallingOptions} 创建的选项，可以在使用同一工具列表的代理实例之间共享
+     */
+    public ToolCallAgent(ToolCallback[] availableTools, ToolCallingManager toolCallingManager, ChatOptions chatOptions) {
         super();
         this.availableTools = availableTools;
-        this.toolCallingManager = ToolCallingManager.builder().build();
-        // 禁用 Spring AI 内置的工具调用机制，自己维护选项和消息上下文
-        this.chatOptions = DashScopeChatOptions.builder()
+        this.toolCallingManager = toolCallingManager;
+        this.chatOptions = chatOptions;
+    }
+
+    /**
+     * 创建带工具定义的调用选项：禁用 Spring AI 内置的工具调用机制，工具定义随选项发送，不必每次调用再合并工具列表
+     */
+    public static ChatOptions toolCallingOptions(ToolCallback[] availableTools) {
+        return DashScopeChatOptions.builder()
+                .withToolCallbacks(List.of(availableTools))
                 .withInternalToolExecutionEnabled(false)
                 .build();
     }
@@ -58,20 +90,20 @@ public class ToolCallAgent extends ReActAgent {
      */
     @Override
     public boolean think() {
-        // 1、校验提示词，拼接用户提示词
-        if (StrUtil.isNotBlank(getNextStepPrompt())) {
-            UserMessage userMessage = new UserMessage(getNextStepPrompt());
-            getMessageList().add(userMessage);
-        }
+        // 1、构造本次发送的提示词（messageList 不变）
+        Prompt prompt = buildPrompt();
         // 2、调用 AI 大模型，获取工具调用结果
-        List<Message> messageList = getMessageList();
-        Prompt prompt = new Prompt(messageList, this.chatOptions);
         try {
-            ChatResponse chatResponse = getChatClient().prompt(prompt)
-                    .system(getSystemPrompt())
-                    .toolCallbacks(availableTools)
-                    .call()
-                    .chatResponse();
+            // 流式运行时使用流式调用，思考内容边生成边推送；否则阻塞调用
+            ChatResponse chatResponse;
+            if (isStreamModelOutput()) {
+                chatResponse = streamChatResponse(prompt);
+            } else {
+                chatResponse = getChatClient().prompt(prompt)
+                        .system(getSystemPrompt())
+                        .call()
+                        .chatResponse();
+            }
             // 记录响应，用于等下 Act
             this.toolCallChatResponse = chatResponse;
             // 3、解析工具调用结果，获取要调用的工具
@@ -87,6 +119,7 @@ public class ToolCallAgent extends ReActAgent {
                     .map(toolCall -> String.format("工具名称：%s，参数：%s", toolCall.name(), toolCall.arguments()))
                     .collect(Collectors.joining("\n"));
             log.info(toolCallInfo);
+            toolCallList.forEach(toolCall -> emit(AgentEvent.toolCall(getCurrentStep(), toolCall)));
             // 如果不需要调用工具，返回 false
             if (toolCallList.isEmpty()) {
                 // 只有不调用工具时，才需要手动记录助手消息
@@ -97,12 +130,59 @@ public class ToolCallAgent extends ReActAgent {
                 return true;
             }
         } catch (Exception e) {
+            // 取消时中断了模型调用，不作为思考错误记录
+            getCancellationToken().throwIfCancelled();
             log.error(getName() + "的思考过程遇到了问题：" + e.getMessage());
             getMessageList().add(new AssistantMessage("处理时遇到了错误：" + e.getMessage()));
             return false;
         }
     }
 
+    /**
+     * 本次发送给模型的提示词：按预算裁剪后的上下文 + 一条临时的下一步提示
+     *
+     * 下一步提示只出现在本次请求的末尾，不写入 messageList，上下文中不会每步累积一份；
+     * 之前的消息（和系统提示词、工具定义）在各步之间保持不变，消息对象按引用复用，token 估算有缓存。
+     * 追加下一步提示时使用只读视图，不复制上下文列表。
+     */
+    Prompt buildPrompt() {
+        String nextStepPrompt = getNextStepPrompt();
+        List<Message> messageList = getMessageList();
+        if (contextTrimmer != null) {
+            // 只裁剪本次发送的消息，messageList 保留完整上下文供 act 使用
+            int reserved = TokenEstimator.estimate(getSystemPrompt()) + TokenEstimator.estimate(nextStepPrompt);
+            messageList = contextTrimmer.trim(messageList, reserved);
+        }
+        if (StrUtil.isNotBlank(nextStepPrompt)) {
+            // 只读视图，不复制上下文
+            messageList = new AppendedList(messageList, new UserMessage(nextStepPrompt));
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("{} 第 {} 步提示词：{} 条消息，约 {} tokens", getName(), getCurrentStep(), messageList.size(),
+                    TokenEstimator.estimate(getSystemPrompt()) + messageList.stream().mapToInt(TokenEstimator::estimate).sum());
+        }
+        return new Prompt(messageList, this.chatOptions);
+    }
+
+    /**
+     * 流式调用模型，每个文本片段作为 thinking 事件推送，结束后合并为完整响应（含工具调用）
+     */
+    private ChatResponse streamChatResponse(Prompt prompt) {
+        StreamingChatResponseAggregator aggregator = new StreamingChatResponseAggregator();
+        getChatClient().prompt(prompt)
+                .system(getSystemPrompt())
+                .stream()
+                .chatResponse()
+                .doOnNext(chunk -> {
+                    String delta = aggregator.add(chunk);
+                    if (!delta.isEmpty()) {
+                        emit(AgentEvent.thinking(getCurrentStep(), delta));
+                    }
+                })
+                .blockLast();
+        return aggregator.toChatResponse();
+    }
+
     /**
      * 执行工具调用并处理结果
      *
@@ -113,12 +193,42 @@ public class ToolCallAgent extends ReActAgent {
         if (!toolCallChatResponse.hasToolCalls()) {
             return "没有工具需要调用";
         }
-        // 调用工具
-        Prompt prompt = new Prompt(getMessageList(), this.chatOptions);
-        ToolExecutionResult toolExecutionResult = toolCallingManager.executeToolCalls(prompt, toolCallChatResponse);
-        // 记录消息上下文，conversationHistory 已经包含了助手消息和工具调用返回的结果
-        setMessageList(toolExecutionResult.conversationHistory());
-        ToolResponseMessage toolResponseMessage = (ToolResponseMessage) CollUtil.getLast(toolExecutionResult.conversationHistory());
+        ToolResponseMessage toolResponseMessage;
+        if (parallelToolExecutor != null) {
+            // 并行调用工具，结果按调用顺序排列
+            AssistantMessage assistantMessage = toolCallChatResponse.getResult().getOutput();
+            toolResponseMessage = parallelToolExecutor.execute(assistantMessage.getToolCalls(), new ParallelToolExecutor.Listener() {
+                @Override
+                public void onStart(AssistantMessage.ToolCall toolCall) {
+                    emit(AgentEvent.toolStart(getCurrentStep(), toolCall));
+                }
+
+                @Override
+                public void onFinish(AssistantMessage.ToolCall toolCall, String result, long elapsedMs) {
+                    emit(AgentEvent.toolEnd(getCurrentStep(), toolCall, result, elapsedMs));
+                }
+            });
+            // 记录消息上下文：助手消息和工具调用返回的结果（追加，不复制已有的上下文）
+            getMessageList().add(assistantMessage);
+            getMessageList().add(toolResponseMessage);
+        } else {
+            // 调用工具（逐个执行，开始和结束事件按整批发出）
+            List<AssistantMessage.ToolCall> toolCalls = toolCallChatResponse.getResult().getOutput().getToolCalls();
+            toolCalls.forEach(toolCall -> emit(AgentEvent.toolStart(getCurrentStep(), toolCall)));
+            long start = System.nanoTime();
+            Prompt prompt = new Prompt(getMessageList(), this.chatOptions);
+            ToolExecutionResult toolExecutionResult = toolCallingManager.executeToolCalls(prompt, toolCallChatResponse);
+            // 记录消息上下文：conversationHistory 的最后两条是助手消息和工具调用返回的结果，只追加这两条
+            List<Message> conversationHistory = toolExecutionResult.conversationHistory();
+            toolResponseMessage = (ToolResponseMessage) CollUtil.getLast(conversationHistory);
+            getMessageList().add(conversationHistory.get(conversationHistory.size() - 2));
+            getMessageList().add(toolResponseMessage);
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            for (int i = 0; i < toolCalls.size() && i < toolResponseMessage.getResponses().size(); i++) {
+                emit(AgentEvent.toolEnd(getCurrentStep(), toolCalls.get(i),
+                        toolResponseMessage.getResponses().get(i).responseData(), elapsedMs));
+            }
+        }
         // 判断是否调用了终止工具
         boolean terminateToolCalled = toolResponseMessage.getResponses().stream()
                 .anyMatch(response -> response.name().equals("doTerminate"));
@@ -132,4 +242,29 @@ public class ToolCallAgent extends ReActAgent {
         log.info(results);
         return results;
     }
-}
\ No newline at end of file
+
+    /**
+     * 上下文 + 末尾一条消息的只读视图，随机访问，不复制上下文
+     */
+    private static final class AppendedList extends AbstractList<Message> implements RandomAccess {
+
+        private final List<Message> head;
+
+        private final Message last;
+
+        private AppendedList(List<Message> head, Message last) {
+            this.head = head;
+            this.last = last;
+        }
+
+        @Override
+        public Message get(int index) {
+            return index == head.size() ? last : head.get(index);
+        }
+
+        @Override
+        public int size() {
+            return head.size() + 1;
+        }
+    }
+}
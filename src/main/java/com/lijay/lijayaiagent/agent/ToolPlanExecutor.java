@@ -0,0 +1,116 @@
+package com.lijay.lijayaiagent.agent;
+
+import cn.hutool.json.JSONUtil;
+import com.lijay.lijayaiagent.agent.model.ToolPlan;
+import com.lijay.lijayaiagent.agent.model.ToolPlanStep;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 按依赖关系执行计划中的工具调用，不调用模型
+ *
+ * - 按依赖层次分批：依赖全部结束的步骤作为一批交给 {@link ParallelToolExecutor} 并行执行（共享并发上限、超时和有副作用工具的屏障）
+ * - 参数中的 {{id}} 替换为依赖步骤的结果（按 JSON 字符串转义）
+ * - 依赖的步骤没有成功时跳过该步骤；依赖不存在或存在循环的步骤同样跳过
+ * - 调用方线程被中断（智能体取消）时剩余的步骤不再执行
+ *
+ * 无状态，线程安全。
+ */
+public class ToolPlanExecutor {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{\\{\\s*([\\w-]+)\\s*}}");
+
+    private final ParallelToolExecutor toolExecutor;
+
+    public ToolPlanExecutor(ParallelToolExecutor toolExecutor) {
+        this.toolExecutor = toolExecutor;
+    }
+
+    /**
+     * @return 每个步骤的执行结果，顺序与计划中的步骤一致
+     */
+    public List<StepOutcome> execute(ToolPlan plan, ParallelToolExecutor.Listener listener) {
+        Map<String, StepOutcome> outcomes = new HashMap<>();
+        List<ToolPlanStep> pending = new ArrayList<>(plan.steps());
+        while (!pending.isEmpty()) {
+            List<ToolPlanStep> ready = pending.stream()
+                    .filter(step -> outcomes.keySet().containsAll(step.dependsOn()))
+                    .toList();
+            if (ready.isEmpty() || Thread.currentThread().isInterrupted()) {
+                String reason = ready.isEmpty() ? "依赖的步骤不存在或存在循环依赖，跳过" : "执行被中断，跳过";
+                pending.forEach(step -> outcomes.put(step.id(), new StepOutcome(step, reason, Status.SKIPPED)));
+                break;
+            }
+            pending.removeAll(ready);
+            List<ToolPlanStep> batch = new ArrayList<>(ready.size());
+            for (ToolPlanStep step : ready) {
+                Optional<String> unsuccessful = step.dependsOn().stream()
+                        .filter(id -> !outcomes.get(id).succeeded())
+                        .findFirst();
+                if (unsuccessful.isPresent()) {
+                    outcomes.put(step.id(), new StepOutcome(step,
+                            "依赖的步骤 " + unsuccessful.get() + " 没有成功，跳过", Status.SKIPPED));
+                } else {
+                    batch.add(step);
+                }
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+            List<AssistantMessage.ToolCall> toolCalls = batch.stream()
+                    .map(step -> toToolCall(step, resolveArguments(step.arguments(), outcomes)))
+                    .toList();
+            List<ToolResponseMessage.ToolResponse> responses = toolExecutor.execute(toolCalls, listener).getResponses();
+            for (int i = 0; i < batch.size(); i++) {
+                String result = responses.get(i).responseData();
+                outcomes.put(batch.get(i).id(), new StepOutcome(batch.get(i), result,
+                        ParallelToolExecutor.isFailure(result) ? Status.FAILED : Status.SUCCEEDED));
+            }
+        }
+        return plan.steps().stream().map(step -> outcomes.get(step.id())).toList();
+    }
+
+    /**
+     * @return 步骤对应的工具调用，调用ID为步骤ID
+     */
+    public static AssistantMessage.ToolCall toToolCall(ToolPlanStep step, String arguments) {
+        return new AssistantMessage.ToolCall(step.id(), "function", step.tool(), arguments);
+    }
+
+    private static String resolveArguments(String arguments, Map<String, StepOutcome> outcomes) {
+        Matcher matcher = PLACEHOLDER.matcher(arguments);
+        StringBuilder resolved = new StringBuilder(arguments.length());
+        while (matcher.find()) {
+            StepOutcome outcome = outcomes.get(matcher.group(1));
+            // 未知的步骤ID原样保留
+            String replacement = outcome == null ? matcher.group() : JSONUtil.quote(outcome.result(), false);
+            matcher.appendReplacement(resolved, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(resolved);
+        return resolved.toString();
+    }
+
+    public enum Status {
+        SUCCEEDED, FAILED, SKIPPED
+    }
+
+    /**
+     * @param step   计划中的步骤
+     * @param result 工具结果，失败或跳过时为原因
+     * @param status 执行状态
+     */
+    public record StepOutcome(ToolPlanStep step, String result, Status status) {
+
+        public boolean succeeded() {
+            return status == Status.SUCCEEDED;
+        }
+    }
+}
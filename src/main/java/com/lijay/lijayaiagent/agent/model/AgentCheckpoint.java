@@ -0,0 +1,32 @@
+package com.lijay.lijayaiagent.agent.model;
+
+import org.springframework.ai.chat.messages.Message;
+
+import java.util.List;
+
+/**
+ * 智能体运行的检查点，每完成一步保存一次，用于断线重连或进程重启后从最后完成的步骤继续执行
+ *
+ * @param runId       运行ID
+ * @param agentName   代理名称，恢复时据此创建同类代理
+ * @param state       保存时的状态（RUNNING 或 FINISHED）
+ * @param currentStep 已完成的步骤数
+ * @param messages    完整的消息上下文
+ * @param stepResults 已完成步骤的结果
+ * @param updatedAt   保存时间（毫秒时间戳）
+ */
+public record AgentCheckpoint(String runId, String agentName, AgentState state, int currentStep, List<Message> messages,
+                              List<String> stepResults, long updatedAt) {
+
+    public AgentCheckpoint {
+        messages = List.copyOf(messages);
+        stepResults = List.copyOf(stepResults);
+    }
+
+    /**
+     * @return 运行是否已经结束，恢复时不再执行步骤
+     */
+    public boolean isFinished() {
+        return state == AgentState.FINISHED;
+    }
+}
@@ -0,0 +1,62 @@
+package com.lijay.lijayaiagent.agent.model;
+
+import cn.hutool.core.util.StrUtil;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.springframework.ai.chat.messages.AssistantMessage;
+
+/**
+ * 智能体流式输出的事件，作为 SSE 的 data 以 JSON 发送（空字段不输出）
+ *
+ * @param type       事件类型
+ * @param step       所属步骤，从 1 开始
+ * @param toolCallId 工具调用ID（工具相关事件）
+ * @param toolName   工具名（工具相关事件）
+ * @param content    运行ID、思考片段、工具参数、工具结果或步骤结果
+ * @param elapsedMs  工具执行耗时（tool_end）
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record AgentEvent(AgentEventType type, int step, String toolCallId, String toolName, String content,
+                         Long elapsedMs) {
+
+    /**
+     * tool_end 事件中工具结果的最大长度，完整结果仍然进入消息上下文
+     */
+    public static final int MAX_TOOL_RESULT_LENGTH = 500;
+
+    public static AgentEvent run(String runId, int completedSteps) {
+        return new AgentEvent(AgentEventType.RUN, completedSteps, null, null, runId, null);
+    }
+
+    public static AgentEvent step(int step) {
+        return new AgentEvent(AgentEventType.STEP, step, null, null, null, null);
+    }
+
+    public static AgentEvent thinking(int step, String delta) {
+        return new AgentEvent(AgentEventType.THINKING, step, null, null, delta, null);
+    }
+
+    public static AgentEvent toolCall(int step, AssistantMessage.ToolCall toolCall) {
+        return new AgentEvent(AgentEventType.TOOL_CALL, step, toolCall.id(), toolCall.name(), toolCall.arguments(), null);
+    }
+
+    public static AgentEvent toolStart(int step, AssistantMessage.ToolCall toolCall) {
+        return new AgentEvent(AgentEventType.TOOL_START, step, toolCall.id(), toolCall.name(), null, null);
+    }
+
+    public static AgentEvent toolEnd(int step, AssistantMessage.ToolCall toolCall, String result, long elapsedMs) {
+        return new AgentEvent(AgentEventType.TOOL_END, step, toolCall.id(), toolCall.name(),
+                StrUtil.maxLength(result, MAX_TOOL_RESULT_LENGTH), elapsedMs);
+    }
+
+    public static AgentEvent result(int step, String result) {
+        return new AgentEvent(AgentEventType.RESULT, step, null, null, result, null);
+    }
+
+    public static AgentEvent done(int step, String message) {
+        return new AgentEvent(AgentEventType.DONE, step, null, null, message, null);
+    }
+
+    public static AgentEvent error(int step, String message) {
+        return new AgentEvent(AgentEventType.ERROR, step, null, null, message, null);
+    }
+}
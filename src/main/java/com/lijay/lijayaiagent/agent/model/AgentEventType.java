@@ -0,0 +1,62 @@
+package com.lijay.lijayaiagent.agent.model;
+
+/**
+ * 智能体流式输出的事件类型，eventName 即 SSE 的 event 字段
+ */
+public enum AgentEventType {
+
+    /**
+     * 运行开始或恢复，content 为运行ID（断线后用于恢复），step 为已完成的步骤数
+     */
+    RUN("run"),
+
+    /**
+     * 开始执行一个步骤
+     */
+    STEP("step"),
+
+    /**
+     * 模型输出的思考内容片段
+     */
+    THINKING("thinking"),
+
+    /**
+     * 模型决定调用的工具及参数
+     */
+    TOOL_CALL("tool_call"),
+
+    /**
+     * 工具开始执行
+     */
+    TOOL_START("tool_start"),
+
+    /**
+     * 工具执行结束（包括超时和失败）
+     */
+    TOOL_END("tool_end"),
+
+    /**
+     * 步骤执行结果
+     */
+    RESULT("result"),
+
+    /**
+     * 运行结束
+     */
+    DONE("done"),
+
+    /**
+     * 运行出错
+     */
+    ERROR("error");
+
+    private final String eventName;
+
+    AgentEventType(String eventName) {
+        this.eventName = eventName;
+    }
+
+    public String getEventName() {
+        return eventName;
+    }
+}
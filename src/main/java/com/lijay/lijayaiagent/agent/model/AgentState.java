@@ -23,5 +23,10 @@ public enum AgentState {
     /**
      * 错误状态
      */
-    ERROR
+    ERROR,
+
+    /**
+     * 已取消状态（客户端断开、超时或主动取消）
+     */
+    CANCELLED
 }
\ No newline at end of file
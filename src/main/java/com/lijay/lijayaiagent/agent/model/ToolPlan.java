@@ -0,0 +1,75 @@
+package com.lijay.lijayaiagent.agent.model;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONException;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 规划调用生成的计划：工具调用的依赖图，没有步骤时表示任务已完成
+ *
+ * 模型输出格式：
+ * <pre>
+ * {"steps":[{"id":"s1","tool":"searchWeb","arguments":{"query":"..."},"dependsOn":[]}],"answer":null}
+ * </pre>
+ *
+ * @param steps  工具调用步骤，按模型给出的顺序
+ * @param answer 最终答案（steps 为空时）
+ */
+public record ToolPlan(List<ToolPlanStep> steps, String answer) {
+
+    public ToolPlan {
+        steps = List.copyOf(steps);
+    }
+
+    /**
+     * 从模型输出中解析计划，允许 JSON 前后有说明文字或代码块标记
+     *
+     * @throws IllegalArgumentException 不是合法的计划
+     */
+    public static ToolPlan parse(String text) {
+        int start = StrUtil.nullToEmpty(text).indexOf('{');
+        int end = StrUtil.nullToEmpty(text).lastIndexOf('}');
+        if (start < 0 || end <= start) {
+            throw new IllegalArgumentException("计划不是 JSON：" + StrUtil.maxLength(text, 200));
+        }
+        try {
+            JSONObject json = JSONUtil.parseObj(text.substring(start, end + 1));
+            JSONArray array = json.getJSONArray("steps");
+            List<ToolPlanStep> steps = new ArrayList<>();
+            Set<String> ids = new HashSet<>();
+            for (int i = 0; array != null && i < array.size(); i++) {
+                JSONObject step = array.getJSONObject(i);
+                String id = StrUtil.blankToDefault(step.getStr("id"), "s" + (i + 1));
+                if (!ids.add(id)) {
+                    throw new IllegalArgumentException("计划中的步骤ID重复：" + id);
+                }
+                String tool = step.getStr("tool");
+                if (StrUtil.isBlank(tool)) {
+                    throw new IllegalArgumentException("计划中的步骤 " + id + " 没有指定工具");
+                }
+                Object arguments = step.get("arguments");
+                JSONArray dependsOn = step.getJSONArray("dependsOn");
+                steps.add(new ToolPlanStep(id, tool,
+                        arguments == null ? "{}" : arguments.toString(),
+                        dependsOn == null ? List.of() : dependsOn.toList(String.class)));
+            }
+            return new ToolPlan(steps, json.getStr("answer"));
+        } catch (JSONException e) {
+            throw new IllegalArgumentException("计划 JSON 格式错误：" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return 是否没有需要执行的步骤（任务已完成）
+     */
+    public boolean isComplete() {
+        return steps.isEmpty();
+    }
+}
@@ -0,0 +1,18 @@
+package com.lijay.lijayaiagent.agent.model;
+
+import java.util.List;
+
+/**
+ * 计划中的一个工具调用
+ *
+ * @param id        步骤ID，计划内唯一
+ * @param tool      工具名
+ * @param arguments 工具参数（JSON），字符串值中的 {{id}} 在执行前替换为该步骤的结果
+ * @param dependsOn 依赖的步骤ID，全部成功后才执行
+ */
+public record ToolPlanStep(String id, String tool, String arguments, List<String> dependsOn) {
+
+    public ToolPlanStep {
+        dependsOn = List.copyOf(dependsOn);
+    }
+}
@@ -1,12 +1,15 @@
 package com.lijay.lijayaiagent.app;
 
+import com.lijay.lijayaiagent.advisor.AsyncChatMemoryAdvisor;
 import com.lijay.lijayaiagent.advisor.MyLoggerAdvisor;
+import com.lijay.lijayaiagent.advisor.TokenBudgetAdvisor;
+import com.lijay.lijayaiagent.chatmemory.AsyncChatMemory;
+import com.lijay.lijayaiagent.chatmemory.ContextTrimmer;
 import com.lijay.lijayaiagent.multimodal.MultimodalChatRequest;
 import com.lijay.lijayaiagent.multimodal.MultimodalChatService;
 import com.lijay.lijayaiagent.rag.QueryRewriter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
 import org.springframework.ai.chat.client.advisor.api.Advisor;
 import org.springframework.ai.chat.memory.ChatMemory;
 import org.springframework.ai.chat.model.ChatModel;
@@ -54,12 +57,13 @@ public class LoveApp {
     ToolCallbackProvider toolCallbackProvider;
 
 
-    public LoveApp(ChatModel dashscopeChatModel, MultimodalChatService multimodalChatService, ChatMemory chatMemory) {
-        // 初始化基于MyBatis-Plus的JDBC对话记忆（推荐用于生产环境）
-
-        // 初始化基于文件的对话记忆（适合开发测试）
-//        String fileDir = System.getProperty("user.dir") + "/tmp/file-based-chat-memory";
-//        chatMemory = new FileBasedChatMemory(fileDir);
+    public LoveApp(ChatModel dashscopeChatModel, MultimodalChatService multimodalChatService, AsyncChatMemory asyncChatMemory,
+                   ContextTrimmer contextTrimmer) {
+        // 注入的对话记忆由 chat-memory.store 选择存储后端（见 ChatMemoryConfig），
+        // 经 AsyncChatMemory 在独立线程上读写，流式对话不会阻塞 Reactor / Netty 事件线程：
+        // jdbc：基于MyBatis-Plus的JDBC对话记忆（推荐用于生产环境，支持多实例）
+        // file：基于文件的对话记忆（适合开发测试）
+        // mvstore：基于 H2 MVStore 的嵌入式对话记忆（适合单节点部署）
 
         // 初始化基于内存的对话记忆（简单快速，但重启后数据丢失）
 //        ChatMemory chatMemory = MessageWindowChatMemory.builder()
@@ -70,7 +74,9 @@ public class LoveApp {
         chatClient = ChatClient.builder(dashscopeChatModel)
                 .defaultSystem(SYSTEM_PROMPT)
                 .defaultAdvisors(
-                        MessageChatMemoryAdvisor.builder(chatMemory).build(),
+                        new AsyncChatMemoryAdvisor(asyncChatMemory),
+                        // 拼接历史后按 token 预算裁剪，超长的工具结果截断（chat-memory.context-budget）
+                        new TokenBudgetAdvisor(contextTrimmer),
                         // 自定义日志 Advisor，输出简答对话
                         new MyLoggerAdvisor()
                         // 自定义推理增强 Advisor，可按需开启
@@ -0,0 +1,29 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import org.springframework.ai.chat.messages.Message;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * 非阻塞的对话记忆接口，供流式对话使用
+ *
+ * 返回的 Mono 在订阅时才执行，实际的数据库 / 文件读写不在订阅线程（可能是 Reactor / Netty 事件线程）上进行。
+ */
+public interface AsyncChatMemory {
+
+    /**
+     * 追加消息，完成时发出 onComplete
+     */
+    Mono<Void> add(String conversationId, List<Message> messages);
+
+    /**
+     * 读取会话历史（按底层 ChatMemory 的窗口），按时间正序排列
+     */
+    Mono<List<Message>> get(String conversationId);
+
+    /**
+     * 清空会话历史
+     */
+    Mono<Void> clear(String conversationId);
+}
@@ -0,0 +1,21 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 支持跨会话批量写入的对话记忆
+ * 供 {@link WriteBehindChatMemory} 等装饰器把多个会话的消息合并为一次写入
+ */
+public interface BatchChatMemory extends ChatMemory {
+
+    /**
+     * 一次性追加多个会话的消息，同一会话内保持列表顺序
+     *
+     * @param messagesByConversation 会话ID -> 待追加的消息
+     */
+    void addAll(Map<String, List<Message>> messagesByConversation);
+}
@@ -0,0 +1,305 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 进程内 LRU 缓存的对话记忆装饰器
+ *
+ * - get：命中时直接返回已反序列化的消息列表，未命中时从 delegate 加载并缓存
+ * - add：先写 delegate，再把新消息追加到缓存（write-through），追加后按 {@link ChatMemoryWindow} 截取
+ * - clear：清空 delegate 并失效缓存
+ * - close：关闭 delegate（如果它需要关闭）
+ * - 按缓存的消息总条数和估算字节数淘汰最久未访问的会话
+ *
+ * 加载与写入并发时（同一版本分段内有写入发生），放弃缓存本次结果而不是缓存可能过期的数据。
+ * 多实例部署时其它实例的写入不会失效本机缓存，只适合会话粘滞到单实例的场景。
+ */
+public class CachingChatMemory implements ChatMemory, MeterBinder, AutoCloseable {
+
+    private static final int VERSION_STRIPES = 64;
+
+    /**
+     * 每条消息的固定开销估算（对象头、元数据 Map 等）
+     */
+    private static final long MESSAGE_OVERHEAD_BYTES = 96;
+
+    private final ChatMemory delegate;
+
+    private final ChatMemoryWindow window;
+
+    private final long maxMessages;
+
+    private final long maxBytes;
+
+    /**
+     * 访问顺序的 LinkedHashMap，头部为最久未访问的会话；由 this 的监视器保护
+     */
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * 按会话ID分段的写入版本号，加载期间版本变化则不缓存加载结果
+     */
+    private final long[] versions = new long[VERSION_STRIPES];
+
+    private long cachedMessages;
+
+    private long cachedBytes;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder puts = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param delegate    被缓存的对话记忆
+     * @param window      delegate 读取时使用的窗口，追加消息后按同一窗口截取
+     * @param maxMessages 缓存的消息总条数上限
+     * @param maxBytes    缓存的估算字节数上限
+     */
+    public CachingChatMemory(ChatMemory delegate, ChatMemoryWindow window, long maxMessages, long maxBytes) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate 不能为空");
+        this.window = Objects.requireNonNull(window, "window 不能为空");
+        this.maxMessages = maxMessages;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public List<Message> get(String conversationId) {
+        Objects.requireNonNull(conversationId, "conversationId 不能为空");
+        int stripe = stripe(conversationId);
+        long version;
+        synchronized (this) {
+            CacheEntry entry = entries.get(conversationId);
+            if (entry != null) {
+                hits.increment();
+                return new ArrayList<>(entry.messages());
+            }
+            version = versions[stripe];
+        }
+        misses.increment();
+        List<Message> loaded = delegate.get(conversationId);
+        synchronized (this) {
+            if (versions[stripe] == version) {
+                put(conversationId, new ArrayList<>(loaded));
+            }
+        }
+        return new ArrayList<>(loaded);
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        Objects.requireNonNull(conversationId, "conversationId 不能为空");
+        if (messages == null || messages.isEmpty()) {
+            return;
+        }
+        int stripe = stripe(conversationId);
+        long version;
+        synchronized (this) {
+            version = ++versions[stripe];
+        }
+        boolean success = false;
+        try {
+            delegate.add(conversationId, messages);
+            success = true;
+        } finally {
+            synchronized (this) {
+                // 期间同一分段有其它写入时无法确定顺序，直接失效
+                boolean exclusive = versions[stripe] == version;
+                versions[stripe]++;
+                CacheEntry entry = entries.get(conversationId);
+                if (entry != null) {
+                    if (success && exclusive) {
+                        List<Message> merged = new ArrayList<>(entry.messages().size() + messages.size());
+                        merged.addAll(entry.messages());
+                        merged.addAll(messages);
+                        put(conversationId, new ArrayList<>(window.apply(merged)));
+                    } else {
+                        remove(conversationId);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        Objects.requireNonNull(conversationId, "conversationId 不能为空");
+        int stripe = stripe(conversationId);
+        synchronized (this) {
+            versions[stripe]++;
+            remove(conversationId);
+        }
+        try {
+            delegate.clear(conversationId);
+        } finally {
+            synchronized (this) {
+                versions[stripe]++;
+                remove(conversationId);
+            }
+        }
+    }
+
+    /**
+     * 只失效缓存，不修改 delegate（数据已被其它途径删除时使用，例如过期清理）
+     */
+    public void invalidate(String conversationId) {
+        Objects.requireNonNull(conversationId, "conversationId 不能为空");
+        synchronized (this) {
+            versions[stripe(conversationId)]++;
+            remove(conversationId);
+        }
+    }
+
+    /**
+     * 注册缓存指标：cache.gets（result=hit/miss）、cache.puts、cache.evictions、cache.size 及缓存的消息数和字节数
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .tag("cache", "chatMemory").tag("result", "hit")
+                .description("对话记忆缓存命中次数")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .tag("cache", "chatMemory").tag("result", "miss")
+                .description("对话记忆缓存未命中次数")
+                .register(registry);
+        FunctionCounter.builder("cache.puts", puts, LongAdder::sum)
+                .tag("cache", "chatMemory")
+                .description("对话记忆缓存写入次数")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", evictions, LongAdder::sum)
+                .tag("cache", "chatMemory")
+                .description("对话记忆缓存淘汰的会话数")
+                .register(registry);
+        Gauge.builder("cache.size", this, CachingChatMemory::size)
+                .tag("cache", "chatMemory")
+                .description("缓存中的会话数")
+                .register(registry);
+        Gauge.builder("chat.memory.cache.messages", this, CachingChatMemory::cachedMessages)
+                .description("缓存中的消息条数")
+                .register(registry);
+        Gauge.builder("chat.memory.cache.bytes", this, CachingChatMemory::cachedBytes)
+                .baseUnit("bytes")
+                .description("缓存中的消息估算字节数")
+                .register(registry);
+    }
+
+    /**
+     * 关闭被装饰的对话记忆（例如排空异步写回队列）
+     */
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long cachedMessages() {
+        return cachedMessages;
+    }
+
+    public synchronized long cachedBytes() {
+        return cachedBytes;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * 写入缓存并淘汰超限的会话，调用方需持有 this 的监视器
+     */
+    private void put(String conversationId, List<Message> messages) {
+        long bytes = estimateBytes(messages);
+        remove(conversationId);
+        if (messages.size() > maxMessages || bytes > maxBytes) {
+            // 单个会话就超过上限，不缓存
+            return;
+        }
+        entries.put(conversationId, new CacheEntry(messages, bytes));
+        cachedMessages += messages.size();
+        cachedBytes += bytes;
+        puts.increment();
+        Iterator<Map.Entry<String, CacheEntry>> iterator = entries.entrySet().iterator();
+        while ((cachedMessages > maxMessages || cachedBytes > maxBytes) && iterator.hasNext()) {
+            CacheEntry eldest = iterator.next().getValue();
+            iterator.remove();
+            cachedMessages -= eldest.messages().size();
+            cachedBytes -= eldest.bytes();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * 调用方需持有 this 的监视器
+     */
+    private void remove(String conversationId) {
+        CacheEntry removed = entries.remove(conversationId);
+        if (removed != null) {
+            cachedMessages -= removed.messages().size();
+            cachedBytes -= removed.bytes();
+        }
+    }
+
+    /**
+     * 按 UTF-16 字符估算占用：正文 + 工具调用的名称和参数 + 工具响应的名称和结果（网页抓取等结果通常远大于正文）
+     */
+    private static long estimateBytes(List<Message> messages) {
+        long bytes = 0;
+        for (Message message : messages) {
+            long chars = length(message.getText());
+            if (message instanceof AssistantMessage assistantMessage) {
+                for (AssistantMessage.ToolCall toolCall : assistantMessage.getToolCalls()) {
+                    chars += length(toolCall.id()) + length(toolCall.name()) + length(toolCall.arguments());
+                }
+            } else if (message instanceof ToolResponseMessage toolResponseMessage) {
+                for (ToolResponseMessage.ToolResponse response : toolResponseMessage.getResponses()) {
+                    chars += length(response.id()) + length(response.name()) + length(response.responseData());
+                }
+            }
+            bytes += MESSAGE_OVERHEAD_BYTES + 2 * chars;
+        }
+        return bytes;
+    }
+
+    private static long length(String text) {
+        return text != null ? text.length() : 0;
+    }
+
+    private static int stripe(String conversationId) {
+        return (conversationId.hashCode() & Integer.MAX_VALUE) % VERSION_STRIPES;
+    }
+
+    private record CacheEntry(List<Message> messages, long bytes) {
+    }
+}
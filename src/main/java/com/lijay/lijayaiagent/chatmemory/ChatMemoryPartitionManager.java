@@ -0,0 +1,120 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * chat_memory_message 按天分区的维护（仅 MySQL，表结构见 db/chat_memory_message_partitioned.sql）
+ *
+ * - 过期分区直接 DROP PARTITION，只删除元数据和数据文件，不逐行删除、不产生大事务
+ * - 提前从 p_max 拆出未来若干天的分区，保证新数据总是写入按天划分的分区
+ *
+ * 分区表按写入时间整体过期，活跃会话中早于保留期的消息也会被删除（与按空闲会话清理的语义不同）。
+ */
+@Slf4j
+public class ChatMemoryPartitionManager {
+
+    static final String MAX_PARTITION = "p_max";
+
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMMdd");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final int partitionsAhead;
+
+    /**
+     * @param partitionsAhead 提前创建的未来分区天数
+     */
+    public ChatMemoryPartitionManager(JdbcTemplate jdbcTemplate, int partitionsAhead) {
+        if (partitionsAhead <= 0) {
+            throw new IllegalArgumentException("partitionsAhead 必须大于 0");
+        }
+        this.jdbcTemplate = Objects.requireNonNull(jdbcTemplate, "jdbcTemplate 不能为空");
+        this.partitionsAhead = partitionsAhead;
+    }
+
+    /**
+     * 删除上界不晚于 cutoff 的分区（分区内所有行都早于 cutoff）
+     *
+     * @return 删除的分区名
+     */
+    public List<String> dropExpired(Instant cutoff) {
+        List<String> expired = new ArrayList<>();
+        for (Partition partition : partitions()) {
+            if (partition.upperBound() != null && partition.upperBound() <= cutoff.getEpochSecond()) {
+                expired.add(partition.name());
+            }
+        }
+        if (!expired.isEmpty()) {
+            jdbcTemplate.execute("ALTER TABLE chat_memory_message DROP PARTITION " + String.join(", ", expired));
+            log.info("删除过期的对话记忆分区：{}", expired);
+        }
+        return expired;
+    }
+
+    /**
+     * 从 p_max 拆出到 today + partitionsAhead 为止的按天分区
+     *
+     * @return 新建的分区名
+     */
+    public List<String> createAhead(LocalDate today) {
+        List<Partition> partitions = partitions();
+        LocalDate next = today;
+        for (Partition partition : partitions) {
+            if (partition.upperBound() == null) {
+                continue;
+            }
+            // 分区名即该分区覆盖的日期，下一个分区从它的后一天开始；手工建的其它分区不参与计算
+            try {
+                LocalDate day = LocalDate.parse(partition.name(), PARTITION_NAME);
+                if (!day.isBefore(next)) {
+                    next = day.plusDays(1);
+                }
+            } catch (DateTimeParseException e) {
+                log.debug("忽略非按天命名的分区 {}", partition.name());
+            }
+        }
+        LocalDate last = today.plusDays(partitionsAhead);
+        List<String> created = new ArrayList<>();
+        StringBuilder definitions = new StringBuilder();
+        for (LocalDate day = next; !day.isAfter(last); day = day.plusDays(1)) {
+            String name = day.format(PARTITION_NAME);
+            definitions.append("PARTITION ").append(name)
+                    .append(" VALUES LESS THAN (UNIX_TIMESTAMP('").append(day.plusDays(1)).append(" 00:00:00')), ");
+            created.add(name);
+        }
+        if (!created.isEmpty()) {
+            // p_max 中正常情况下没有数据，拆分只改元数据
+            jdbcTemplate.execute("ALTER TABLE chat_memory_message REORGANIZE PARTITION " + MAX_PARTITION + " INTO ("
+                    + definitions + "PARTITION " + MAX_PARTITION + " VALUES LESS THAN MAXVALUE)");
+            log.info("新建对话记忆分区：{}", created);
+        }
+        return created;
+    }
+
+    private List<Partition> partitions() {
+        return jdbcTemplate.query("""
+                        SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS
+                        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'chat_memory_message' AND PARTITION_NAME IS NOT NULL
+                        ORDER BY PARTITION_ORDINAL_POSITION""",
+                (rs, rowNum) -> {
+                    String description = rs.getString("PARTITION_DESCRIPTION");
+                    Long upperBound = "MAXVALUE".equalsIgnoreCase(description) ? null : Long.parseLong(description);
+                    return new Partition(rs.getString("PARTITION_NAME"), upperBound);
+                });
+    }
+
+    /**
+     * @param upperBound VALUES LESS THAN 的 epoch 秒，p_max 为 null
+     */
+    private record Partition(String name, Long upperBound) {
+    }
+}
@@ -0,0 +1,329 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.lijay.lijayaiagent.entity.ChatMemoryMessage;
+import com.lijay.lijayaiagent.entity.ChatMemorySummary;
+import com.lijay.lijayaiagent.mapper.ChatMemoryMessageMapper;
+import com.lijay.lijayaiagent.mapper.ChatMemorySummaryMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * 对话记忆过期清理：删除超过保留期没有新消息的会话
+ *
+ * - 按 conversation_id 键集分页扫描 (conversation_id, MAX(id))，只走 idx_conversation_id_id 联合索引，
+ *   再按主键取每个会话最后一条消息的 created_at 判断是否空闲
+ * - 空闲会话按主键分批删除，每批一条短小的自动提交 DELETE，不会长时间持有行锁，也不会产生大事务拖慢主从复制
+ * - 只删除扫描时看到的最大 id 及之前的消息，清理过程中恢复的会话保留新消息
+ * - 配置了 {@link ChatMemoryPartitionManager} 时改为删除过期分区，并提前创建未来分区
+ * - 开启摘要分层时一并删除 chat_memory_summary 中对应的摘要
+ *
+ * 指标：chat.memory.purge.rows、chat.memory.purge.conversations、chat.memory.purge.partitions、
+ * chat.memory.purge.lock（每条 DELETE / ALTER 语句的耗时，即持锁时间）、chat.memory.purge.lock.max
+ */
+@Slf4j
+public class ChatMemoryPurger implements MeterBinder, AutoCloseable {
+
+    private final ChatMemoryMessageMapper messageMapper;
+
+    /**
+     * 未开启摘要分层时为 null
+     */
+    private final ChatMemorySummaryMapper summaryMapper;
+
+    /**
+     * 未使用分区表时为 null
+     */
+    private final ChatMemoryPartitionManager partitionManager;
+
+    private final Duration ttl;
+
+    private final int batchSize;
+
+    private final int scanBatchSize;
+
+    private final long batchPauseMillis;
+
+    /**
+     * 会话被清理后的回调（例如失效进程内缓存）
+     */
+    private final Consumer<String> purgedListener;
+
+    private final LongAdder purgedRows = new LongAdder();
+
+    private final LongAdder purgedConversations = new LongAdder();
+
+    private final LongAdder droppedPartitions = new LongAdder();
+
+    private final LongAdder lockedStatements = new LongAdder();
+
+    private final LongAdder lockedNanos = new LongAdder();
+
+    private final AtomicLong maxLockedNanos = new AtomicLong();
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param ttl            会话最后一条消息超过该时长即视为空闲（分区表下为消息的保留时长）
+     * @param batchSize      单条 DELETE 最多删除的行数
+     * @param scanBatchSize  每次扫描的会话数
+     * @param batchPause     两批 DELETE 之间的间隔，给在线请求和主从复制让出资源
+     */
+    public ChatMemoryPurger(ChatMemoryMessageMapper messageMapper, ChatMemorySummaryMapper summaryMapper,
+                            ChatMemoryPartitionManager partitionManager, Duration ttl, int batchSize,
+                            int scanBatchSize, Duration batchPause, Consumer<String> purgedListener) {
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("ttl 必须大于 0");
+        }
+        if (batchSize <= 0 || scanBatchSize <= 0) {
+            throw new IllegalArgumentException("batchSize 和 scanBatchSize 必须大于 0");
+        }
+        this.messageMapper = Objects.requireNonNull(messageMapper, "messageMapper 不能为空");
+        this.summaryMapper = summaryMapper;
+        this.partitionManager = partitionManager;
+        this.ttl = ttl;
+        this.batchSize = batchSize;
+        this.scanBatchSize = scanBatchSize;
+        this.batchPauseMillis = batchPause.toMillis();
+        this.purgedListener = purgedListener != null ? purgedListener : conversationId -> {
+        };
+    }
+
+    /**
+     * 按固定间隔在后台执行清理，首次在一个间隔之后执行
+     */
+    public synchronized void start(Duration interval) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chat-memory-purger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                purge();
+            } catch (Exception e) {
+                log.warn("对话记忆过期清理失败，下个周期重试", e);
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 执行一轮清理（同步，供后台线程和测试调用）
+     *
+     * @return 本轮删除的消息行数（分区表下为删除的分区数）
+     */
+    public long purge() {
+        long start = System.nanoTime();
+        long purged = partitionManager != null ? purgePartitions() : purgeIdleConversations();
+        log.info("对话记忆过期清理完成，删除 {}，耗时 {} ms", purged, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return purged;
+    }
+
+    private long purgeIdleConversations() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(ttl);
+        long rows = 0;
+        String cursor = null;
+        while (true) {
+            // 每个会话的最大 id，索引有序，按 conversation_id 键集翻页
+            QueryWrapper<ChatMemoryMessage> scan = new QueryWrapper<>();
+            scan.select("conversation_id", "MAX(id) AS id");
+            scan.gt(cursor != null, "conversation_id", cursor);
+            scan.groupBy("conversation_id");
+            scan.orderByAsc("conversation_id");
+            scan.last("LIMIT " + scanBatchSize);
+            List<ChatMemoryMessage> heads = messageMapper.selectList(scan);
+            if (heads.isEmpty()) {
+                return rows;
+            }
+            cursor = heads.get(heads.size() - 1).getConversationId();
+
+            QueryWrapper<ChatMemoryMessage> lookup = new QueryWrapper<>();
+            lookup.select("id", "created_at");
+            lookup.in("id", heads.stream().map(ChatMemoryMessage::getId).toList());
+            Map<Long, LocalDateTime> lastActive = messageMapper.selectList(lookup).stream()
+                    .filter(entity -> entity.getCreatedAt() != null)
+                    .collect(Collectors.toMap(ChatMemoryMessage::getId, ChatMemoryMessage::getCreatedAt));
+            for (ChatMemoryMessage head : heads) {
+                LocalDateTime createdAt = lastActive.get(head.getId());
+                if (createdAt != null && createdAt.isBefore(cutoff)) {
+                    rows += purgeConversation(head.getConversationId(), head.getId());
+                }
+            }
+            if (heads.size() < scanBatchSize) {
+                return rows;
+            }
+        }
+    }
+
+    /**
+     * 按主键分批删除会话中 id 不超过 maxId 的消息
+     */
+    private long purgeConversation(String conversationId, long maxId) {
+        long rows = 0;
+        while (true) {
+            QueryWrapper<ChatMemoryMessage> page = new QueryWrapper<>();
+            page.select("id");
+            page.eq("conversation_id", conversationId);
+            page.le("id", maxId);
+            page.orderByAsc("id");
+            page.last("LIMIT " + batchSize);
+            List<Long> ids = messageMapper.selectList(page).stream().map(ChatMemoryMessage::getId).toList();
+            if (ids.isEmpty()) {
+                break;
+            }
+            long start = System.nanoTime();
+            int deleted = messageMapper.delete(new QueryWrapper<ChatMemoryMessage>().in("id", ids));
+            recordLock(System.nanoTime() - start);
+            rows += deleted;
+            purgedRows.add(deleted);
+            if (ids.size() < batchSize) {
+                break;
+            }
+            pause();
+        }
+        if (summaryMapper != null) {
+            summaryMapper.deleteById(conversationId);
+        }
+        purgedConversations.increment();
+        purgedListener.accept(conversationId);
+        log.debug("清理空闲会话 {}，删除 {} 条消息", conversationId, rows);
+        return rows;
+    }
+
+    private long purgePartitions() {
+        Instant cutoff = Instant.now().minus(ttl);
+        long start = System.nanoTime();
+        int dropped = partitionManager.dropExpired(cutoff).size();
+        recordLock(System.nanoTime() - start);
+        droppedPartitions.add(dropped);
+
+        start = System.nanoTime();
+        if (!partitionManager.createAhead(LocalDate.now()).isEmpty()) {
+            recordLock(System.nanoTime() - start);
+        }
+
+        if (summaryMapper != null) {
+            purgeOrphanSummaries(LocalDateTime.ofInstant(cutoff, ZoneId.systemDefault()));
+        }
+        return dropped;
+    }
+
+    /**
+     * 分区删除后，清理长期未更新且已没有任何消息的摘要
+     */
+    private void purgeOrphanSummaries(LocalDateTime cutoff) {
+        String cursor = null;
+        while (true) {
+            QueryWrapper<ChatMemorySummary> scan = new QueryWrapper<>();
+            scan.select("conversation_id");
+            scan.gt(cursor != null, "conversation_id", cursor);
+            scan.lt("updated_at", cutoff);
+            scan.orderByAsc("conversation_id");
+            scan.last("LIMIT " + scanBatchSize);
+            List<ChatMemorySummary> stale = summaryMapper.selectList(scan);
+            if (stale.isEmpty()) {
+                return;
+            }
+            cursor = stale.get(stale.size() - 1).getConversationId();
+            List<String> orphans = new ArrayList<>();
+            for (ChatMemorySummary summary : stale) {
+                boolean hasMessages = messageMapper.exists(new QueryWrapper<ChatMemoryMessage>()
+                        .eq("conversation_id", summary.getConversationId()));
+                if (!hasMessages) {
+                    orphans.add(summary.getConversationId());
+                }
+            }
+            if (!orphans.isEmpty()) {
+                summaryMapper.delete(new QueryWrapper<ChatMemorySummary>().in("conversation_id", orphans));
+                purgedConversations.add(orphans.size());
+                orphans.forEach(purgedListener);
+            }
+            if (stale.size() < scanBatchSize) {
+                return;
+            }
+        }
+    }
+
+    private void recordLock(long nanos) {
+        lockedStatements.increment();
+        lockedNanos.add(nanos);
+        maxLockedNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private void pause() {
+        if (batchPauseMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(batchPauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("对话记忆过期清理被中断", e);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("chat.memory.purge.rows", purgedRows, LongAdder::sum)
+                .description("过期清理删除的消息行数")
+                .register(registry);
+        FunctionCounter.builder("chat.memory.purge.conversations", purgedConversations, LongAdder::sum)
+                .description("过期清理删除的会话数")
+                .register(registry);
+        FunctionCounter.builder("chat.memory.purge.partitions", droppedPartitions, LongAdder::sum)
+                .description("过期清理删除的分区数")
+                .register(registry);
+        FunctionTimer.builder("chat.memory.purge.lock", this,
+                        purger -> purger.lockedStatements.sum(), purger -> purger.lockedNanos.sum(), TimeUnit.NANOSECONDS)
+                .description("过期清理每条 DELETE / ALTER 语句的耗时（持锁时间）")
+                .register(registry);
+        Gauge.builder("chat.memory.purge.lock.max", maxLockedNanos, nanos -> nanos.get() / 1_000_000.0)
+                .baseUnit("milliseconds")
+                .description("过期清理单条语句的最长耗时")
+                .register(registry);
+    }
+
+    public long purgedRowCount() {
+        return purgedRows.sum();
+    }
+
+    public long purgedConversationCount() {
+        return purgedConversations.sum();
+    }
+
+    public long lockedStatementCount() {
+        return lockedStatements.sum();
+    }
+
+    @Override
+    public synchronized void close() throws Exception {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler.awaitTermination(30, TimeUnit.SECONDS);
+        }
+    }
+}
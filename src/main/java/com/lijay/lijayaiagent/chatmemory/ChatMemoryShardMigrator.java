@@ -0,0 +1,120 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.lijay.lijayaiagent.entity.ChatMemoryMessage;
+import com.lijay.lijayaiagent.mapper.ChatMemoryMessageMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 分片再平衡工具：把不在一致性哈希归属分片上的会话迁移到归属分片
+ *
+ * 新增分片后按新的分片列表运行一次即可，只会移动归属发生变化的会话（约 1/N）：
+ * - 逐个分片按 conversation_id 键集分页扫描所有会话，归属不是当前分片的会话被迁移
+ * - 迁移一个会话：先删除目标分片上该会话的残留数据（上次中断时复制了一半），按 id 顺序分批复制（保留 created_at），
+ *   最后用一条 DELETE 删除源分片上的数据
+ * - 中断后重新运行是安全的：源数据只在复制完成后才删除
+ *
+ * 迁移期间不能有写入（停止应用或切到维护模式），否则迁移中的会话可能丢失新消息或顺序错乱。
+ */
+@Slf4j
+public class ChatMemoryShardMigrator {
+
+    private final Map<String, ChatMemoryMessageMapper> shardMappers;
+
+    private final ConsistentHash ring;
+
+    private final int batchSize;
+
+    /**
+     * @param shardMappers 分片名 -> Mapper，包含新旧所有分片
+     * @param ring         迁移目标的一致性哈希环（新的分片列表）
+     * @param batchSize    每次复制、扫描的行数
+     */
+    public ChatMemoryShardMigrator(Map<String, ChatMemoryMessageMapper> shardMappers, ConsistentHash ring, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize 必须大于 0");
+        }
+        this.shardMappers = Objects.requireNonNull(shardMappers, "shardMappers 不能为空");
+        this.ring = Objects.requireNonNull(ring, "ring 不能为空");
+        this.batchSize = batchSize;
+        for (String node : ring.nodes()) {
+            if (!shardMappers.containsKey(node)) {
+                throw new IllegalArgumentException("分片 " + node + " 没有对应的数据源");
+            }
+        }
+    }
+
+    /**
+     * 执行一次完整的再平衡
+     */
+    public Result migrate() {
+        long conversations = 0;
+        long rows = 0;
+        for (Map.Entry<String, ChatMemoryMessageMapper> entry : shardMappers.entrySet()) {
+            String source = entry.getKey();
+            String cursor = null;
+            while (true) {
+                QueryWrapper<ChatMemoryMessage> scan = new QueryWrapper<>();
+                scan.select("conversation_id");
+                scan.gt(cursor != null, "conversation_id", cursor);
+                scan.groupBy("conversation_id");
+                scan.orderByAsc("conversation_id");
+                scan.last("LIMIT " + batchSize);
+                List<ChatMemoryMessage> page = entry.getValue().selectList(scan);
+                for (ChatMemoryMessage head : page) {
+                    String target = ring.route(head.getConversationId());
+                    if (!target.equals(source)) {
+                        rows += move(head.getConversationId(), source, target);
+                        conversations++;
+                    }
+                }
+                if (page.size() < batchSize) {
+                    break;
+                }
+                cursor = page.get(page.size() - 1).getConversationId();
+            }
+            log.info("分片 {} 扫描完成，累计迁移 {} 个会话、{} 条消息", source, conversations, rows);
+        }
+        return new Result(conversations, rows);
+    }
+
+    private long move(String conversationId, String source, String target) {
+        ChatMemoryMessageMapper from = shardMappers.get(source);
+        ChatMemoryMessageMapper to = shardMappers.get(target);
+        to.delete(new QueryWrapper<ChatMemoryMessage>().eq("conversation_id", conversationId));
+
+        long copied = 0;
+        Long cursor = null;
+        while (true) {
+            QueryWrapper<ChatMemoryMessage> page = new QueryWrapper<>();
+            page.eq("conversation_id", conversationId);
+            page.gt(cursor != null, "id", cursor);
+            page.orderByAsc("id");
+            page.last("LIMIT " + batchSize);
+            List<ChatMemoryMessage> entities = from.selectList(page);
+            if (entities.isEmpty()) {
+                break;
+            }
+            cursor = entities.get(entities.size() - 1).getId();
+            to.insertBatchWithCreatedAt(entities);
+            copied += entities.size();
+            if (entities.size() < batchSize) {
+                break;
+            }
+        }
+        from.delete(new QueryWrapper<ChatMemoryMessage>().eq("conversation_id", conversationId));
+        log.debug("会话 {} 从分片 {} 迁移到 {}，{} 条消息", conversationId, source, target, copied);
+        return copied;
+    }
+
+    /**
+     * @param conversations 迁移的会话数
+     * @param rows          迁移的消息条数
+     */
+    public record Result(long conversations, long rows) {
+    }
+}
@@ -0,0 +1,110 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 对话记忆读取窗口：只取最近的若干条消息，或不超过 token 预算的最近消息
+ *
+ * @param maxMessages 最多返回的消息条数，0 表示不限制
+ * @param maxTokens   返回消息的 token 预算（{@link TokenEstimator} 估算），0 表示不限制；最新一条消息总会保留
+ */
+public record ChatMemoryWindow(int maxMessages, int maxTokens) {
+
+    /**
+     * 不限制，返回完整历史
+     */
+    public static final ChatMemoryWindow UNLIMITED = new ChatMemoryWindow(0, 0);
+
+    public ChatMemoryWindow {
+        if (maxMessages < 0 || maxTokens < 0) {
+            throw new IllegalArgumentException("maxMessages 和 maxTokens 不能为负数");
+        }
+    }
+
+    public boolean isUnlimited() {
+        return maxMessages == 0 && maxTokens == 0;
+    }
+
+    /**
+     * 从完整（或部分）历史中截取窗口
+     *
+     * @param messages 按时间正序排列的消息
+     * @return 窗口内的消息，按时间正序排列
+     */
+    public List<Message> apply(List<Message> messages) {
+        if (isUnlimited()) {
+            return messages;
+        }
+        Collector collector = collector();
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (!collector.offer(messages.get(i))) {
+                break;
+            }
+        }
+        return collector.result();
+    }
+
+    /**
+     * 创建收集器，调用方从最新到最旧依次提交消息
+     */
+    public Collector collector() {
+        return new Collector();
+    }
+
+    /**
+     * 窗口收集器（非线程安全）
+     */
+    public final class Collector {
+
+        private final List<Message> newestFirst = new ArrayList<>();
+
+        private int tokens;
+
+        private boolean full;
+
+        private Collector() {
+        }
+
+        /**
+         * 提交一条更早的消息
+         *
+         * @return 还能继续接收更早的消息时返回 true
+         */
+        public boolean offer(Message message) {
+            if (full) {
+                return false;
+            }
+            if (maxTokens > 0) {
+                int estimate = TokenEstimator.estimate(message);
+                if (tokens + estimate > maxTokens && !newestFirst.isEmpty()) {
+                    full = true;
+                    return false;
+                }
+                tokens += estimate;
+            }
+            newestFirst.add(message);
+            if (maxMessages > 0 && newestFirst.size() >= maxMessages) {
+                full = true;
+            }
+            return !full;
+        }
+
+        /**
+         * @return 窗口内的消息，按时间正序排列；去掉了开头缺少对应工具调用的工具响应
+         */
+        public List<Message> result() {
+            List<Message> messages = new ArrayList<>(newestFirst);
+            Collections.reverse(messages);
+            int start = 0;
+            while (start < messages.size() && messages.get(start).getMessageType() == MessageType.TOOL) {
+                start++;
+            }
+            return start == 0 ? messages : new ArrayList<>(messages.subList(start, messages.size()));
+        }
+    }
+}
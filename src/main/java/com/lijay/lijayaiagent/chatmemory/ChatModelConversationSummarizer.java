@@ -0,0 +1,58 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import cn.hutool.core.util.StrUtil;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.model.ChatModel;
+
+import java.util.List;
+
+/**
+ * 调用大模型生成滚动摘要
+ */
+public class ChatModelConversationSummarizer implements ConversationSummarizer {
+
+    /**
+     * 工具返回内容只截取开头部分参与摘要
+     */
+    private static final int MAX_TOOL_RESPONSE_CHARS = 200;
+
+    private final ChatClient chatClient;
+
+    private final int maxSummaryChars;
+
+    public ChatModelConversationSummarizer(ChatModel chatModel, int maxSummaryChars) {
+        this.chatClient = ChatClient.create(chatModel);
+        this.maxSummaryChars = maxSummaryChars;
+    }
+
+    @Override
+    public String summarize(String previousSummary, List<Message> messages) {
+        StringBuilder conversation = new StringBuilder();
+        for (Message message : messages) {
+            switch (message.getMessageType()) {
+                case USER -> conversation.append("用户：").append(message.getText()).append('\n');
+                case ASSISTANT -> {
+                    if (StrUtil.isNotBlank(message.getText())) {
+                        conversation.append("助手：").append(message.getText()).append('\n');
+                    }
+                }
+                case TOOL -> {
+                    for (ToolResponseMessage.ToolResponse response : ((ToolResponseMessage) message).getResponses()) {
+                        conversation.append("工具 ").append(response.name()).append(" 返回：")
+                                .append(StrUtil.maxLength(response.responseData(), MAX_TOOL_RESPONSE_CHARS)).append('\n');
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return chatClient.prompt()
+                .system("你是对话摘要助手。把已有摘要和新增对话合并成一段新的摘要，保留用户的基本情况、遇到的问题、"
+                        + "已经给出的建议和尚未解决的问题，使用第三人称，不超过 " + maxSummaryChars + " 字，只输出摘要内容。")
+                .user("已有摘要：" + StrUtil.blankToDefault(previousSummary, "无") + "\n\n新增对话：\n" + conversation)
+                .call()
+                .content();
+    }
+}
@@ -0,0 +1,72 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import cn.hutool.core.lang.hash.MurmurHash;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * 一致性哈希环（带虚拟节点），用于把会话ID路由到分片
+ *
+ * - 每个节点在环上放置 virtualNodes 个虚拟节点，节点越多分布越均匀
+ * - key 顺时针找到的第一个虚拟节点即其归属节点
+ * - 新增一个节点时只有约 1/N 的 key 改变归属，其余 key 不需要迁移
+ *
+ * 使用 MurmurHash 64 位哈希，结果与 JVM、进程无关，多实例计算的路由一致。不可变，线程安全。
+ */
+public final class ConsistentHash {
+
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+
+    private final List<String> nodes;
+
+    private final int virtualNodes;
+
+    /**
+     * @param nodes        节点名（分片名），路由结果只与节点名有关，与顺序无关
+     * @param virtualNodes 每个节点的虚拟节点数
+     */
+    public ConsistentHash(Collection<String> nodes, int virtualNodes) {
+        if (nodes == null || nodes.isEmpty()) {
+            throw new IllegalArgumentException("至少需要一个节点");
+        }
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("virtualNodes 必须大于 0");
+        }
+        this.nodes = List.copyOf(nodes);
+        this.virtualNodes = virtualNodes;
+        for (String node : this.nodes) {
+            Objects.requireNonNull(node, "节点名不能为空");
+            for (int i = 0; i < virtualNodes; i++) {
+                String previous = ring.putIfAbsent(hash(node + "#" + i), node);
+                if (previous != null && !previous.equals(node)) {
+                    // 64 位哈希冲突极少见，按节点名取较小者保证各实例结果一致
+                    ring.put(hash(node + "#" + i), previous.compareTo(node) < 0 ? previous : node);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return key 归属的节点名
+     */
+    public String route(String key) {
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    public int virtualNodes() {
+        return virtualNodes;
+    }
+
+    private static long hash(String key) {
+        return MurmurHash.hash64(key);
+    }
+}
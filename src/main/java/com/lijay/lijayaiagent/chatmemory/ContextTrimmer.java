@@ -0,0 +1,199 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 按 token 预算裁剪发送给模型的上下文（{@link TokenEstimator} 本地估算，结果按消息缓存）
+ *
+ * 裁剪顺序：
+ * 1. 压缩：超过 maxToolResponseTokens 的工具结果（例如网页抓取的原始 HTML）只保留开头部分并注明已截断
+ * 2. 仍超出预算时，从最早的消息开始整组丢弃；工具调用和它的工具响应是一组，不会被拆开
+ *
+ * 始终保留：system 消息、最近 keepRecentMessages 条消息（向前扩展到完整的工具调用组）、最后一条用户消息。
+ * 这些消息本身超出预算时原样返回，不再继续裁剪。不可变，线程安全。
+ */
+@Slf4j
+public class ContextTrimmer {
+
+    private final int maxTokens;
+
+    private final int keepRecentMessages;
+
+    private final int maxToolResponseTokens;
+
+    private final TokenEstimateCache estimates = new TokenEstimateCache();
+
+    /**
+     * 工具响应 -> 截断后的消息（无需截断时为空）；智能体每一步都会裁剪同一批消息，
+     * 同一个工具响应只扫描和截断一次，截断后的消息对象保持不变，token 估算也能命中缓存
+     */
+    private final MessageIdentityCache<Optional<Message>> compressedResponses = new MessageIdentityCache<>();
+
+    /**
+     * @param maxTokens             上下文 token 预算，0 表示不限制
+     * @param keepRecentMessages    始终保留的最近消息条数
+     * @param maxToolResponseTokens 单个工具结果的 token 上限，0 表示不压缩
+     */
+    public ContextTrimmer(int maxTokens, int keepRecentMessages, int maxToolResponseTokens) {
+        if (maxTokens < 0 || keepRecentMessages < 0 || maxToolResponseTokens < 0) {
+            throw new IllegalArgumentException("maxTokens、keepRecentMessages 和 maxToolResponseTokens 不能为负数");
+        }
+        this.maxTokens = maxTokens;
+        this.keepRecentMessages = keepRecentMessages;
+        this.maxToolResponseTokens = maxToolResponseTokens;
+    }
+
+    /**
+     * 裁剪到预算内
+     *
+     * @param messages 按时间正序排列的消息，不会被修改
+     * @return 裁剪后的消息，未超出预算且无需压缩时返回原列表
+     */
+    public List<Message> trim(List<Message> messages) {
+        return trim(messages, 0);
+    }
+
+    /**
+     * @param reservedTokens 不在 messages 中、但会一起发送的内容（例如单独设置的 system 提示词）占用的 token 数
+     */
+    public List<Message> trim(List<Message> messages, int reservedTokens) {
+        List<Message> compressed = compressToolResponses(messages);
+        if (maxTokens == 0) {
+            return compressed;
+        }
+        int budget = maxTokens - reservedTokens;
+        int total = 0;
+        int[] tokens = new int[compressed.size()];
+        for (int i = 0; i < compressed.size(); i++) {
+            tokens[i] = estimates.estimate(compressed.get(i));
+            total += tokens[i];
+        }
+        if (total <= budget) {
+            return compressed;
+        }
+
+        int size = compressed.size();
+        boolean[] keep = new boolean[size];
+        int tailStart = Math.max(0, size - keepRecentMessages);
+        // 最近消息的开头不能是工具响应，向前扩展到发起调用的助手消息
+        while (tailStart > 0 && compressed.get(tailStart).getMessageType() == MessageType.TOOL) {
+            tailStart--;
+        }
+        int lastUser = -1;
+        for (int i = 0; i < size; i++) {
+            MessageType type = compressed.get(i).getMessageType();
+            keep[i] = type == MessageType.SYSTEM || i >= tailStart;
+            if (type == MessageType.USER) {
+                lastUser = i;
+            }
+        }
+        if (lastUser >= 0) {
+            keep[lastUser] = true;
+        }
+
+        // 从最早的消息开始整组丢弃，直到进入预算
+        int i = 0;
+        while (i < tailStart && total > budget) {
+            int groupEnd = groupEnd(compressed, i);
+            boolean droppable = true;
+            for (int j = i; j < groupEnd; j++) {
+                droppable &= !keep[j];
+            }
+            if (droppable) {
+                for (int j = i; j < groupEnd; j++) {
+                    total -= tokens[j];
+                    tokens[j] = -1;
+                }
+            }
+            i = groupEnd;
+        }
+        List<Message> result = new ArrayList<>(size);
+        for (int j = 0; j < size; j++) {
+            if (tokens[j] >= 0) {
+                result.add(compressed.get(j));
+            }
+        }
+        if (total > budget) {
+            log.debug("上下文裁剪后仍超出预算：{} > {}，保留的消息无法再裁剪", total, budget);
+        }
+        return result;
+    }
+
+    /**
+     * @return 该消息的 token 估算值（带缓存）
+     */
+    public int estimate(Message message) {
+        return estimates.estimate(message);
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    /**
+     * @return 从 start 开始的一组消息的结束位置（不含）：带工具调用的助手消息连同其后的工具响应为一组
+     */
+    private static int groupEnd(List<Message> messages, int start) {
+        int end = start + 1;
+        Message first = messages.get(start);
+        if (first instanceof AssistantMessage assistantMessage && assistantMessage.hasToolCalls()
+                || first.getMessageType() == MessageType.TOOL) {
+            while (end < messages.size() && messages.get(end).getMessageType() == MessageType.TOOL) {
+                end++;
+            }
+        }
+        return end;
+    }
+
+    private List<Message> compressToolResponses(List<Message> messages) {
+        if (maxToolResponseTokens == 0) {
+            return messages;
+        }
+        List<Message> result = null;
+        for (int i = 0; i < messages.size(); i++) {
+            Message message = messages.get(i);
+            Message compressed = message instanceof ToolResponseMessage
+                    ? compressedResponses.get(message, this::compress).orElse(message)
+                    : message;
+            if (compressed != message && result == null) {
+                result = new ArrayList<>(messages.subList(0, i));
+            }
+            if (result != null) {
+                result.add(compressed);
+            }
+        }
+        return result != null ? result : messages;
+    }
+
+    /**
+     * @return 截断了超长结果的新消息，无需截断时为空（不能缓存原消息本身，否则它不会被回收）
+     */
+    private Optional<Message> compress(Message toolResponse) {
+        ToolResponseMessage message = (ToolResponseMessage) toolResponse;
+        List<ToolResponseMessage.ToolResponse> responses = new ArrayList<>(message.getResponses().size());
+        boolean changed = false;
+        for (ToolResponseMessage.ToolResponse response : message.getResponses()) {
+            String data = response.responseData();
+            int tokens = TokenEstimator.estimate(data);
+            if (tokens > maxToolResponseTokens) {
+                // 按 token 比例截取字符数
+                int chars = (int) ((long) data.length() * maxToolResponseTokens / tokens);
+                data = data.substring(0, chars) + "\n...[内容过长已截断，原文约 " + tokens + " tokens]";
+                changed = true;
+            }
+            responses.add(new ToolResponseMessage.ToolResponse(response.id(), response.name(), data));
+        }
+        if (!changed) {
+            return Optional.empty();
+        }
+        return Optional.of(ToolResponseMessage.builder().responses(responses).metadata(message.getMetadata()).build());
+    }
+}
@@ -0,0 +1,122 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * 对话日志文件格式（只追加）
+ *
+ * <pre>
+ * 文件头：[magic 4 字节 "LJCM"][version 1 字节]
+ * 记录：  [payload 长度 4 字节][payload 的 CRC32 4 字节][payload]
+ * </pre>
+ *
+ * 每条记录是一条 Kryo 序列化的 Message。崩溃可能留下写了一半的尾部记录，
+ * 扫描时遇到长度越界或校验失败的记录即停止，之前的记录仍然有效。
+ */
+final class ConversationLogFile {
+
+    static final int MAGIC = 0x4C4A434D;
+
+    static final byte VERSION = 1;
+
+    static final int HEADER_BYTES = 5;
+
+    static final int RECORD_HEADER_BYTES = 8;
+
+    private ConversationLogFile() {
+    }
+
+    static void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+    }
+
+    static void writeRecord(DataOutputStream out, CRC32 crc, byte[] payload, int length) throws IOException {
+        crc.reset();
+        crc.update(payload, 0, length);
+        out.writeInt(length);
+        out.writeInt((int) crc.getValue());
+        out.write(payload, 0, length);
+    }
+
+    /**
+     * 扫描日志内容，返回每条有效记录的起始位置
+     *
+     * @param buffer 从文件开头开始的日志内容（position 为 0），扫描不会修改 position
+     */
+    static Scan scan(ByteBuffer buffer) {
+        return scan(buffer, null);
+    }
+
+    /**
+     * 从上次扫描结束的位置继续扫描，只处理之后追加的记录
+     *
+     * @param buffer   从文件开头开始的日志内容，长度不小于 previous.validLength()
+     * @param previous 同一文件之前的扫描结果，为 null 时从头扫描
+     */
+    static Scan scan(ByteBuffer buffer, Scan previous) {
+        int limit = buffer.limit();
+        if (limit < HEADER_BYTES) {
+            // 文件头都没写完，视为空日志
+            return new Scan(new int[0], 0, 0);
+        }
+        int[] offsets;
+        int count;
+        int position;
+        if (previous != null && previous.validLength() >= HEADER_BYTES) {
+            offsets = previous.offsets();
+            count = previous.count();
+            position = previous.validLength();
+            if (position == limit) {
+                return previous;
+            }
+        } else {
+            if (buffer.getInt(0) != MAGIC || buffer.get(4) != VERSION) {
+                throw new IllegalStateException("不是受支持的对话日志文件");
+            }
+            offsets = new int[16];
+            count = 0;
+            position = HEADER_BYTES;
+        }
+        // 旧结果可能被其它线程读取，扩容或追加都写到副本上
+        offsets = Arrays.copyOf(offsets, Math.max(16, Math.max(offsets.length, count + 1)));
+        CRC32 crc = new CRC32();
+        while (limit - position >= RECORD_HEADER_BYTES) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || length > limit - position - RECORD_HEADER_BYTES) {
+                break;
+            }
+            crc.reset();
+            crc.update(buffer.slice(position + RECORD_HEADER_BYTES, length));
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                break;
+            }
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            offsets[count++] = position;
+            position += RECORD_HEADER_BYTES + length;
+        }
+        return new Scan(offsets, count, position);
+    }
+
+    /**
+     * @param offsets     每条记录（含记录头）的起始位置，只有前 count 个有效
+     * @param count       有效记录条数
+     * @param validLength 最后一条有效记录的结束位置，之后的内容是损坏的尾部
+     */
+    record Scan(int[] offsets, int count, int validLength) {
+
+        int payloadOffset(int index) {
+            return offsets[index] + RECORD_HEADER_BYTES;
+        }
+
+        int payloadLength(ByteBuffer buffer, int index) {
+            return buffer.getInt(offsets[index]);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import org.springframework.ai.chat.messages.Message;
+
+import java.util.List;
+
+/**
+ * 对话摘要生成器：把已有摘要和一批更早的消息合并成新的摘要
+ */
+@FunctionalInterface
+public interface ConversationSummarizer {
+
+    /**
+     * @param previousSummary 已有摘要，首次折叠时为 null
+     * @param messages        本次折叠的消息，按时间正序排列
+     * @return 新的摘要
+     */
+    String summarize(String previousSummary, List<Message> messages);
+}
@@ -1,82 +1,284 @@
 package com.lijay.lijayaiagent.chatmemory;
 
-import com.esotericsoftware.kryo.Kryo;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.memory.ChatMemory;
 import org.springframework.ai.chat.messages.Message;
-import org.objenesis.strategy.StdInstantiatorStrategy;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
 
 /**
  * 基于文件的对话记忆实现类
  * 这是一个持久化的对话记忆存储实现，使用Kryo序列化框架将对话历史保存到文件系统中。
+ *
+ * 存储格式（见 {@link ConversationLogFile}）：
+ * - 每个会话一个只追加的日志文件 {conversationId}.log，每条消息是一条带长度前缀和 CRC32 的记录（{@link MessageCodec} 格式）
+ * - add 只把新消息追加到文件末尾，不再读取和重写整个历史
+ * - 刷盘策略由 {@link FsyncPolicy} 控制；INTERVAL 时写入只标记会话，由后台线程按间隔 fsync 所有有新写入的日志文件
+ * - 崩溃留下的半条尾部记录在进程启动后首次访问该会话时被截掉，之前的消息不受影响
+ * - 配置了保留条数时，文件超过压缩阈值后重写为只包含最近消息的新文件（先写临时文件再原子替换）
+ * - 旧版 {conversationId}.kryo 文件在首次访问时自动迁移为日志格式
+ *
+ * 读取：
+ * - 日志文件以只读方式内存映射，按缓存的偏移量索引定位记录，文件内容不复制到堆上
+ * - 索引按文件增量维护，每次 get 只扫描上次之后追加的记录
+ * - 配置了 {@link ChatMemoryWindow} 时只反序列化尾部窗口内的消息；{@link #view} 返回按需反序列化的只读视图
+ *
+ * 并发：
+ * - 按会话ID分段加锁（{@link #LOCK_STRIPES} 个 ReentrantLock），同一会话的写入串行执行，不同会话可以并行
+ * - 序列化在锁外完成，锁内只做追加写；读取只在映射文件、更新索引时持锁，反序列化在锁外进行
+ * - 读到的映射区域不会被之后的截断覆盖：截断只发生在首次访问的恢复阶段，或写入失败时回退到本次写入前的长度
  */
-public class FileBasedChatMemory implements ChatMemory {
+@Slf4j
+public class FileBasedChatMemory implements ChatMemory, AutoCloseable {
+
+    /**
+     * 默认压缩阈值：日志文件超过该大小时检查是否需要压缩
+     */
+    public static final long DEFAULT_COMPACTION_THRESHOLD_BYTES = 4L * 1024 * 1024;
+
+    /**
+     * 锁分段数（2 的幂）
+     */
+    static final int LOCK_STRIPES = 64;
+
+    private static final String LOG_SUFFIX = ".log";
+
+    private static final String LEGACY_SUFFIX = ".kryo";
+
+    private static final String COMPACT_SUFFIX = ".compact";
+
     /**
      * 基础存储目录路径
      * 所有对话文件都将存储在此目录下
      */
     private final String BASE_DIR;
-    
+
+    /**
+     * get(conversationId) 使用的读取窗口
+     */
+    private final ChatMemoryWindow window;
+
+    private final FsyncPolicy fsyncPolicy;
+
+    /**
+     * 压缩时保留的最近消息条数，0 表示保留完整历史（不压缩）
+     */
+    private final int retainMessages;
+
+    private final long compactionThresholdBytes;
+
     /**
-     * Kryo序列化器实例
-     * 用于对象的序列化和反序列化操作
+     * 本进程内已检查过尾部（并完成旧格式迁移）的会话
      */
-    private static final ThreadLocal<Kryo> KRYO = ThreadLocal.withInitial(() -> {
-        Kryo kryo = new Kryo();
-        kryo.setRegistrationRequired(false);
-        kryo.setInstantiatorStrategy(new StdInstantiatorStrategy());
-        return kryo;
-    });
+    private final Set<String> recovered = ConcurrentHashMap.newKeySet();
 
     /**
-     * 静态初始化块
-     * 配置Kryo序列化器的基本设置
-     * 配置说明：
-     * - setRegistrationRequired(false): 允许序列化未注册的类
-     * - setInstantiatorStrategy(): 设置对象实例化策略为标准策略
+     * 会话ID -> 上次压缩后的文件大小，文件再增长一倍才会再次压缩，避免保留的消息本身超过阈值时每次 add 都压缩
      */
+    private final Map<String, Long> compactedSizes = new ConcurrentHashMap<>();
+
+    /**
+     * 会话ID -> 日志文件的偏移量索引（第 i 条消息 -> 记录起始位置）
+     */
+    private final Map<String, LogIndex> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * 按会话ID分段的锁，保护同一会话日志文件的追加、截断、压缩和删除
+     */
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    /**
+     * INTERVAL 策略下上次 fsync 之后有新写入的会话，由 {@link #fsyncScheduler} 按间隔刷盘
+     */
+    private final Set<String> unsynced = ConcurrentHashMap.newKeySet();
+
+    /**
+     * INTERVAL 策略的后台刷盘线程，其它策略为空
+     */
+    private final ScheduledExecutorService fsyncScheduler;
 
     /**
      * 构造函数
      * 初始化文件存储目录，如果目录不存在则自动创建。
+     * 默认每秒最多 fsync 一次，保留完整历史。
      */
     // 构造对象时，指定文件保存目录
     public FileBasedChatMemory(String dir) {
+        this(dir, ChatMemoryWindow.UNLIMITED);
+    }
+
+    public FileBasedChatMemory(String dir, ChatMemoryWindow window) {
+        this(dir, window, FsyncPolicy.INTERVAL, Duration.ofSeconds(1), 0, DEFAULT_COMPACTION_THRESHOLD_BYTES);
+    }
+
+    /**
+     * @param dir                      文件保存目录
+     * @param window                   get 的读取窗口
+     * @param fsyncPolicy              刷盘策略
+     * @param fsyncInterval            {@link FsyncPolicy#INTERVAL} 时的刷盘间隔
+     * @param retainMessages           压缩时保留的最近消息条数，0 表示保留完整历史
+     * @param compactionThresholdBytes 日志文件超过该大小时触发压缩
+     */
+    public FileBasedChatMemory(String dir, ChatMemoryWindow window, FsyncPolicy fsyncPolicy, Duration fsyncInterval,
+                               int retainMessages, long compactionThresholdBytes) {
+        if (retainMessages < 0) {
+            throw new IllegalArgumentException("retainMessages 不能为负数");
+        }
         this.BASE_DIR = dir;
+        this.window = Objects.requireNonNull(window, "window 不能为空");
+        this.fsyncPolicy = Objects.requireNonNull(fsyncPolicy, "fsyncPolicy 不能为空");
+        this.retainMessages = retainMessages;
+        this.compactionThresholdBytes = compactionThresholdBytes;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
         File baseDir = new File(dir);
         if (!baseDir.exists()) {
             baseDir.mkdirs();
         }
+        if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+            long intervalNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(1), fsyncInterval.toNanos());
+            this.fsyncScheduler = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("chat-memory-fsync").daemon().factory());
+            fsyncScheduler.scheduleWithFixedDelay(this::syncUnsynced, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+        } else {
+            this.fsyncScheduler = null;
+        }
     }
 
     /**
      * 向指定会话添加消息
-     * 将新的消息添加到指定会话的对话历史中，并持久化保存。
+     * 将新的消息追加到指定会话的日志文件末尾。
      */
     @Override
     public void add(String conversationId, List<Message> messages) {
-        List<Message> conversationMessages = getOrCreateConversation(conversationId);
-        conversationMessages.addAll(messages);
-        saveConversation(conversationId, conversationMessages);
+        Objects.requireNonNull(conversationId, "conversationId 不能为空");
+        if (messages == null || messages.isEmpty()) {
+            return;
+        }
+        Path path = getConversationFile(conversationId).toPath();
+        ReentrantLock lock = lockFor(conversationId);
+        try {
+            byte[] records = encode(messages);
+            lock.lock();
+            try {
+                recover(conversationId);
+                long size = append(conversationId, path, records);
+                if (retainMessages > 0 && size > Math.max(compactionThresholdBytes,
+                        2 * compactedSizes.getOrDefault(conversationId, 0L))) {
+                    compact(conversationId, path);
+                }
+            } finally {
+                lock.unlock();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入对话日志失败：" + conversationId, e);
+        }
     }
 
     /**
-     * 获取指定会话的所有消息
-     * 从持久化存储中读取指定会话的完整对话历史。
+     * 把记录追加到日志末尾，调用方需持有会话锁
+     * 写入失败时截断回写入前的长度，不留下半条记录
+     *
+     * @return 追加后的文件大小
+     */
+    private long append(String conversationId, Path path, byte[] records) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            long before = channel.size();
+            try {
+                if (before == 0) {
+                    writeFully(channel, ByteBuffer.wrap(header()));
+                }
+                writeFully(channel, ByteBuffer.wrap(records));
+                fsync(conversationId, channel);
+            } catch (IOException e) {
+                try {
+                    channel.truncate(before);
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                    // 无法回退时下次访问重新检查尾部
+                    recovered.remove(conversationId);
+                }
+                throw e;
+            }
+            return channel.size();
+        }
+    }
+
+    /**
+     * 获取指定会话的消息
+     * 按构造时的窗口读取，未配置窗口时读取完整对话历史。
      */
     @Override
     public List<Message> get(String conversationId) {
+        return get(conversationId, window);
+    }
+
+    /**
+     * 按指定窗口读取会话历史，只反序列化窗口内的消息
+     *
+     * @param conversationId 会话ID
+     * @param window         读取窗口，{@link ChatMemoryWindow#UNLIMITED} 表示完整历史
+     * @return 按时间正序排列的消息
+     */
+    public List<Message> get(String conversationId, ChatMemoryWindow window) {
+        ConversationView view = getOrCreateConversation(conversationId);
+        if (window.isUnlimited()) {
+            return new ArrayList<>(view);
+        }
+        ChatMemoryWindow.Collector collector = window.collector();
+        for (int i = view.size() - 1; i >= 0; i--) {
+            if (!collector.offer(view.get(i))) {
+                break;
+            }
+        }
+        return collector.result();
+    }
+
+    /**
+     * 返回会话历史的只读视图，访问某条消息时才反序列化
+     * 视图对应调用时刻的文件内容，之后追加的消息不可见。
+     */
+    public List<Message> view(String conversationId) {
         return getOrCreateConversation(conversationId);
     }
 
+    /**
+     * @return get(conversationId) 使用的默认窗口
+     */
+    public ChatMemoryWindow getWindow() {
+        return window;
+    }
+
     /**
      * 清除指定会话的所有消息
      * 删除指定会话的完整对话历史。
@@ -84,41 +286,249 @@ public class FileBasedChatMemory implements ChatMemory {
      */
     @Override
     public void clear(String conversationId) {
-        File file = getConversationFile(conversationId);
-        if (file.exists()) {
-            file.delete();
+        ReentrantLock lock = lockFor(conversationId);
+        lock.lock();
+        try {
+            File file = getConversationFile(conversationId);
+            if (file.exists()) {
+                file.delete();
+            }
+            File legacyFile = getLegacyConversationFile(conversationId);
+            if (legacyFile.exists()) {
+                legacyFile.delete();
+            }
+            compactedSizes.remove(conversationId);
+            indexes.remove(conversationId);
+        } finally {
+            lock.unlock();
         }
     }
 
     /**
      * 获取或创建会话消息列表
+     * 以只读方式内存映射日志文件，借助偏移量索引按需反序列化，不把整个文件复制到堆上。
      * @param conversationId 会话唯一标识符
      * @return 会话消息列表（可能是空列表）
      */
-    private List<Message> getOrCreateConversation(String conversationId) {
-        File file = getConversationFile(conversationId);
-        List<Message> messages = new ArrayList<>();
-        if (file.exists()) {
-            try (Input input = new Input(new FileInputStream(file))) {
-                messages = KRYO.get().readObject(input, ArrayList.class);
+    private ConversationView getOrCreateConversation(String conversationId) {
+        Objects.requireNonNull(conversationId, "conversationId 不能为空");
+        Path path = getConversationFile(conversationId).toPath();
+        ReentrantLock lock = lockFor(conversationId);
+        lock.lock();
+        try {
+            recover(conversationId);
+            if (!Files.exists(path)) {
+                return ConversationView.EMPTY;
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size > Integer.MAX_VALUE) {
+                    throw new IllegalStateException("对话日志超过 2GB，无法映射：" + path);
+                }
+                // 映射在通道关闭后仍然有效，随 buffer 被回收而解除
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                Object fileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+                return new ConversationView(buffer, index(conversationId, fileKey, buffer));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取对话日志失败：" + conversationId, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取偏移量索引：同一文件只扫描上次之后追加的部分；文件被替换（压缩）或变短时从头扫描
+     */
+    private ConversationLogFile.Scan index(String conversationId, Object fileKey, ByteBuffer buffer) {
+        LogIndex previous = indexes.get(conversationId);
+        ConversationLogFile.Scan scan;
+        if (previous != null && Objects.equals(previous.fileKey(), fileKey)
+                && previous.scan().validLength() <= buffer.limit()) {
+            scan = ConversationLogFile.scan(buffer, previous.scan());
+        } else {
+            scan = ConversationLogFile.scan(buffer);
+        }
+        if (previous == null || scan != previous.scan()) {
+            indexes.put(conversationId, new LogIndex(fileKey, scan));
+        }
+        return scan;
+    }
+
+    /**
+     * 本进程首次访问会话时：迁移旧版 .kryo 文件，或截掉崩溃留下的不完整尾部记录；调用方需持有会话锁
+     */
+    private void recover(String conversationId) throws IOException {
+        if (recovered.contains(conversationId)) {
+            return;
+        }
+        Path path = getConversationFile(conversationId).toPath();
+        File legacyFile = getLegacyConversationFile(conversationId);
+        if (!Files.exists(path) && legacyFile.exists()) {
+            migrate(conversationId, legacyFile, path);
+        } else if (Files.exists(path)) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+                ConversationLogFile.Scan scan = ConversationLogFile.scan(buffer);
+                if (scan.validLength() < channel.size()) {
+                    log.warn("对话日志 {} 尾部有 {} 字节不完整的记录，已截断，保留 {} 条消息",
+                            path, channel.size() - scan.validLength(), scan.count());
+                    channel.truncate(scan.validLength());
+                    channel.force(true);
+                    indexes.remove(conversationId);
+                }
+            }
+        }
+        recovered.add(conversationId);
+    }
+
+    /**
+     * 把旧版整文件 Kryo 格式转换为日志格式，写完新文件后才删除旧文件
+     */
+    private void migrate(String conversationId, File legacyFile, Path path) throws IOException {
+        List<Message> messages;
+        try (Input input = new Input(new FileInputStream(legacyFile))) {
+            messages = MessageCodec.readLegacyList(input);
+        }
+        Path tmp = path.resolveSibling(path.getFileName() + COMPACT_SUFFIX);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(header());
+        bytes.write(encode(messages));
+        replace(tmp, path, ByteBuffer.wrap(bytes.toByteArray()));
+        Files.delete(legacyFile.toPath());
+        log.info("对话 {} 已从旧版 .kryo 文件迁移为日志格式，共 {} 条消息", conversationId, messages.size());
+    }
+
+    /**
+     * 压缩：只保留最近 retainMessages 条记录，记录原样复制不重新序列化；调用方需持有会话锁
+     * 原子替换后旧文件的映射仍然有效，正在读取的视图不受影响
+     */
+    private void compact(String conversationId, Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        ConversationLogFile.Scan scan = ConversationLogFile.scan(buffer);
+        int from = Math.max(0, scan.count() - retainMessages);
+        int start = from < scan.count() ? scan.offsets()[from] : scan.validLength();
+        ByteBuffer retained = ByteBuffer.allocate(ConversationLogFile.HEADER_BYTES + scan.validLength() - start);
+        retained.put(header()).put(buffer.slice(start, scan.validLength() - start)).flip();
+        Path tmp = path.resolveSibling(path.getFileName() + COMPACT_SUFFIX);
+        replace(tmp, path, retained);
+        long size = Files.size(path);
+        compactedSizes.put(conversationId, size);
+        indexes.remove(conversationId);
+        log.info("对话日志 {} 已压缩：{} -> {} 字节，保留 {} 条消息", path, buffer.limit(), size, scan.count() - from);
+    }
+
+    /**
+     * 写临时文件并 fsync，再原子替换目标文件，替换过程中崩溃只会留下旧文件或新文件之一
+     */
+    private void replace(Path tmp, Path target, ByteBuffer content) throws IOException {
+        try (FileChannel channel = FileChannel.open(tmp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, content);
+            channel.force(true);
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory();
+    }
+
+    private void fsync(String conversationId, FileChannel channel) throws IOException {
+        switch (fsyncPolicy) {
+            case ALWAYS -> channel.force(false);
+            // 不论之后是否还有写入，都由后台线程在一个间隔内刷盘
+            case INTERVAL -> unsynced.add(conversationId);
+            case NEVER -> {
+            }
+        }
+    }
+
+    /**
+     * fsync 上次之后有新写入的日志文件；先移出集合再刷盘，刷盘期间的新写入留到下一次
+     * 不持有会话锁：压缩替换的新文件写入时已 fsync，清空删除的文件直接跳过
+     */
+    void syncUnsynced() {
+        for (String conversationId : unsynced) {
+            unsynced.remove(conversationId);
+            try (FileChannel channel = FileChannel.open(getConversationFile(conversationId).toPath(), StandardOpenOption.WRITE)) {
+                channel.force(false);
+            } catch (NoSuchFileException e) {
+                // 会话已清空
             } catch (IOException e) {
-                e.printStackTrace();
+                log.warn("对话日志 {} 刷盘失败，下次重试", conversationId, e);
+                unsynced.add(conversationId);
             }
         }
-        return messages;
     }
 
     /**
-     * 保存会话消息到文件
-     * @param conversationId 会话唯一标识符
-     * @param messages 要保存的消息列表
+     * @return 尚未 fsync 的会话数（INTERVAL 策略）
      */
-    private void saveConversation(String conversationId, List<Message> messages) {
-        File file = getConversationFile(conversationId);
-        try (Output output = new Output(new FileOutputStream(file))) {
-            KRYO.get().writeObject(output, messages);
+    int unsyncedCount() {
+        return unsynced.size();
+    }
+
+    /**
+     * 停止后台刷盘线程，并把尚未 fsync 的写入刷盘
+     */
+    @Override
+    public void close() {
+        if (fsyncScheduler != null) {
+            fsyncScheduler.shutdown();
+            try {
+                fsyncScheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            syncUnsynced();
+        }
+    }
+
+    /**
+     * 让目录项（新建、重命名）也落盘；部分平台不支持以只读方式打开目录，此时忽略
+     */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(Path.of(BASE_DIR), StandardOpenOption.READ)) {
+            channel.force(true);
         } catch (IOException e) {
-            e.printStackTrace();
+            log.debug("无法 fsync 目录 {}", BASE_DIR, e);
+        }
+    }
+
+    private ReentrantLock lockFor(String conversationId) {
+        int hash = conversationId.hashCode();
+        return locks[(hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1)];
+    }
+
+    private static byte[] encode(List<Message> messages) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        CRC32 crc = new CRC32();
+        Output output = MessageCodec.obtainOutput();
+        try {
+            for (Message message : messages) {
+                output.reset();
+                MessageCodec.encode(message, output);
+                ConversationLogFile.writeRecord(out, crc, output.getBuffer(), output.position());
+            }
+        } finally {
+            MessageCodec.freeOutput(output);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static Message decode(ByteBuffer buffer, ConversationLogFile.Scan scan, int index) {
+        return MessageCodec.decode(buffer.slice(scan.payloadOffset(index), scan.payloadLength(buffer, index)));
+    }
+
+    private static byte[] header() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(ConversationLogFile.HEADER_BYTES);
+        ConversationLogFile.writeHeader(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
         }
     }
 
@@ -129,6 +539,45 @@ public class FileBasedChatMemory implements ChatMemory {
      * @return 对应的文件对象
      */
     private File getConversationFile(String conversationId) {
-        return new File(BASE_DIR, conversationId + ".kryo");
+        return new File(BASE_DIR, conversationId + LOG_SUFFIX);
+    }
+
+    /**
+     * 旧版整文件 Kryo 格式的会话文件路径
+     */
+    private File getLegacyConversationFile(String conversationId) {
+        return new File(BASE_DIR, conversationId + LEGACY_SUFFIX);
+    }
+
+    private record LogIndex(Object fileKey, ConversationLogFile.Scan scan) {
+    }
+
+    /**
+     * 基于内存映射和偏移量索引的只读消息列表，get(i) 时才反序列化第 i 条消息
+     */
+    private static final class ConversationView extends AbstractList<Message> {
+
+        private static final ConversationView EMPTY = new ConversationView(ByteBuffer.allocate(0),
+                new ConversationLogFile.Scan(new int[0], 0, 0));
+
+        private final ByteBuffer buffer;
+
+        private final ConversationLogFile.Scan scan;
+
+        private ConversationView(ByteBuffer buffer, ConversationLogFile.Scan scan) {
+            this.buffer = buffer;
+            this.scan = scan;
+        }
+
+        @Override
+        public Message get(int index) {
+            Objects.checkIndex(index, scan.count());
+            return decode(buffer, scan, index);
+        }
+
+        @Override
+        public int size() {
+            return scan.count();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,24 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+/**
+ * 对话日志文件的刷盘（fsync）策略
+ *
+ * 进程崩溃时已 write 的数据仍在操作系统页缓存中，不会丢失；fsync 只决定机器掉电时最多丢失多少数据
+ */
+public enum FsyncPolicy {
+
+    /**
+     * 每次 add 后都 fsync，掉电不丢消息，写入延迟最高
+     */
+    ALWAYS,
+
+    /**
+     * 写入时不 fsync，后台按指定间隔 fsync 所有有新写入的文件，掉电最多丢失一个间隔内的消息
+     */
+    INTERVAL,
+
+    /**
+     * 从不主动 fsync，由操作系统决定何时落盘
+     */
+    NEVER
+}
@@ -1,19 +1,15 @@
 package com.lijay.lijayaiagent.chatmemory;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
-import com.esotericsoftware.kryo.Kryo;
-import com.esotericsoftware.kryo.io.Input;
-import com.esotericsoftware.kryo.io.Output;
 import com.lijay.lijayaiagent.entity.ChatMemoryMessage;
 import com.lijay.lijayaiagent.mapper.ChatMemoryMessageMapper;
 import org.springframework.ai.chat.memory.ChatMemory;
 import org.springframework.ai.chat.messages.Message;
-import org.objenesis.strategy.StdInstantiatorStrategy;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
@@ -32,52 +28,143 @@ import java.util.stream.Collectors;
  * - 自动分页：内置分页支持
  *
  * Message 序列化：
- * - 使用 Kryo 将每个 Message 序列化为 byte[]
- * - 通过 ThreadLocal 确保线程安全
+ * - 使用 {@link MessageCodec} 将每个 Message 序列化为 byte[]（带版本号的紧凑格式）
+ * - 改造前写入的行仍可读取
+ * - 配置了压缩阈值时，超过阈值的消息（长回答、网页抓取等工具结果）压缩后存储，行更小，buffer pool 能缓存更多热数据
+ *
+ * 批量写入：
+ * - 一次 add 调用只发一条多行 INSERT（超过 {@link #BATCH_SIZE} 时分块），并在同一事务内提交
+ * - 同批消息的 created_at 可能相同，读取时按自增 id 排序以保证顺序
+ *
+ * 窗口读取：
+ * - 配置了 {@link ChatMemoryWindow} 时 get 只读取尾部窗口，走 (conversation_id, id) 联合索引倒序分页
+ * - 只反序列化窗口内的消息，耗时和内存不随会话长度增长
+ * - 由 {@link com.lijay.lijayaiagent.config.ChatMemoryConfig} 创建 Bean
  */
-@Component
-public class JdbcChatMemory implements ChatMemory {
+public class JdbcChatMemory implements BatchChatMemory {
+
+    /**
+     * 单条 INSERT 语句的最大行数，避免超过 MySQL max_allowed_packet
+     */
+    static final int BATCH_SIZE = 200;
+
+    /**
+     * 仅按 token 预算读取时，每次倒序分页读取的行数
+     */
+    private static final int TAIL_PAGE_SIZE = 32;
+
+    private final ChatMemoryMessageMapper chatMemoryMessageMapper;
 
-    private static final ThreadLocal<Kryo> KRYO = ThreadLocal.withInitial(() -> {
-        Kryo kryo = new Kryo();
-        kryo.setRegistrationRequired(false);
-        kryo.setInstantiatorStrategy(new StdInstantiatorStrategy());
-        return kryo;
-    });
+    private final ChatMemoryWindow window;
 
-    @Autowired
-    private ChatMemoryMessageMapper chatMemoryMessageMapper;
+    private final int compressionThreshold;
+
+    public JdbcChatMemory(ChatMemoryMessageMapper chatMemoryMessageMapper) {
+        this(chatMemoryMessageMapper, ChatMemoryWindow.UNLIMITED);
+    }
+
+    public JdbcChatMemory(ChatMemoryMessageMapper chatMemoryMessageMapper, ChatMemoryWindow window) {
+        this(chatMemoryMessageMapper, window, 0);
+    }
+
+    /**
+     * @param compressionThreshold 序列化后超过该字节数的消息压缩存储，0 表示不压缩
+     */
+    public JdbcChatMemory(ChatMemoryMessageMapper chatMemoryMessageMapper, ChatMemoryWindow window, int compressionThreshold) {
+        if (compressionThreshold < 0) {
+            throw new IllegalArgumentException("compressionThreshold 不能为负数");
+        }
+        this.chatMemoryMessageMapper = chatMemoryMessageMapper;
+        this.window = Objects.requireNonNull(window, "window 不能为空");
+        this.compressionThreshold = compressionThreshold;
+    }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public void add(String conversationId, List<Message> messages) {
         Objects.requireNonNull(conversationId, "conversationId 不能为空");
         if (messages == null || messages.isEmpty()) {
             return;
         }
+        List<ChatMemoryMessage> entities = new ArrayList<>(messages.size());
+        appendEntities(entities, conversationId, messages);
+        insertEntities(entities);
+    }
 
-        // 逐条插入消息
-        for (Message message : messages) {
-            ChatMemoryMessage entity = new ChatMemoryMessage();
-            entity.setConversationId(conversationId);
-            entity.setMessageBytes(serializeMessage(message));
-            entity.setRole(message.getMessageType().toString());
-            chatMemoryMessageMapper.insert(entity);
+    /**
+     * 一次性写入多个会话的消息（供 write-behind 合并刷盘使用），整批在同一事务内提交
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void addAll(Map<String, List<Message>> messagesByConversation) {
+        if (messagesByConversation == null || messagesByConversation.isEmpty()) {
+            return;
         }
+        List<ChatMemoryMessage> entities = new ArrayList<>();
+        messagesByConversation.forEach((conversationId, messages) -> {
+            Objects.requireNonNull(conversationId, "conversationId 不能为空");
+            if (messages != null) {
+                appendEntities(entities, conversationId, messages);
+            }
+        });
+        insertEntities(entities);
     }
 
     @Override
     public List<Message> get(String conversationId) {
+        return get(conversationId, window);
+    }
+
+    /**
+     * 按指定窗口读取会话历史
+     *
+     * @param conversationId 会话ID
+     * @param window         读取窗口，{@link ChatMemoryWindow#UNLIMITED} 表示完整历史
+     * @return 按时间正序排列的消息
+     */
+    public List<Message> get(String conversationId, ChatMemoryWindow window) {
         Objects.requireNonNull(conversationId, "conversationId 不能为空");
+        if (window.isUnlimited()) {
+            // 查询消息并转换为Message对象
+            QueryWrapper<ChatMemoryMessage> queryWrapper = new QueryWrapper<>();
+            queryWrapper.eq("conversation_id", conversationId);
+            queryWrapper.orderByAsc("id");
+            List<ChatMemoryMessage> entities = chatMemoryMessageMapper.selectList(queryWrapper);
+
+            return entities.stream()
+                    .map(entity -> deserializeMessage(entity.getMessageBytes()))
+                    .collect(Collectors.toList());
+        }
 
-        // 查询消息并转换为Message对象
-        QueryWrapper<ChatMemoryMessage> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("conversation_id", conversationId);
-        queryWrapper.orderByAsc("created_at");
-        List<ChatMemoryMessage> entities = chatMemoryMessageMapper.selectList(queryWrapper);
-        
-        return entities.stream()
-                .map(entity -> deserializeMessage(entity.getMessageBytes()))
-                .collect(Collectors.toList());
+        // 从最新的消息开始倒序分页，窗口装满即停止
+        int pageSize = window.maxMessages() > 0 ? window.maxMessages() : TAIL_PAGE_SIZE;
+        ChatMemoryWindow.Collector collector = window.collector();
+        Long cursor = null;
+        while (true) {
+            QueryWrapper<ChatMemoryMessage> queryWrapper = new QueryWrapper<>();
+            queryWrapper.select("id", "message_bytes");
+            queryWrapper.eq("conversation_id", conversationId);
+            queryWrapper.lt(cursor != null, "id", cursor);
+            queryWrapper.orderByDesc("id");
+            queryWrapper.last("LIMIT " + pageSize);
+            List<ChatMemoryMessage> entities = chatMemoryMessageMapper.selectList(queryWrapper);
+            for (ChatMemoryMessage entity : entities) {
+                if (!collector.offer(deserializeMessage(entity.getMessageBytes()))) {
+                    return collector.result();
+                }
+                cursor = entity.getId();
+            }
+            if (entities.size() < pageSize) {
+                return collector.result();
+            }
+        }
+    }
+
+    /**
+     * @return get(conversationId) 使用的默认窗口
+     */
+    public ChatMemoryWindow getWindow() {
+        return window;
     }
 
     @Override
@@ -90,19 +177,29 @@ public class JdbcChatMemory implements ChatMemory {
         );
     }
 
-    private static byte[] serializeMessage(Message message) {
-        Kryo kryo = KRYO.get();
-        try (Output output = new Output(512, -1)) {
-            kryo.writeClassAndObject(output, message);
-            return output.toBytes();
+    private void appendEntities(List<ChatMemoryMessage> entities, String conversationId, List<Message> messages) {
+        for (Message message : messages) {
+            ChatMemoryMessage entity = new ChatMemoryMessage();
+            entity.setConversationId(conversationId);
+            entity.setMessageBytes(serializeMessage(message));
+            entity.setRole(message.getMessageType().toString());
+            entities.add(entity);
         }
     }
 
-    private static Message deserializeMessage(byte[] bytes) {
-        Kryo kryo = KRYO.get();
-        try (Input input = new Input(bytes)) {
-            Object obj = kryo.readClassAndObject(input);
-            return (Message) obj;
+    private void insertEntities(List<ChatMemoryMessage> entities) {
+        // 多行批量插入，常见的一轮对话只需一次往返
+        for (int from = 0; from < entities.size(); from += BATCH_SIZE) {
+            int to = Math.min(from + BATCH_SIZE, entities.size());
+            chatMemoryMessageMapper.insertBatch(entities.subList(from, to));
         }
     }
+
+    private byte[] serializeMessage(Message message) {
+        return MessageCodec.encode(message, compressionThreshold);
+    }
+
+    private static Message deserializeMessage(byte[] bytes) {
+        return MessageCodec.decode(bytes);
+    }
 }
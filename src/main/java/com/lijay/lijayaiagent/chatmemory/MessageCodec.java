@@ -0,0 +1,507 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.ByteBufferInput;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.util.DefaultInstantiatorStrategy;
+import com.esotericsoftware.kryo.util.Pool;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.content.Media;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 对话消息的紧凑序列化格式，JdbcChatMemory 和 FileBasedChatMemory 共用
+ *
+ * <pre>
+ * [magic 1 字节 0xCB][version 1 字节][flags 1 字节][Kryo 正文]
+ * [magic 1 字节 0xCB][version 1 字节][flags = FLAG_DEFLATE][压缩前长度 varint][Deflate 压缩的 Kryo 正文]
+ * </pre>
+ *
+ * - 正文只用显式注册的类 ID，不写全限定类名
+ * - UserMessage / AssistantMessage / SystemMessage / ToolResponseMessage 使用手写序列化器，
+ *   只写文本、元数据、媒体和工具调用等公开字段，不依赖 Spring AI 的内部字段布局，升级 Spring AI 后仍可读取
+ * - 元数据中未注册类型的值退回 Kryo 默认序列化（写类名）
+ * - 旧数据（writeClassAndObject 写出的未注册类，首字节为 0x01）仍按原方式读取
+ * - 可选压缩：正文超过阈值且压缩后更小时才压缩，小消息不付出压缩开销；读取按 flags 自动识别
+ * - Kryo 实例和 Output 缓冲区来自所有线程共享的有界池（{@link #POOL_CAPACITY}），对平台线程和虚拟线程都适用
+ */
+public final class MessageCodec {
+
+    static final byte MAGIC = (byte) 0xCB;
+
+    static final byte VERSION = 1;
+
+    static final int HEADER_BYTES = 3;
+
+    /**
+     * flags：正文经过 Deflate 压缩，正文前多一个变长整数表示压缩前的长度
+     */
+    static final byte FLAG_DEFLATE = 0x01;
+
+    /**
+     * 元数据中的消息类型由消息构造函数重新写入，不需要序列化
+     */
+    private static final String MESSAGE_TYPE_KEY = "messageType";
+
+    /**
+     * 池中最多保留的 Kryo / Output 实例数，超出的实例用完即丢弃
+     */
+    static final int POOL_CAPACITY = Math.max(8, Runtime.getRuntime().availableProcessors() * 2);
+
+    /**
+     * 缓冲区超过该大小的 Output 不放回池中，避免偶尔的大消息长期占用内存
+     */
+    private static final int MAX_POOLED_OUTPUT_BYTES = 64 * 1024;
+
+    private static final AtomicLong KRYO_CREATED = new AtomicLong();
+
+    /**
+     * 所有线程共享的有界 Kryo 池
+     * 不用 ThreadLocal：虚拟线程和 CompletableFuture 的任务线程会让每个线程各自创建并预热一个 Kryo，且数量不受限制
+     */
+    private static final Pool<Kryo> KRYO_POOL = new Pool<>(true, false, POOL_CAPACITY) {
+        @Override
+        protected Kryo create() {
+            KRYO_CREATED.incrementAndGet();
+            return newKryo();
+        }
+    };
+
+    /**
+     * 读取旧格式数据用的 Kryo，配置与改造前一致
+     */
+    private static final Pool<Kryo> LEGACY_KRYO_POOL = new Pool<>(true, false, POOL_CAPACITY) {
+        @Override
+        protected Kryo create() {
+            KRYO_CREATED.incrementAndGet();
+            Kryo kryo = new Kryo();
+            kryo.setRegistrationRequired(false);
+            kryo.setInstantiatorStrategy(new StdInstantiatorStrategy());
+            return kryo;
+        }
+    };
+
+    /**
+     * Deflater / Inflater 持有 zlib 的本地内存，复用而不是每条消息新建
+     */
+    private static final Pool<Deflater> DEFLATER_POOL = new Pool<>(true, false, POOL_CAPACITY) {
+        @Override
+        protected Deflater create() {
+            // 优先速度：压缩发生在每次 add 的请求路径上
+            return new Deflater(Deflater.BEST_SPEED);
+        }
+    };
+
+    private static final Pool<Inflater> INFLATER_POOL = new Pool<>(true, false, POOL_CAPACITY) {
+        @Override
+        protected Inflater create() {
+            return new Inflater();
+        }
+    };
+
+    private static final Pool<Output> OUTPUT_POOL = new Pool<>(true, false, POOL_CAPACITY) {
+        @Override
+        protected Output create() {
+            return new Output(1024, -1);
+        }
+    };
+
+    private MessageCodec() {
+    }
+
+    public static byte[] encode(Message message) {
+        Output output = obtainOutput();
+        try {
+            encode(message, output);
+            return output.toBytes();
+        } finally {
+            freeOutput(output);
+        }
+    }
+
+    /**
+     * 序列化消息，正文不小于 compressionThreshold 字节且压缩后更小时写入压缩格式
+     *
+     * @param compressionThreshold 触发压缩的正文字节数，0 表示不压缩
+     */
+    public static byte[] encode(Message message, int compressionThreshold) {
+        Output output = obtainOutput();
+        try {
+            encode(message, output);
+            int bodyLength = output.position() - HEADER_BYTES;
+            if (compressionThreshold <= 0 || bodyLength < compressionThreshold) {
+                return output.toBytes();
+            }
+            byte[] compressed = new byte[bodyLength];
+            int compressedLength = deflate(output.getBuffer(), HEADER_BYTES, bodyLength, compressed);
+            if (compressedLength < 0) {
+                return output.toBytes();
+            }
+            try (Output result = new Output(HEADER_BYTES + 5 + compressedLength)) {
+                result.writeByte(MAGIC);
+                result.writeByte(VERSION);
+                result.writeByte(FLAG_DEFLATE);
+                result.writeVarInt(bodyLength, true);
+                result.writeBytes(compressed, 0, compressedLength);
+                return result.toBytes();
+            }
+        } finally {
+            freeOutput(output);
+        }
+    }
+
+    /**
+     * 把消息写入 output 当前位置（不压缩）
+     */
+    public static void encode(Message message, Output output) {
+        output.writeByte(MAGIC);
+        output.writeByte(VERSION);
+        output.writeByte(0);
+        Kryo kryo = KRYO_POOL.obtain();
+        try {
+            kryo.writeClassAndObject(output, message);
+        } finally {
+            KRYO_POOL.free(kryo);
+        }
+    }
+
+    public static Message decode(byte[] bytes) {
+        return decode(bytes, 0, bytes.length);
+    }
+
+    public static Message decode(byte[] bytes, int offset, int length) {
+        if (length > 0 && bytes[offset] == MAGIC) {
+            checkVersion(bytes[offset + 1]);
+            if (checkFlags(bytes[offset + 2]) == FLAG_DEFLATE) {
+                return decode(ByteBuffer.wrap(bytes, offset, length));
+            }
+            return read(KRYO_POOL, new Input(bytes, offset + HEADER_BYTES, length - HEADER_BYTES));
+        }
+        return read(LEGACY_KRYO_POOL, new Input(bytes, offset, length));
+    }
+
+    /**
+     * 从 buffer 的 position 到 limit 读取一条消息，不修改 buffer 的 position
+     */
+    public static Message decode(ByteBuffer buffer) {
+        ByteBuffer payload = buffer.slice();
+        if (payload.remaining() > 0 && payload.get(0) == MAGIC) {
+            checkVersion(payload.get(1));
+            ByteBuffer body = payload.position(HEADER_BYTES).slice();
+            if (checkFlags(payload.get(2)) == FLAG_DEFLATE) {
+                return read(KRYO_POOL, new Input(inflate(body)));
+            }
+            return read(KRYO_POOL, new ByteBufferInput(body));
+        }
+        return read(LEGACY_KRYO_POOL, new ByteBufferInput(payload));
+    }
+
+    /**
+     * 读取改造前整文件保存的消息列表（FileBasedChatMemory 旧版 .kryo 文件）
+     */
+    @SuppressWarnings("unchecked")
+    static List<Message> readLegacyList(Input input) {
+        Kryo kryo = LEGACY_KRYO_POOL.obtain();
+        try {
+            return kryo.readObject(input, ArrayList.class);
+        } finally {
+            LEGACY_KRYO_POOL.free(kryo);
+        }
+    }
+
+    /**
+     * 从池中取一个已清空的 Output，用完必须调用 {@link #freeOutput}
+     */
+    static Output obtainOutput() {
+        Output output = OUTPUT_POOL.obtain();
+        output.reset();
+        return output;
+    }
+
+    static void freeOutput(Output output) {
+        if (output.getBuffer().length <= MAX_POOLED_OUTPUT_BYTES) {
+            OUTPUT_POOL.free(output);
+        }
+    }
+
+    /**
+     * @return 进程启动以来创建的 Kryo 实例数
+     */
+    static long kryoInstancesCreated() {
+        return KRYO_CREATED.get();
+    }
+
+    private static Message read(Pool<Kryo> pool, Input input) {
+        Kryo kryo = pool.obtain();
+        try (input) {
+            return (Message) kryo.readClassAndObject(input);
+        } finally {
+            pool.free(kryo);
+        }
+    }
+
+    /**
+     * 压缩正文，压缩后不比原文小时返回 -1
+     */
+    private static int deflate(byte[] source, int offset, int length, byte[] target) {
+        Deflater deflater = DEFLATER_POOL.obtain();
+        try {
+            deflater.setInput(source, offset, length);
+            deflater.finish();
+            int written = 0;
+            while (!deflater.finished() && written < target.length) {
+                written += deflater.deflate(target, written, target.length - written);
+            }
+            return deflater.finished() && written < length ? written : -1;
+        } finally {
+            deflater.reset();
+            DEFLATER_POOL.free(deflater);
+        }
+    }
+
+    /**
+     * @param body [压缩前长度 varint][Deflate 数据]
+     */
+    private static byte[] inflate(ByteBuffer body) {
+        int uncompressedLength;
+        int varIntBytes;
+        try (ByteBufferInput input = new ByteBufferInput(body.duplicate())) {
+            uncompressedLength = input.readVarInt(true);
+            varIntBytes = input.position();
+        }
+        byte[] result = new byte[uncompressedLength];
+        Inflater inflater = INFLATER_POOL.obtain();
+        try {
+            inflater.setInput(body.position(varIntBytes).slice());
+            int read = 0;
+            while (read < uncompressedLength) {
+                int n = inflater.inflate(result, read, uncompressedLength - read);
+                if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("压缩的消息数据不完整");
+                }
+                read += n;
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("压缩的消息数据已损坏", e);
+        } finally {
+            inflater.reset();
+            INFLATER_POOL.free(inflater);
+        }
+    }
+
+    private static byte checkFlags(byte flags) {
+        if ((flags & ~FLAG_DEFLATE) != 0) {
+            throw new IllegalStateException("不支持的消息格式标志：" + flags);
+        }
+        return flags;
+    }
+
+    private static void checkVersion(byte version) {
+        if (version < 1 || version > VERSION) {
+            throw new IllegalStateException("不支持的消息格式版本：" + version);
+        }
+    }
+
+    /**
+     * 注册 ID 一经使用不能修改，新增类型只能追加新 ID
+     */
+    static Kryo newKryo() {
+        Kryo kryo = new Kryo();
+        // 元数据的值可能是任意类型，未注册的类退回写类名
+        kryo.setRegistrationRequired(false);
+        kryo.setWarnUnregisteredClasses(false);
+        kryo.setInstantiatorStrategy(new DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+        kryo.register(UserMessage.class, new UserMessageSerializer(), 100);
+        kryo.register(AssistantMessage.class, new AssistantMessageSerializer(), 101);
+        kryo.register(SystemMessage.class, new SystemMessageSerializer(), 102);
+        kryo.register(ToolResponseMessage.class, new ToolResponseMessageSerializer(), 103);
+        kryo.register(MessageType.class, 110);
+        kryo.register(HashMap.class, 111);
+        kryo.register(LinkedHashMap.class, 112);
+        kryo.register(ArrayList.class, 113);
+        return kryo;
+    }
+
+    private static void writeMetadata(Kryo kryo, Output output, Map<String, Object> metadata) {
+        int size = 0;
+        for (String key : metadata.keySet()) {
+            if (!MESSAGE_TYPE_KEY.equals(key)) {
+                size++;
+            }
+        }
+        output.writeVarInt(size, true);
+        for (Map.Entry<String, Object> entry : metadata.entrySet()) {
+            if (!MESSAGE_TYPE_KEY.equals(entry.getKey())) {
+                output.writeString(entry.getKey());
+                kryo.writeClassAndObject(output, entry.getValue());
+            }
+        }
+    }
+
+    private static Map<String, Object> readMetadata(Kryo kryo, Input input) {
+        int size = input.readVarInt(true);
+        Map<String, Object> metadata = new HashMap<>(Math.max(4, size * 2));
+        for (int i = 0; i < size; i++) {
+            String key = input.readString();
+            metadata.put(key, kryo.readClassAndObject(input));
+        }
+        return metadata;
+    }
+
+    private static void writeMedia(Output output, Collection<Media> media) {
+        if (media == null) {
+            output.writeVarInt(0, true);
+            return;
+        }
+        output.writeVarInt(media.size(), true);
+        for (Media item : media) {
+            output.writeString(item.getMimeType().toString());
+            output.writeString(item.getId());
+            output.writeString(item.getName());
+            if (item.getData() instanceof byte[] bytes) {
+                output.writeBoolean(true);
+                output.writeVarInt(bytes.length, true);
+                output.writeBytes(bytes);
+            } else {
+                // URL 等以字符串保存
+                output.writeBoolean(false);
+                output.writeString(String.valueOf(item.getData()));
+            }
+        }
+    }
+
+    private static List<Media> readMedia(Input input) {
+        int size = input.readVarInt(true);
+        List<Media> media = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String mimeType = input.readString();
+            String id = input.readString();
+            String name = input.readString();
+            Object data = input.readBoolean() ? input.readBytes(input.readVarInt(true)) : input.readString();
+            media.add(Media.builder()
+                    .mimeType(MimeTypeUtils.parseMimeType(mimeType))
+                    .data(data)
+                    .id(id)
+                    .name(name)
+                    .build());
+        }
+        return media;
+    }
+
+    private static final class UserMessageSerializer extends Serializer<UserMessage> {
+
+        @Override
+        public void write(Kryo kryo, Output output, UserMessage message) {
+            output.writeString(message.getText());
+            writeMetadata(kryo, output, message.getMetadata());
+            writeMedia(output, message.getMedia());
+        }
+
+        @Override
+        public UserMessage read(Kryo kryo, Input input, Class<? extends UserMessage> type) {
+            String text = input.readString();
+            Map<String, Object> metadata = readMetadata(kryo, input);
+            List<Media> media = readMedia(input);
+            return UserMessage.builder().text(text).metadata(metadata).media(media).build();
+        }
+    }
+
+    private static final class AssistantMessageSerializer extends Serializer<AssistantMessage> {
+
+        @Override
+        public void write(Kryo kryo, Output output, AssistantMessage message) {
+            output.writeString(message.getText());
+            writeMetadata(kryo, output, message.getMetadata());
+            List<AssistantMessage.ToolCall> toolCalls = message.getToolCalls();
+            output.writeVarInt(toolCalls.size(), true);
+            for (AssistantMessage.ToolCall toolCall : toolCalls) {
+                output.writeString(toolCall.id());
+                output.writeString(toolCall.type());
+                output.writeString(toolCall.name());
+                output.writeString(toolCall.arguments());
+            }
+            writeMedia(output, message.getMedia());
+        }
+
+        @Override
+        public AssistantMessage read(Kryo kryo, Input input, Class<? extends AssistantMessage> type) {
+            String text = input.readString();
+            Map<String, Object> metadata = readMetadata(kryo, input);
+            int size = input.readVarInt(true);
+            List<AssistantMessage.ToolCall> toolCalls = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                toolCalls.add(new AssistantMessage.ToolCall(
+                        input.readString(), input.readString(), input.readString(), input.readString()));
+            }
+            List<Media> media = readMedia(input);
+            return AssistantMessage.builder()
+                    .content(text)
+                    .properties(metadata)
+                    .toolCalls(toolCalls)
+                    .media(media)
+                    .build();
+        }
+    }
+
+    private static final class SystemMessageSerializer extends Serializer<SystemMessage> {
+
+        @Override
+        public void write(Kryo kryo, Output output, SystemMessage message) {
+            output.writeString(message.getText());
+            writeMetadata(kryo, output, message.getMetadata());
+        }
+
+        @Override
+        public SystemMessage read(Kryo kryo, Input input, Class<? extends SystemMessage> type) {
+            String text = input.readString();
+            return SystemMessage.builder().text(text).metadata(readMetadata(kryo, input)).build();
+        }
+    }
+
+    private static final class ToolResponseMessageSerializer extends Serializer<ToolResponseMessage> {
+
+        @Override
+        public void write(Kryo kryo, Output output, ToolResponseMessage message) {
+            List<ToolResponseMessage.ToolResponse> responses = message.getResponses();
+            output.writeVarInt(responses.size(), true);
+            for (ToolResponseMessage.ToolResponse response : responses) {
+                output.writeString(response.id());
+                output.writeString(response.name());
+                output.writeString(response.responseData());
+            }
+            writeMetadata(kryo, output, message.getMetadata());
+        }
+
+        @Override
+        public ToolResponseMessage read(Kryo kryo, Input input, Class<? extends ToolResponseMessage> type) {
+            int size = input.readVarInt(true);
+            List<ToolResponseMessage.ToolResponse> responses = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                responses.add(new ToolResponseMessage.ToolResponse(
+                        input.readString(), input.readString(), input.readString()));
+            }
+            return ToolResponseMessage.builder().responses(responses).metadata(readMetadata(kryo, input)).build();
+        }
+    }
+}
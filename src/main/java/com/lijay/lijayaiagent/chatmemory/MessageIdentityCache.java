@@ -0,0 +1,78 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import org.springframework.ai.chat.messages.Message;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 按消息对象缓存由消息计算出的值（token 估算、压缩后的消息等）
+ *
+ * - 以对象身份（而不是 equals / hashCode，它们需要遍历全文）为 key，弱引用持有消息，消息被回收后条目随之清理
+ * - Message 内容不可变，同一条消息只计算一次；缓存的值不能再引用 key 本身，否则消息无法被回收
+ * - 线程安全，并发未命中时可能重复计算
+ */
+final class MessageIdentityCache<V> {
+
+    private final ConcurrentHashMap<Key, V> values = new ConcurrentHashMap<>();
+
+    private final ReferenceQueue<Message> collected = new ReferenceQueue<>();
+
+    /**
+     * @return 缓存的值，未命中时用 compute 计算并缓存
+     */
+    V get(Message message, Function<Message, V> compute) {
+        V cached = values.get(new Key(message, null));
+        if (cached != null) {
+            return cached;
+        }
+        expunge();
+        V value = compute.apply(message);
+        values.put(new Key(message, collected), value);
+        return value;
+    }
+
+    /**
+     * @return 当前缓存的条目数（含尚未清理的已回收条目）
+     */
+    int size() {
+        return values.size();
+    }
+
+    private void expunge() {
+        Reference<? extends Message> reference;
+        while ((reference = collected.poll()) != null) {
+            values.remove((Key) reference);
+        }
+    }
+
+    private static final class Key extends WeakReference<Message> {
+
+        private final int hash;
+
+        private Key(Message message, ReferenceQueue<Message> queue) {
+            super(message, queue);
+            this.hash = System.identityHashCode(message);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key key)) {
+                return false;
+            }
+            Message message = get();
+            return message != null && message == key.get();
+        }
+    }
+}
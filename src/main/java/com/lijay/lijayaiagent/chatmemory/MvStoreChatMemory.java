@@ -0,0 +1,219 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 基于 H2 MVStore 嵌入式有序键值存储的对话记忆，适合单节点部署（无网络往返、无连接池）
+ *
+ * 存储格式：
+ * - 所有会话共用一个 MVMap，key 为 conversationId + '\0' + 16 位十六进制序号，value 为 {@link MessageCodec} 编码的字节
+ * - 序号定长，字典序即消息顺序；同一会话的消息在 B 树上连续存放
+ * - add：取会话当前最大序号（一次 O(log n) 查找）后逐条追加
+ * - get：按 {@link ChatMemoryWindow} 从最大序号向前读取，只反序列化窗口内的消息
+ * - clear：按范围删除该会话的所有 key
+ *
+ * 持久化：
+ * - MVStore 在 commit 时把修改写入文件，提交间隔由 {@link FsyncPolicy} 决定
+ * - {@link FsyncPolicy#ALWAYS}：每次 add 后 commit 并 sync；其它策略由后台自动提交，进程崩溃最多丢失一个提交间隔内的消息
+ *
+ * 并发：同一会话的写入按会话ID分段加锁串行执行（保证序号连续），读取不加锁；
+ * 并发读取可能看到另一线程一次 add 中已写入的部分消息。
+ */
+@Slf4j
+public class MvStoreChatMemory implements ChatMemory, AutoCloseable {
+
+    /**
+     * 锁分段数（2 的幂）
+     */
+    static final int LOCK_STRIPES = 64;
+
+    private static final String MAP_NAME = "chatMemory";
+
+    private static final char KEY_SEPARATOR = '\0';
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final MVStore store;
+
+    private final MVMap<String, byte[]> messages;
+
+    private final ChatMemoryWindow window;
+
+    private final boolean commitEachWrite;
+
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    public MvStoreChatMemory(String file) {
+        this(file, ChatMemoryWindow.UNLIMITED, FsyncPolicy.INTERVAL, Duration.ofSeconds(1));
+    }
+
+    /**
+     * @param file          MVStore 文件路径，父目录不存在时自动创建
+     * @param window        get 的读取窗口
+     * @param fsyncPolicy   提交策略
+     * @param fsyncInterval {@link FsyncPolicy#INTERVAL} 时的自动提交间隔
+     */
+    public MvStoreChatMemory(String file, ChatMemoryWindow window, FsyncPolicy fsyncPolicy, Duration fsyncInterval) {
+        this.window = Objects.requireNonNull(window, "window 不能为空");
+        File parent = new File(file).getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IllegalStateException("无法创建目录：" + parent);
+        }
+        this.store = new MVStore.Builder().fileName(file).open();
+        if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+            store.setAutoCommitDelay((int) Math.max(1, fsyncInterval.toMillis()));
+        }
+        this.messages = store.openMap(MAP_NAME);
+        this.commitEachWrite = fsyncPolicy == FsyncPolicy.ALWAYS;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        String prefix = prefix(conversationId);
+        if (messages == null || messages.isEmpty()) {
+            return;
+        }
+        // 编码在锁外完成
+        List<byte[]> encoded = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            encoded.add(MessageCodec.encode(message));
+        }
+        ReentrantLock lock = lockFor(conversationId);
+        lock.lock();
+        try {
+            long seq = nextSeq(prefix);
+            for (byte[] bytes : encoded) {
+                this.messages.put(key(prefix, seq++), bytes);
+            }
+            if (commitEachWrite) {
+                store.commit();
+                store.sync();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Message> get(String conversationId) {
+        return get(conversationId, window);
+    }
+
+    /**
+     * 按指定窗口读取会话历史
+     *
+     * @return 按时间正序排列的消息
+     */
+    public List<Message> get(String conversationId, ChatMemoryWindow window) {
+        String prefix = prefix(conversationId);
+        if (window.isUnlimited()) {
+            List<Message> result = new ArrayList<>();
+            Iterator<String> keys = this.messages.keyIterator(prefix);
+            while (keys.hasNext()) {
+                String key = keys.next();
+                if (!key.startsWith(prefix)) {
+                    break;
+                }
+                result.add(MessageCodec.decode(this.messages.get(key)));
+            }
+            return result;
+        }
+        // 从最新的消息开始向前读取，窗口装满即停止
+        ChatMemoryWindow.Collector collector = window.collector();
+        String key = this.messages.lowerKey(upperBound(prefix));
+        while (key != null && key.startsWith(prefix)) {
+            byte[] bytes = this.messages.get(key);
+            if (bytes != null && !collector.offer(MessageCodec.decode(bytes))) {
+                break;
+            }
+            key = this.messages.lowerKey(key);
+        }
+        return collector.result();
+    }
+
+    /**
+     * @return get(conversationId) 使用的默认窗口
+     */
+    public ChatMemoryWindow getWindow() {
+        return window;
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        String prefix = prefix(conversationId);
+        ReentrantLock lock = lockFor(conversationId);
+        lock.lock();
+        try {
+            String key = this.messages.ceilingKey(prefix);
+            while (key != null && key.startsWith(prefix)) {
+                this.messages.remove(key);
+                key = this.messages.higherKey(key);
+            }
+            if (commitEachWrite) {
+                store.commit();
+                store.sync();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 提交未写入文件的修改并关闭存储
+     */
+    @Override
+    public void close() {
+        if (!store.isClosed()) {
+            store.close();
+            log.info("MVStore 对话记忆已关闭");
+        }
+    }
+
+    private long nextSeq(String prefix) {
+        String last = messages.lowerKey(upperBound(prefix));
+        if (last == null || !last.startsWith(prefix)) {
+            return 0;
+        }
+        return HEX.fromHexDigitsToLong(last, prefix.length(), last.length()) + 1;
+    }
+
+    private ReentrantLock lockFor(String conversationId) {
+        int hash = conversationId.hashCode();
+        return locks[(hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1)];
+    }
+
+    private static String prefix(String conversationId) {
+        Objects.requireNonNull(conversationId, "conversationId 不能为空");
+        if (conversationId.indexOf(KEY_SEPARATOR) >= 0) {
+            throw new IllegalArgumentException("conversationId 不能包含 \\0");
+        }
+        return conversationId + KEY_SEPARATOR;
+    }
+
+    private static String key(String prefix, long seq) {
+        return prefix + HEX.toHexDigits(seq);
+    }
+
+    /**
+     * 大于该会话所有 key 的最小字符串（分隔符 '\0' 的下一个字符）
+     */
+    private static String upperBound(String prefix) {
+        return prefix.substring(0, prefix.length() - 1) + (char) (KEY_SEPARATOR + 1);
+    }
+}
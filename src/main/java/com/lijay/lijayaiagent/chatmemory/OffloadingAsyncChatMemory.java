@@ -0,0 +1,52 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 把阻塞的 {@link ChatMemory} 适配为 {@link AsyncChatMemory}
+ * 每次调用都在指定的 Scheduler（默认 boundedElastic，可换成虚拟线程）上执行，订阅线程不会被阻塞
+ */
+public class OffloadingAsyncChatMemory implements AsyncChatMemory {
+
+    private final ChatMemory delegate;
+
+    private final Scheduler scheduler;
+
+    public OffloadingAsyncChatMemory(ChatMemory delegate) {
+        this(delegate, Schedulers.boundedElastic());
+    }
+
+    /**
+     * @param scheduler 执行阻塞读写的 Scheduler，不能是事件循环类的 Scheduler（如 parallel）
+     */
+    public OffloadingAsyncChatMemory(ChatMemory delegate, Scheduler scheduler) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate 不能为空");
+        this.scheduler = Objects.requireNonNull(scheduler, "scheduler 不能为空");
+    }
+
+    @Override
+    public Mono<Void> add(String conversationId, List<Message> messages) {
+        return Mono.<Void>fromRunnable(() -> delegate.add(conversationId, messages)).subscribeOn(scheduler);
+    }
+
+    @Override
+    public Mono<List<Message>> get(String conversationId) {
+        return Mono.fromCallable(() -> delegate.get(conversationId)).subscribeOn(scheduler);
+    }
+
+    @Override
+    public Mono<Void> clear(String conversationId) {
+        return Mono.<Void>fromRunnable(() -> delegate.clear(conversationId)).subscribeOn(scheduler);
+    }
+
+    public ChatMemory getDelegate() {
+        return delegate;
+    }
+}
@@ -0,0 +1,112 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import com.lijay.lijayaiagent.mapper.ChatMemoryMessageMapper;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 按会话ID分片到多个 MySQL 主库的对话记忆
+ *
+ * - 每个分片一个 {@link JdbcChatMemory}（各自的数据源和连接池），会话按 {@link ConsistentHash} 路由到唯一分片
+ * - 同一会话的读写都落在同一分片，单会话的语义与 JdbcChatMemory 完全一致
+ * - addAll（write-behind 合并刷盘）按分片拆分后分别写入，每个分片一次批量插入；不同分片之间不保证原子性
+ * - 分片的 JdbcChatMemory 不是 Spring 代理，@Transactional 不生效；add/addAll 在该分片的事务模板内执行，
+ *   分块插入整批提交或整批回滚，write-behind 重试时不会重复写入
+ * - 新增分片后部分会话的归属会变化，需先用 {@link ChatMemoryShardMigrator} 迁移数据
+ */
+public class ShardedChatMemory implements BatchChatMemory {
+
+    private final Map<String, Shard> shards;
+
+    private final ConsistentHash ring;
+
+    private final ChatMemoryWindow window;
+
+    /**
+     * @param shardMappers         分片名 -> 该分片的 Mapper
+     * @param shardTransactions    分片名 -> 该分片数据源的事务模板
+     * @param window               get 的读取窗口
+     * @param compressionThreshold 序列化后超过该字节数的消息压缩存储，0 表示不压缩
+     * @param virtualNodes         一致性哈希每个分片的虚拟节点数
+     */
+    public ShardedChatMemory(Map<String, ChatMemoryMessageMapper> shardMappers,
+                             Map<String, ? extends TransactionOperations> shardTransactions, ChatMemoryWindow window,
+                             int compressionThreshold, int virtualNodes) {
+        this.window = Objects.requireNonNull(window, "window 不能为空");
+        this.shards = new LinkedHashMap<>();
+        shardMappers.forEach((name, mapper) -> {
+            TransactionOperations transactions = Objects.requireNonNull(shardTransactions.get(name), "分片 " + name + " 缺少事务模板");
+            shards.put(name, new Shard(new JdbcChatMemory(mapper, window, compressionThreshold), transactions));
+        });
+        this.ring = new ConsistentHash(shards.keySet(), virtualNodes);
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        Shard shard = shard(conversationId);
+        shard.transactions().executeWithoutResult(status -> shard.memory().add(conversationId, messages));
+    }
+
+    @Override
+    public void addAll(Map<String, List<Message>> messagesByConversation) {
+        if (messagesByConversation == null || messagesByConversation.isEmpty()) {
+            return;
+        }
+        Map<String, Map<String, List<Message>>> byShard = new HashMap<>();
+        messagesByConversation.forEach((conversationId, messages) ->
+                byShard.computeIfAbsent(shardFor(conversationId), name -> new LinkedHashMap<>()).put(conversationId, messages));
+        byShard.forEach((name, messages) -> {
+            Shard shard = shards.get(name);
+            shard.transactions().executeWithoutResult(status -> shard.memory().addAll(messages));
+        });
+    }
+
+    @Override
+    public List<Message> get(String conversationId) {
+        return shard(conversationId).memory().get(conversationId);
+    }
+
+    /**
+     * 按指定窗口读取会话历史
+     */
+    public List<Message> get(String conversationId, ChatMemoryWindow window) {
+        return shard(conversationId).memory().get(conversationId, window);
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        shard(conversationId).memory().clear(conversationId);
+    }
+
+    /**
+     * @return 会话归属的分片名
+     */
+    public String shardFor(String conversationId) {
+        Objects.requireNonNull(conversationId, "conversationId 不能为空");
+        return ring.route(conversationId);
+    }
+
+    public ConsistentHash getRing() {
+        return ring;
+    }
+
+    /**
+     * @return get(conversationId) 使用的默认窗口
+     */
+    public ChatMemoryWindow getWindow() {
+        return window;
+    }
+
+    private Shard shard(String conversationId) {
+        return shards.get(shardFor(conversationId));
+    }
+
+    private record Shard(JdbcChatMemory memory, TransactionOperations transactions) {
+    }
+}
@@ -0,0 +1,259 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.lijay.lijayaiagent.entity.ChatMemoryMessage;
+import com.lijay.lijayaiagent.entity.ChatMemorySummary;
+import com.lijay.lijayaiagent.mapper.ChatMemoryMessageMapper;
+import com.lijay.lijayaiagent.mapper.ChatMemorySummaryMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分层对话记忆：最近的原始消息 + 更早消息的滚动摘要
+ *
+ * - add：同步写入 {@link JdbcChatMemory}；未摘要的消息达到 keepMessages + summarizeBatch 条时，
+ *   在后台线程把最早的一批折叠进摘要，不占用请求路径
+ * - get：返回 [摘要消息] + 水位线之后最近的原始消息，大小与会话总长度无关
+ * - 摘要存放在 chat_memory_summary 表，watermark_id 记录已折叠的最后一条消息 id
+ * - clear：同时删除原始消息和摘要
+ *
+ * 摘要以一条 AssistantMessage 放在历史最前面（部分模型不接受出现在中间的 system 消息）。
+ * 后台折叠落后时，水位线之后超过 keepMessages + summarizeBatch 的更早消息暂时不会发送给模型。
+ */
+@Slf4j
+public class SummarizingChatMemory implements ChatMemory, AutoCloseable {
+
+    /**
+     * 摘要消息的元数据标记
+     */
+    public static final String SUMMARY_METADATA_KEY = "chatMemorySummary";
+
+    /**
+     * 单次折叠最多处理的消息条数，折叠落后时分多次追上
+     */
+    private static final int MAX_FOLD_MESSAGES = 200;
+
+    /**
+     * 折叠边界之后多读的消息条数，用来把紧跟在边界后的工具响应一起折叠
+     */
+    private static final int TOOL_RESPONSE_SLACK = 16;
+
+    private final JdbcChatMemory delegate;
+
+    private final ChatMemoryMessageMapper messageMapper;
+
+    private final ChatMemorySummaryMapper summaryMapper;
+
+    private final ConversationSummarizer summarizer;
+
+    private final Executor executor;
+
+    private final int keepMessages;
+
+    private final int summarizeBatch;
+
+    /**
+     * 已提交后台折叠、尚未完成的会话
+     */
+    private final Set<String> scheduled = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param keepMessages   保留原样发送给模型的最近消息条数
+     * @param summarizeBatch 超出 keepMessages 的消息积累到该条数时折叠一次
+     * @param executor       执行折叠的线程池，close 时如果是 ExecutorService 会被关闭
+     */
+    public SummarizingChatMemory(JdbcChatMemory delegate, ChatMemoryMessageMapper messageMapper,
+                                 ChatMemorySummaryMapper summaryMapper, ConversationSummarizer summarizer,
+                                 Executor executor, int keepMessages, int summarizeBatch) {
+        if (keepMessages <= 0 || summarizeBatch <= 0) {
+            throw new IllegalArgumentException("keepMessages 和 summarizeBatch 必须大于 0");
+        }
+        this.delegate = Objects.requireNonNull(delegate, "delegate 不能为空");
+        this.messageMapper = messageMapper;
+        this.summaryMapper = summaryMapper;
+        this.summarizer = Objects.requireNonNull(summarizer, "summarizer 不能为空");
+        this.executor = Objects.requireNonNull(executor, "executor 不能为空");
+        this.keepMessages = keepMessages;
+        this.summarizeBatch = summarizeBatch;
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        delegate.add(conversationId, messages);
+        if (messages == null || messages.isEmpty()) {
+            return;
+        }
+        ChatMemorySummary summary = summaryMapper.selectById(conversationId);
+        if (countAfter(conversationId, watermark(summary)) >= keepMessages + summarizeBatch) {
+            schedule(conversationId);
+        }
+    }
+
+    @Override
+    public List<Message> get(String conversationId) {
+        Objects.requireNonNull(conversationId, "conversationId 不能为空");
+        ChatMemorySummary summary = summaryMapper.selectById(conversationId);
+        QueryWrapper<ChatMemoryMessage> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("id", "message_bytes");
+        queryWrapper.eq("conversation_id", conversationId);
+        queryWrapper.gt("id", watermark(summary));
+        queryWrapper.orderByDesc("id");
+        queryWrapper.last("LIMIT " + (keepMessages + summarizeBatch));
+        ChatMemoryWindow.Collector collector = ChatMemoryWindow.UNLIMITED.collector();
+        for (ChatMemoryMessage entity : messageMapper.selectList(queryWrapper)) {
+            collector.offer(MessageCodec.decode(entity.getMessageBytes()));
+        }
+        List<Message> tail = collector.result();
+        if (summary == null) {
+            return tail;
+        }
+        List<Message> messages = new ArrayList<>(tail.size() + 1);
+        messages.add(AssistantMessage.builder()
+                .content("【此前对话摘要】" + summary.getSummary())
+                .properties(Map.of(SUMMARY_METADATA_KEY, true))
+                .build());
+        messages.addAll(tail);
+        return messages;
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        delegate.clear(conversationId);
+        summaryMapper.deleteById(conversationId);
+    }
+
+    /**
+     * 把水位线之后、最近 keepMessages 条之前的消息折叠进摘要（同步执行，供后台线程和测试调用）
+     *
+     * @return 本次折叠的消息条数
+     */
+    public int summarize(String conversationId) {
+        ChatMemorySummary current = summaryMapper.selectById(conversationId);
+        long watermark = watermark(current);
+        long pending = countAfter(conversationId, watermark);
+        int foldCount = (int) Math.min(pending - keepMessages, MAX_FOLD_MESSAGES);
+        if (foldCount < summarizeBatch) {
+            return 0;
+        }
+        // 多读一些，折叠边界不能落在工具调用和工具响应之间
+        QueryWrapper<ChatMemoryMessage> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("id", "message_bytes");
+        queryWrapper.eq("conversation_id", conversationId);
+        queryWrapper.gt("id", watermark);
+        queryWrapper.orderByAsc("id");
+        long limit = Math.min(pending - 1, foldCount + TOOL_RESPONSE_SLACK);
+        queryWrapper.last("LIMIT " + limit);
+        List<ChatMemoryMessage> entities = messageMapper.selectList(queryWrapper);
+        List<Message> folded = new ArrayList<>(foldCount);
+        boolean boundaryFound = false;
+        for (ChatMemoryMessage entity : entities) {
+            Message message = MessageCodec.decode(entity.getMessageBytes());
+            if (folded.size() >= foldCount && message.getMessageType() != MessageType.TOOL) {
+                boundaryFound = true;
+                break;
+            }
+            folded.add(message);
+        }
+        if (!boundaryFound && limit < pending - 1) {
+            // 多读的消息全是工具响应，边界之后可能还有：退回到发起这批工具调用的消息之前
+            while (!folded.isEmpty() && folded.getLast().getMessageType() == MessageType.TOOL) {
+                folded.removeLast();
+            }
+            if (!folded.isEmpty()) {
+                folded.removeLast();
+            }
+            if (folded.isEmpty()) {
+                return 0;
+            }
+        }
+        long newWatermark = entities.get(folded.size() - 1).getId();
+
+        String summary = summarizer.summarize(current != null ? current.getSummary() : null, folded);
+        ChatMemorySummary updated = new ChatMemorySummary();
+        updated.setConversationId(conversationId);
+        updated.setSummary(summary);
+        updated.setWatermarkId(newWatermark);
+        updated.setSummarizedCount((current != null ? current.getSummarizedCount() : 0) + folded.size());
+        updated.setUpdatedAt(LocalDateTime.now());
+        if (current == null) {
+            try {
+                summaryMapper.insert(updated);
+            } catch (DuplicateKeyException e) {
+                log.info("对话 {} 的摘要已被其它实例生成，跳过本次折叠", conversationId);
+                return 0;
+            }
+        } else {
+            // 乐观锁：水位线已被其它实例推进时放弃本次结果
+            UpdateWrapper<ChatMemorySummary> updateWrapper = new UpdateWrapper<>();
+            updateWrapper.eq("conversation_id", conversationId);
+            updateWrapper.eq("watermark_id", watermark);
+            if (summaryMapper.update(updated, updateWrapper) == 0) {
+                log.info("对话 {} 的摘要已被其它实例更新，跳过本次折叠", conversationId);
+                return 0;
+            }
+        }
+        log.info("对话 {} 折叠 {} 条消息进摘要，水位线 {}", conversationId, folded.size(), newWatermark);
+        return folded.size();
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdown();
+            if (!executorService.awaitTermination(30, TimeUnit.SECONDS)) {
+                executorService.shutdownNow();
+            }
+        }
+    }
+
+    private void schedule(String conversationId) {
+        if (!scheduled.add(conversationId)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    // 落后较多时连续折叠，直到只剩不足一批
+                    while (summarize(conversationId) > 0) {
+                        log.debug("对话 {} 继续折叠", conversationId);
+                    }
+                } catch (Exception e) {
+                    log.warn("对话 {} 生成摘要失败，下次写入时重试", conversationId, e);
+                } finally {
+                    scheduled.remove(conversationId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 线程池繁忙，下次写入时再提交
+            scheduled.remove(conversationId);
+        }
+    }
+
+    private long countAfter(String conversationId, long watermark) {
+        QueryWrapper<ChatMemoryMessage> queryWrapper = new QueryWrapper<>();
+        queryWrapper.eq("conversation_id", conversationId);
+        queryWrapper.gt("id", watermark);
+        return messageMapper.selectCount(queryWrapper);
+    }
+
+    private static long watermark(ChatMemorySummary summary) {
+        return summary != null ? summary.getWatermarkId() : 0L;
+    }
+}
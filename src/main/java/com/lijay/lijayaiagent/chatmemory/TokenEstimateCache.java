@@ -0,0 +1,29 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import org.springframework.ai.chat.messages.Message;
+
+/**
+ * 按消息对象缓存 {@link TokenEstimator} 的估算结果
+ *
+ * - 以对象身份（而不是 equals / hashCode，它们需要遍历全文）为 key，弱引用持有消息，消息被回收后条目随之清理
+ * - 同一条消息在多轮对话、智能体多个步骤中反复参与预算计算时只估算一次（Message 内容不可变）
+ * - 线程安全
+ */
+public final class TokenEstimateCache {
+
+    private final MessageIdentityCache<Integer> estimates = new MessageIdentityCache<>();
+
+    /**
+     * @return 消息的 token 估算值，命中缓存时不重新计算
+     */
+    public int estimate(Message message) {
+        return estimates.get(message, TokenEstimator::estimate);
+    }
+
+    /**
+     * @return 当前缓存的条目数（含尚未清理的已回收条目）
+     */
+    public int size() {
+        return estimates.size();
+    }
+}
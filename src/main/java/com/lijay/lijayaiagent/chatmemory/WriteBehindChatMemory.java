@@ -0,0 +1,384 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 异步写回（write-behind）的对话记忆装饰器
+ *
+ * - add：消息先追加到内存中按会话划分的日志并立即返回，由后台线程合并多个会话的消息批量写入 {@link BatchChatMemory}
+ * - get：返回已落库的历史 + 尚未落库的消息，保证读到自己刚写入的内容；合并后按 {@link ChatMemoryWindow} 截取
+ * - 背压：积压达到上限时 add 最多等待 offerTimeout，仍无空间则改为同步写入，不丢消息
+ * - close：停止后台线程并把剩余消息全部刷盘
+ */
+@Slf4j
+public class WriteBehindChatMemory implements ChatMemory, AutoCloseable {
+
+    private final BatchChatMemory delegate;
+
+    private final ChatMemoryWindow window;
+
+    private final long flushIntervalNanos;
+
+    private final int flushBatchSize;
+
+    private final int queueCapacity;
+
+    private final int conversationCapacity;
+
+    private final long offerTimeoutNanos;
+
+    /**
+     * 会话ID -> 尚未落库的消息
+     */
+    private final ConcurrentHashMap<String, ConversationLog> logs = new ConcurrentHashMap<>();
+
+    /**
+     * 剩余可积压的消息条数
+     */
+    private final Semaphore capacity;
+
+    /**
+     * 积压达到 flushBatchSize 时唤醒后台线程
+     */
+    private final Semaphore flushSignal = new Semaphore(0);
+
+    /**
+     * 所有写入 delegate 的操作（刷盘、同步写入、清空）互斥执行，保证同一会话内的顺序
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private final Thread flusher;
+
+    private volatile boolean closed;
+
+    public WriteBehindChatMemory(BatchChatMemory delegate, Duration flushInterval, int flushBatchSize,
+                                 int queueCapacity, int conversationCapacity, Duration offerTimeout) {
+        this(delegate, ChatMemoryWindow.UNLIMITED, flushInterval, flushBatchSize, queueCapacity, conversationCapacity, offerTimeout);
+    }
+
+    /**
+     * @param window delegate 读取时使用的窗口，合并未落库消息后按同一窗口截取
+     */
+    public WriteBehindChatMemory(BatchChatMemory delegate, ChatMemoryWindow window, Duration flushInterval, int flushBatchSize,
+                                 int queueCapacity, int conversationCapacity, Duration offerTimeout) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate 不能为空");
+        this.window = Objects.requireNonNull(window, "window 不能为空");
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.flushBatchSize = flushBatchSize;
+        this.queueCapacity = queueCapacity;
+        this.conversationCapacity = conversationCapacity;
+        this.offerTimeoutNanos = offerTimeout.toNanos();
+        this.capacity = new Semaphore(queueCapacity);
+        this.flusher = new Thread(this::runFlusher, "chat-memory-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        Objects.requireNonNull(conversationId, "conversationId 不能为空");
+        if (messages == null || messages.isEmpty()) {
+            return;
+        }
+        int size = messages.size();
+        if (closed || size > conversationCapacity || !acquire(size)) {
+            writeThrough(conversationId, messages);
+            return;
+        }
+        boolean[] accepted = {false};
+        logs.compute(conversationId, (id, current) -> {
+            ConversationLog target = current == null ? new ConversationLog() : current;
+            synchronized (target) {
+                if (target.buffer.size() + size <= conversationCapacity) {
+                    target.buffer.addAll(messages);
+                    accepted[0] = true;
+                }
+            }
+            return target;
+        });
+        if (!accepted[0]) {
+            capacity.release(size);
+            writeThrough(conversationId, messages);
+            return;
+        }
+        if (closed) {
+            // close 已开始排空队列，自己把刚入队的消息刷下去
+            flush();
+        } else if (pendingMessages() >= flushBatchSize) {
+            flushSignal.release();
+        }
+    }
+
+    @Override
+    public List<Message> get(String conversationId) {
+        Objects.requireNonNull(conversationId, "conversationId 不能为空");
+        while (true) {
+            ConversationLog log = logs.get(conversationId);
+            if (log == null) {
+                return delegate.get(conversationId);
+            }
+            long flushes;
+            List<Message> buffered;
+            synchronized (log) {
+                awaitNotInFlight(log);
+                flushes = log.flushes;
+                buffered = new ArrayList<>(log.buffer);
+            }
+            List<Message> persisted = delegate.get(conversationId);
+            synchronized (log) {
+                // 读库期间没有发生刷盘，库里的数据和内存日志不重叠
+                if (log.flushes == flushes) {
+                    if (buffered.isEmpty()) {
+                        return persisted;
+                    }
+                    List<Message> result = new ArrayList<>(persisted.size() + buffered.size());
+                    result.addAll(persisted);
+                    result.addAll(buffered);
+                    return window.apply(result);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        Objects.requireNonNull(conversationId, "conversationId 不能为空");
+        writeLock.lock();
+        try {
+            ConversationLog log = logs.remove(conversationId);
+            if (log != null) {
+                int discarded;
+                synchronized (log) {
+                    discarded = log.buffer.size();
+                    log.buffer.clear();
+                    log.flushes++;
+                }
+                capacity.release(discarded);
+            }
+            delegate.clear(conversationId);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 把当前积压的消息全部写入 delegate
+     */
+    public void flush() {
+        while (flushOnce() > 0) {
+            // 继续刷，直到积压为空
+        }
+    }
+
+    /**
+     * 当前积压（已确认但尚未落库）的消息条数
+     */
+    public int pendingMessages() {
+        return queueCapacity - capacity.availablePermits();
+    }
+
+    /**
+     * 停止后台线程并排空队列，应用正常停止时由 Spring 调用
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flushSignal.release();
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        log.info("对话记忆异步写回已关闭，剩余积压消息：{}", pendingMessages());
+    }
+
+    private void runFlusher() {
+        while (!closed) {
+            try {
+                flushSignal.tryAcquire(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                flushSignal.drainPermits();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                while (flushOnce() >= flushBatchSize) {
+                    // 积压较多时连续刷盘
+                }
+            } catch (Exception e) {
+                log.error("对话记忆异步刷盘失败，将在下个周期重试", e);
+            }
+        }
+    }
+
+    /**
+     * 合并多个会话的积压消息做一次批量写入
+     *
+     * @return 本次写入的消息条数
+     */
+    private int flushOnce() {
+        writeLock.lock();
+        try {
+            Map<String, List<Message>> batch = new LinkedHashMap<>();
+            List<ConversationLog> marked = new ArrayList<>();
+            int total = 0;
+            for (Map.Entry<String, ConversationLog> entry : logs.entrySet()) {
+                if (total >= flushBatchSize) {
+                    break;
+                }
+                ConversationLog log = entry.getValue();
+                synchronized (log) {
+                    if (log.buffer.isEmpty()) {
+                        continue;
+                    }
+                    log.inFlight = log.buffer.size();
+                    log.flushes++;
+                    batch.put(entry.getKey(), new ArrayList<>(log.buffer));
+                    marked.add(log);
+                    total += log.inFlight;
+                }
+            }
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            boolean success = false;
+            try {
+                delegate.addAll(batch);
+                success = true;
+            } finally {
+                for (ConversationLog log : marked) {
+                    synchronized (log) {
+                        if (success) {
+                            log.buffer.subList(0, log.inFlight).clear();
+                        }
+                        log.inFlight = 0;
+                        log.notifyAll();
+                    }
+                }
+                if (success) {
+                    capacity.release(total);
+                }
+            }
+            // 移除已经清空的会话日志
+            for (String conversationId : batch.keySet()) {
+                logs.computeIfPresent(conversationId, (id, log) -> {
+                    synchronized (log) {
+                        return log.buffer.isEmpty() ? null : log;
+                    }
+                });
+            }
+            return total;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 同步写入：先写该会话已积压的消息，再写本次消息，保持会话内顺序
+     */
+    private void writeThrough(String conversationId, List<Message> messages) {
+        writeLock.lock();
+        try {
+            List<Message> drained = List.of();
+            ConversationLog log = logs.remove(conversationId);
+            if (log != null) {
+                synchronized (log) {
+                    drained = new ArrayList<>(log.buffer);
+                    log.buffer.clear();
+                    log.flushes++;
+                }
+            }
+            List<Message> combined = new ArrayList<>(drained.size() + messages.size());
+            combined.addAll(drained);
+            combined.addAll(messages);
+            try {
+                delegate.addAll(Map.of(conversationId, combined));
+            } catch (RuntimeException e) {
+                // 写入失败时把积压的消息放回去，等待后台重试
+                List<Message> restore = drained;
+                if (!restore.isEmpty()) {
+                    logs.compute(conversationId, (id, current) -> {
+                        ConversationLog target = current == null ? new ConversationLog() : current;
+                        synchronized (target) {
+                            target.buffer.addAll(0, restore);
+                        }
+                        return target;
+                    });
+                }
+                throw e;
+            }
+            capacity.release(drained.size());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private boolean acquire(int permits) {
+        try {
+            if (capacity.tryAcquire(permits)) {
+                return true;
+            }
+            flushSignal.release();
+            boolean acquired = capacity.tryAcquire(permits, offerTimeoutNanos, TimeUnit.NANOSECONDS);
+            if (!acquired) {
+                log.warn("对话记忆写回队列已满（{} 条），改为同步写入", queueCapacity);
+            }
+            return acquired;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void awaitNotInFlight(ConversationLog log) {
+        boolean interrupted = false;
+        while (log.inFlight > 0) {
+            try {
+                log.wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 单个会话的内存日志，字段由对象自身的监视器保护
+     */
+    private static final class ConversationLog {
+
+        /**
+         * 尚未落库的消息，按写入顺序排列
+         */
+        private final List<Message> buffer = new ArrayList<>();
+
+        /**
+         * buffer 头部正在写库的消息条数
+         */
+        private int inFlight;
+
+        /**
+         * 刷盘次数，get 用它判断读库期间是否有消息落库
+         */
+        private long flushes;
+    }
+}
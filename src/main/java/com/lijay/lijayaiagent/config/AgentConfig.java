@@ -0,0 +1,67 @@
+package com.lijay.lijayaiagent.config;
+
+import com.lijay.lijayaiagent.agent.AgentCheckpointStore;
+import com.lijay.lijayaiagent.agent.AgentRunExecutor;
+import com.lijay.lijayaiagent.agent.InMemoryAgentCheckpointStore;
+import com.lijay.lijayaiagent.agent.MvStoreAgentCheckpointStore;
+import com.lijay.lijayaiagent.agent.ParallelToolExecutor;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 智能体配置类
+ */
+@Configuration
+@Slf4j
+public class AgentConfig {
+
+    /**
+     * 智能体运行线程池，LijayManusFactory 创建的代理在这里执行 runStream
+     * 运行中、排队、拒绝的数量注册到 MeterRegistry，应用停止时中断未结束的运行（close）
+     */
+    @Bean
+    public AgentRunExecutor agentRunExecutor(AgentProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        AgentProperties.Executor executor = properties.getExecutor();
+        AgentRunExecutor agentRunExecutor = new AgentRunExecutor(
+                executor.getMaxConcurrentRuns(), executor.getQueueCapacity(), executor.isVirtualThreads());
+        meterRegistry.ifAvailable(agentRunExecutor::bindTo);
+        log.info("智能体线程池：{}，最大并发 {}，排队 {}", executor.isVirtualThreads() ? "虚拟线程" : "平台线程",
+                executor.getMaxConcurrentRuns(), executor.getQueueCapacity());
+        return agentRunExecutor;
+    }
+
+    /**
+     * 并行工具执行，agent.tools.parallel=false 时不创建，改由 ToolCallingManager 逐个执行
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "agent.tools", name = "parallel", havingValue = "true", matchIfMissing = true)
+    public ParallelToolExecutor parallelToolExecutor(ToolCallback[] allTools, AgentProperties properties) {
+        AgentProperties.Tools tools = properties.getTools();
+        return new ParallelToolExecutor(allTools, tools.getMaxParallel(), tools.getTimeout(), tools.getSequentialTools());
+    }
+
+    /**
+     * 智能体运行检查点存储，每完成一步保存一次，断线或重启后按运行ID恢复
+     * mvstore 存储按 purge-interval 定期清理过期的检查点
+     */
+    @Bean
+    public AgentCheckpointStore agentCheckpointStore(AgentProperties properties) {
+        AgentProperties.Checkpoint checkpoint = properties.getCheckpoint();
+        return switch (checkpoint.getStore()) {
+            case NONE -> AgentCheckpointStore.NONE;
+            case MEMORY -> new InMemoryAgentCheckpointStore(checkpoint.getMaxRuns());
+            case MVSTORE -> {
+                log.info("智能体检查点使用 MVStore 存储，文件：{}，保留时长：{}，清理间隔：{}",
+                        checkpoint.getPath(), checkpoint.getTtl(), checkpoint.getPurgeInterval());
+                MvStoreAgentCheckpointStore store = new MvStoreAgentCheckpointStore(checkpoint.getPath(), checkpoint.getTtl());
+                store.start(checkpoint.getPurgeInterval());
+                yield store;
+            }
+        };
+    }
+}
@@ -0,0 +1,161 @@
+package com.lijay.lijayaiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 智能体配置
+ * 对应 application.yml 中的 agent.* 配置项
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "agent")
+public class AgentProperties {
+
+    /**
+     * 智能体运行线程池配置
+     */
+    private Executor executor = new Executor();
+
+    /**
+     * 工具执行配置
+     */
+    private Tools tools = new Tools();
+
+    /**
+     * 运行检查点配置
+     */
+    private Checkpoint checkpoint = new Checkpoint();
+
+    /**
+     * 工具结果缓存配置
+     */
+    private ToolCache toolCache = new ToolCache();
+
+    @Data
+    public static class Executor {
+
+        /**
+         * 是否使用虚拟线程，false 时使用 maxConcurrentRuns 个平台线程
+         */
+        private boolean virtualThreads = true;
+
+        /**
+         * 同时运行的智能体上限，0 表示不限制（仅虚拟线程模式）
+         */
+        private int maxConcurrentRuns = 50;
+
+        /**
+         * 达到上限后最多排队的运行数，超出时直接拒绝
+         */
+        private int queueCapacity = 100;
+    }
+
+    @Data
+    public static class Tools {
+
+        /**
+         * 是否并行执行同一步中的多个工具调用
+         */
+        private boolean parallel = true;
+
+        /**
+         * 同时执行的工具调用上限（所有智能体共享）
+         */
+        private int maxParallel = 16;
+
+        /**
+         * 单个工具调用的超时时间
+         */
+        private Duration timeout = Duration.ofSeconds(60);
+
+        /**
+         * 不能与其它调用同时执行的工具（终止、写文件、执行命令等有副作用的工具）
+         */
+        private Set<String> sequentialTools = new LinkedHashSet<>(
+                List.of("doTerminate", "writeFile", "generatePDF", "executeTerminalCommand"));
+    }
+
+    @Data
+    public static class Checkpoint {
+
+        /**
+         * 检查点存储
+         */
+        private StoreType store = StoreType.MEMORY;
+
+        /**
+         * memory：最多保留的运行数
+         */
+        private int maxRuns = 1000;
+
+        /**
+         * mvstore：文件路径
+         */
+        private String path = System.getProperty("user.dir") + "/tmp/agent-checkpoint.mv.db";
+
+        /**
+         * mvstore：检查点的保留时长，超过该时长未更新的在启动时和每个清理周期清理
+         */
+        private Duration ttl = Duration.ofDays(1);
+
+        /**
+         * mvstore：过期检查点的清理间隔
+         */
+        private Duration purgeInterval = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class ToolCache {
+
+        /**
+         * 是否缓存工具结果
+         */
+        private boolean enabled = true;
+
+        /**
+         * 需要缓存的工具（按工具名），未列出的工具不缓存；sequentialTools 中有副作用的工具即使列出也不缓存
+         */
+        private Map<String, CachePolicy> tools = new LinkedHashMap<>();
+    }
+
+    @Data
+    public static class CachePolicy {
+
+        /**
+         * 结果的保留时长
+         */
+        private Duration ttl = Duration.ofMinutes(10);
+
+        /**
+         * 最多缓存的结果数
+         */
+        private int maxSize = 1000;
+    }
+
+    public enum StoreType {
+
+        /**
+         * 不保存检查点，断线后无法恢复
+         */
+        NONE,
+
+        /**
+         * 进程内保存，支持断线重连到同一实例
+         */
+        MEMORY,
+
+        /**
+         * H2 MVStore 本地文件，进程重启后仍可恢复（单节点部署）
+         */
+        MVSTORE
+    }
+}
@@ -0,0 +1,246 @@
+package com.lijay.lijayaiagent.config;
+
+import com.lijay.lijayaiagent.chatmemory.AsyncChatMemory;
+import com.lijay.lijayaiagent.chatmemory.BatchChatMemory;
+import com.lijay.lijayaiagent.chatmemory.CachingChatMemory;
+import com.lijay.lijayaiagent.chatmemory.ChatMemoryPartitionManager;
+import com.lijay.lijayaiagent.chatmemory.ChatMemoryPurger;
+import com.lijay.lijayaiagent.chatmemory.ChatMemoryShardMigrator;
+import com.lijay.lijayaiagent.chatmemory.ChatMemoryWindow;
+import com.lijay.lijayaiagent.chatmemory.ChatModelConversationSummarizer;
+import com.lijay.lijayaiagent.chatmemory.ContextTrimmer;
+import com.lijay.lijayaiagent.chatmemory.FileBasedChatMemory;
+import com.lijay.lijayaiagent.chatmemory.JdbcChatMemory;
+import com.lijay.lijayaiagent.chatmemory.MvStoreChatMemory;
+import com.lijay.lijayaiagent.chatmemory.OffloadingAsyncChatMemory;
+import com.lijay.lijayaiagent.chatmemory.ShardedChatMemory;
+import com.lijay.lijayaiagent.chatmemory.SummarizingChatMemory;
+import com.lijay.lijayaiagent.chatmemory.WriteBehindChatMemory;
+import com.lijay.lijayaiagent.mapper.ChatMemoryMessageMapper;
+import com.lijay.lijayaiagent.mapper.ChatMemorySummaryMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 对话记忆配置类
+ * 在 {@link JdbcChatMemory} 外按配置叠加装饰器，LoveApp 和多模态服务注入的是这里的 chatMemory
+ */
+@Configuration
+@Slf4j
+public class ChatMemoryConfig {
+
+    /**
+     * 基于 MySQL 的对话记忆
+     * MessageChatMemoryAdvisor 每轮调用 get，配置窗口后只加载实际发送给模型的最近消息
+     * 开启 chat-memory.compression.enabled 时超过阈值的消息压缩存储
+     */
+    @Bean
+    public JdbcChatMemory jdbcChatMemory(ChatMemoryMessageMapper chatMemoryMessageMapper, ChatMemoryProperties properties) {
+        ChatMemoryProperties.Compression compression = properties.getCompression();
+        int compressionThreshold = compression.isEnabled() ? (int) compression.getThreshold().toBytes() : 0;
+        return new JdbcChatMemory(chatMemoryMessageMapper, window(properties), compressionThreshold);
+    }
+
+    /**
+     * 对话记忆分片的数据源，开启 chat-memory.sharding.enabled 时创建，每个分片独立的连接池
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "chat-memory.sharding", name = "enabled", havingValue = "true")
+    public ChatMemoryShards chatMemoryShards(ChatMemoryProperties properties) {
+        return new ChatMemoryShards(properties.getSharding().getShards());
+    }
+
+    /**
+     * 应用使用的对话记忆（LoveApp 通过构造器注入），存储后端由 chat-memory.store 选择：
+     * - jdbc（默认）：JdbcChatMemory，装饰顺序：缓存 -> 异步写回 -> JdbcChatMemory；
+     *   开启 chat-memory.sharding.enabled 时 JdbcChatMemory 换成按会话ID分片的 ShardedChatMemory
+     * - file：FileBasedChatMemory，每个会话一个日志文件
+     * - mvstore：MvStoreChatMemory，单节点部署的嵌入式有序存储，无网络往返
+     *
+     * - 开启 chat-memory.write-behind.enabled 时包装为异步写回，应用停止时自动排空队列（close），仅 jdbc 生效
+     * - 开启 chat-memory.cache.enabled 时在最外层加 LRU 缓存，命中率等指标注册到 MeterRegistry
+     * - 开启 chat-memory.summary.enabled 时改用摘要分层（直接读写数据库，不叠加上面两个装饰器），仅 jdbc 且未分片时生效
+     */
+    @Bean
+    @Primary
+    public ChatMemory chatMemory(JdbcChatMemory jdbcChatMemory, ChatMemoryProperties properties,
+                                 ObjectProvider<MeterRegistry> meterRegistry,
+                                 ChatMemoryMessageMapper chatMemoryMessageMapper,
+                                 ChatMemorySummaryMapper chatMemorySummaryMapper,
+                                 ChatModel dashscopeChatModel,
+                                 ObjectProvider<ChatMemoryShards> chatMemoryShards) {
+        ChatMemoryProperties.StoreType store = properties.getStore();
+        ChatMemoryProperties.Summary summary = properties.getSummary();
+        ChatMemoryShards shards = chatMemoryShards.getIfAvailable();
+        if (summary.isEnabled() && shards != null) {
+            log.warn("对话记忆开启了分片，摘要分层配置不生效");
+        }
+        if (summary.isEnabled() && store == ChatMemoryProperties.StoreType.JDBC && shards == null) {
+            if (properties.getWriteBehind().isEnabled() || properties.getCache().isEnabled()) {
+                log.warn("对话记忆开启了摘要分层，异步写回和进程内缓存配置不生效");
+            }
+            log.info("对话记忆开启摘要分层，保留最近 {} 条消息，每 {} 条折叠一次", summary.getKeepMessages(), summary.getSummarizeBatch());
+            return new SummarizingChatMemory(jdbcChatMemory, chatMemoryMessageMapper, chatMemorySummaryMapper,
+                    new ChatModelConversationSummarizer(dashscopeChatModel, summary.getMaxSummaryChars()),
+                    summarizerExecutor(summary.getThreads()),
+                    summary.getKeepMessages(), summary.getSummarizeBatch());
+        }
+        if (store != ChatMemoryProperties.StoreType.JDBC
+                && (summary.isEnabled() || properties.getWriteBehind().isEnabled())) {
+            log.warn("对话记忆存储为 {}，摘要分层和异步写回配置不生效", store);
+        }
+        ChatMemoryWindow window = jdbcChatMemory.getWindow();
+        ChatMemory chatMemory = switch (store) {
+            case FILE -> {
+                ChatMemoryProperties.FileStore file = properties.getFile();
+                log.info("对话记忆使用文件存储，目录：{}", file.getDir());
+                yield new FileBasedChatMemory(file.getDir(), window, file.getFsyncPolicy(), file.getFsyncInterval(),
+                        0, FileBasedChatMemory.DEFAULT_COMPACTION_THRESHOLD_BYTES);
+            }
+            case MVSTORE -> {
+                ChatMemoryProperties.MvStore mvstore = properties.getMvstore();
+                log.info("对话记忆使用 MVStore 存储，文件：{}", mvstore.getPath());
+                yield new MvStoreChatMemory(mvstore.getPath(), window, mvstore.getFsyncPolicy(), mvstore.getFsyncInterval());
+            }
+            case JDBC -> writeBehind(shards != null ? shardedChatMemory(shards, properties, window) : jdbcChatMemory,
+                    window, properties.getWriteBehind());
+        };
+        ChatMemoryProperties.Cache cache = properties.getCache();
+        if (cache.isEnabled()) {
+            log.info("对话记忆开启进程内缓存，消息上限：{}，容量上限：{}", cache.getMaxMessages(), cache.getMaxSize());
+            CachingChatMemory cachingChatMemory = new CachingChatMemory(chatMemory, window,
+                    cache.getMaxMessages(), cache.getMaxSize().toBytes());
+            meterRegistry.ifAvailable(cachingChatMemory::bindTo);
+            chatMemory = cachingChatMemory;
+        }
+        return chatMemory;
+    }
+
+    /**
+     * 非阻塞的对话记忆，供流式对话的 AsyncChatMemoryAdvisor 使用
+     * 读写在 boundedElastic 上执行；开启 chat-memory.async.virtual-threads 时改为每次调用一个虚拟线程
+     */
+    @Bean
+    public AsyncChatMemory asyncChatMemory(ChatMemory chatMemory, ChatMemoryProperties properties) {
+        if (properties.getAsync().isVirtualThreads()) {
+            return new OffloadingAsyncChatMemory(chatMemory,
+                    Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "chat-memory-virtual"));
+        }
+        return new OffloadingAsyncChatMemory(chatMemory, Schedulers.boundedElastic());
+    }
+
+    /**
+     * 上下文预算裁剪，LoveApp 的 TokenBudgetAdvisor 和智能体共用（token 估算按消息缓存）
+     * chat-memory.context-budget.enabled=false 时原样发送，不做任何裁剪
+     */
+    @Bean
+    public ContextTrimmer contextTrimmer(ChatMemoryProperties properties) {
+        ChatMemoryProperties.ContextBudget budget = properties.getContextBudget();
+        if (!budget.isEnabled()) {
+            return new ContextTrimmer(0, 0, 0);
+        }
+        return new ContextTrimmer(budget.getMaxTokens(), budget.getKeepRecentMessages(), budget.getMaxToolResponseTokens());
+    }
+
+    /**
+     * 对话记忆过期清理，开启 chat-memory.retention.enabled 时生效
+     * 清理的会话同时从进程内缓存失效；清理行数和持锁时间注册到 MeterRegistry
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "chat-memory.retention", name = "enabled", havingValue = "true")
+    public ChatMemoryPurger chatMemoryPurger(ChatMemoryMessageMapper chatMemoryMessageMapper,
+                                             ChatMemorySummaryMapper chatMemorySummaryMapper,
+                                             JdbcTemplate jdbcTemplate,
+                                             ChatMemory chatMemory,
+                                             ChatMemoryProperties properties,
+                                             ObjectProvider<MeterRegistry> meterRegistry) {
+        ChatMemoryProperties.Retention retention = properties.getRetention();
+        ChatMemoryPartitionManager partitionManager = retention.isPartitioned()
+                ? new ChatMemoryPartitionManager(jdbcTemplate, retention.getPartitionsAhead())
+                : null;
+        Consumer<String> purgedListener = chatMemory instanceof CachingChatMemory cachingChatMemory
+                ? cachingChatMemory::invalidate
+                : null;
+        ChatMemoryPurger purger = new ChatMemoryPurger(chatMemoryMessageMapper,
+                properties.getSummary().isEnabled() ? chatMemorySummaryMapper : null,
+                partitionManager,
+                retention.getTtl(),
+                retention.getBatchSize(),
+                retention.getScanBatchSize(),
+                retention.getBatchPause(),
+                purgedListener);
+        meterRegistry.ifAvailable(purger::bindTo);
+        purger.start(retention.getPurgeInterval());
+        log.info("对话记忆开启过期清理，保留时长：{}，清理间隔：{}，分区表：{}",
+                retention.getTtl(), retention.getPurgeInterval(), retention.isPartitioned());
+        return purger;
+    }
+
+    /**
+     * 按会话ID分片的对话记忆；开启 chat-memory.sharding.rebalance-on-startup 时先同步执行再平衡
+     */
+    private static ShardedChatMemory shardedChatMemory(ChatMemoryShards shards, ChatMemoryProperties properties,
+                                                       ChatMemoryWindow window) {
+        ChatMemoryProperties.Sharding sharding = properties.getSharding();
+        ChatMemoryProperties.Compression compression = properties.getCompression();
+        int compressionThreshold = compression.isEnabled() ? (int) compression.getThreshold().toBytes() : 0;
+        ShardedChatMemory shardedChatMemory = new ShardedChatMemory(shards.mappers(), shards.transactionTemplates(), window,
+                compressionThreshold, sharding.getVirtualNodes());
+        log.info("对话记忆开启分片：{}", shards.mappers().keySet());
+        if (sharding.isRebalanceOnStartup()) {
+            ChatMemoryShardMigrator.Result result = new ChatMemoryShardMigrator(shards.mappers(),
+                    shardedChatMemory.getRing(), sharding.getRebalanceBatchSize()).migrate();
+            log.info("对话记忆分片再平衡完成，迁移 {} 个会话、{} 条消息", result.conversations(), result.rows());
+        }
+        return shardedChatMemory;
+    }
+
+    private static ChatMemory writeBehind(BatchChatMemory batchChatMemory, ChatMemoryWindow window,
+                                          ChatMemoryProperties.WriteBehind writeBehind) {
+        if (!writeBehind.isEnabled()) {
+            return batchChatMemory;
+        }
+        log.info("对话记忆开启异步写回，刷盘间隔：{}，批量大小：{}", writeBehind.getFlushInterval(), writeBehind.getFlushBatchSize());
+        return new WriteBehindChatMemory(batchChatMemory,
+                window,
+                writeBehind.getFlushInterval(),
+                writeBehind.getFlushBatchSize(),
+                writeBehind.getQueueCapacity(),
+                writeBehind.getConversationCapacity(),
+                writeBehind.getOfferTimeout());
+    }
+
+    /**
+     * 摘要线程池：队列满时拒绝，由下次写入重新提交
+     */
+    private static ExecutorService summarizerExecutor(int threads) {
+        AtomicInteger index = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(1000), runnable -> {
+            Thread thread = new Thread(runnable, "chat-memory-summarizer-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static ChatMemoryWindow window(ChatMemoryProperties properties) {
+        ChatMemoryProperties.Window window = properties.getWindow();
+        return new ChatMemoryWindow(window.getMaxMessages(), window.getMaxTokens());
+    }
+}
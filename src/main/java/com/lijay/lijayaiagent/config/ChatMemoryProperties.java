@@ -0,0 +1,380 @@
+package com.lijay.lijayaiagent.config;
+
+import com.lijay.lijayaiagent.chatmemory.FsyncPolicy;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 对话记忆配置
+ * 对应 application.yml 中的 chat-memory.* 配置项
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "chat-memory")
+public class ChatMemoryProperties {
+
+    /**
+     * 存储后端
+     */
+    private StoreType store = StoreType.JDBC;
+
+    /**
+     * 文件存储配置（store=file）
+     */
+    private FileStore file = new FileStore();
+
+    /**
+     * MVStore 嵌入式存储配置（store=mvstore）
+     */
+    private MvStore mvstore = new MvStore();
+
+    /**
+     * 分片配置（store=jdbc）
+     */
+    private Sharding sharding = new Sharding();
+
+    /**
+     * 读取窗口配置
+     */
+    private Window window = new Window();
+
+    /**
+     * 异步写回（write-behind）配置
+     */
+    private WriteBehind writeBehind = new WriteBehind();
+
+    /**
+     * 进程内缓存配置
+     */
+    private Cache cache = new Cache();
+
+    /**
+     * 消息压缩配置
+     */
+    private Compression compression = new Compression();
+
+    /**
+     * 摘要分层配置
+     */
+    private Summary summary = new Summary();
+
+    /**
+     * 过期清理配置
+     */
+    private Retention retention = new Retention();
+
+    /**
+     * 非阻塞读写配置（流式对话）
+     */
+    private Async async = new Async();
+
+    /**
+     * 发送给模型的上下文 token 预算（LoveApp 和智能体）
+     */
+    private ContextBudget contextBudget = new ContextBudget();
+
+    public enum StoreType {
+
+        /**
+         * MySQL（{@link com.lijay.lijayaiagent.chatmemory.JdbcChatMemory}），支持多实例部署
+         */
+        JDBC,
+
+        /**
+         * 每个会话一个日志文件（{@link com.lijay.lijayaiagent.chatmemory.FileBasedChatMemory}）
+         */
+        FILE,
+
+        /**
+         * H2 MVStore 嵌入式有序存储（{@link com.lijay.lijayaiagent.chatmemory.MvStoreChatMemory}），适合单节点部署
+         */
+        MVSTORE
+    }
+
+    @Data
+    public static class FileStore {
+
+        /**
+         * 日志文件目录
+         */
+        private String dir = System.getProperty("user.dir") + "/tmp/file-based-chat-memory";
+
+        /**
+         * 刷盘策略
+         */
+        private FsyncPolicy fsyncPolicy = FsyncPolicy.INTERVAL;
+
+        /**
+         * INTERVAL 策略下的刷盘间隔
+         */
+        private Duration fsyncInterval = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class MvStore {
+
+        /**
+         * MVStore 文件路径
+         */
+        private String path = System.getProperty("user.dir") + "/tmp/chat-memory.mv.db";
+
+        /**
+         * 提交策略：ALWAYS 每次写入后提交并刷盘，INTERVAL 按间隔自动提交
+         */
+        private FsyncPolicy fsyncPolicy = FsyncPolicy.INTERVAL;
+
+        /**
+         * INTERVAL 策略下的自动提交间隔
+         */
+        private Duration fsyncInterval = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class Sharding {
+
+        /**
+         * 是否按会话ID分片到多个 MySQL 主库，开启后对话记忆不再写入主数据源
+         */
+        private boolean enabled = false;
+
+        /**
+         * 一致性哈希每个分片的虚拟节点数
+         */
+        private int virtualNodes = 160;
+
+        /**
+         * 启动时执行再平衡（新增分片后开启一次，迁移期间不能有写入）
+         */
+        private boolean rebalanceOnStartup = false;
+
+        /**
+         * 再平衡时每次复制、扫描的行数
+         */
+        private int rebalanceBatchSize = 200;
+
+        /**
+         * 分片列表，分片名参与路由计算，上线后不能修改
+         */
+        private List<Shard> shards = new ArrayList<>();
+    }
+
+    @Data
+    public static class Shard {
+
+        /**
+         * 分片名
+         */
+        private String name;
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        /**
+         * 该分片连接池的最大连接数
+         */
+        private int maximumPoolSize = 10;
+
+        /**
+         * 该分片连接池的最小空闲连接数
+         */
+        private int minimumIdle = 2;
+    }
+
+    @Data
+    public static class Window {
+
+        /**
+         * 每次读取的最近消息条数，0 表示读取完整历史
+         */
+        private int maxMessages = 0;
+
+        /**
+         * 每次读取的 token 预算（本地估算），0 表示不限制
+         */
+        private int maxTokens = 0;
+    }
+
+    @Data
+    public static class WriteBehind {
+
+        /**
+         * 是否开启异步写回，关闭时每次 add 同步写入数据库
+         */
+        private boolean enabled = false;
+
+        /**
+         * 后台刷盘间隔
+         */
+        private Duration flushInterval = Duration.ofMillis(200);
+
+        /**
+         * 单次刷盘最多合并的消息条数，积压达到该值时立即触发刷盘
+         */
+        private int flushBatchSize = 500;
+
+        /**
+         * 内存中最多积压的消息条数（所有会话合计）
+         */
+        private int queueCapacity = 10000;
+
+        /**
+         * 单个会话最多积压的消息条数
+         */
+        private int conversationCapacity = 200;
+
+        /**
+         * 队列已满时的最长等待时间，超时后改为同步写入
+         */
+        private Duration offerTimeout = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class Cache {
+
+        /**
+         * 是否开启进程内缓存（会话需粘滞到单实例，否则其它实例的写入不会失效本机缓存）
+         */
+        private boolean enabled = false;
+
+        /**
+         * 缓存的消息总条数上限
+         */
+        private long maxMessages = 100000;
+
+        /**
+         * 缓存的估算字节数上限
+         */
+        private DataSize maxSize = DataSize.ofMegabytes(128);
+    }
+
+    @Data
+    public static class Compression {
+
+        /**
+         * 是否压缩 chat_memory_message.message_bytes，关闭后已压缩的行仍可读取
+         */
+        private boolean enabled = false;
+
+        /**
+         * 序列化后达到该大小的消息才压缩，小消息压缩收益低
+         */
+        private DataSize threshold = DataSize.ofBytes(512);
+    }
+
+    @Data
+    public static class Summary {
+
+        /**
+         * 是否开启摘要分层：最近消息原样保留，更早的消息在后台折叠为滚动摘要
+         * 开启后异步写回和进程内缓存不生效
+         */
+        private boolean enabled = false;
+
+        /**
+         * 原样发送给模型的最近消息条数
+         */
+        private int keepMessages = 20;
+
+        /**
+         * 超出 keepMessages 的消息积累到该条数时折叠一次
+         */
+        private int summarizeBatch = 20;
+
+        /**
+         * 摘要最大字数
+         */
+        private int maxSummaryChars = 500;
+
+        /**
+         * 生成摘要的后台线程数
+         */
+        private int threads = 2;
+    }
+
+    @Data
+    public static class Retention {
+
+        /**
+         * 是否开启过期清理
+         */
+        private boolean enabled = false;
+
+        /**
+         * 会话最后一条消息超过该时长即被清理（分区表下为消息的保留时长）
+         */
+        private Duration ttl = Duration.ofDays(30);
+
+        /**
+         * 清理间隔
+         */
+        private Duration purgeInterval = Duration.ofHours(1);
+
+        /**
+         * 单条 DELETE 最多删除的行数
+         */
+        private int batchSize = 500;
+
+        /**
+         * 每次扫描的会话数
+         */
+        private int scanBatchSize = 1000;
+
+        /**
+         * 两批 DELETE 之间的间隔
+         */
+        private Duration batchPause = Duration.ofMillis(20);
+
+        /**
+         * chat_memory_message 是否为按天分区表（db/chat_memory_message_partitioned.sql），是则删除过期分区代替逐行删除
+         */
+        private boolean partitioned = false;
+
+        /**
+         * 分区表提前创建的未来分区天数
+         */
+        private int partitionsAhead = 7;
+    }
+
+    @Data
+    public static class Async {
+
+        /**
+         * 对话记忆读写改为在虚拟线程上执行（默认 boundedElastic 线程池）
+         */
+        private boolean virtualThreads = false;
+    }
+
+    @Data
+    public static class ContextBudget {
+
+        /**
+         * 是否按预算裁剪发送给模型的上下文
+         */
+        private boolean enabled = true;
+
+        /**
+         * 上下文 token 预算（本地估算，包含 system 提示词）
+         */
+        private int maxTokens = 8000;
+
+        /**
+         * 始终保留的最近消息条数
+         */
+        private int keepRecentMessages = 6;
+
+        /**
+         * 单个工具结果的 token 上限，超出部分截断，0 表示不截断
+         */
+        private int maxToolResponseTokens = 2000;
+    }
+}
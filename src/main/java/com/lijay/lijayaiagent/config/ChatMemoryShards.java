@@ -0,0 +1,82 @@
+package com.lijay.lijayaiagent.config;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.extension.spring.MybatisSqlSessionFactoryBean;
+import com.lijay.lijayaiagent.mapper.ChatMemoryMessageMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 对话记忆分片的数据源和 Mapper
+ * 每个分片独立的 Hikari 连接池、SqlSessionFactory 和事务管理器，不经过主数据源；应用停止时关闭所有连接池
+ */
+@Slf4j
+public class ChatMemoryShards implements AutoCloseable {
+
+    private final Map<String, HikariDataSource> dataSources = new LinkedHashMap<>();
+
+    private final Map<String, ChatMemoryMessageMapper> mappers = new LinkedHashMap<>();
+
+    private final Map<String, TransactionTemplate> transactionTemplates = new LinkedHashMap<>();
+
+    public ChatMemoryShards(List<ChatMemoryProperties.Shard> shards) {
+        if (shards == null || shards.isEmpty()) {
+            throw new IllegalArgumentException("开启分片时至少需要配置一个分片");
+        }
+        try {
+            for (ChatMemoryProperties.Shard shard : shards) {
+                if (dataSources.containsKey(shard.getName())) {
+                    throw new IllegalArgumentException("分片名重复：" + shard.getName());
+                }
+                HikariDataSource dataSource = new HikariDataSource();
+                dataSource.setPoolName("chat-memory-" + shard.getName());
+                dataSource.setJdbcUrl(shard.getUrl());
+                dataSource.setUsername(shard.getUsername());
+                dataSource.setPassword(shard.getPassword());
+                dataSource.setMaximumPoolSize(shard.getMaximumPoolSize());
+                dataSource.setMinimumIdle(shard.getMinimumIdle());
+                dataSources.put(shard.getName(), dataSource);
+
+                MybatisSqlSessionFactoryBean factoryBean = new MybatisSqlSessionFactoryBean();
+                factoryBean.setDataSource(dataSource);
+                factoryBean.setConfiguration(new MybatisConfiguration());
+                SqlSessionFactory sqlSessionFactory = factoryBean.getObject();
+                sqlSessionFactory.getConfiguration().addMapper(ChatMemoryMessageMapper.class);
+                mappers.put(shard.getName(), new SqlSessionTemplate(sqlSessionFactory).getMapper(ChatMemoryMessageMapper.class));
+                transactionTemplates.put(shard.getName(), new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+                log.info("对话记忆分片 {} 已初始化，连接池上限 {}", shard.getName(), shard.getMaximumPoolSize());
+            }
+        } catch (Exception e) {
+            close();
+            throw new IllegalStateException("初始化对话记忆分片失败", e);
+        }
+    }
+
+    /**
+     * @return 分片名 -> Mapper（按配置顺序）
+     */
+    public Map<String, ChatMemoryMessageMapper> mappers() {
+        return Collections.unmodifiableMap(mappers);
+    }
+
+    /**
+     * @return 分片名 -> 该分片数据源的事务模板（按配置顺序）
+     */
+    public Map<String, TransactionTemplate> transactionTemplates() {
+        return Collections.unmodifiableMap(transactionTemplates);
+    }
+
+    @Override
+    public void close() {
+        dataSources.values().forEach(HikariDataSource::close);
+    }
+}
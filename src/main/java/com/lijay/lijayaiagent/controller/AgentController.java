@@ -0,0 +1,100 @@
+package com.lijay.lijayaiagent.controller;
+
+import com.lijay.lijayaiagent.agent.BaseAgent;
+import com.lijay.lijayaiagent.agent.LijayManusFactory;
+import com.lijay.lijayaiagent.agent.model.AgentEvent;
+import com.lijay.lijayaiagent.agent.model.AgentState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 智能体接口
+ */
+@RestController
+@RequestMapping("/agent")
+@Slf4j
+public class AgentController {
+
+    private final LijayManusFactory lijayManusFactory;
+
+    /**
+     * 本实例上未结束的运行，恢复时拒绝仍在执行的运行，避免同一运行的步骤被执行两次
+     */
+    private final Map<String, BaseAgent> runningAgents = new ConcurrentHashMap<>();
+
+    public AgentController(LijayManusFactory lijayManusFactory) {
+        this.lijayManusFactory = lijayManusFactory;
+    }
+
+    /**
+     * 流式调用 LijayManus 超级智能体，第一个 run 事件中是运行ID
+     *
+     * @param planExecute 是否使用先规划后执行模式（一次规划多个工具调用，按依赖并行执行）
+     */
+    @GetMapping(value = "/manus/chat", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter doChatWithManus(String message, @RequestParam(defaultValue = "false") boolean planExecute) {
+        BaseAgent agent = planExecute ? lijayManusFactory.createPlanExecute() : lijayManusFactory.create();
+        register(agent);
+        return agent.runStream(message);
+    }
+
+    /**
+     * 断线后按运行ID恢复：重放已完成步骤的结果，从最后完成的步骤继续执行
+     */
+    @GetMapping(value = "/manus/resume", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter resumeManus(String runId) {
+        BaseAgent running = runningAgents.get(runId);
+        if (running != null && isActive(running)) {
+            return error("运行仍在执行中，请稍后重试：" + runId);
+        }
+        Optional<BaseAgent> restored = lijayManusFactory.restore(runId);
+        if (restored.isEmpty()) {
+            return error("运行不存在或已过期：" + runId);
+        }
+        BaseAgent agent = restored.get();
+        if (!register(agent)) {
+            return error("运行仍在执行中，请稍后重试：" + runId);
+        }
+        log.info("恢复智能体运行 {}，已完成 {} 步", runId, agent.getCurrentStep());
+        return agent.resumeStream();
+    }
+
+    /**
+     * @return 同一运行ID没有其它未结束的运行时为 true
+     */
+    private boolean register(BaseAgent agent) {
+        // 顺带清理已结束的运行
+        runningAgents.values().removeIf(running -> !isActive(running));
+        return runningAgents.compute(agent.getRunId(),
+                (runId, running) -> running != null && isActive(running) ? running : agent) == agent;
+    }
+
+    private static boolean isActive(BaseAgent agent) {
+        AgentState state = agent.getState();
+        return state == AgentState.IDLE || state == AgentState.RUNNING;
+    }
+
+    private static SseEmitter error(String message) {
+        SseEmitter sseEmitter = new SseEmitter();
+        try {
+            AgentEvent event = AgentEvent.error(0, message);
+            sseEmitter.send(SseEmitter.event()
+                    .name(event.type().getEventName())
+                    .data(event, MediaType.APPLICATION_JSON));
+            sseEmitter.complete();
+        } catch (IOException e) {
+            sseEmitter.completeWithError(e);
+        }
+        return sseEmitter;
+    }
+}
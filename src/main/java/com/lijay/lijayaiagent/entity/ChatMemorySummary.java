@@ -0,0 +1,49 @@
+package com.lijay.lijayaiagent.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 对话摘要实体类
+ * 对应数据库表 chat_memory_summary，每个对话一行
+ */
+@TableName("chat_memory_summary")
+@Data
+public class ChatMemorySummary {
+
+    /**
+     * 对话ID
+     */
+    @TableId(value = "conversation_id", type = IdType.INPUT)
+    private String conversationId;
+
+    /**
+     * 滚动摘要内容
+     */
+    @TableField("summary")
+    private String summary;
+
+    /**
+     * 水位线：已折叠进摘要的最后一条 chat_memory_message.id
+     */
+    @TableField("watermark_id")
+    private Long watermarkId;
+
+    /**
+     * 已折叠进摘要的消息条数
+     */
+    @TableField("summarized_count")
+    private Long summarizedCount;
+
+    /**
+     * 更新时间
+     */
+    @TableField("updated_at")
+    private LocalDateTime updatedAt;
+
+}
@@ -2,7 +2,11 @@ package com.lijay.lijayaiagent.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.lijay.lijayaiagent.entity.ChatMemoryMessage;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 /**
  * 对话记忆消息 Mapper 接口
@@ -10,4 +14,36 @@ import org.apache.ibatis.annotations.Mapper;
  */
 @Mapper
 public interface ChatMemoryMessageMapper extends BaseMapper<ChatMemoryMessage> {
+
+    /**
+     * 多行批量插入，一条 INSERT 语句写入整批消息（一次网络往返）
+     *
+     * @param messages 待插入的消息，按列表顺序分配自增 id
+     * @return 插入行数
+     */
+    @Insert({
+            "<script>",
+            "INSERT INTO chat_memory_message (conversation_id, role, message_bytes) VALUES",
+            "<foreach collection='messages' item='item' separator=','>",
+            "(#{item.conversationId}, #{item.role}, #{item.messageBytes})",
+            "</foreach>",
+            "</script>"
+    })
+    int insertBatch(@Param("messages") List<ChatMemoryMessage> messages);
+
+    /**
+     * 多行批量插入并保留原始 created_at（分片迁移时使用，过期清理依赖该时间）
+     *
+     * @param messages 待插入的消息，按列表顺序分配自增 id
+     * @return 插入行数
+     */
+    @Insert({
+            "<script>",
+            "INSERT INTO chat_memory_message (conversation_id, role, message_bytes, created_at) VALUES",
+            "<foreach collection='messages' item='item' separator=','>",
+            "(#{item.conversationId}, #{item.role}, #{item.messageBytes}, #{item.createdAt})",
+            "</foreach>",
+            "</script>"
+    })
+    int insertBatchWithCreatedAt(@Param("messages") List<ChatMemoryMessage> messages);
 }
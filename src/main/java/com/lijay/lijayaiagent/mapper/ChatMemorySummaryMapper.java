@@ -0,0 +1,12 @@
+package com.lijay.lijayaiagent.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.lijay.lijayaiagent.entity.ChatMemorySummary;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * 对话摘要 Mapper 接口
+ */
+@Mapper
+public interface ChatMemorySummaryMapper extends BaseMapper<ChatMemorySummary> {
+}
@@ -0,0 +1,351 @@
+package com.lijay.lijayaiagent.tools;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONException;
+import cn.hutool.json.JSONNull;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.lijay.lijayaiagent.agent.ParallelToolExecutor;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 缓存工具调用结果的装饰器，只用于结果只取决于参数、没有副作用的工具（搜索、抓取网页等）
+ *
+ * - 缓存键为工具名 + 规范化的参数（JSON 对象按键排序、去掉空白），参数顺序和格式不同的相同调用共用一个结果
+ * - 结果保留 ttl，按最久未访问淘汰，最多 maxSize 条
+ * - 同一参数的并发调用合并：工具只在独立的线程上执行一次，所有调用等待并共用它的结果；
+ *   某个调用方超时或被取消不影响其它调用方，所有调用方都放弃后才取消执行
+ * - 失败（异常或工具返回的错误信息，见 {@link ParallelToolExecutor#isFailure}）不缓存，下一次调用重新执行
+ * - 带 ToolContext 的调用结果可能与调用方相关，不经过缓存
+ */
+public class CachingToolCallback implements ToolCallback, MeterBinder {
+
+    private final ToolCallback delegate;
+
+    private final String toolName;
+
+    private final long ttlNanos;
+
+    private final int maxSize;
+
+    private final LongSupplier ticker;
+
+    /**
+     * 访问顺序的 LinkedHashMap，头部为最久未访问的结果；由 this 的监视器保护
+     */
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * 正在执行的调用，相同参数的并发调用等待同一个结果
+     */
+    private final ConcurrentHashMap<String, SharedCall> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param delegate 被缓存的工具
+     * @param ttl      结果的保留时长
+     * @param maxSize  最多缓存的结果数
+     */
+    public CachingToolCallback(ToolCallback delegate, Duration ttl, int maxSize) {
+        this(delegate, ttl, maxSize, System::nanoTime);
+    }
+
+    CachingToolCallback(ToolCallback delegate, Duration ttl, int maxSize, LongSupplier ticker) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate 不能为空");
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("ttl 必须大于 0");
+        }
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize 必须大于 0");
+        }
+        this.toolName = delegate.getToolDefinition().name();
+        this.ttlNanos = ttl.toNanos();
+        this.maxSize = maxSize;
+        this.ticker = ticker;
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return call(toolInput, null);
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        if (toolContext != null && !toolContext.getContext().isEmpty()) {
+            return delegate.call(toolInput, toolContext);
+        }
+        String key = cacheKey(toolName, toolInput);
+        String cached = get(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        while (true) {
+            SharedCall running = inFlight.get(key);
+            if (running != null) {
+                if (running.join()) {
+                    coalesced.increment();
+                    return running.await();
+                }
+                // 所有等待方都已放弃，这次调用正在被取消
+                inFlight.remove(key, running);
+                continue;
+            }
+            SharedCall shared = new SharedCall(key, toolInput);
+            if (inFlight.putIfAbsent(key, shared) == null) {
+                shared.start();
+                return shared.await();
+            }
+        }
+    }
+
+    private String execute(String key, String toolInput) {
+        // 上一个相同调用可能在本次查缓存之后刚好完成
+        String cached = get(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        String result = delegate.call(toolInput);
+        if (!ParallelToolExecutor.isFailure(result)) {
+            put(key, result);
+        }
+        return result;
+    }
+
+    private synchronized String get(String key) {
+        CacheEntry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (ticker.getAsLong() - entry.expiresAt() >= 0) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.result();
+    }
+
+    private synchronized void put(String key, String result) {
+        entries.put(key, new CacheEntry(result, ticker.getAsLong() + ttlNanos));
+        Iterator<CacheEntry> iterator = entries.values().iterator();
+        while (entries.size() > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * @return 工具名 + 规范化的参数；参数不是合法 JSON 时使用去掉首尾空白的原文
+     */
+    static String cacheKey(String toolName, String toolInput) {
+        String input = StrUtil.trimToEmpty(toolInput);
+        if (input.isEmpty()) {
+            return toolName + ":{}";
+        }
+        try {
+            StringBuilder sb = new StringBuilder(toolName).append(':');
+            appendNormalized(sb, JSONUtil.parse(input));
+            return sb.toString();
+        } catch (JSONException e) {
+            return toolName + ":" + input;
+        }
+    }
+
+    private static void appendNormalized(StringBuilder sb, Object value) {
+        if (value instanceof JSONObject object) {
+            sb.append('{');
+            boolean first = true;
+            for (Map.Entry<String, Object> entry : new TreeMap<>(object).entrySet()) {
+                if (!first) {
+                    sb.append(',');
+                }
+                first = false;
+                sb.append(JSONUtil.quote(entry.getKey(), true)).append(':');
+                appendNormalized(sb, entry.getValue());
+            }
+            sb.append('}');
+        } else if (value instanceof JSONArray array) {
+            sb.append('[');
+            for (int i = 0; i < array.size(); i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                appendNormalized(sb, array.get(i));
+            }
+            sb.append(']');
+        } else if (value == null || value instanceof JSONNull) {
+            sb.append("null");
+        } else if (value instanceof CharSequence text) {
+            sb.append(JSONUtil.quote(text.toString(), true));
+        } else {
+            sb.append(value);
+        }
+    }
+
+    /**
+     * 注册缓存指标：cache.gets（result=hit/miss）、tool.cache.coalesced、cache.evictions、cache.size，按 tool 标签区分工具
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .tag("cache", "toolResult").tag("tool", toolName).tag("result", "hit")
+                .description("工具结果缓存命中次数")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .tag("cache", "toolResult").tag("tool", toolName).tag("result", "miss")
+                .description("工具结果缓存未命中（实际执行工具）次数")
+                .register(registry);
+        FunctionCounter.builder("tool.cache.coalesced", coalesced, LongAdder::sum)
+                .tag("tool", toolName)
+                .description("与正在执行的相同调用合并的次数")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", evictions, LongAdder::sum)
+                .tag("cache", "toolResult").tag("tool", toolName)
+                .description("工具结果缓存淘汰的结果数")
+                .register(registry);
+        Gauge.builder("cache.size", this, CachingToolCallback::size)
+                .tag("cache", "toolResult").tag("tool", toolName)
+                .description("缓存中的工具结果数")
+                .register(registry);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    private record CacheEntry(String result, long expiresAt) {
+    }
+
+    /**
+     * 相同参数的并发调用共用的一次执行
+     *
+     * 工具在独立的虚拟线程上执行：某个调用方被中断（超时或取消）时只有它自己放弃等待，不影响其它调用方；
+     * 所有调用方都放弃后才中断工具线程
+     */
+    private final class SharedCall {
+
+        private final String key;
+
+        private final FutureTask<String> task;
+
+        /**
+         * 仍在等待结果的调用方数，由 this 的监视器保护
+         */
+        private int waiters = 1;
+
+        private boolean abandoned;
+
+        private SharedCall(String key, String toolInput) {
+            this.key = key;
+            this.task = new FutureTask<>(() -> {
+                try {
+                    return execute(key, toolInput);
+                } finally {
+                    inFlight.remove(key, this);
+                }
+            });
+        }
+
+        private void start() {
+            Thread.ofVirtual().name("tool-cache-" + toolName).start(task);
+        }
+
+        /**
+         * @return 是否加入成功；所有调用方都已放弃时返回 false
+         */
+        private synchronized boolean join() {
+            if (abandoned) {
+                return false;
+            }
+            waiters++;
+            return true;
+        }
+
+        /**
+         * 等待结果，失败时抛出与工具相同的异常
+         */
+        private String await() {
+            try {
+                return task.get();
+            } catch (InterruptedException e) {
+                leave();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("等待相同的工具调用时被中断", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                if (e.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        private void leave() {
+            synchronized (this) {
+                if (--waiters > 0) {
+                    return;
+                }
+                abandoned = true;
+            }
+            inFlight.remove(key, this);
+            task.cancel(true);
+        }
+    }
+}
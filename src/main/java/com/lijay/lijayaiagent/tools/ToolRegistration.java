@@ -1,7 +1,11 @@
 package com.lijay.lijayaiagent.tools;
 
+import com.lijay.lijayaiagent.config.AgentProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.support.ToolCallbacks;
 import org.springframework.ai.tool.ToolCallback;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -10,13 +14,17 @@ import org.springframework.context.annotation.Configuration;
  * 集中的工具注册类
  */
 @Configuration
+@Slf4j
 public class ToolRegistration {
 
     @Value("${search-api.api-key}")
     private String searchApiKey;
 
+    /**
+     * 所有工具，agent.tool-cache.tools 中列出的工具包装为 {@link CachingToolCallback}，命中率等指标注册到 MeterRegistry
+     */
     @Bean
-    public ToolCallback[] allTools() {
+    public ToolCallback[] allTools(AgentProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
         FileOperationTool fileOperationTool = new FileOperationTool();
         WebSearchTool webSearchTool = new WebSearchTool(searchApiKey);
         WebScrapingTool webScrapingTool = new WebScrapingTool();
@@ -24,7 +32,7 @@ public class ToolRegistration {
         TerminalOperationTool terminalOperationTool = new TerminalOperationTool();
         TerminateTool terminateTool = new TerminateTool();
         PDFGenerationTool pdfGenerationTool = new PDFGenerationTool();
-        return ToolCallbacks.from(
+        ToolCallback[] tools = ToolCallbacks.from(
                 fileOperationTool,
                 webSearchTool,
                 webScrapingTool,
@@ -33,5 +41,25 @@ public class ToolRegistration {
                 terminateTool,
                 pdfGenerationTool
         );
+        AgentProperties.ToolCache toolCache = properties.getToolCache();
+        if (!toolCache.isEnabled()) {
+            return tools;
+        }
+        for (int i = 0; i < tools.length; i++) {
+            String name = tools[i].getToolDefinition().name();
+            AgentProperties.CachePolicy policy = toolCache.getTools().get(name);
+            if (policy == null) {
+                continue;
+            }
+            if (properties.getTools().getSequentialTools().contains(name)) {
+                log.warn("工具 {} 有副作用，不缓存结果", name);
+                continue;
+            }
+            CachingToolCallback cachingToolCallback = new CachingToolCallback(tools[i], policy.getTtl(), policy.getMaxSize());
+            meterRegistry.ifAvailable(cachingToolCallback::bindTo);
+            tools[i] = cachingToolCallback;
+            log.info("工具 {} 开启结果缓存，保留 {}，最多 {} 条", name, policy.getTtl(), policy.getMaxSize());
+        }
+        return tools;
     }
-}
\ No newline at end of file
+}
@@ -4,5 +4,8 @@ CREATE TABLE chat_memory_message (
                                      role VARCHAR(50) COMMENT '消息角色',
                                      message_bytes BLOB NOT NULL COMMENT '消息序列化字节数组',
                                      created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
-                                     INDEX idx_conversation_id (conversation_id)
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='对话记忆消息表';
\ No newline at end of file
+                                     INDEX idx_conversation_id_id (conversation_id, id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='对话记忆消息表';
+
+-- 已有表升级：窗口读取（WHERE conversation_id = ? ORDER BY id DESC LIMIT ?）走联合索引
+-- ALTER TABLE chat_memory_message DROP INDEX idx_conversation_id, ADD INDEX idx_conversation_id_id (conversation_id, id);
\ No newline at end of file
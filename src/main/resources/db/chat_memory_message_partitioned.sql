@@ -0,0 +1,20 @@
+-- chat_memory_message 按天分区布局（可选，配合 chat-memory.retention.partitioned=true）
+-- 过期数据通过 DROP PARTITION 删除，不逐行删除；分区由应用自动维护（删除过期分区、从 p_max 拆出未来分区）
+-- MySQL 要求分区键包含在每个唯一键中，因此主键改为 (id, created_at)；TIMESTAMP 列只能用 UNIX_TIMESTAMP 分区
+CREATE TABLE chat_memory_message (
+                                     id BIGINT AUTO_INCREMENT,
+                                     conversation_id VARCHAR(255) NOT NULL COMMENT '对话ID',
+                                     role VARCHAR(50) COMMENT '消息角色',
+                                     message_bytes BLOB NOT NULL COMMENT '消息序列化字节数组',
+                                     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+                                     PRIMARY KEY (id, created_at),
+                                     INDEX idx_conversation_id_id (conversation_id, id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='对话记忆消息表（按天分区）'
+PARTITION BY RANGE (UNIX_TIMESTAMP(created_at)) (
+    PARTITION p_max VALUES LESS THAN MAXVALUE
+);
+
+-- 已有表迁移（会重建表，需在低峰期执行；已有数据先落在 p_max，首次拆分时归入当天分区）：
+-- ALTER TABLE chat_memory_message DROP PRIMARY KEY, ADD PRIMARY KEY (id, created_at),
+--     MODIFY created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+-- ALTER TABLE chat_memory_message PARTITION BY RANGE (UNIX_TIMESTAMP(created_at)) (PARTITION p_max VALUES LESS THAN MAXVALUE);
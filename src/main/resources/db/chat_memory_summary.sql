@@ -0,0 +1,7 @@
+CREATE TABLE chat_memory_summary (
+                                     conversation_id VARCHAR(255) NOT NULL PRIMARY KEY COMMENT '对话ID',
+                                     summary TEXT NOT NULL COMMENT '滚动摘要',
+                                     watermark_id BIGINT NOT NULL COMMENT '已折叠进摘要的最后一条 chat_memory_message.id',
+                                     summarized_count BIGINT NOT NULL DEFAULT 0 COMMENT '已折叠进摘要的消息条数',
+                                     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='对话记忆摘要表';
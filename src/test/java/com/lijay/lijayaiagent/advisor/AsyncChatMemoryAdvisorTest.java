@@ -0,0 +1,147 @@
+package com.lijay.lijayaiagent.advisor;
+
+import com.lijay.lijayaiagent.chatmemory.OffloadingAsyncChatMemory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * AsyncChatMemoryAdvisor 测试：记忆读写不在模型输出线程上执行，流结束后写入完整回复
+ */
+class AsyncChatMemoryAdvisorTest {
+
+    private final Scheduler memoryScheduler = Schedulers.newBoundedElastic(4, 100, "memory-io");
+
+    private final Scheduler eventLoop = Schedulers.newSingle("event-loop");
+
+    private final ChatMemory delegate = MessageWindowChatMemory.builder().build();
+
+    /**
+     * 记录记忆读写所在的线程
+     */
+    private final Set<String> memoryThreads = ConcurrentHashMap.newKeySet();
+
+    private final StubChatModel chatModel = new StubChatModel();
+
+    private final ChatClient chatClient = ChatClient.builder(chatModel)
+            .defaultAdvisors(new AsyncChatMemoryAdvisor(new OffloadingAsyncChatMemory(new RecordingChatMemory(), memoryScheduler)))
+            .build();
+
+    @AfterEach
+    void tearDown() {
+        memoryScheduler.dispose();
+        eventLoop.dispose();
+    }
+
+    @Test
+    void streamLoadsAndSavesMemoryOffTheEmittingThread() {
+        List<String> chunks = stream("你好").collectList().block();
+
+        Assertions.assertEquals(List.of("你", "好"), chunks);
+        // 流结束时记忆已经写入
+        Assertions.assertEquals(List.of("你好", "你好"), texts(delegate.get("c")));
+        Assertions.assertFalse(memoryThreads.isEmpty());
+        Assertions.assertTrue(memoryThreads.stream().allMatch(name -> name.startsWith("memory-io")), memoryThreads.toString());
+    }
+
+    @Test
+    void nextTurnSeesPreviousTurnInPrompt() {
+        stream("第一轮").blockLast();
+        stream("第二轮").blockLast();
+
+        List<Message> instructions = chatModel.prompts.get(1).getInstructions();
+        Assertions.assertEquals(List.of("第一轮", "你好", "第二轮"), texts(instructions));
+    }
+
+    @Test
+    void cancelledStreamSavesPartialReply() throws Exception {
+        stream("你好").take(1).blockLast();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (delegate.get("c").size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(List.of("你好", "你"), texts(delegate.get("c")));
+    }
+
+    @Test
+    void callPathSavesUserMessageAndReply() {
+        String content = chatClient.prompt().user("你好")
+                .advisors(spec -> spec.param(ChatMemory.CONVERSATION_ID, "c"))
+                .call().content();
+
+        Assertions.assertEquals("你好", content);
+        Assertions.assertEquals(List.of("你好", "你好"), texts(delegate.get("c")));
+    }
+
+    private Flux<String> stream(String message) {
+        return chatClient.prompt().user(message)
+                .advisors(spec -> spec.param(ChatMemory.CONVERSATION_ID, "c"))
+                .stream().content();
+    }
+
+    private static List<String> texts(List<Message> messages) {
+        return messages.stream().map(Message::getText).toList();
+    }
+
+    /**
+     * 模型桩：流式输出在单独的“事件线程”上发出
+     */
+    private class StubChatModel implements ChatModel {
+
+        private final List<Prompt> prompts = new CopyOnWriteArrayList<>();
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            prompts.add(prompt);
+            return response("你好");
+        }
+
+        @Override
+        public Flux<ChatResponse> stream(Prompt prompt) {
+            prompts.add(prompt);
+            return Flux.just("你", "好").map(StubChatModel::response).publishOn(eventLoop);
+        }
+
+        private static ChatResponse response(String text) {
+            return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+        }
+    }
+
+    private class RecordingChatMemory implements ChatMemory {
+
+        @Override
+        public void add(String conversationId, List<Message> messages) {
+            memoryThreads.add(Thread.currentThread().getName());
+            delegate.add(conversationId, messages);
+        }
+
+        @Override
+        public List<Message> get(String conversationId) {
+            memoryThreads.add(Thread.currentThread().getName());
+            return delegate.get(conversationId);
+        }
+
+        @Override
+        public void clear(String conversationId) {
+            delegate.clear(conversationId);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.lijay.lijayaiagent.agent;
+
+import com.lijay.lijayaiagent.agent.model.AgentEventType;
+import com.lijay.lijayaiagent.agent.model.AgentState;
+import com.lijay.lijayaiagent.tools.TerminateTool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.support.ToolCallbacks;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.annotation.Tool;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 智能体取消测试：步骤之间停止、中断进行中的模型调用和工具执行、记录避免的步骤数
+ */
+class AgentCancellationTest {
+
+    private static final long SLOW_MS = 10_000;
+
+    private final AgentTestFixture fixture = new AgentTestFixture();
+
+    /**
+     * 为 true 时模型调用阻塞直到被中断
+     */
+    private final AtomicBoolean slowModel = new AtomicBoolean();
+
+    private final AtomicBoolean modelInterrupted = new AtomicBoolean();
+
+    private final CountDownLatch modelStarted = new CountDownLatch(1);
+
+    /**
+     * 每一步都调用 fetch 工具
+     */
+    private final AgentTestFixture.StubChatModel chatModel = new AgentTestFixture.StubChatModel((call, prompt) -> {
+        modelStarted.countDown();
+        if (slowModel.get()) {
+            try {
+                Thread.sleep(SLOW_MS);
+            } catch (InterruptedException e) {
+                modelInterrupted.set(true);
+                throw new IllegalStateException("模型调用被中断", e);
+            }
+        }
+        return AgentTestFixture.toolCall(call, "fetch");
+    });
+
+    private final SlowTool slowTool = new SlowTool();
+
+    private final ToolCallback[] tools = ToolCallbacks.from(slowTool, new TerminateTool());
+
+    private final AgentRunExecutor agentRunExecutor = fixture.agentRunExecutor();
+
+    private final LijayManusFactory factory = fixture.factory(tools, chatModel, 4, Duration.ofSeconds(30),
+            Set.of("doTerminate"), AgentCheckpointStore.NONE);
+
+    @AfterEach
+    void tearDown() {
+        fixture.close();
+    }
+
+    @Test
+    void stopsBetweenSteps() {
+        LijayManus agent = factory.create();
+        agent.setEventListener(event -> {
+            if (event.type() == AgentEventType.RESULT && event.step() == 2) {
+                agent.cancel("用户取消");
+            }
+        });
+
+        String result = agent.run("帮我查资料");
+
+        Assertions.assertTrue(result.contains("用户取消"), result);
+        Assertions.assertEquals(AgentState.CANCELLED, agent.getState());
+        Assertions.assertEquals(2, chatModel.calls.get());
+        Assertions.assertEquals(1, agentRunExecutor.cancelledCount());
+        Assertions.assertEquals(agent.getMaxSteps() - 2, agentRunExecutor.avoidedStepCount());
+    }
+
+    @Test
+    void stopsBetweenStreamingSteps() {
+        LijayManus agent = factory.create();
+        agent.setStreamModelOutput(true);
+        agent.setEventListener(event -> {
+            if (event.type() == AgentEventType.RESULT && event.step() == 2) {
+                agent.cancel("用户取消");
+            }
+        });
+
+        agent.run("帮我查资料");
+
+        Assertions.assertEquals(AgentState.CANCELLED, agent.getState());
+        Assertions.assertEquals(2, chatModel.calls.get());
+    }
+
+    @Test
+    void interruptsInFlightModelCall() {
+        slowModel.set(true);
+        LijayManus agent = factory.create();
+        cancelWhen(agent, modelStarted);
+
+        agent.run("帮我查资料");
+
+        Assertions.assertEquals(AgentState.CANCELLED, agent.getState());
+        Assertions.assertTrue(modelInterrupted.get());
+        Assertions.assertFalse(Thread.currentThread().isInterrupted());
+        // 取消后没有执行工具，也没有开始下一步
+        Assertions.assertEquals(1, chatModel.calls.get());
+        Assertions.assertEquals(0, slowTool.calls.get());
+        Assertions.assertEquals(1, agent.getCurrentStep());
+    }
+
+    @Test
+    void interruptsInFlightTool() {
+        slowTool.slow.set(true);
+        LijayManus agent = factory.create();
+        cancelWhen(agent, slowTool.started);
+
+        agent.run("帮我查资料");
+
+        Assertions.assertEquals(AgentState.CANCELLED, agent.getState());
+        waitUntilInterrupted(slowTool.interrupted);
+        // 取消后没有再调用模型，也没有开始下一步
+        Assertions.assertEquals(1, chatModel.calls.get());
+        Assertions.assertEquals(1, slowTool.calls.get());
+        Assertions.assertEquals(1, agent.getCurrentStep());
+    }
+
+    private static void cancelWhen(LijayManus agent, CountDownLatch started) {
+        CompletableFuture.runAsync(() -> {
+            try {
+                if (started.await(5, TimeUnit.SECONDS)) {
+                    agent.cancel("客户端断开");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    private static void waitUntilInterrupted(AtomicBoolean interrupted) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!interrupted.get() && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        Assertions.assertTrue(interrupted.get());
+    }
+
+    public static class SlowTool {
+
+        private final AtomicBoolean slow = new AtomicBoolean();
+
+        private final AtomicBoolean interrupted = new AtomicBoolean();
+
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Tool(description = "fetch")
+        public String fetch() {
+            calls.incrementAndGet();
+            started.countDown();
+            if (slow.get()) {
+                try {
+                    Thread.sleep(SLOW_MS);
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                    return "interrupted";
+                }
+            }
+            return "资料";
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.lijay.lijayaiagent.agent;
+
+import com.lijay.lijayaiagent.agent.model.AgentCheckpoint;
+import com.lijay.lijayaiagent.agent.model.AgentEvent;
+import com.lijay.lijayaiagent.agent.model.AgentEventType;
+import com.lijay.lijayaiagent.agent.model.AgentState;
+import com.lijay.lijayaiagent.tools.TerminateTool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.support.ToolCallbacks;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.annotation.Tool;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 检查点测试：每步保存、进程重启后从最后完成的步骤继续（不重复模型调用和工具调用）、已结束的运行不再执行、过期清理
+ */
+class AgentCheckpointTest {
+
+    @TempDir
+    Path dir;
+
+    private final AgentTestFixture fixture = new AgentTestFixture();
+
+    /**
+     * 为 true 时模型直接调用 doTerminate 结束，否则每一步都调用 fetch 工具
+     */
+    private final AtomicBoolean terminate = new AtomicBoolean();
+
+    private final AgentTestFixture.StubChatModel chatModel = new AgentTestFixture.StubChatModel(
+            (call, prompt) -> AgentTestFixture.toolCall(call, terminate.get() ? "doTerminate" : "fetch"));
+
+    private final FetchTool fetchTool = new FetchTool();
+
+    private final ToolCallback[] tools = ToolCallbacks.from(fetchTool, new TerminateTool());
+
+    @AfterEach
+    void tearDown() {
+        fixture.close();
+    }
+
+    @Test
+    void resumesFromLastCompletedStepAfterRestart() {
+        String runId;
+        try (MvStoreAgentCheckpointStore store = new MvStoreAgentCheckpointStore(file(), Duration.ofDays(1))) {
+            LijayManus agent = factory(store).create();
+            runId = agent.getRunId();
+            // 第 2 步完成后运行中断，模拟进程重启
+            agent.setEventListener(event -> {
+                if (event.type() == AgentEventType.RESULT && event.step() == 2) {
+                    agent.cancel("进程重启");
+                }
+            });
+            agent.run("帮我查资料");
+            Assertions.assertEquals(2, chatModel.calls.get());
+            Assertions.assertEquals(2, fetchTool.calls.get());
+        }
+
+        try (MvStoreAgentCheckpointStore store = new MvStoreAgentCheckpointStore(file(), Duration.ofDays(1))) {
+            BaseAgent agent = factory(store).restore(runId).orElseThrow();
+            Assertions.assertEquals(2, agent.getCurrentStep());
+            Assertions.assertInstanceOf(UserMessage.class, agent.getMessageList().getFirst());
+            Assertions.assertEquals(2, agent.getMessageList().stream().filter(ToolResponseMessage.class::isInstance).count());
+
+            List<AgentEvent> events = new CopyOnWriteArrayList<>();
+            agent.setEventListener(events::add);
+            String result = agent.resume();
+
+            AgentEvent firstStep = events.stream().filter(event -> event.type() == AgentEventType.STEP).findFirst().orElseThrow();
+            Assertions.assertEquals(3, firstStep.step());
+            // 每一步只调用一次模型和工具
+            Assertions.assertEquals(agent.getMaxSteps(), chatModel.calls.get());
+            Assertions.assertEquals(agent.getMaxSteps(), fetchTool.calls.get());
+            Assertions.assertTrue(result.startsWith("Step 1: "), result);
+            Assertions.assertTrue(result.endsWith("Terminated: Reached max steps (" + agent.getMaxSteps() + ")"), result);
+            Assertions.assertTrue(store.load(runId).orElseThrow().isFinished());
+        }
+    }
+
+    @Test
+    void stepCancelledDuringToolExecutionIsNotCheckpointed() {
+        InMemoryAgentCheckpointStore store = new InMemoryAgentCheckpointStore(10);
+        LijayManus agent = factory(store).create();
+        agent.setEventListener(event -> {
+            if (event.type() == AgentEventType.TOOL_START && event.step() == 2) {
+                agent.cancel("客户端断开");
+            }
+        });
+
+        agent.run("帮我查资料");
+
+        AgentCheckpoint checkpoint = store.load(agent.getRunId()).orElseThrow();
+        Assertions.assertEquals(1, checkpoint.currentStep());
+        Assertions.assertEquals(1, checkpoint.stepResults().size());
+        Assertions.assertEquals(1, checkpoint.messages().stream().filter(ToolResponseMessage.class::isInstance).count());
+    }
+
+    @Test
+    void finishedRunIsNotExecutedAgain() {
+        terminate.set(true);
+        InMemoryAgentCheckpointStore store = new InMemoryAgentCheckpointStore(10);
+        LijayManus agent = factory(store).create();
+        String result = agent.run("帮我查资料");
+
+        BaseAgent restored = factory(store).restore(agent.getRunId()).orElseThrow();
+
+        Assertions.assertEquals(AgentState.FINISHED, restored.getState());
+        Assertions.assertEquals(result, restored.resume());
+        Assertions.assertEquals(1, chatModel.calls.get());
+    }
+
+    @Test
+    void roundTripsLargeMessagesAndPurgesExpired() {
+        String page = "网页内容".repeat(2000);
+        List<Message> messages = List.of(new UserMessage("帮我查资料"),
+                AssistantMessage.builder().content("")
+                        .toolCalls(List.of(new AssistantMessage.ToolCall("call_1", "function", "fetch", "{}"))).build(),
+                ToolResponseMessage.builder()
+                        .responses(List.of(new ToolResponseMessage.ToolResponse("call_1", "fetch", page))).build());
+        long now = System.currentTimeMillis();
+        try (MvStoreAgentCheckpointStore store = new MvStoreAgentCheckpointStore(file(), Duration.ofHours(1))) {
+            store.save(new AgentCheckpoint("fresh", "liajyManus", AgentState.RUNNING, 1, messages, List.of("Step 1: 资料"), now));
+            store.save(new AgentCheckpoint("stale", "liajyManus", AgentState.RUNNING, 1, messages, List.of(), now - Duration.ofHours(2).toMillis()));
+
+            AgentCheckpoint loaded = store.load("fresh").orElseThrow();
+            ToolResponseMessage toolResponse = (ToolResponseMessage) loaded.messages().get(2);
+            Assertions.assertEquals(page, toolResponse.getResponses().getFirst().responseData());
+            Assertions.assertEquals("fetch", ((AssistantMessage) loaded.messages().get(1)).getToolCalls().getFirst().name());
+            Assertions.assertEquals(List.of("Step 1: 资料"), loaded.stepResults());
+            Assertions.assertTrue(store.load("stale").isEmpty());
+            Assertions.assertEquals(1, store.purgeExpired());
+        }
+    }
+
+    @Test
+    void purgesExpiredInBackground() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        try (MvStoreAgentCheckpointStore store = new MvStoreAgentCheckpointStore(file(), Duration.ofHours(1))) {
+            store.save(new AgentCheckpoint("fresh", "liajyManus", AgentState.RUNNING, 1, List.of(), List.of(), now));
+            store.save(new AgentCheckpoint("stale", "liajyManus", AgentState.RUNNING, 1, List.of(), List.of(), now - Duration.ofHours(2).toMillis()));
+
+            store.start(Duration.ofMillis(50));
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (store.size() > 1 && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+
+            Assertions.assertEquals(1, store.size());
+            Assertions.assertTrue(store.load("fresh").isPresent());
+        }
+    }
+
+    @Test
+    void inMemoryStoreKeepsMostRecentRuns() {
+        InMemoryAgentCheckpointStore store = new InMemoryAgentCheckpointStore(2);
+        for (String runId : List.of("a", "b", "a", "c")) {
+            store.save(new AgentCheckpoint(runId, "liajyManus", AgentState.RUNNING, 1, List.of(), List.of(), 0));
+        }
+
+        Assertions.assertEquals(2, store.size());
+        Assertions.assertTrue(store.load("b").isEmpty());
+        Assertions.assertTrue(store.load("a").isPresent());
+        Assertions.assertTrue(store.load("c").isPresent());
+    }
+
+    private LijayManusFactory factory(AgentCheckpointStore store) {
+        return fixture.factory(tools, chatModel, store);
+    }
+
+    private String file() {
+        return dir.resolve("agent-checkpoint.mv.db").toString();
+    }
+
+    public static class FetchTool {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Tool(description = "fetch")
+        public String fetch() {
+            return "资料 " + calls.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.lijay.lijayaiagent.agent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * AgentRunExecutor 测试：并发上限、排队、拒绝和指标
+ */
+class AgentRunExecutorTest {
+
+    private final AgentRunExecutor executor = new AgentRunExecutor(2, 1, true);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.close();
+    }
+
+    @Test
+    void limitsConcurrentRunsAndRejectsBeyondQueue() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        executor.bindTo(registry);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch finished = new CountDownLatch(3);
+        Runnable run = () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            finished.countDown();
+        };
+
+        executor.execute(run);
+        executor.execute(run);
+        executor.execute(run);
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        Assertions.assertThrows(RejectedExecutionException.class, () -> executor.execute(run));
+
+        Assertions.assertEquals(2, executor.activeCount());
+        Assertions.assertEquals(1, executor.queuedCount());
+        Assertions.assertEquals(1.0, registry.get("agent.runs.queued").gauge().value());
+        Assertions.assertEquals(1.0, registry.get("agent.runs.rejected").functionCounter().count());
+
+        release.countDown();
+        Assertions.assertTrue(finished.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(2, maxRunning.get());
+        waitUntil(() -> executor.completedCount() == 3);
+        Assertions.assertEquals(0, executor.activeCount());
+        Assertions.assertEquals(0, executor.queuedCount());
+    }
+
+    @Test
+    void runsOnVirtualThreads() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicInteger virtual = new AtomicInteger();
+        executor.execute(() -> {
+            if (Thread.currentThread().isVirtual()) {
+                virtual.incrementAndGet();
+            }
+            done.countDown();
+        });
+
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, virtual.get());
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertTrue(condition.getAsBoolean());
+    }
+}
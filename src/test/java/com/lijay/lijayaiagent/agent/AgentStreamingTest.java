@@ -0,0 +1,163 @@
+package com.lijay.lijayaiagent.agent;
+
+import com.lijay.lijayaiagent.agent.model.AgentEvent;
+import com.lijay.lijayaiagent.agent.model.AgentEventType;
+import com.lijay.lijayaiagent.tools.TerminateTool;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.support.ToolCallbacks;
+import org.springframework.ai.tool.ToolCallback;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * 智能体流式事件测试：事件顺序、工具调用片段合并，以及第一个 thinking 事件先于模型输出完成到达
+ * 模型用桩代替：阻塞调用在全部内容生成后才返回，流式调用逐片段输出
+ */
+@Slf4j
+class AgentStreamingTest {
+
+    private static final List<String> TOKENS = List.of("用户", "想找", "约会", "地点", "，", "信息", "已经", "足够", "，", "结束", "任务");
+
+    private static final long TOKEN_DELAY_MS = 50;
+
+    private final ToolCallback[] tools = ToolCallbacks.from(new TerminateTool());
+
+    private final AgentTestFixture fixture = new AgentTestFixture();
+
+    private final StreamingChatModel chatModel = new StreamingChatModel();
+
+    private final LijayManusFactory factory = fixture.factory(tools, chatModel);
+
+    @AfterEach
+    void tearDown() {
+        fixture.close();
+    }
+
+    @Test
+    void pushesTypedEventsWhileTheStepRuns() {
+        List<AgentEvent> events = new CopyOnWriteArrayList<>();
+        LijayManus agent = factory.create();
+        agent.setStreamModelOutput(true);
+        agent.setEventListener(events::add);
+
+        agent.run("帮我找约会地点");
+
+        List<AgentEventType> types = events.stream().map(AgentEvent::type).distinct().toList();
+        Assertions.assertEquals(List.of(AgentEventType.STEP, AgentEventType.THINKING, AgentEventType.TOOL_CALL,
+                AgentEventType.TOOL_START, AgentEventType.TOOL_END, AgentEventType.RESULT, AgentEventType.DONE), types);
+        String thinking = events.stream().filter(event -> event.type() == AgentEventType.THINKING)
+                .map(AgentEvent::content).collect(Collectors.joining());
+        Assertions.assertEquals(String.join("", TOKENS), thinking);
+        AgentEvent toolCall = events.stream().filter(event -> event.type() == AgentEventType.TOOL_CALL).findFirst().orElseThrow();
+        Assertions.assertEquals("doTerminate", toolCall.toolName());
+        Assertions.assertEquals("{}", toolCall.content());
+    }
+
+    @Test
+    void firstThinkingEventArrivesBeforeModelFinishes() {
+        // 阻塞调用：第一个事件（步骤结果）要等模型生成全部内容
+        long start = System.nanoTime();
+        factory.create().run("帮我找约会地点");
+        long blockingMs = (System.nanoTime() - start) / 1_000_000;
+
+        // 流式调用：模型输出第一个片段后等待，直到收到第一个 thinking 事件才继续
+        chatModel.gated = true;
+        List<Long> eventTimes = new CopyOnWriteArrayList<>();
+        LijayManus agent = factory.create();
+        agent.setStreamModelOutput(true);
+        long streamStart = System.nanoTime();
+        agent.setEventListener(event -> {
+            if (event.type() == AgentEventType.THINKING && eventTimes.isEmpty()) {
+                eventTimes.add((System.nanoTime() - streamStart) / 1_000_000);
+                chatModel.timeline.add("first thinking");
+                chatModel.firstThinking.countDown();
+            }
+        });
+        agent.run("帮我找约会地点");
+
+        log.info("首个事件时间：阻塞 {} ms，流式 {} ms", blockingMs, eventTimes.getFirst());
+        Assertions.assertTrue(chatModel.released.get(), "模型输出完成前没有收到 thinking 事件");
+        Assertions.assertEquals(List.of("first thinking", "model finished"), chatModel.timeline);
+    }
+
+    /**
+     * 阻塞调用在全部内容生成后才返回，流式调用逐片段输出
+     */
+    private static class StreamingChatModel extends AgentTestFixture.StubChatModel {
+
+        /**
+         * 为 true 时流式输出第一个片段后等待 firstThinking
+         */
+        private volatile boolean gated;
+
+        private final CountDownLatch firstThinking = new CountDownLatch(1);
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        /**
+         * 监听器收到的事件和模型输出完成的先后顺序
+         */
+        private final List<String> timeline = new CopyOnWriteArrayList<>();
+
+        private StreamingChatModel() {
+            super((call, prompt) -> {
+                try {
+                    Thread.sleep(TOKENS.size() * TOKEN_DELAY_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return AssistantMessage.builder().content(String.join("", TOKENS))
+                        .toolCalls(List.of(new AssistantMessage.ToolCall("call_1", "function", "doTerminate", "{}")))
+                        .build();
+            });
+        }
+
+        @Override
+        public Flux<ChatResponse> stream(Prompt prompt) {
+            // 工具调用分两个片段输出：第一个带 id 和名称，第二个只有剩余参数
+            Flux<ChatResponse> first = Flux.just(response(TOKENS.getFirst(), List.of()));
+            Flux<ChatResponse> rest = Flux.fromIterable(TOKENS.subList(1, TOKENS.size()))
+                    .delayElements(Duration.ofMillis(TOKEN_DELAY_MS))
+                    .map(token -> response(token, List.of()));
+            Flux<ChatResponse> toolCall = Flux.just(
+                    response("", List.of(new AssistantMessage.ToolCall("call_1", "function", "doTerminate", "{"))),
+                    response("", List.of(new AssistantMessage.ToolCall("", "", "", "}"))));
+            Flux<ChatResponse> gate = Flux.defer(() -> {
+                if (gated) {
+                    released.set(await(firstThinking));
+                }
+                return Flux.empty();
+            });
+            return first.concatWith(gate).concatWith(rest).concatWith(toolCall)
+                    .doOnComplete(() -> timeline.add("model finished"));
+        }
+
+        private static boolean await(CountDownLatch latch) {
+            try {
+                return latch.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        private static ChatResponse response(String text, List<AssistantMessage.ToolCall> toolCalls) {
+            AssistantMessage message = AssistantMessage.builder().content(text).toolCalls(toolCalls).build();
+            return new ChatResponse(List.of(new Generation(message)));
+        }
+    }
+}
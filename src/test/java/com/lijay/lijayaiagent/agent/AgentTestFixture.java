@@ -0,0 +1,104 @@
+package com.lijay.lijayaiagent.agent;
+
+import com.lijay.lijayaiagent.chatmemory.ContextTrimmer;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.tool.ToolCallback;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 智能体测试的公共部分：创建 LijayManusFactory 及其线程池，close 时关闭所有创建过的线程池
+ * 同一个 fixture 创建的工厂共用一个 AgentRunExecutor，每个工厂各有一个 ParallelToolExecutor
+ */
+final class AgentTestFixture implements AutoCloseable {
+
+    private final AgentRunExecutor agentRunExecutor = new AgentRunExecutor(0, 0, true);
+
+    private final List<ParallelToolExecutor> parallelToolExecutors = new ArrayList<>();
+
+    /**
+     * 最多同时执行 4 个工具调用，超时 5 秒，doTerminate 单独执行，不保存检查点
+     */
+    LijayManusFactory factory(ToolCallback[] tools, ChatModel chatModel) {
+        return factory(tools, chatModel, 4, Duration.ofSeconds(5), Set.of("doTerminate"), AgentCheckpointStore.NONE);
+    }
+
+    LijayManusFactory factory(ToolCallback[] tools, ChatModel chatModel, AgentCheckpointStore checkpointStore) {
+        return factory(tools, chatModel, 4, Duration.ofSeconds(5), Set.of("doTerminate"), checkpointStore);
+    }
+
+    synchronized LijayManusFactory factory(ToolCallback[] tools, ChatModel chatModel, int maxParallel, Duration timeout,
+                                           Set<String> sequentialTools, AgentCheckpointStore checkpointStore) {
+        ParallelToolExecutor parallelToolExecutor = new ParallelToolExecutor(tools, maxParallel, timeout, sequentialTools);
+        parallelToolExecutors.add(parallelToolExecutor);
+        return new LijayManusFactory(tools, chatModel, new ContextTrimmer(0, 0, 0), agentRunExecutor,
+                parallelToolExecutor, checkpointStore);
+    }
+
+    AgentRunExecutor agentRunExecutor() {
+        return agentRunExecutor;
+    }
+
+    @Override
+    public synchronized void close() {
+        parallelToolExecutors.forEach(ParallelToolExecutor::close);
+        parallelToolExecutors.clear();
+        agentRunExecutor.close();
+    }
+
+    /**
+     * @return 调用一个工具的助手消息，调用ID为 call_ + 第几次模型调用
+     */
+    static AssistantMessage toolCall(int call, String tool) {
+        return AssistantMessage.builder().content("继续")
+                .toolCalls(List.of(new AssistantMessage.ToolCall("call_" + call, "function", tool, "{}")))
+                .build();
+    }
+
+    /**
+     * 桩模型：记录调用次数和收到的提示词，由 responder 给出每次的助手消息；流式调用整体作为一个片段输出
+     */
+    static class StubChatModel implements ChatModel {
+
+        final AtomicInteger calls = new AtomicInteger();
+
+        final List<Prompt> prompts = new CopyOnWriteArrayList<>();
+
+        private final Responder responder;
+
+        StubChatModel(Responder responder) {
+            this.responder = responder;
+        }
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            int call = calls.incrementAndGet();
+            prompts.add(prompt);
+            return new ChatResponse(List.of(new Generation(responder.respond(call, prompt))));
+        }
+
+        @Override
+        public Flux<ChatResponse> stream(Prompt prompt) {
+            return Flux.defer(() -> Flux.just(call(prompt)));
+        }
+    }
+
+    /**
+     * 按调用次数（从 1 开始）和提示词给出助手消息
+     */
+    @FunctionalInterface
+    interface Responder {
+
+        AssistantMessage respond(int call, Prompt prompt);
+    }
+}
@@ -0,0 +1,143 @@
+package com.lijay.lijayaiagent.agent;
+
+import com.lijay.lijayaiagent.agent.model.AgentState;
+import com.lijay.lijayaiagent.tools.TerminateTool;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.support.ToolCallbacks;
+import org.springframework.ai.tool.ToolCallback;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LijayManusFactory 测试：每次运行使用独立实例，大量会话并发运行互不干扰
+ * 模型用固定延迟的桩代替，第一步即调用 doTerminate 结束
+ */
+@Slf4j
+class LijayManusFactoryTest {
+
+    private static final int SESSIONS = 500;
+
+    private static final long MODEL_LATENCY_MS = 20;
+
+    /**
+     * 至少同时进行的模型调用数
+     */
+    private static final int CONCURRENT_CALLS = 50;
+
+    private final AgentTestFixture fixture = new AgentTestFixture();
+
+    /**
+     * 包含其它会话任务的请求数
+     */
+    private final AtomicInteger leakedPrompts = new AtomicInteger();
+
+    private final AtomicInteger running = new AtomicInteger();
+
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    private volatile CountDownLatch gathering = new CountDownLatch(0);
+
+    /**
+     * 固定延迟后调用 doTerminate 结束；gathering 未归零时先等待其它调用
+     */
+    private final AgentTestFixture.StubChatModel chatModel = new AgentTestFixture.StubChatModel((call, prompt) -> {
+        if (tasks(prompt.getInstructions()).size() != 1) {
+            leakedPrompts.incrementAndGet();
+        }
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        try {
+            gathering.countDown();
+            gathering.await(5, TimeUnit.SECONDS);
+            Thread.sleep(MODEL_LATENCY_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            running.decrementAndGet();
+        }
+        return AgentTestFixture.toolCall(call, "doTerminate");
+    });
+
+    private final ToolCallback[] tools = ToolCallbacks.from(new TerminateTool());
+
+    private final LijayManusFactory factory = fixture.factory(tools, chatModel, 16, Duration.ofSeconds(5),
+            Set.of("doTerminate"), AgentCheckpointStore.NONE);
+
+    @AfterEach
+    void tearDown() {
+        fixture.close();
+    }
+
+    @Test
+    void createsIndependentAgents() {
+        LijayManus first = factory.create();
+        LijayManus second = factory.create();
+
+        Assertions.assertNotSame(first, second);
+        Assertions.assertSame(first.getChatClient(), second.getChatClient());
+        Assertions.assertSame(first.getToolCallingManager(), second.getToolCallingManager());
+
+        first.run("任务 A");
+        Assertions.assertEquals(AgentState.FINISHED, first.getState());
+        Assertions.assertEquals(AgentState.IDLE, second.getState());
+        Assertions.assertTrue(second.getMessageList().isEmpty());
+        // 同一实例不能再次运行
+        Assertions.assertThrows(RuntimeException.class, () -> first.run("任务 B"));
+    }
+
+    @Test
+    void concurrentSessionsDoNotShareState() throws Exception {
+        gathering = new CountDownLatch(CONCURRENT_CALLS);
+        long start = System.nanoTime();
+        List<Future<LijayManus>> futures = new ArrayList<>(SESSIONS);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < SESSIONS; i++) {
+                String task = "任务 " + i;
+                futures.add(executor.submit(() -> {
+                    LijayManus agent = factory.create();
+                    String result = agent.run(task);
+                    Assertions.assertTrue(result.contains("doTerminate"), result);
+                    return agent;
+                }));
+            }
+            for (int i = 0; i < SESSIONS; i++) {
+                LijayManus agent = futures.get(i).get();
+                Assertions.assertEquals(AgentState.FINISHED, agent.getState());
+                Assertions.assertEquals(List.of("任务 " + i), tasks(agent.getMessageList()));
+            }
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        log.info("{} 个会话并发运行耗时 {} ms（串行约 {} ms），同时进行的模型调用最多 {} 个", SESSIONS, elapsedMs,
+                SESSIONS * MODEL_LATENCY_MS, maxRunning.get());
+
+        Assertions.assertEquals(0, leakedPrompts.get());
+        Assertions.assertEquals(SESSIONS, chatModel.calls.get());
+        // 前 CONCURRENT_CALLS 个模型调用要等到彼此都开始后才返回，串行运行时会等到超时
+        Assertions.assertEquals(0, gathering.getCount());
+        Assertions.assertTrue(maxRunning.get() >= CONCURRENT_CALLS, "max running " + maxRunning.get());
+    }
+
+    /**
+     * @return 消息上下文中的用户任务（排除每一步追加的 nextStepPrompt）
+     */
+    private static List<String> tasks(List<Message> messages) {
+        return messages.stream()
+                .filter(message -> message.getMessageType() == MessageType.USER)
+                .map(Message::getText)
+                .filter(text -> text.startsWith("任务 "))
+                .toList();
+    }
+}
@@ -9,7 +9,7 @@ import static org.junit.jupiter.api.Assertions.*;
 @SpringBootTest
 class LijayManusTest {
     @Autowired
-    private  LijayManus lijayManus;
+    private  LijayManusFactory lijayManusFactory;
 
     @Test
     void testRun() {
@@ -17,8 +17,8 @@ class LijayManusTest {
                 我的对象在伤害静安区，请帮我找到附近5公里内合适的约会地点，
                 并结合一些网络图片制定一份详细的计划，
                 最后以pdf格式返回""";
-        String result = lijayManus.run(userPrompt);
+        String result = lijayManusFactory.create().run(userPrompt);
         Assertions.assertNotNull(result);
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,187 @@
+package com.lijay.lijayaiagent.agent;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.support.ToolCallbacks;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.annotation.ToolParam;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ParallelToolExecutor 测试：并行执行、结果顺序、顺序执行的工具、超时和异常
+ */
+@Slf4j
+class ParallelToolExecutorTest {
+
+    private static final long LATENCY_MS = 200;
+
+    private final SlowTools slowTools = new SlowTools();
+
+    private final ParallelToolExecutor executor = new ParallelToolExecutor(ToolCallbacks.from(slowTools), 8,
+            Duration.ofSeconds(2), Set.of("write"));
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void runsIndependentCallsInParallelAndKeepsOrder() {
+        List<AssistantMessage.ToolCall> toolCalls = List.of(
+                call("1", "gather", "search"), call("2", "gather", "scrape"), call("3", "gather", "download"));
+        slowTools.gathering = new CountDownLatch(toolCalls.size());
+
+        long start = System.nanoTime();
+        ToolResponseMessage message = executor.execute(toolCalls);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        log.info("3 个工具调用并行耗时 {} ms，同时执行 {} 个", elapsedMs, slowTools.maxRunning.get());
+
+        Assertions.assertEquals(List.of("1", "2", "3"), message.getResponses().stream().map(ToolResponseMessage.ToolResponse::id).toList());
+        // 每个调用都要等到三个调用全部开始才返回，逐个执行时第一个调用会等到超时
+        Assertions.assertTrue(message.getResponses().stream().allMatch(response -> response.responseData().contains("together")),
+                message.getResponses().toString());
+        Assertions.assertTrue(message.getResponses().get(0).responseData().contains("search"));
+        Assertions.assertTrue(message.getResponses().get(2).responseData().contains("download"));
+        Assertions.assertEquals(toolCalls.size(), slowTools.maxRunning.get());
+    }
+
+    @Test
+    void sequentialToolWaitsForEarlierCalls() {
+        List<AssistantMessage.ToolCall> toolCalls = List.of(
+                call("1", "fetch", "a"), call("2", "write", "b"), call("3", "fetch", "c"));
+
+        executor.execute(toolCalls);
+
+        // write 在 a 结束后开始，c 在 write 结束后开始
+        Assertions.assertEquals(List.of("start a", "end a", "start b", "end b", "start c", "end c"), slowTools.events);
+    }
+
+    @Test
+    void timeoutAndFailureOnlyAffectTheirOwnCall() {
+        List<AssistantMessage.ToolCall> toolCalls = List.of(
+                new AssistantMessage.ToolCall("1", "function", "hang", "{}"),
+                new AssistantMessage.ToolCall("2", "function", "fail", "{}"),
+                call("3", "fetch", "ok"),
+                new AssistantMessage.ToolCall("4", "function", "missing", "{}"));
+
+        List<ToolResponseMessage.ToolResponse> responses = executor.execute(toolCalls).getResponses();
+
+        Assertions.assertTrue(responses.get(0).responseData().contains("超时"));
+        Assertions.assertTrue(responses.get(1).responseData().contains("失败"));
+        Assertions.assertTrue(responses.get(2).responseData().contains("ok"));
+        Assertions.assertTrue(responses.get(3).responseData().contains("未找到工具"));
+    }
+
+    @Test
+    void hungCallsShareOneTimeoutFromSubmission() {
+        ParallelToolExecutor shortTimeout = new ParallelToolExecutor(ToolCallbacks.from(slowTools), 8,
+                Duration.ofMillis(300), Set.of());
+        List<AssistantMessage.ToolCall> toolCalls = List.of(
+                new AssistantMessage.ToolCall("1", "function", "hang", "{}"),
+                new AssistantMessage.ToolCall("2", "function", "hang", "{}"),
+                new AssistantMessage.ToolCall("3", "function", "hang", "{}"));
+        Map<String, AtomicInteger> finished = new ConcurrentHashMap<>();
+
+        long start = System.nanoTime();
+        List<ToolResponseMessage.ToolResponse> responses;
+        try {
+            responses = shortTimeout.execute(toolCalls, new ParallelToolExecutor.Listener() {
+                @Override
+                public void onFinish(AssistantMessage.ToolCall toolCall, String result, long elapsedMs) {
+                    finished.computeIfAbsent(toolCall.id(), id -> new AtomicInteger()).incrementAndGet();
+                }
+            }).getResponses();
+        } finally {
+            shortTimeout.close();
+        }
+        // 三个调用同时提交，总等待约为一次超时而不是三次
+        log.info("3 个卡住的调用共等待 {} ms（超时 300 ms）", (System.nanoTime() - start) / 1_000_000);
+
+        Assertions.assertTrue(responses.stream().allMatch(response -> response.responseData().contains("超时")));
+        Assertions.assertEquals(Set.of("1", "2", "3"), finished.keySet());
+        Assertions.assertTrue(finished.values().stream().allMatch(count -> count.get() == 1), finished.toString());
+    }
+
+    @Test
+    void onlyKnownErrorMessagesAreFailures() {
+        Assertions.assertTrue(ParallelToolExecutor.isFailure("工具执行超时（2 秒），请换一种方式继续"));
+        Assertions.assertTrue(ParallelToolExecutor.isFailure("未找到工具：search，可用的工具：[fetch]"));
+        Assertions.assertTrue(ParallelToolExecutor.isFailure("Error scraping web page: Read timed out"));
+        Assertions.assertTrue(ParallelToolExecutor.isFailure("\"Error generating PDF: disk full\""));
+        Assertions.assertTrue(ParallelToolExecutor.isFailure("\"{\\\"success\\\":false,\\\"error\\\":\\\"搜索失败: timeout\\\"}\""));
+        // 正常结果的正文恰好以 Error 开头
+        Assertions.assertFalse(ParallelToolExecutor.isFailure("Error 404 页面的常见原因和排查方法……"));
+        Assertions.assertFalse(ParallelToolExecutor.isFailure("\"Errors and warnings in Java: a guide\""));
+    }
+
+    private static AssistantMessage.ToolCall call(String id, String name, String target) {
+        return new AssistantMessage.ToolCall(id, "function", name, "{\"target\":\"" + target + "\"}");
+    }
+
+    public static class SlowTools {
+
+        private final List<String> events = new CopyOnWriteArrayList<>();
+
+        private final AtomicInteger running = new AtomicInteger();
+
+        private final AtomicInteger maxRunning = new AtomicInteger();
+
+        private volatile CountDownLatch gathering = new CountDownLatch(0);
+
+        @Tool(description = "fetch")
+        public String fetch(@ToolParam(description = "target") String target) throws InterruptedException {
+            return slow(target);
+        }
+
+        @Tool(description = "write")
+        public String write(@ToolParam(description = "target") String target) throws InterruptedException {
+            return slow(target);
+        }
+
+        /**
+         * 等待同一批的调用全部开始后返回 together，等不到时返回 alone
+         */
+        @Tool(description = "gather")
+        public String gather(@ToolParam(description = "target") String target) throws InterruptedException {
+            int current = running.incrementAndGet();
+            maxRunning.accumulateAndGet(current, Math::max);
+            try {
+                gathering.countDown();
+                return (gathering.await(5, TimeUnit.SECONDS) ? "together " : "alone ") + target;
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+
+        @Tool(description = "hang")
+        public String hang() throws InterruptedException {
+            Thread.sleep(60_000);
+            return "never";
+        }
+
+        @Tool(description = "fail")
+        public String fail() {
+            throw new IllegalStateException("boom");
+        }
+
+        private String slow(String target) throws InterruptedException {
+            events.add("start " + target);
+            Thread.sleep(LATENCY_MS);
+            events.add("end " + target);
+            return "done " + target;
+        }
+    }
+}
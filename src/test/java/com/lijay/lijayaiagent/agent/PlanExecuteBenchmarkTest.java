@@ -0,0 +1,192 @@
+package com.lijay.lijayaiagent.agent;
+
+import com.lijay.lijayaiagent.agent.model.AgentState;
+import com.lijay.lijayaiagent.tools.TerminateTool;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.support.ToolCallbacks;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.annotation.ToolParam;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 先规划后执行与逐步 ReAct 循环的对比：任务为“搜索三个主题，抓取结果页面，生成 PDF”
+ * 模型和工具用固定延迟的桩代替，断言模型调用次数和同时执行的工具数，总耗时只记录
+ */
+@Slf4j
+class PlanExecuteBenchmarkTest {
+
+    private static final long LLM_LATENCY_MS = 300;
+
+    private static final long TOOL_LATENCY_MS = 200;
+
+    private static final List<String> TOPICS = List.of("上海约会", "杭州约会", "苏州约会");
+
+    private final AgentTestFixture fixture = new AgentTestFixture();
+
+    @AfterEach
+    void tearDown() {
+        fixture.close();
+    }
+
+    @Test
+    void planExecuteNeedsFewerRoundTrips() {
+        // ReAct：三次搜索并行（一次响应多个工具调用）、看到结果后抓取、看到内容后生成 PDF、终止
+        AgentTestFixture.StubChatModel reactModel = scripted(List.of(
+                toolCalls("search", TOPICS.stream().map(topic -> "{\"query\":\"" + topic + "\"}").toList()),
+                toolCalls("scrapeWebPage", TOPICS.stream().map(topic -> "{\"url\":\"https://example.com/" + topic + "\"}").toList()),
+                toolCalls("generatePDF", List.of("{\"fileName\":\"report.pdf\",\"content\":\"汇总\"}")),
+                toolCalls("doTerminate", List.of("{}"))));
+        BenchmarkTools reactTools = new BenchmarkTools();
+        long reactMs = run(factory(reactModel, reactTools).create());
+
+        // 先规划后执行：第一轮并行搜索；汇合后第二轮抓取并直接把抓取结果填入 PDF；第三轮给出答案
+        AgentTestFixture.StubChatModel planModel = scripted(List.of(
+                text("""
+                        {"steps":[
+                          {"id":"s1","tool":"search","arguments":{"query":"上海约会"}},
+                          {"id":"s2","tool":"search","arguments":{"query":"杭州约会"}},
+                          {"id":"s3","tool":"search","arguments":{"query":"苏州约会"}}
+                        ]}
+                        """),
+                text("""
+                        {"steps":[
+                          {"id":"p1","tool":"scrapeWebPage","arguments":{"url":"https://example.com/上海约会"}},
+                          {"id":"p2","tool":"scrapeWebPage","arguments":{"url":"https://example.com/杭州约会"}},
+                          {"id":"p3","tool":"scrapeWebPage","arguments":{"url":"https://example.com/苏州约会"}},
+                          {"id":"pdf","tool":"generatePDF","arguments":{"fileName":"report.pdf","content":"{{p1}}\\n{{p2}}\\n{{p3}}"},
+                           "dependsOn":["p1","p2","p3"]}
+                        ]}
+                        """),
+                text("{\"steps\":[],\"answer\":\"报告已生成：report.pdf\"}")));
+        BenchmarkTools planTools = new BenchmarkTools();
+        PlanExecuteAgent planAgent = factory(planModel, planTools).createPlanExecute();
+        long planMs = run(planAgent);
+
+        log.info("ReAct：模型调用 {} 次，耗时 {} ms；先规划后执行：模型调用 {} 次，耗时 {} ms",
+                reactModel.calls.get(), reactMs, planModel.calls.get(), planMs);
+        Assertions.assertEquals(4, reactModel.calls.get());
+        Assertions.assertEquals(3, planModel.calls.get());
+        Assertions.assertEquals(AgentState.FINISHED, planAgent.getState());
+        // 耗时只记录不断言；同一层的搜索、抓取在两种模式下都同时执行
+        Assertions.assertEquals(TOPICS.size(), reactTools.maxRunning.get());
+        Assertions.assertEquals(TOPICS.size(), planTools.maxRunning.get());
+        // 两种模式执行的工具调用相同，计划模式的 PDF 内容来自抓取结果
+        Assertions.assertEquals(reactTools.calls.get(), planTools.calls.get());
+        Assertions.assertEquals(1, planTools.pdfContents.size());
+        Assertions.assertTrue(TOPICS.stream().allMatch(planTools.pdfContents.getFirst()::contains), planTools.pdfContents.getFirst());
+    }
+
+    private static long run(BaseAgent agent) {
+        long start = System.nanoTime();
+        agent.run("帮我搜索上海、杭州、苏州的约会地点，整理成 PDF");
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private LijayManusFactory factory(ChatModel chatModel, BenchmarkTools tools) {
+        ToolCallback[] callbacks = ToolCallbacks.from(tools, new TerminateTool());
+        return fixture.factory(callbacks, chatModel, 16, Duration.ofSeconds(5), Set.of("doTerminate", "generatePDF"),
+                AgentCheckpointStore.NONE);
+    }
+
+    /**
+     * 按调用次数依次返回预设的响应，每次调用固定延迟
+     */
+    private static AgentTestFixture.StubChatModel scripted(List<AssistantMessage> script) {
+        return new AgentTestFixture.StubChatModel((call, prompt) -> {
+            try {
+                Thread.sleep(LLM_LATENCY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return script.get(Math.min(call, script.size()) - 1);
+        });
+    }
+
+    private static AssistantMessage toolCalls(String tool, List<String> arguments) {
+        List<AssistantMessage.ToolCall> toolCalls = new ArrayList<>();
+        for (int i = 0; i < arguments.size(); i++) {
+            toolCalls.add(new AssistantMessage.ToolCall(tool + "_" + i, "function", tool, arguments.get(i)));
+        }
+        return AssistantMessage.builder().content("").toolCalls(toolCalls).build();
+    }
+
+    private static AssistantMessage text(String text) {
+        return new AssistantMessage(text);
+    }
+
+    public static class BenchmarkTools {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private final List<String> pdfContents = new CopyOnWriteArrayList<>();
+
+        private final AtomicInteger running = new AtomicInteger();
+
+        private final AtomicInteger maxRunning = new AtomicInteger();
+
+        /**
+         * 每种工具一个汇合点：同一层的调用全部开始后才返回，逐个执行时等到超时
+         */
+        private final Map<String, CountDownLatch> gathering = new ConcurrentHashMap<>();
+
+        @Tool(description = "Search the web")
+        public String search(@ToolParam(description = "query") String query) {
+            gather("search");
+            return slow("搜索结果：https://example.com/" + query);
+        }
+
+        @Tool(description = "Scrape the content of a web page")
+        public String scrapeWebPage(@ToolParam(description = "url") String url) {
+            gather("scrapeWebPage");
+            return slow("页面内容：" + url.substring(url.lastIndexOf('/') + 1));
+        }
+
+        @Tool(description = "Generate a PDF file with given content")
+        public String generatePDF(@ToolParam(description = "fileName") String fileName,
+                                  @ToolParam(description = "content") String content) {
+            pdfContents.add(content);
+            return slow("PDF generated successfully to: " + fileName);
+        }
+
+        private void gather(String tool) {
+            CountDownLatch latch = gathering.computeIfAbsent(tool, key -> new CountDownLatch(TOPICS.size()));
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                latch.countDown();
+                if (!latch.await(5, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException(tool + " 的调用没有同时执行");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+
+        private String slow(String result) {
+            calls.incrementAndGet();
+            try {
+                Thread.sleep(TOOL_LATENCY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.lijay.lijayaiagent.agent;
+
+import com.lijay.lijayaiagent.tools.TerminateTool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.support.ToolCallbacks;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.annotation.Tool;
+
+import java.util.List;
+
+/**
+ * ToolCallAgent 每步提示词的测试：下一步提示只在请求末尾出现一次、不进入上下文，调用选项在代理之间共享
+ */
+class ToolCallAgentPromptTest {
+
+    private final AgentTestFixture fixture = new AgentTestFixture();
+
+    /**
+     * 每步调用 fetch 工具，记录收到的提示词
+     */
+    private final AgentTestFixture.StubChatModel chatModel = new AgentTestFixture.StubChatModel(
+            (call, prompt) -> AgentTestFixture.toolCall(call, "fetch"));
+
+    private final ToolCallback[] tools = ToolCallbacks.from(new FetchTool(), new TerminateTool());
+
+    private final LijayManusFactory factory = fixture.factory(tools, chatModel);
+
+    @AfterEach
+    void tearDown() {
+        fixture.close();
+    }
+
+    @Test
+    void sendsOneEphemeralNextStepPromptPerStep() {
+        LijayManus agent = factory.create();
+        String nextStepPrompt = agent.getNextStepPrompt();
+
+        agent.run("帮我查资料");
+
+        Assertions.assertEquals(agent.getMaxSteps(), chatModel.prompts.size());
+        for (Prompt prompt : chatModel.prompts) {
+            List<Message> messages = prompt.getInstructions();
+            Assertions.assertEquals(1, messages.stream().filter(message -> nextStepPrompt.equals(message.getText())).count());
+            Assertions.assertEquals(nextStepPrompt, messages.getLast().getText());
+        }
+        Assertions.assertTrue(agent.getMessageList().stream().noneMatch(message -> nextStepPrompt.equals(message.getText())));
+    }
+
+    @Test
+    void appendsNextStepPromptWithoutCopyingContext() {
+        LijayManus agent = factory.create();
+        agent.getMessageList().add(new UserMessage("帮我查资料"));
+
+        List<Message> instructions = agent.buildPrompt().getInstructions();
+        // 只读视图：上下文的后续追加可见，不能修改
+        agent.getMessageList().add(new UserMessage("补充说明"));
+
+        Assertions.assertEquals(agent.getMessageList().size() + 1, instructions.size());
+        Assertions.assertSame(agent.getMessageList().getFirst(), instructions.getFirst());
+        Assertions.assertEquals(agent.getNextStepPrompt(), instructions.getLast().getText());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> instructions.add(new UserMessage("x")));
+    }
+
+    @Test
+    void sharesToolCallingOptionsBetweenAgents() {
+        LijayManus first = factory.create();
+        LijayManus second = factory.create();
+
+        Assertions.assertSame(first.getChatOptions(), second.getChatOptions());
+        ToolCallingChatOptions options = (ToolCallingChatOptions) first.getChatOptions();
+        Assertions.assertEquals(tools.length, options.getToolCallbacks().size());
+        Assertions.assertFalse(options.getInternalToolExecutionEnabled());
+    }
+
+    public static class FetchTool {
+
+        @Tool(description = "fetch")
+        public String fetch() {
+            return "资料".repeat(100);
+        }
+    }
+}
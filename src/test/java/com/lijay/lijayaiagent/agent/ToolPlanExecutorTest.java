@@ -0,0 +1,144 @@
+package com.lijay.lijayaiagent.agent;
+
+import com.lijay.lijayaiagent.agent.model.ToolPlan;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.support.ToolCallbacks;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.annotation.ToolParam;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 计划解析和按依赖执行的测试：并行、参数替换、失败跳过、循环依赖
+ */
+@Slf4j
+class ToolPlanExecutorTest {
+
+    private final PlanTools planTools = new PlanTools();
+
+    private final ParallelToolExecutor parallelToolExecutor = new ParallelToolExecutor(ToolCallbacks.from(planTools),
+            8, Duration.ofSeconds(2), Set.of());
+
+    private final ToolPlanExecutor executor = new ToolPlanExecutor(parallelToolExecutor);
+
+    @AfterEach
+    void tearDown() {
+        parallelToolExecutor.close();
+    }
+
+    @Test
+    void parsesPlanWrappedInText() {
+        ToolPlan plan = ToolPlan.parse("""
+                好的，计划如下：
+                ```json
+                {"steps":[{"id":"a","tool":"echo","arguments":{"text":"x"}},{"tool":"echo","dependsOn":["a"]}]}
+                ```
+                """);
+
+        Assertions.assertEquals(2, plan.steps().size());
+        Assertions.assertEquals("s2", plan.steps().get(1).id());
+        Assertions.assertEquals(List.of("a"), plan.steps().get(1).dependsOn());
+        Assertions.assertEquals("{}", plan.steps().get(1).arguments());
+        Assertions.assertTrue(ToolPlan.parse("{\"steps\":[],\"answer\":\"完成\"}").isComplete());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ToolPlan.parse("我先想一想"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> ToolPlan.parse("{\"steps\":[{\"id\":\"a\",\"tool\":\"echo\"},{\"id\":\"a\",\"tool\":\"echo\"}]}"));
+    }
+
+    @Test
+    void runsIndependentStepsInParallelAndPassesResultsDownstream() {
+        ToolPlan plan = ToolPlan.parse("""
+                {"steps":[
+                  {"id":"a","tool":"slow","arguments":{"text":"第一段 \\"引号\\""}},
+                  {"id":"b","tool":"slow","arguments":{"text":"第二段\\n换行"}},
+                  {"id":"c","tool":"echo","arguments":{"text":"{{a}} + {{b}}"},"dependsOn":["a","b"]}
+                ]}
+                """);
+
+        planTools.gathering = new CountDownLatch(2);
+
+        long start = System.nanoTime();
+        List<ToolPlanExecutor.StepOutcome> outcomes = executor.execute(plan, ParallelToolExecutor.Listener.NONE);
+        log.info("两个独立步骤 + 一个汇总步骤耗时 {} ms，同时执行 {} 个", (System.nanoTime() - start) / 1_000_000,
+                planTools.maxRunning.get());
+
+        Assertions.assertTrue(outcomes.stream().allMatch(ToolPlanExecutor.StepOutcome::succeeded), outcomes.toString());
+        // a 和 b 在同一层同时执行：每个都要等到另一个开始才返回
+        Assertions.assertEquals(2, planTools.maxRunning.get());
+        // 结果中的引号和换行经过转义，替换后的参数仍是合法 JSON
+        String combined = outcomes.get(2).result();
+        Assertions.assertTrue(combined.contains("第一段") && combined.contains("引号") && combined.contains("第二段"), combined);
+    }
+
+    @Test
+    void skipsDependentsOfFailedStepsAndCycles() {
+        ToolPlan plan = ToolPlan.parse("""
+                {"steps":[
+                  {"id":"a","tool":"fail"},
+                  {"id":"b","tool":"echo","arguments":{"text":"{{a}}"},"dependsOn":["a"]},
+                  {"id":"c","tool":"echo","arguments":{"text":"独立"}},
+                  {"id":"d","tool":"echo","dependsOn":["e"]},
+                  {"id":"e","tool":"echo","dependsOn":["d"]},
+                  {"id":"f","tool":"missing"},
+                  {"id":"g","tool":"echo","arguments":{"text":"Error 404 页面"}},
+                  {"id":"h","tool":"echo","arguments":{"text":"{{g}}"},"dependsOn":["g"]}
+                ]}
+                """);
+
+        List<ToolPlanExecutor.StepOutcome> outcomes = executor.execute(plan, ParallelToolExecutor.Listener.NONE);
+
+        Assertions.assertEquals(List.of(ToolPlanExecutor.Status.FAILED, ToolPlanExecutor.Status.SKIPPED,
+                        ToolPlanExecutor.Status.SUCCEEDED, ToolPlanExecutor.Status.SKIPPED,
+                        ToolPlanExecutor.Status.SKIPPED, ToolPlanExecutor.Status.FAILED,
+                        ToolPlanExecutor.Status.SUCCEEDED, ToolPlanExecutor.Status.SUCCEEDED),
+                outcomes.stream().map(ToolPlanExecutor.StepOutcome::status).toList());
+        Assertions.assertTrue(outcomes.get(1).result().contains("a"));
+    }
+
+    public static class PlanTools {
+
+        /**
+         * 以 Error 开头的文本原样返回，用来验证正常结果不会被当作失败
+         */
+        @Tool(description = "echo")
+        public String echo(@ToolParam(description = "text", required = false) String text) {
+            return text != null && text.startsWith("Error") ? text : "echo " + text;
+        }
+
+        private final AtomicInteger running = new AtomicInteger();
+
+        private final AtomicInteger maxRunning = new AtomicInteger();
+
+        private volatile CountDownLatch gathering = new CountDownLatch(0);
+
+        /**
+         * 等待同一层的调用全部开始后返回，等不到时失败
+         */
+        @Tool(description = "slow")
+        public String slow(@ToolParam(description = "text") String text) throws InterruptedException {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                gathering.countDown();
+                if (!gathering.await(5, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("同一层的步骤没有同时执行");
+                }
+                return text;
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+
+        @Tool(description = "fail")
+        public String fail() {
+            throw new IllegalStateException("服务不可用");
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * CachingChatMemory 测试：命中、写穿、失效、淘汰与指标
+ */
+class CachingChatMemoryTest {
+
+    private final CountingChatMemory delegate = new CountingChatMemory();
+
+    @Test
+    void secondGetIsServedFromCache() {
+        CachingChatMemory chatMemory = new CachingChatMemory(delegate, ChatMemoryWindow.UNLIMITED, 1000, 1 << 20);
+        delegate.add("a", List.of(new UserMessage("你好"), new AssistantMessage("你好呀")));
+
+        chatMemory.get("a");
+        List<Message> messages = chatMemory.get("a");
+
+        Assertions.assertEquals(2, messages.size());
+        Assertions.assertEquals(1, delegate.loads.get());
+        Assertions.assertEquals(1, chatMemory.hitCount());
+        Assertions.assertEquals(1, chatMemory.missCount());
+    }
+
+    @Test
+    void addWritesThroughAndKeepsCacheCoherent() {
+        CachingChatMemory chatMemory = new CachingChatMemory(delegate, new ChatMemoryWindow(3, 0), 1000, 1 << 20);
+        chatMemory.add("a", List.of(new UserMessage("1"), new AssistantMessage("2")));
+        chatMemory.get("a");
+
+        chatMemory.add("a", List.of(new UserMessage("3"), new AssistantMessage("4")));
+
+        Assertions.assertEquals(List.of("2", "3", "4"), chatMemory.get("a").stream().map(Message::getText).toList());
+        Assertions.assertEquals(1, delegate.loads.get());
+        Assertions.assertEquals(4, delegate.get("a").size());
+    }
+
+    @Test
+    void clearInvalidates() {
+        CachingChatMemory chatMemory = new CachingChatMemory(delegate, ChatMemoryWindow.UNLIMITED, 1000, 1 << 20);
+        chatMemory.add("a", List.of(new UserMessage("1")));
+        chatMemory.get("a");
+
+        chatMemory.clear("a");
+
+        Assertions.assertTrue(chatMemory.get("a").isEmpty());
+        Assertions.assertEquals(0, chatMemory.cachedMessages());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedByMessageCount() {
+        CachingChatMemory chatMemory = new CachingChatMemory(delegate, ChatMemoryWindow.UNLIMITED, 4, 1 << 20);
+        for (String id : List.of("a", "b", "c")) {
+            delegate.add(id, List.of(new UserMessage(id), new AssistantMessage(id)));
+        }
+        chatMemory.get("a");
+        chatMemory.get("b");
+        // 访问 a，使 b 成为最久未访问的会话
+        chatMemory.get("a");
+        chatMemory.get("c");
+
+        Assertions.assertEquals(1, chatMemory.evictionCount());
+        Assertions.assertEquals(2, chatMemory.size());
+        chatMemory.get("a");
+        Assertions.assertEquals(2, chatMemory.hitCount());
+    }
+
+    @Test
+    void countsToolPayloadsTowardByteLimit() {
+        CachingChatMemory chatMemory = new CachingChatMemory(delegate, ChatMemoryWindow.UNLIMITED, 1000, 1 << 20);
+        String page = "网页内容".repeat(10_000);
+        delegate.add("a", List.of(
+                AssistantMessage.builder().content("")
+                        .toolCalls(List.of(new AssistantMessage.ToolCall("call_1", "function", "scrapeWebPage", "{\"url\":\"https://example.com\"}")))
+                        .build(),
+                ToolResponseMessage.builder()
+                        .responses(List.of(new ToolResponseMessage.ToolResponse("call_1", "scrapeWebPage", page)))
+                        .build()));
+
+        chatMemory.get("a");
+
+        // 正文为空，占用主要来自工具响应
+        Assertions.assertTrue(chatMemory.cachedBytes() > 2L * page.length());
+    }
+
+    @Test
+    void exposesMetrics() {
+        CachingChatMemory chatMemory = new CachingChatMemory(delegate, ChatMemoryWindow.UNLIMITED, 1000, 1 << 20);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        chatMemory.bindTo(registry);
+
+        chatMemory.get("a");
+        chatMemory.get("a");
+
+        Assertions.assertEquals(1.0, registry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        Assertions.assertEquals(1.0, registry.get("cache.gets").tag("result", "miss").functionCounter().count());
+        Assertions.assertEquals(1.0, registry.get("cache.size").gauge().value());
+    }
+
+    /**
+     * 记录加载次数的内存对话记忆
+     */
+    private static class CountingChatMemory implements ChatMemory {
+
+        private final Map<String, List<Message>> store = new ConcurrentHashMap<>();
+
+        private final AtomicInteger loads = new AtomicInteger();
+
+        @Override
+        public void add(String conversationId, List<Message> messages) {
+            store.computeIfAbsent(conversationId, id -> new ArrayList<>()).addAll(messages);
+        }
+
+        @Override
+        public List<Message> get(String conversationId) {
+            loads.incrementAndGet();
+            return new ArrayList<>(store.getOrDefault(conversationId, List.of()));
+        }
+
+        @Override
+        public void clear(String conversationId) {
+            store.remove(conversationId);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 三种存储后端的对比基准测试：JdbcChatMemory（嵌入式 H2）、FileBasedChatMemory、MvStoreChatMemory
+ * 同样的负载：多个会话交替写入若干轮对话，再读取最近 20 条消息
+ * H2 走 JDBC 和连接池但没有真实网络往返，MySQL 的实际差距会更大
+ */
+@Slf4j
+class ChatMemoryBackendBenchmarkTest {
+
+    private static final int CONVERSATIONS = 20;
+
+    private static final int TURNS = 200;
+
+    private static final int READ_ROUNDS = 2000;
+
+    private static final ChatMemoryWindow WINDOW = new ChatMemoryWindow(20, 0);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void compareBackends() throws Exception {
+        try (EmbeddedChatMemoryDatabase database = new EmbeddedChatMemoryDatabase();
+             MvStoreChatMemory mvStore = new MvStoreChatMemory(dir.resolve("chat-memory.mv.db").toString(), WINDOW,
+                     FsyncPolicy.INTERVAL, Duration.ofSeconds(1))) {
+            Result jdbc = run("jdbc", new JdbcChatMemory(database.mapper(), WINDOW));
+            Result file = run("file", new FileBasedChatMemory(dir.resolve("file").toString(), WINDOW,
+                    FsyncPolicy.INTERVAL, Duration.ofSeconds(1), 0, FileBasedChatMemory.DEFAULT_COMPACTION_THRESHOLD_BYTES));
+            Result mvstore = run("mvstore", mvStore);
+
+            log.info("{} 个会话 x {} 轮写入 / {} 次读取最近 20 条：", CONVERSATIONS, TURNS, READ_ROUNDS);
+            for (Result result : List.of(jdbc, file, mvstore)) {
+                log.info("  {}：写入 {} us/轮，读取 {} us/次", result.name(), result.addNanos() / 1000, result.getNanos() / 1000);
+            }
+            // 耗时只记录不断言（受机器负载影响），只校验三种后端读到的消息一致
+            Assertions.assertEquals(jdbc.lastWindow(), file.lastWindow());
+            Assertions.assertEquals(jdbc.lastWindow(), mvstore.lastWindow());
+        }
+    }
+
+    private static Result run(String name, ChatMemory chatMemory) {
+        // 预热
+        for (int i = 0; i < 50; i++) {
+            chatMemory.add("warmup", turn(i));
+            chatMemory.get("warmup");
+        }
+
+        long start = System.nanoTime();
+        for (int turn = 0; turn < TURNS; turn++) {
+            for (int c = 0; c < CONVERSATIONS; c++) {
+                chatMemory.add("conversation-" + c, turn(turn));
+            }
+        }
+        long addNanos = (System.nanoTime() - start) / (TURNS * CONVERSATIONS);
+
+        start = System.nanoTime();
+        for (int i = 0; i < READ_ROUNDS; i++) {
+            List<Message> messages = chatMemory.get("conversation-" + (i % CONVERSATIONS));
+            if (messages.size() != WINDOW.maxMessages()) {
+                throw new IllegalStateException(name + " 读取到 " + messages.size() + " 条消息");
+            }
+        }
+        long getNanos = (System.nanoTime() - start) / READ_ROUNDS;
+        List<String> lastWindow = chatMemory.get("conversation-0").stream().map(Message::getText).toList();
+        return new Result(name, addNanos, getNanos, lastWindow);
+    }
+
+    private static List<Message> turn(int i) {
+        return List.of(new UserMessage("第 " + i + " 轮用户消息，帮我看看这段代码有什么问题"),
+                new AssistantMessage("第 " + i + " 轮助手回复，这段代码的问题在于循环内重复创建了对象"));
+    }
+
+    private record Result(String name, long addNanos, long getNanos, List<String> lastWindow) {
+    }
+}
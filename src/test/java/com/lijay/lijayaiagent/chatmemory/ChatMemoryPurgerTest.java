@@ -0,0 +1,92 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import com.lijay.lijayaiagent.entity.ChatMemorySummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ChatMemoryPurger 测试（嵌入式 H2）：只清理空闲会话、分批删除、联动删除摘要和回调、指标
+ */
+class ChatMemoryPurgerTest {
+
+    private EmbeddedChatMemoryDatabase database;
+
+    private JdbcChatMemory chatMemory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        database = new EmbeddedChatMemoryDatabase();
+        chatMemory = new JdbcChatMemory(database.mapper());
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    void purgesOnlyIdleConversationsInBatches() {
+        for (int i = 0; i < 5; i++) {
+            chatMemory.add("idle", List.of(new UserMessage("q" + i), new AssistantMessage("a" + i)));
+            chatMemory.add("active", List.of(new UserMessage("q" + i), new AssistantMessage("a" + i)));
+        }
+        // idle 的所有消息都在 40 天前；active 只有早期消息过期，最后一条是新的
+        age("idle", 40);
+        database.jdbcTemplate().update(
+                "UPDATE chat_memory_message SET created_at = ? WHERE conversation_id = 'active' AND id < (SELECT MAX(id) FROM chat_memory_message WHERE conversation_id = 'active')",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(40)));
+        List<String> purged = new ArrayList<>();
+        ChatMemoryPurger purger = new ChatMemoryPurger(database.mapper(), null, null,
+                Duration.ofDays(30), 3, 1, Duration.ZERO, purged::add);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        purger.bindTo(registry);
+
+        long rows = purger.purge();
+
+        Assertions.assertEquals(10, rows);
+        Assertions.assertTrue(chatMemory.get("idle").isEmpty());
+        Assertions.assertEquals(10, chatMemory.get("active").size());
+        Assertions.assertEquals(List.of("idle"), purged);
+        // 10 行按每批 3 行删除
+        Assertions.assertEquals(4, purger.lockedStatementCount());
+        Assertions.assertEquals(10, registry.get("chat.memory.purge.rows").functionCounter().count());
+        Assertions.assertEquals(4, registry.get("chat.memory.purge.lock").functionTimer().count());
+        Assertions.assertEquals(0, purger.purge());
+    }
+
+    @Test
+    void removesSummaryOfPurgedConversation() {
+        chatMemory.add("idle", List.of(new UserMessage("q"), new AssistantMessage("a")));
+        ChatMemorySummary summary = new ChatMemorySummary();
+        summary.setConversationId("idle");
+        summary.setSummary("摘要");
+        summary.setWatermarkId(0L);
+        summary.setSummarizedCount(0L);
+        summary.setUpdatedAt(LocalDateTime.now().minusDays(40));
+        database.summaryMapper().insert(summary);
+        age("idle", 40);
+
+        ChatMemoryPurger purger = new ChatMemoryPurger(database.mapper(), database.summaryMapper(), null,
+                Duration.ofDays(30), 500, 1000, Duration.ZERO, null);
+        purger.purge();
+
+        Assertions.assertNull(database.summaryMapper().selectById("idle"));
+        Assertions.assertEquals(1, purger.purgedConversationCount());
+    }
+
+    private void age(String conversationId, int days) {
+        database.jdbcTemplate().update("UPDATE chat_memory_message SET created_at = ? WHERE conversation_id = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(days)), conversationId);
+    }
+}
@@ -0,0 +1,155 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ContextTrimmer 测试：预算、保留规则（system、最近消息、最后一条用户消息）、工具调用组不拆分、工具结果截断
+ */
+class ContextTrimmerTest {
+
+    @Test
+    void returnsSameListWithinBudget() {
+        ContextTrimmer trimmer = new ContextTrimmer(1000, 4, 0);
+        List<Message> messages = List.of(new SystemMessage("你是恋爱专家"), new UserMessage("你好"), new AssistantMessage("你好呀"));
+
+        Assertions.assertSame(messages, trimmer.trim(messages));
+    }
+
+    @Test
+    void dropsOldestMessagesAndKeepsSystemAndRecent() {
+        List<Message> messages = new ArrayList<>();
+        messages.add(new SystemMessage("你是恋爱专家"));
+        for (int i = 0; i < 20; i++) {
+            messages.add(new UserMessage("第 " + i + " 轮用户提问，最近和对象沟通总是不顺畅"));
+            messages.add(new AssistantMessage("第 " + i + " 轮助手回复，建议先倾听对方的想法再表达自己"));
+        }
+        ContextTrimmer trimmer = new ContextTrimmer(200, 4, 0);
+
+        List<Message> trimmed = trimmer.trim(messages);
+
+        Assertions.assertTrue(total(trimmer, trimmed) <= 200);
+        Assertions.assertEquals(MessageType.SYSTEM, trimmed.get(0).getMessageType());
+        Assertions.assertEquals(messages.subList(messages.size() - 4, messages.size()),
+                trimmed.subList(trimmed.size() - 4, trimmed.size()));
+        // 丢弃的是最早的消息，保留的历史仍然连续
+        int first = messages.indexOf(trimmed.get(1));
+        Assertions.assertEquals(messages.subList(first, messages.size()), trimmed.subList(1, trimmed.size()));
+    }
+
+    @Test
+    void neverSplitsToolCallFromItsResponse() {
+        List<Message> messages = new ArrayList<>();
+        messages.add(new UserMessage("帮我查一下杭州适合约会的餐厅"));
+        for (int i = 0; i < 10; i++) {
+            messages.add(toolCall("call_" + i));
+            messages.add(toolResponse("call_" + i, "餐厅 " + i + " 的介绍，环境安静适合约会，人均消费两百元左右"));
+        }
+        messages.add(new AssistantMessage("为你推荐以下几家餐厅"));
+        // 最近 2 条的开头是工具响应，应向前扩展到发起调用的助手消息
+        ContextTrimmer trimmer = new ContextTrimmer(120, 2, 0);
+
+        List<Message> trimmed = trimmer.trim(messages);
+
+        Assertions.assertEquals(MessageType.USER, trimmed.get(0).getMessageType());
+        for (int i = 1; i < trimmed.size(); i++) {
+            if (trimmed.get(i) instanceof ToolResponseMessage) {
+                AssistantMessage previous = (AssistantMessage) trimmed.get(i - 1);
+                Assertions.assertTrue(previous.hasToolCalls());
+            }
+        }
+        Assertions.assertTrue(trimmed.contains(messages.get(messages.size() - 2)));
+        Assertions.assertTrue(trimmed.contains(messages.get(messages.size() - 3)));
+    }
+
+    @Test
+    void keepsLastUserMessageEvenIfOld() {
+        List<Message> messages = new ArrayList<>();
+        UserMessage question = new UserMessage("总结一下这些网页的内容");
+        messages.add(question);
+        for (int i = 0; i < 10; i++) {
+            messages.add(toolCall("call_" + i));
+            messages.add(toolResponse("call_" + i, "网页 " + i + " 的正文内容，介绍了异地恋维持感情的几个方法"));
+        }
+        ContextTrimmer trimmer = new ContextTrimmer(100, 2, 0);
+
+        List<Message> trimmed = trimmer.trim(messages);
+
+        Assertions.assertSame(question, trimmed.get(0));
+        Assertions.assertTrue(trimmed.size() < messages.size());
+    }
+
+    @Test
+    void truncatesOversizedToolResponse() {
+        String page = "<div>网页正文</div>".repeat(2000);
+        ToolResponseMessage response = toolResponse("call_1", page);
+        List<Message> messages = List.of(new UserMessage("抓取这个网页"), toolCall("call_1"), response);
+        ContextTrimmer trimmer = new ContextTrimmer(0, 0, 500);
+
+        List<Message> trimmed = trimmer.trim(messages);
+
+        ToolResponseMessage compressed = (ToolResponseMessage) trimmed.get(2);
+        String data = compressed.getResponses().get(0).responseData();
+        Assertions.assertTrue(data.contains("内容过长已截断"));
+        Assertions.assertTrue(TokenEstimator.estimate(data) <= 530);
+        Assertions.assertEquals("call_1", compressed.getResponses().get(0).id());
+        // 原消息不被修改
+        Assertions.assertEquals(page, response.getResponses().get(0).responseData());
+    }
+
+    @Test
+    void compressesEachToolResponseOnlyOnce() {
+        ToolResponseMessage response = toolResponse("call_1", "<div>网页正文</div>".repeat(2000));
+        ToolResponseMessage small = toolResponse("call_2", "搜索结果");
+        List<Message> messages = List.of(new UserMessage("抓取这个网页"), toolCall("call_1"), response, toolCall("call_2"), small);
+        ContextTrimmer trimmer = new ContextTrimmer(0, 0, 500);
+
+        List<Message> first = trimmer.trim(messages);
+        List<Message> second = trimmer.trim(messages);
+
+        // 智能体下一步裁剪同一批消息时复用截断后的消息对象，其 token 估算也命中缓存
+        Assertions.assertNotSame(response, first.get(2));
+        Assertions.assertSame(first.get(2), second.get(2));
+        Assertions.assertSame(small, second.get(4));
+    }
+
+    @Test
+    void cachesEstimatesPerMessage() {
+        TokenEstimateCache cache = new TokenEstimateCache();
+        Message message = new UserMessage("最近和对象沟通总是不顺畅");
+
+        int first = cache.estimate(message);
+        int second = cache.estimate(message);
+
+        Assertions.assertEquals(TokenEstimator.estimate(message), first);
+        Assertions.assertEquals(first, second);
+        Assertions.assertEquals(1, cache.size());
+        cache.estimate(new UserMessage("最近和对象沟通总是不顺畅"));
+        Assertions.assertEquals(2, cache.size());
+    }
+
+    private static int total(ContextTrimmer trimmer, List<Message> messages) {
+        return messages.stream().mapToInt(trimmer::estimate).sum();
+    }
+
+    private static AssistantMessage toolCall(String id) {
+        return AssistantMessage.builder().content("")
+                .toolCalls(List.of(new AssistantMessage.ToolCall(id, "function", "searchWeb", "{\"query\":\"约会餐厅\"}")))
+                .build();
+    }
+
+    private static ToolResponseMessage toolResponse(String id, String data) {
+        return ToolResponseMessage.builder()
+                .responses(List.of(new ToolResponseMessage.ToolResponse(id, "searchWeb", data)))
+                .build();
+    }
+}
@@ -0,0 +1,122 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.extension.spring.MybatisSqlSessionFactoryBean;
+import com.lijay.lijayaiagent.mapper.ChatMemoryMessageMapper;
+import com.lijay.lijayaiagent.mapper.ChatMemorySummaryMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 测试用嵌入式数据库（H2，MySQL 兼容模式）
+ * 建好 chat_memory_message、chat_memory_summary 表并提供 Mapper，消息 Mapper 的调用次数即数据库往返次数，
+ * 返回列表的调用累计读取的行数
+ */
+class EmbeddedChatMemoryDatabase implements AutoCloseable {
+
+    private final HikariDataSource dataSource;
+
+    private final ChatMemoryMessageMapper mapper;
+
+    private final ChatMemorySummaryMapper summaryMapper;
+
+    private final AtomicLong roundTrips = new AtomicLong();
+
+    private final AtomicLong rowsRead = new AtomicLong();
+
+    EmbeddedChatMemoryDatabase() throws Exception {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        dataSource.setMaximumPoolSize(8);
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("""
+                CREATE TABLE chat_memory_message (
+                    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                    conversation_id VARCHAR(255) NOT NULL,
+                    role VARCHAR(50),
+                    message_bytes BLOB NOT NULL,
+                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                )""");
+        jdbcTemplate.execute("CREATE INDEX idx_conversation_id_id ON chat_memory_message (conversation_id, id)");
+        jdbcTemplate.execute("""
+                CREATE TABLE chat_memory_summary (
+                    conversation_id VARCHAR(255) NOT NULL PRIMARY KEY,
+                    summary TEXT NOT NULL,
+                    watermark_id BIGINT NOT NULL,
+                    summarized_count BIGINT NOT NULL DEFAULT 0,
+                    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                )""");
+
+        MybatisSqlSessionFactoryBean factoryBean = new MybatisSqlSessionFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setConfiguration(new MybatisConfiguration());
+        SqlSessionFactory sqlSessionFactory = factoryBean.getObject();
+        sqlSessionFactory.getConfiguration().addMapper(ChatMemoryMessageMapper.class);
+        sqlSessionFactory.getConfiguration().addMapper(ChatMemorySummaryMapper.class);
+        SqlSessionTemplate sqlSessionTemplate = new SqlSessionTemplate(sqlSessionFactory);
+        summaryMapper = sqlSessionTemplate.getMapper(ChatMemorySummaryMapper.class);
+        ChatMemoryMessageMapper target = sqlSessionTemplate.getMapper(ChatMemoryMessageMapper.class);
+        mapper = (ChatMemoryMessageMapper) Proxy.newProxyInstance(
+                ChatMemoryMessageMapper.class.getClassLoader(),
+                new Class<?>[]{ChatMemoryMessageMapper.class},
+                (proxy, method, args) -> {
+                    if (method.getDeclaringClass() != Object.class) {
+                        roundTrips.incrementAndGet();
+                    }
+                    try {
+                        Object result = method.invoke(target, args);
+                        if (result instanceof List<?> rows) {
+                            rowsRead.addAndGet(rows.size());
+                        }
+                        return result;
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    ChatMemoryMessageMapper mapper() {
+        return mapper;
+    }
+
+    ChatMemorySummaryMapper summaryMapper() {
+        return summaryMapper;
+    }
+
+    TransactionTemplate transactionTemplate() {
+        return new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    JdbcTemplate jdbcTemplate() {
+        return new JdbcTemplate(dataSource);
+    }
+
+    long roundTrips() {
+        return roundTrips.get();
+    }
+
+    void resetRoundTrips() {
+        roundTrips.set(0);
+        rowsRead.set(0);
+    }
+
+    long rowsRead() {
+        return rowsRead.get();
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+    }
+}
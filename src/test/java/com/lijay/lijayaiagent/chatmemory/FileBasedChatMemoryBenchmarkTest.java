@@ -0,0 +1,107 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * FileBasedChatMemory 读取基准测试（10000 条消息的会话）
+ * 对比改造前的整文件反序列化、内存映射全量读取、内存映射尾部窗口读取
+ */
+@Slf4j
+class FileBasedChatMemoryBenchmarkTest {
+
+    private static final int HISTORY_SIZE = 10000;
+
+    private static final int ROUNDS = 50;
+
+    @TempDir
+    Path dir;
+
+    private final Kryo kryo = new Kryo();
+
+    private File legacyFile;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        kryo.setRegistrationRequired(false);
+        kryo.setInstantiatorStrategy(new StdInstantiatorStrategy());
+        List<Message> history = new ArrayList<>(HISTORY_SIZE);
+        for (int i = 0; i < HISTORY_SIZE; i++) {
+            history.add(i % 2 == 0
+                    ? new UserMessage("第 " + i + " 条用户消息，帮我看看这段代码有什么问题")
+                    : new AssistantMessage("第 " + i + " 条助手回复，这段代码的问题在于循环内重复创建了对象"));
+        }
+        new FileBasedChatMemory(dir.resolve("log").toString()).add("long", history);
+
+        // 改造前的格式：整个会话一个 Kryo 序列化的 ArrayList
+        legacyFile = dir.resolve("long.kryo").toFile();
+        try (Output output = new Output(new FileOutputStream(legacyFile))) {
+            kryo.writeObject(output, new ArrayList<>(history));
+        }
+    }
+
+    @Test
+    void compareLegacyFullReadAndMappedTailWindow() {
+        FileBasedChatMemory full = new FileBasedChatMemory(dir.resolve("log").toString());
+        FileBasedChatMemory windowed = new FileBasedChatMemory(dir.resolve("log").toString(), new ChatMemoryWindow(20, 0));
+
+        long legacyNanos = measure(this::readLegacy);
+        long fullNanos = measure(() -> full.get("long"));
+        long windowedNanos = measure(() -> windowed.get("long"));
+        long lastMessageNanos = measure(() -> {
+            List<Message> view = full.view("long");
+            return List.of(view.get(view.size() - 1));
+        });
+
+        log.info("{} 条消息：整文件反序列化 {} us/次，内存映射全量 {} us/次，最近 20 条 {} us/次，视图取最后一条 {} us/次",
+                HISTORY_SIZE, legacyNanos / 1000, fullNanos / 1000, windowedNanos / 1000, lastMessageNanos / 1000);
+        // 耗时只记录不断言（受机器负载影响），只校验各种读法的结果与旧格式一致
+        List<String> legacy = readLegacy().stream().map(Message::getText).toList();
+        Assertions.assertEquals(legacy, full.get("long").stream().map(Message::getText).toList());
+        Assertions.assertEquals(legacy.subList(HISTORY_SIZE - 20, HISTORY_SIZE),
+                windowed.get("long").stream().map(Message::getText).toList());
+        List<Message> view = full.view("long");
+        Assertions.assertEquals(legacy.getLast(), view.get(view.size() - 1).getText());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Message> readLegacy() {
+        try (Input input = new Input(new FileInputStream(legacyFile))) {
+            return kryo.readObject(input, ArrayList.class);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 预热后多轮取平均，返回每次调用的纳秒数
+     */
+    private static long measure(Supplier<List<Message>> read) {
+        for (int i = 0; i < 10; i++) {
+            read.get();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            read.get();
+        }
+        return (System.nanoTime() - start) / ROUNDS;
+    }
+}
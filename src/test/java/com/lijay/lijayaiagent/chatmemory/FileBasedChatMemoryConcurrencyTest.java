@@ -0,0 +1,92 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FileBasedChatMemory 并发压力测试：多个线程同时写入同一批会话，不丢消息、不乱序
+ */
+class FileBasedChatMemoryConcurrencyTest {
+
+    private static final int WRITERS = 16;
+
+    private static final int CONVERSATIONS = 4;
+
+    private static final int TURNS_PER_WRITER = 200;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void parallelWritersLoseNoMessages() throws Exception {
+        FileBasedChatMemory chatMemory = new FileBasedChatMemory(dir.toString());
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS + 2);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int writer = 0; writer < WRITERS; writer++) {
+            int id = writer;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int turn = 0; turn < TURNS_PER_WRITER; turn++) {
+                    // 每个写线程轮流写所有会话，一轮写入用户消息和助手回复两条
+                    String conversationId = "c" + (id + turn) % CONVERSATIONS;
+                    chatMemory.add(conversationId, List.of(
+                            new UserMessage(id + ":" + turn + ":q"),
+                            new AssistantMessage(id + ":" + turn + ":a")));
+                }
+                return null;
+            }));
+        }
+        // 同时有读线程在读，读到的历史始终是完整的轮次
+        for (int reader = 0; reader < 2; reader++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 200; i++) {
+                    for (int c = 0; c < CONVERSATIONS; c++) {
+                        Assertions.assertEquals(0, chatMemory.get("c" + c).size() % 2);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        int total = 0;
+        for (int c = 0; c < CONVERSATIONS; c++) {
+            List<Message> messages = new FileBasedChatMemory(dir.toString()).get("c" + c);
+            total += messages.size();
+            Map<Integer, Integer> lastTurnByWriter = new HashMap<>();
+            for (int i = 0; i < messages.size(); i += 2) {
+                String[] question = messages.get(i).getText().split(":");
+                String[] answer = messages.get(i + 1).getText().split(":");
+                // 同一次 add 的两条消息相邻
+                Assertions.assertEquals(question[0] + ":" + question[1] + ":a", String.join(":", answer));
+                int writer = Integer.parseInt(question[0]);
+                int turn = Integer.parseInt(question[1]);
+                // 同一写线程的消息保持写入顺序
+                Assertions.assertTrue(turn > lastTurnByWriter.getOrDefault(writer, -1));
+                lastTurnByWriter.put(writer, turn);
+            }
+        }
+        Assertions.assertEquals(WRITERS * TURNS_PER_WRITER * 2, total);
+    }
+}
@@ -0,0 +1,139 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Output;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * FileBasedChatMemory 日志格式测试：追加、尾部恢复、旧格式迁移、压缩、窗口读取
+ */
+class FileBasedChatMemoryTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void appendsWithoutRewritingHistory() throws Exception {
+        FileBasedChatMemory chatMemory = new FileBasedChatMemory(dir.toString(), ChatMemoryWindow.UNLIMITED,
+                FsyncPolicy.ALWAYS, Duration.ZERO, 0, FileBasedChatMemory.DEFAULT_COMPACTION_THRESHOLD_BYTES);
+        chatMemory.add("a", List.of(new UserMessage("你好"), new AssistantMessage("你好呀")));
+        byte[] before = Files.readAllBytes(dir.resolve("a.log"));
+
+        chatMemory.add("a", List.of(new UserMessage("在吗")));
+
+        byte[] after = Files.readAllBytes(dir.resolve("a.log"));
+        Assertions.assertTrue(after.length > before.length);
+        Assertions.assertArrayEquals(before, Arrays.copyOf(after, before.length));
+        List<Message> messages = new FileBasedChatMemory(dir.toString()).get("a");
+        Assertions.assertEquals(List.of("你好", "你好呀", "在吗"), messages.stream().map(Message::getText).toList());
+    }
+
+    @Test
+    void intervalPolicySyncsEveryWrittenFileInBackground() throws Exception {
+        FileBasedChatMemory chatMemory = new FileBasedChatMemory(dir.toString(), ChatMemoryWindow.UNLIMITED,
+                FsyncPolicy.INTERVAL, Duration.ofMillis(50), 0, FileBasedChatMemory.DEFAULT_COMPACTION_THRESHOLD_BYTES);
+        try (chatMemory) {
+            chatMemory.add("a", List.of(new UserMessage("1")));
+            chatMemory.add("b", List.of(new UserMessage("2")));
+            Assertions.assertEquals(2, chatMemory.unsyncedCount());
+
+            // 之后没有新的写入，两个会话仍在一个间隔后刷盘
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (chatMemory.unsyncedCount() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            Assertions.assertEquals(0, chatMemory.unsyncedCount());
+
+            chatMemory.add("c", List.of(new UserMessage("3")));
+            chatMemory.clear("c");
+        }
+        Assertions.assertEquals(0, chatMemory.unsyncedCount());
+    }
+
+    @Test
+    void recoversFromTornTailRecord() throws Exception {
+        new FileBasedChatMemory(dir.toString()).add("a", List.of(new UserMessage("1"), new AssistantMessage("2")));
+        // 模拟崩溃：记录头声明 100 字节，实际只写了 3 字节
+        Files.write(dir.resolve("a.log"), new byte[]{0, 0, 0, 100, 1, 2, 3, 4, 5, 6, 7}, StandardOpenOption.APPEND);
+
+        FileBasedChatMemory chatMemory = new FileBasedChatMemory(dir.toString());
+        Assertions.assertEquals(2, chatMemory.get("a").size());
+        chatMemory.add("a", List.of(new UserMessage("3")));
+
+        List<Message> messages = new FileBasedChatMemory(dir.toString()).get("a");
+        Assertions.assertEquals(List.of("1", "2", "3"), messages.stream().map(Message::getText).toList());
+    }
+
+    @Test
+    void migratesLegacyKryoFile() throws Exception {
+        Kryo kryo = new Kryo();
+        kryo.setRegistrationRequired(false);
+        kryo.setInstantiatorStrategy(new StdInstantiatorStrategy());
+        List<Message> legacy = new ArrayList<>(List.of(new UserMessage("旧消息"), new AssistantMessage("旧回复")));
+        try (Output output = new Output(new FileOutputStream(dir.resolve("a.kryo").toFile()))) {
+            kryo.writeObject(output, legacy);
+        }
+
+        FileBasedChatMemory chatMemory = new FileBasedChatMemory(dir.toString());
+        chatMemory.add("a", List.of(new UserMessage("新消息")));
+
+        Assertions.assertFalse(Files.exists(dir.resolve("a.kryo")));
+        Assertions.assertEquals(List.of("旧消息", "旧回复", "新消息"),
+                chatMemory.get("a").stream().map(Message::getText).toList());
+    }
+
+    @Test
+    void compactsToRetainedMessagesAboveThreshold() throws Exception {
+        FileBasedChatMemory chatMemory = new FileBasedChatMemory(dir.toString(), ChatMemoryWindow.UNLIMITED,
+                FsyncPolicy.NEVER, Duration.ZERO, 10, 4096);
+        for (int i = 0; i < 500; i++) {
+            chatMemory.add("a", List.of(new UserMessage("消息" + i)));
+        }
+
+        List<Message> messages = chatMemory.get("a");
+        Assertions.assertTrue(Files.size(dir.resolve("a.log")) < 3 * 4096);
+        Assertions.assertTrue(messages.size() >= 10 && messages.size() < 500);
+        Assertions.assertEquals("消息499", messages.get(messages.size() - 1).getText());
+        Assertions.assertFalse(Files.exists(dir.resolve("a.log.compact")));
+    }
+
+    @Test
+    void windowAndViewSeeAppendsAfterIndexIsBuilt() {
+        FileBasedChatMemory chatMemory = new FileBasedChatMemory(dir.toString(), new ChatMemoryWindow(2, 0));
+        chatMemory.add("a", List.of(new UserMessage("1"), new AssistantMessage("2"), new UserMessage("3")));
+        Assertions.assertEquals(List.of("2", "3"), chatMemory.get("a").stream().map(Message::getText).toList());
+
+        chatMemory.add("a", List.of(new AssistantMessage("4")));
+
+        Assertions.assertEquals(List.of("3", "4"), chatMemory.get("a").stream().map(Message::getText).toList());
+        List<Message> view = chatMemory.view("a");
+        Assertions.assertEquals(4, view.size());
+        Assertions.assertEquals("1", view.get(0).getText());
+        Assertions.assertEquals(4, chatMemory.get("a", ChatMemoryWindow.UNLIMITED).size());
+    }
+
+    @Test
+    void clearRemovesConversation() {
+        FileBasedChatMemory chatMemory = new FileBasedChatMemory(dir.toString());
+        chatMemory.add("a", List.of(new UserMessage("1")));
+
+        chatMemory.clear("a");
+
+        Assertions.assertTrue(chatMemory.get("a").isEmpty());
+    }
+}
@@ -0,0 +1,107 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JdbcChatMemory 写入基准测试（嵌入式 H2）
+ * 对比逐条 insert 与多行批量 insert 每轮对话的往返次数和耗时
+ */
+@Slf4j
+class JdbcChatMemoryBenchmarkTest {
+
+    private static final int TURNS = 500;
+
+    /**
+     * 每轮写入的消息数：用户 + 助手 + 若干条工具调用历史
+     */
+    private static final int MESSAGES_PER_TURN = 6;
+
+    private EmbeddedChatMemoryDatabase database;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        database = new EmbeddedChatMemoryDatabase();
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    void batchedAddUsesOneRoundTripPerTurn() {
+        JdbcChatMemory chatMemory = new JdbcChatMemory(database.mapper());
+        List<Message> turn = buildTurn(0);
+
+        database.resetRoundTrips();
+        chatMemory.add("conversation", turn);
+
+        Assertions.assertEquals(1, database.roundTrips());
+        List<Message> messages = chatMemory.get("conversation");
+        Assertions.assertEquals(turn.size(), messages.size());
+        for (int i = 0; i < turn.size(); i++) {
+            Assertions.assertEquals(turn.get(i).getText(), messages.get(i).getText());
+        }
+    }
+
+    @Test
+    void compareRowByRowAndBatchedInsert() {
+        JdbcChatMemory chatMemory = new JdbcChatMemory(database.mapper());
+        // 预热
+        for (int i = 0; i < 50; i++) {
+            insertRowByRow(chatMemory, "warmup-row", buildTurn(i));
+            chatMemory.add("warmup-batch", buildTurn(i));
+        }
+
+        database.resetRoundTrips();
+        long start = System.nanoTime();
+        for (int i = 0; i < TURNS; i++) {
+            insertRowByRow(chatMemory, "row-by-row", buildTurn(i));
+        }
+        long rowByRowNanos = System.nanoTime() - start;
+        long rowByRowRoundTrips = database.roundTrips();
+
+        database.resetRoundTrips();
+        start = System.nanoTime();
+        for (int i = 0; i < TURNS; i++) {
+            chatMemory.add("batched", buildTurn(i));
+        }
+        long batchedNanos = System.nanoTime() - start;
+        long batchedRoundTrips = database.roundTrips();
+
+        log.info("逐条插入：{} 次往返/轮，{} us/轮",
+                (double) rowByRowRoundTrips / TURNS, rowByRowNanos / 1000 / TURNS);
+        log.info("批量插入：{} 次往返/轮，{} us/轮",
+                (double) batchedRoundTrips / TURNS, batchedNanos / 1000 / TURNS);
+        Assertions.assertEquals((long) TURNS * MESSAGES_PER_TURN, rowByRowRoundTrips);
+        Assertions.assertEquals(TURNS, batchedRoundTrips);
+    }
+
+    /**
+     * 改造前的写入方式：每条消息单独一次 insert（序列化开销与批量路径相同）
+     */
+    private static void insertRowByRow(JdbcChatMemory chatMemory, String conversationId, List<Message> messages) {
+        for (Message message : messages) {
+            chatMemory.add(conversationId, List.of(message));
+        }
+    }
+
+    private static List<Message> buildTurn(int turn) {
+        List<Message> messages = new ArrayList<>(MESSAGES_PER_TURN);
+        for (int i = 0; i < MESSAGES_PER_TURN / 2; i++) {
+            messages.add(new UserMessage("第 " + turn + " 轮用户消息 " + i));
+            messages.add(new AssistantMessage("第 " + turn + " 轮助手回复 " + i));
+        }
+        return messages;
+    }
+}
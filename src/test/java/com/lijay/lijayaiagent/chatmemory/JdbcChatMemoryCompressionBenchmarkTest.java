@@ -0,0 +1,108 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * chat_memory_message 压缩基准测试（嵌入式 H2）
+ * 语料模拟真实对话：简短提问、较长的回答、网页抓取工具返回的整段 HTML，对比存储大小与读取耗时
+ */
+@Slf4j
+class JdbcChatMemoryCompressionBenchmarkTest {
+
+    private static final int TURNS = 100;
+
+    private static final int COMPRESSION_THRESHOLD = 512;
+
+    private EmbeddedChatMemoryDatabase database;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        database = new EmbeddedChatMemoryDatabase();
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    void compressedRowsAreSmallerAndOldRowsStayReadable() {
+        JdbcChatMemory plain = new JdbcChatMemory(database.mapper());
+        JdbcChatMemory compressed = new JdbcChatMemory(database.mapper(), ChatMemoryWindow.UNLIMITED, COMPRESSION_THRESHOLD);
+        for (int turn = 0; turn < TURNS; turn++) {
+            plain.add("plain", buildTurn(turn));
+            compressed.add("compressed", buildTurn(turn));
+        }
+
+        long plainBytes = storedBytes("plain");
+        long compressedBytes = storedBytes("compressed");
+        long plainReadNanos = measureRead(plain, "plain");
+        long compressedReadNanos = measureRead(compressed, "compressed");
+
+        log.info("{} 轮对话：未压缩 {} KB，读取 {} us/次；压缩 {} KB，读取 {} us/次",
+                TURNS, plainBytes / 1024, plainReadNanos / 1000, compressedBytes / 1024, compressedReadNanos / 1000);
+        Assertions.assertTrue(compressedBytes < plainBytes / 2);
+        // 开启压缩后，未压缩的旧行照常读取
+        List<Message> oldRows = compressed.get("plain");
+        Assertions.assertEquals(TURNS * 4, oldRows.size());
+        Assertions.assertEquals(buildTurn(TURNS - 1).get(3).getText(), oldRows.get(oldRows.size() - 1).getText());
+        List<Message> newRows = plain.get("compressed");
+        Assertions.assertEquals(((ToolResponseMessage) buildTurn(0).get(2)).getResponses(),
+                ((ToolResponseMessage) newRows.get(2)).getResponses());
+    }
+
+    private long storedBytes(String conversationId) {
+        Long bytes = database.jdbcTemplate().queryForObject(
+                "SELECT SUM(OCTET_LENGTH(message_bytes)) FROM chat_memory_message WHERE conversation_id = ?",
+                Long.class, conversationId);
+        return bytes != null ? bytes : 0;
+    }
+
+    private static long measureRead(JdbcChatMemory chatMemory, String conversationId) {
+        for (int i = 0; i < 5; i++) {
+            chatMemory.get(conversationId);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < 20; i++) {
+            chatMemory.get(conversationId);
+        }
+        return (System.nanoTime() - start) / 20;
+    }
+
+    /**
+     * 一轮对话：提问、调用网页抓取工具、工具返回的 HTML、最终回答
+     */
+    private static List<Message> buildTurn(int turn) {
+        List<Message> messages = new ArrayList<>(4);
+        messages.add(new UserMessage("第 " + turn + " 轮：帮我找几家适合约会的西湖边餐厅"));
+        messages.add(AssistantMessage.builder()
+                .content("")
+                .toolCalls(List.of(new AssistantMessage.ToolCall("call_" + turn, "function", "scrapeWebPage",
+                        "{\"url\":\"https://example.com/restaurants?page=" + turn + "\"}")))
+                .build());
+        StringBuilder html = new StringBuilder("<html><head><title>西湖餐厅推荐</title></head><body><ul>");
+        for (int i = 0; i < 150; i++) {
+            html.append("<li class=\"restaurant-item\"><a href=\"https://example.com/shop/").append(turn * 1000 + i)
+                    .append("\">餐厅 ").append(i).append("</a><span class=\"rating\">4.").append(i % 10)
+                    .append("</span><p class=\"desc\">环境安静，适合情侣约会，人均消费 ").append(100 + i).append(" 元</p></li>");
+        }
+        html.append("</ul></body></html>");
+        messages.add(ToolResponseMessage.builder()
+                .responses(List.of(new ToolResponseMessage.ToolResponse("call_" + turn, "scrapeWebPage", html.toString())))
+                .build());
+        messages.add(new AssistantMessage(("推荐你考虑以下几家餐厅：第一家环境安静，适合情侣约会；第二家可以看到湖景，"
+                + "建议提前预约靠窗的位置；第三家价格实惠，菜品口碑不错。").repeat(6)));
+        return messages;
+    }
+}
@@ -0,0 +1,110 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JdbcChatMemory 窗口读取测试（嵌入式 H2）
+ */
+@Slf4j
+class JdbcChatMemoryTest {
+
+    private static final int HISTORY_SIZE = 2000;
+
+    private EmbeddedChatMemoryDatabase database;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        database = new EmbeddedChatMemoryDatabase();
+        JdbcChatMemory writer = new JdbcChatMemory(database.mapper());
+        List<Message> history = new ArrayList<>(HISTORY_SIZE);
+        for (int i = 0; i < HISTORY_SIZE; i++) {
+            history.add(i % 2 == 0 ? new UserMessage("消息" + i) : new AssistantMessage("消息" + i));
+        }
+        writer.add("long", history);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    void lastNMessagesInChronologicalOrder() {
+        JdbcChatMemory chatMemory = new JdbcChatMemory(database.mapper(), new ChatMemoryWindow(10, 0));
+
+        database.resetRoundTrips();
+        List<Message> messages = chatMemory.get("long");
+
+        Assertions.assertEquals(1, database.roundTrips());
+        Assertions.assertEquals(10, messages.size());
+        Assertions.assertEquals("消息1990", messages.get(0).getText());
+        Assertions.assertEquals("消息1999", messages.get(9).getText());
+    }
+
+    @Test
+    void tokenBudgetStopsAtBudget() {
+        // 每条消息约 4 + 2~6 个 token
+        JdbcChatMemory chatMemory = new JdbcChatMemory(database.mapper(), new ChatMemoryWindow(0, 100));
+
+        List<Message> messages = chatMemory.get("long");
+
+        int tokens = messages.stream().mapToInt(TokenEstimator::estimate).sum();
+        Assertions.assertTrue(tokens <= 100);
+        Assertions.assertTrue(messages.size() > 5 && messages.size() < 100);
+        Assertions.assertEquals("消息1999", messages.get(messages.size() - 1).getText());
+    }
+
+    @Test
+    void unlimitedWindowReturnsFullHistory() {
+        JdbcChatMemory chatMemory = new JdbcChatMemory(database.mapper());
+
+        Assertions.assertEquals(HISTORY_SIZE, chatMemory.get("long").size());
+        Assertions.assertTrue(chatMemory.get("missing").isEmpty());
+    }
+
+    @Test
+    void compareFullScanAndTailWindow() {
+        JdbcChatMemory full = new JdbcChatMemory(database.mapper());
+        JdbcChatMemory windowed = new JdbcChatMemory(database.mapper(), new ChatMemoryWindow(20, 0));
+        for (int i = 0; i < 20; i++) {
+            full.get("long");
+            windowed.get("long");
+        }
+
+        database.resetRoundTrips();
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            full.get("long");
+        }
+        long fullNanos = System.nanoTime() - start;
+        long fullRows = database.rowsRead();
+        long fullRoundTrips = database.roundTrips();
+
+        database.resetRoundTrips();
+        start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            windowed.get("long");
+        }
+        long windowedNanos = System.nanoTime() - start;
+        long windowedRows = database.rowsRead();
+        long windowedRoundTrips = database.roundTrips();
+
+        log.info("{} 条历史，全量读取：{} us/次，最近 20 条：{} us/次",
+                HISTORY_SIZE, fullNanos / 1000 / 100, windowedNanos / 1000 / 100);
+        // 耗时只记录不断言，比较读取的行数和往返次数
+        Assertions.assertEquals(100L * HISTORY_SIZE, fullRows);
+        Assertions.assertEquals(100L * 20, windowedRows);
+        Assertions.assertEquals(100, windowedRoundTrips);
+        Assertions.assertTrue(windowedRoundTrips <= fullRoundTrips);
+    }
+}
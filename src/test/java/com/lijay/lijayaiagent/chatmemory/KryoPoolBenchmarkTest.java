@@ -0,0 +1,103 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Kryo 池化基准测试
+ * 对比 ThreadLocal<Kryo> 与共享 Pool<Kryo> 在平台线程池和每任务一个虚拟线程下的吞吐、分配量和创建的 Kryo 实例数
+ */
+@Slf4j
+class KryoPoolBenchmarkTest {
+
+    private static final int TASKS = 20000;
+
+    private static final Message MESSAGE = new AssistantMessage("先别急着解释，找个合适的时间认真听她说完，再说说你这段时间的状态。");
+
+    private final AtomicLong threadLocalCreated = new AtomicLong();
+
+    private final ThreadLocal<Kryo> threadLocalKryo = ThreadLocal.withInitial(() -> {
+        threadLocalCreated.incrementAndGet();
+        return MessageCodec.newKryo();
+    });
+
+    @Test
+    void compareThreadLocalAndPoolOnPlatformAndVirtualThreads() throws Exception {
+        // 预热
+        run(() -> Executors.newFixedThreadPool(8), this::roundTripWithThreadLocal);
+        run(() -> Executors.newFixedThreadPool(8), KryoPoolBenchmarkTest::roundTripWithPool);
+
+        Result platformThreadLocal = measure(() -> Executors.newFixedThreadPool(8), this::roundTripWithThreadLocal, threadLocalCreated::get);
+        Result platformPool = measure(() -> Executors.newFixedThreadPool(8), KryoPoolBenchmarkTest::roundTripWithPool, MessageCodec::kryoInstancesCreated);
+        Result virtualThreadLocal = measure(Executors::newVirtualThreadPerTaskExecutor, this::roundTripWithThreadLocal, threadLocalCreated::get);
+        Result virtualPool = measure(Executors::newVirtualThreadPerTaskExecutor, KryoPoolBenchmarkTest::roundTripWithPool, MessageCodec::kryoInstancesCreated);
+
+        log.info("平台线程 + ThreadLocal：{}", platformThreadLocal);
+        log.info("平台线程 + Pool：{}", platformPool);
+        log.info("虚拟线程 + ThreadLocal：{}", virtualThreadLocal);
+        log.info("虚拟线程 + Pool：{}", virtualPool);
+        // 每任务一个虚拟线程时 ThreadLocal 每个任务都要新建 Kryo，池化后实例数与并发度相关而与任务数无关
+        Assertions.assertEquals(TASKS, virtualThreadLocal.kryoCreated());
+        Assertions.assertTrue(virtualPool.kryoCreated() < TASKS / 10);
+    }
+
+    private Message roundTripWithThreadLocal() {
+        Kryo kryo = threadLocalKryo.get();
+        try (Output output = new Output(1024, -1)) {
+            kryo.writeClassAndObject(output, MESSAGE);
+            try (Input input = new Input(output.toBytes())) {
+                return (Message) kryo.readClassAndObject(input);
+            }
+        }
+    }
+
+    private static Message roundTripWithPool() {
+        return MessageCodec.decode(MessageCodec.encode(MESSAGE));
+    }
+
+    private static Result measure(Supplier<ExecutorService> executor, Supplier<Message> task, Supplier<Long> kryoCreated) throws Exception {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long createdBefore = kryoCreated.get();
+        long allocatedBefore = threadBean.getTotalThreadAllocatedBytes();
+        long start = System.nanoTime();
+        run(executor, task);
+        long nanos = System.nanoTime() - start;
+        long allocated = threadBean.getTotalThreadAllocatedBytes() - allocatedBefore;
+        return new Result(TASKS * 1_000_000_000L / nanos, allocated / TASKS, kryoCreated.get() - createdBefore);
+    }
+
+    private static void run(Supplier<ExecutorService> executorSupplier, Supplier<Message> task) throws Exception {
+        try (ExecutorService executor = executorSupplier.get()) {
+            List<Future<Message>> futures = new ArrayList<>(TASKS);
+            for (int i = 0; i < TASKS; i++) {
+                futures.add(executor.submit(task::get));
+            }
+            for (Future<Message> future : futures) {
+                Assertions.assertEquals(MESSAGE.getText(), future.get().getText());
+            }
+        }
+    }
+
+    private record Result(long opsPerSecond, long bytesPerOp, long kryoCreated) {
+
+        @Override
+        public String toString() {
+            return opsPerSecond + " ops/s，" + bytesPerOp + " 字节/op，新建 Kryo " + kryoCreated + " 个";
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.content.Media;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * MessageCodec 测试：各类消息往返、旧格式兼容、压缩，以及与改造前 writeClassAndObject 的体积和耗时对比
+ */
+@Slf4j
+class MessageCodecTest {
+
+    private static final int ROUNDS = 20000;
+
+    @Test
+    void roundTripsUserMessageWithMedia() {
+        UserMessage message = UserMessage.builder()
+                .text("这张图里是什么")
+                .media(List.of(Media.builder().mimeType(MimeTypeUtils.IMAGE_PNG).data(new byte[]{1, 2, 3}).name("a.png").build()))
+                .metadata(Map.of("source", "web"))
+                .build();
+
+        UserMessage decoded = (UserMessage) MessageCodec.decode(MessageCodec.encode(message));
+
+        Assertions.assertEquals("这张图里是什么", decoded.getText());
+        Assertions.assertEquals("web", decoded.getMetadata().get("source"));
+        Assertions.assertEquals(MessageType.USER, decoded.getMessageType());
+        Assertions.assertEquals(1, decoded.getMedia().size());
+        Assertions.assertEquals(MimeTypeUtils.IMAGE_PNG, decoded.getMedia().get(0).getMimeType());
+        Assertions.assertArrayEquals(new byte[]{1, 2, 3}, (byte[]) decoded.getMedia().get(0).getData());
+    }
+
+    @Test
+    void roundTripsToolCallsAndToolResponses() {
+        AssistantMessage assistant = AssistantMessage.builder()
+                .content("")
+                .properties(Map.of("finishReason", "TOOL_CALLS"))
+                .toolCalls(List.of(new AssistantMessage.ToolCall("call_1", "function", "searchWeb", "{\"query\":\"杭州天气\"}")))
+                .build();
+        ToolResponseMessage toolResponse = ToolResponseMessage.builder()
+                .responses(List.of(new ToolResponseMessage.ToolResponse("call_1", "searchWeb", "晴，25 度")))
+                .build();
+
+        AssistantMessage decodedAssistant = (AssistantMessage) MessageCodec.decode(MessageCodec.encode(assistant));
+        ToolResponseMessage decodedResponse = (ToolResponseMessage) MessageCodec.decode(MessageCodec.encode(toolResponse));
+
+        Assertions.assertEquals(assistant.getToolCalls(), decodedAssistant.getToolCalls());
+        Assertions.assertEquals("TOOL_CALLS", decodedAssistant.getMetadata().get("finishReason"));
+        Assertions.assertEquals(toolResponse.getResponses(), decodedResponse.getResponses());
+        Assertions.assertEquals(MessageType.TOOL, decodedResponse.getMessageType());
+    }
+
+    @Test
+    void roundTripsSystemMessageFromByteBuffer() {
+        byte[] bytes = MessageCodec.encode(new SystemMessage("你是一个恋爱顾问"));
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 4);
+        buffer.putInt(42).put(bytes).position(4);
+
+        Message decoded = MessageCodec.decode(buffer);
+
+        Assertions.assertEquals("你是一个恋爱顾问", decoded.getText());
+        Assertions.assertEquals(MessageType.SYSTEM, decoded.getMessageType());
+        Assertions.assertEquals(4, buffer.position());
+    }
+
+    @Test
+    void readsLegacyKryoBytes() {
+        byte[] legacy = legacyEncode(newLegacyKryo(), new AssistantMessage("旧格式消息"));
+
+        Assertions.assertEquals(1, legacy[0]);
+        Assertions.assertEquals("旧格式消息", MessageCodec.decode(legacy).getText());
+        Assertions.assertEquals("旧格式消息", MessageCodec.decode(ByteBuffer.wrap(legacy)).getText());
+    }
+
+    @Test
+    void rejectsNewerVersion() {
+        byte[] bytes = MessageCodec.encode(new UserMessage("你好"));
+        bytes[1] = (byte) (MessageCodec.VERSION + 1);
+
+        Assertions.assertThrows(IllegalStateException.class, () -> MessageCodec.decode(bytes));
+    }
+
+    @Test
+    void compressesOnlyLargeMessages() {
+        String html = "<div class=\"item\"><a href=\"https://example.com\">西湖边的餐厅</a></div>".repeat(200);
+        ToolResponseMessage large = ToolResponseMessage.builder()
+                .responses(List.of(new ToolResponseMessage.ToolResponse("call_1", "scrapeWebPage", html)))
+                .build();
+        UserMessage small = new UserMessage("你好");
+
+        byte[] compressed = MessageCodec.encode(large, 512);
+        byte[] smallBytes = MessageCodec.encode(small, 512);
+
+        Assertions.assertEquals(MessageCodec.FLAG_DEFLATE, compressed[2]);
+        Assertions.assertTrue(compressed.length < MessageCodec.encode(large).length / 5);
+        Assertions.assertArrayEquals(MessageCodec.encode(small), smallBytes);
+        Assertions.assertEquals(html, ((ToolResponseMessage) MessageCodec.decode(compressed)).getResponses().get(0).responseData());
+        Assertions.assertEquals(html, ((ToolResponseMessage) MessageCodec.decode(ByteBuffer.wrap(compressed)))
+                .getResponses().get(0).responseData());
+    }
+
+    @Test
+    void compareWithLegacyKryo() {
+        List<Message> corpus = List.of(
+                new UserMessage("我和女朋友吵架了，她说我总是不回消息，我该怎么办？"),
+                new AssistantMessage("先别急着解释，找个合适的时间认真听她说完，再说说你这段时间的状态。"),
+                AssistantMessage.builder().content("")
+                        .toolCalls(List.of(new AssistantMessage.ToolCall("call_1", "function", "searchWeb", "{\"query\":\"约会餐厅\"}")))
+                        .build(),
+                ToolResponseMessage.builder()
+                        .responses(List.of(new ToolResponseMessage.ToolResponse("call_1", "searchWeb", "西湖边的几家餐厅……")))
+                        .build());
+        Kryo legacyKryo = newLegacyKryo();
+
+        long legacyBytes = 0;
+        long codecBytes = 0;
+        for (Message message : corpus) {
+            legacyBytes += legacyEncode(legacyKryo, message).length;
+            codecBytes += MessageCodec.encode(message).length;
+        }
+        long legacyWrite = measure(corpus, message -> legacyEncode(legacyKryo, message));
+        long codecWrite = measure(corpus, MessageCodec::encode);
+        List<byte[]> legacyEncoded = corpus.stream().map(message -> legacyEncode(legacyKryo, message)).toList();
+        List<byte[]> codecEncoded = corpus.stream().map(MessageCodec::encode).toList();
+        long legacyRead = measure(legacyEncoded, bytes -> legacyDecode(legacyKryo, bytes));
+        long codecRead = measure(codecEncoded, MessageCodec::decode);
+
+        log.info("writeClassAndObject：{} 字节/条，序列化 {} ns/op，反序列化 {} ns/op",
+                legacyBytes / corpus.size(), legacyWrite, legacyRead);
+        log.info("MessageCodec：{} 字节/条，序列化 {} ns/op，反序列化 {} ns/op",
+                codecBytes / corpus.size(), codecWrite, codecRead);
+        Assertions.assertTrue(codecBytes < legacyBytes);
+    }
+
+    private static <T> long measure(List<T> inputs, Function<T, ?> operation) {
+        for (int i = 0; i < ROUNDS; i++) {
+            operation.apply(inputs.get(i % inputs.size()));
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            operation.apply(inputs.get(i % inputs.size()));
+        }
+        return (System.nanoTime() - start) / ROUNDS;
+    }
+
+    private static Kryo newLegacyKryo() {
+        Kryo kryo = new Kryo();
+        kryo.setRegistrationRequired(false);
+        kryo.setInstantiatorStrategy(new StdInstantiatorStrategy());
+        return kryo;
+    }
+
+    private static byte[] legacyEncode(Kryo kryo, Message message) {
+        try (Output output = new Output(512, -1)) {
+            kryo.writeClassAndObject(output, message);
+            return output.toBytes();
+        }
+    }
+
+    private static Message legacyDecode(Kryo kryo, byte[] bytes) {
+        try (Input input = new Input(bytes)) {
+            return (Message) kryo.readClassAndObject(input);
+        }
+    }
+}
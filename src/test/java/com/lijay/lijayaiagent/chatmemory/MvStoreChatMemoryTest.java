@@ -0,0 +1,83 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * MvStoreChatMemory 测试：追加顺序、会话隔离、尾部窗口、清空、重新打开后持久化
+ */
+class MvStoreChatMemoryTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void appendsInOrderAndIsolatesConversations() {
+        try (MvStoreChatMemory chatMemory = new MvStoreChatMemory(file())) {
+            chatMemory.add("a", List.of(new UserMessage("1"), new AssistantMessage("2")));
+            // "ab" 以 "a" 开头，不能混入会话 a
+            chatMemory.add("ab", List.of(new UserMessage("x")));
+            chatMemory.add("a", List.of(new UserMessage("3")));
+
+            Assertions.assertEquals(List.of("1", "2", "3"), texts(chatMemory.get("a")));
+            Assertions.assertEquals(List.of("x"), texts(chatMemory.get("ab")));
+            Assertions.assertTrue(chatMemory.get("b").isEmpty());
+        }
+    }
+
+    @Test
+    void readsTailWindow() {
+        try (MvStoreChatMemory chatMemory = new MvStoreChatMemory(file(), new ChatMemoryWindow(2, 0),
+                FsyncPolicy.NEVER, Duration.ZERO)) {
+            for (int i = 0; i < 300; i++) {
+                chatMemory.add("a", List.of(new UserMessage(String.valueOf(i))));
+            }
+
+            Assertions.assertEquals(List.of("298", "299"), texts(chatMemory.get("a")));
+            Assertions.assertEquals(300, chatMemory.get("a", ChatMemoryWindow.UNLIMITED).size());
+        }
+    }
+
+    @Test
+    void clearRemovesOnlyThatConversation() {
+        try (MvStoreChatMemory chatMemory = new MvStoreChatMemory(file())) {
+            chatMemory.add("a", List.of(new UserMessage("1")));
+            chatMemory.add("b", List.of(new UserMessage("2")));
+
+            chatMemory.clear("a");
+            chatMemory.add("a", List.of(new UserMessage("3")));
+
+            Assertions.assertEquals(List.of("3"), texts(chatMemory.get("a")));
+            Assertions.assertEquals(List.of("2"), texts(chatMemory.get("b")));
+        }
+    }
+
+    @Test
+    void persistsAcrossReopen() {
+        try (MvStoreChatMemory chatMemory = new MvStoreChatMemory(file(), ChatMemoryWindow.UNLIMITED,
+                FsyncPolicy.ALWAYS, Duration.ZERO)) {
+            chatMemory.add("a", List.of(new UserMessage("你好"), new AssistantMessage("你好呀")));
+        }
+        try (MvStoreChatMemory chatMemory = new MvStoreChatMemory(file())) {
+            chatMemory.add("a", List.of(new UserMessage("在吗")));
+
+            Assertions.assertEquals(List.of("你好", "你好呀", "在吗"), texts(chatMemory.get("a")));
+        }
+    }
+
+    private String file() {
+        return dir.resolve("chat-memory.mv.db").toString();
+    }
+
+    private static List<String> texts(List<Message> messages) {
+        return messages.stream().map(Message::getText).toList();
+    }
+}
@@ -0,0 +1,163 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.lijay.lijayaiagent.entity.ChatMemoryMessage;
+import com.lijay.lijayaiagent.mapper.ChatMemoryMessageMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ShardedChatMemory 与 ChatMemoryShardMigrator 测试（每个分片一个嵌入式 H2）
+ */
+class ShardedChatMemoryTest {
+
+    private static final int VIRTUAL_NODES = 160;
+
+    private final Map<String, EmbeddedChatMemoryDatabase> databases = new LinkedHashMap<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        for (String name : List.of("shard0", "shard1", "shard2", "shard3")) {
+            databases.put(name, new EmbeddedChatMemoryDatabase());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        databases.values().forEach(EmbeddedChatMemoryDatabase::close);
+    }
+
+    @Test
+    void routesEachConversationToExactlyOneShard() {
+        ShardedChatMemory chatMemory = chatMemory(3);
+        for (int i = 0; i < 30; i++) {
+            chatMemory.add("c" + i, List.of(new UserMessage("q" + i), new AssistantMessage("a" + i)));
+        }
+
+        for (int i = 0; i < 30; i++) {
+            String conversationId = "c" + i;
+            Assertions.assertEquals(List.of("q" + i, "a" + i), texts(chatMemory.get(conversationId)));
+            for (Map.Entry<String, ChatMemoryMessageMapper> entry : mappers(3).entrySet()) {
+                long rows = entry.getValue().selectCount(new QueryWrapper<ChatMemoryMessage>().eq("conversation_id", conversationId));
+                Assertions.assertEquals(entry.getKey().equals(chatMemory.shardFor(conversationId)) ? 2 : 0, rows);
+            }
+        }
+        chatMemory.clear("c0");
+        Assertions.assertTrue(chatMemory.get("c0").isEmpty());
+    }
+
+    @Test
+    void addAllSplitsBatchByShard() {
+        ShardedChatMemory chatMemory = chatMemory(3);
+        Map<String, List<Message>> batch = new LinkedHashMap<>();
+        for (int i = 0; i < 20; i++) {
+            batch.put("c" + i, List.of(new UserMessage("q" + i)));
+        }
+
+        chatMemory.addAll(batch);
+
+        for (int i = 0; i < 20; i++) {
+            Assertions.assertEquals(List.of("q" + i), texts(chatMemory.get("c" + i)));
+        }
+    }
+
+    @Test
+    void addAllRollsBackWholeShardBatchOnFailure() {
+        ShardedChatMemory chatMemory = chatMemory(1);
+        Map<String, List<Message>> batch = new LinkedHashMap<>();
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i <= JdbcChatMemory.BATCH_SIZE; i++) {
+            messages.add(new UserMessage("q" + i));
+        }
+        batch.put("ok", messages);
+        // 会话ID超过列长度，第二个分块插入失败
+        batch.put("x".repeat(300), List.of(new UserMessage("q")));
+
+        Assertions.assertThrows(RuntimeException.class, () -> chatMemory.addAll(batch));
+
+        // 第一个分块随整批回滚，重试时不会重复写入
+        Assertions.assertTrue(chatMemory.get("ok").isEmpty());
+    }
+
+    @Test
+    void consistentHashIsBalancedAndMovesAboutOneNthOnGrowth() {
+        ConsistentHash three = new ConsistentHash(List.of("shard0", "shard1", "shard2"), VIRTUAL_NODES);
+        ConsistentHash four = new ConsistentHash(List.of("shard0", "shard1", "shard2", "shard3"), VIRTUAL_NODES);
+        int keys = 30000;
+        Map<String, Integer> counts = new HashMap<>();
+        int moved = 0;
+        for (int i = 0; i < keys; i++) {
+            String key = "conversation-" + i;
+            String before = three.route(key);
+            String after = four.route(key);
+            counts.merge(before, 1, Integer::sum);
+            if (!before.equals(after)) {
+                // 新增分片只会从旧分片拿走 key，不会在旧分片之间搬动
+                Assertions.assertEquals("shard3", after);
+                moved++;
+            }
+        }
+
+        for (int count : counts.values()) {
+            Assertions.assertTrue(count > keys / 3 * 0.8 && count < keys / 3 * 1.2, "分布不均匀：" + counts);
+        }
+        Assertions.assertTrue(moved > keys / 4 * 0.8 && moved < keys / 4 * 1.2, "迁移比例异常：" + moved);
+    }
+
+    @Test
+    void migratorMovesConversationsToNewShardAndIsIdempotent() {
+        ShardedChatMemory before = chatMemory(3);
+        Map<String, List<String>> expected = new HashMap<>();
+        for (int i = 0; i < 200; i++) {
+            List<Message> messages = new ArrayList<>();
+            for (int j = 0; j < 1 + i % 5; j++) {
+                messages.add(new UserMessage("c" + i + "-" + j));
+            }
+            before.add("c" + i, messages);
+            expected.put("c" + i, texts(messages));
+        }
+
+        ShardedChatMemory after = chatMemory(4);
+        ChatMemoryShardMigrator.Result result = new ChatMemoryShardMigrator(mappers(4), after.getRing(), 7).migrate();
+
+        Assertions.assertTrue(result.conversations() > 0);
+        for (Map.Entry<String, List<String>> entry : expected.entrySet()) {
+            Assertions.assertEquals(entry.getValue(), texts(after.get(entry.getKey())), entry.getKey());
+        }
+        long total = databases.values().stream()
+                .mapToLong(database -> database.mapper().selectCount(new QueryWrapper<>()))
+                .sum();
+        Assertions.assertEquals(expected.values().stream().mapToLong(List::size).sum(), total);
+        Assertions.assertEquals(new ChatMemoryShardMigrator.Result(0, 0),
+                new ChatMemoryShardMigrator(mappers(4), after.getRing(), 7).migrate());
+    }
+
+    private ShardedChatMemory chatMemory(int shards) {
+        Map<String, TransactionTemplate> transactions = new LinkedHashMap<>();
+        databases.entrySet().stream().limit(shards)
+                .forEach(entry -> transactions.put(entry.getKey(), entry.getValue().transactionTemplate()));
+        return new ShardedChatMemory(mappers(shards), transactions, ChatMemoryWindow.UNLIMITED, 0, VIRTUAL_NODES);
+    }
+
+    private Map<String, ChatMemoryMessageMapper> mappers(int shards) {
+        Map<String, ChatMemoryMessageMapper> mappers = new LinkedHashMap<>();
+        databases.entrySet().stream().limit(shards).forEach(entry -> mappers.put(entry.getKey(), entry.getValue().mapper()));
+        return mappers;
+    }
+
+    private static List<String> texts(List<Message> messages) {
+        return messages.stream().map(Message::getText).toList();
+    }
+}
@@ -0,0 +1,138 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SummarizingChatMemory 测试（嵌入式 H2，摘要生成器用桩实现，折叠在调用线程同步执行）
+ */
+class SummarizingChatMemoryTest {
+
+    private static final int KEEP = 6;
+
+    private static final int BATCH = 4;
+
+    private EmbeddedChatMemoryDatabase database;
+
+    private final List<Integer> foldedSizes = new ArrayList<>();
+
+    private SummarizingChatMemory chatMemory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        database = new EmbeddedChatMemoryDatabase();
+        ConversationSummarizer summarizer = (previous, messages) -> {
+            foldedSizes.add(messages.size());
+            return (previous == null ? "" : previous + "|") + messages.get(0).getText() + "~" + messages.get(messages.size() - 1).getText();
+        };
+        chatMemory = new SummarizingChatMemory(new JdbcChatMemory(database.mapper()), database.mapper(),
+                database.summaryMapper(), summarizer, Runnable::run, KEEP, BATCH);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    void shortConversationIsReturnedAsIs() {
+        addTurns(0, 3);
+
+        List<Message> messages = chatMemory.get("a");
+
+        Assertions.assertEquals(6, messages.size());
+        Assertions.assertTrue(foldedSizes.isEmpty());
+    }
+
+    @Test
+    void getReturnsSummaryPlusBoundedTail() {
+        addTurns(0, 100);
+
+        List<Message> messages = chatMemory.get("a");
+
+        Assertions.assertFalse(foldedSizes.isEmpty());
+        Message summary = messages.get(0);
+        Assertions.assertEquals(Boolean.TRUE, summary.getMetadata().get(SummarizingChatMemory.SUMMARY_METADATA_KEY));
+        Assertions.assertTrue(summary.getText().startsWith("【此前对话摘要】q0~"));
+        Assertions.assertTrue(messages.size() - 1 <= KEEP + BATCH);
+        Assertions.assertTrue(messages.size() - 1 >= KEEP);
+        Assertions.assertEquals("a99", messages.get(messages.size() - 1).getText());
+        // 摘要和原始消息首尾相接，没有遗漏
+        String lastSummarized = summary.getText().substring(summary.getText().lastIndexOf('~') + 1);
+        int lastSummarizedTurn = Integer.parseInt(lastSummarized.substring(1));
+        String firstTail = messages.get(1).getText();
+        Assertions.assertEquals(lastSummarized.startsWith("q") ? "a" + lastSummarizedTurn : "q" + (lastSummarizedTurn + 1), firstTail);
+    }
+
+    @Test
+    void foldBoundaryDoesNotSplitToolCallFromResponse() {
+        // 第 4 条是工具调用，正好落在一批的边界上
+        chatMemory.add("a", List.of(
+                new UserMessage("q0"), new AssistantMessage("a0"), new UserMessage("q1"),
+                AssistantMessage.builder().content("").toolCalls(List.of(
+                        new AssistantMessage.ToolCall("call_1", "function", "searchWeb", "{}"))).build(),
+                ToolResponseMessage.builder().responses(List.of(
+                        new ToolResponseMessage.ToolResponse("call_1", "searchWeb", "结果"))).build(),
+                new AssistantMessage("a1"), new UserMessage("q2"), new AssistantMessage("a2"),
+                new UserMessage("q3"), new AssistantMessage("a3")));
+
+        List<Message> messages = chatMemory.get("a");
+
+        Assertions.assertEquals(List.of(5), foldedSizes);
+        Assertions.assertEquals(MessageType.ASSISTANT, messages.get(1).getMessageType());
+        Assertions.assertEquals("a1", messages.get(1).getText());
+        Assertions.assertEquals(6, messages.size());
+    }
+
+    @Test
+    void foldBacksOffWhenToolResponsesRunPastReadAhead() {
+        ConversationSummarizer summarizer = (previous, messages) -> {
+            foldedSizes.add(messages.size());
+            return "摘要";
+        };
+        chatMemory = new SummarizingChatMemory(new JdbcChatMemory(database.mapper()), database.mapper(),
+                database.summaryMapper(), summarizer, Runnable::run, 30, BATCH);
+        // 一次工具调用返回 20 条响应，折叠边界落在其中，且超出多读的范围
+        List<Message> batch = new ArrayList<>(List.of(new UserMessage("q0"), new AssistantMessage("a0"), new UserMessage("q1"),
+                AssistantMessage.builder().content("").toolCalls(List.of(
+                        new AssistantMessage.ToolCall("call_1", "function", "searchWeb", "{}"))).build()));
+        for (int i = 0; i < 20; i++) {
+            batch.add(ToolResponseMessage.builder().responses(List.of(
+                    new ToolResponseMessage.ToolResponse("call_1", "searchWeb", "结果" + i))).build());
+        }
+        batch.add(new AssistantMessage("a1"));
+        chatMemory.add("a", batch);
+        addTurns(2, 5);
+
+        List<Message> messages = chatMemory.get("a");
+
+        Assertions.assertEquals(List.of(3), foldedSizes);
+        Assertions.assertTrue(messages.get(1) instanceof AssistantMessage assistantMessage && assistantMessage.hasToolCalls());
+    }
+
+    @Test
+    void clearRemovesSummary() {
+        addTurns(0, 20);
+
+        chatMemory.clear("a");
+
+        Assertions.assertTrue(chatMemory.get("a").isEmpty());
+        Assertions.assertNull(database.summaryMapper().selectById("a"));
+    }
+
+    private void addTurns(int from, int turns) {
+        for (int i = from; i < from + turns; i++) {
+            chatMemory.add("a", List.of(new UserMessage("q" + i), new AssistantMessage("a" + i)));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.lijay.lijayaiagent.chatmemory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * WriteBehindChatMemory 测试：读己之写、跨会话合并、背压与关闭时排空
+ */
+class WriteBehindChatMemoryTest {
+
+    private EmbeddedChatMemoryDatabase database;
+
+    private JdbcChatMemory jdbcChatMemory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        database = new EmbeddedChatMemoryDatabase();
+        jdbcChatMemory = new JdbcChatMemory(database.mapper());
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    void readYourWritesBeforeFlush() {
+        try (WriteBehindChatMemory chatMemory = newChatMemory(100, 100)) {
+            chatMemory.add("a", List.of(new UserMessage("你好"), new AssistantMessage("你好，我是小雨")));
+            chatMemory.add("a", new UserMessage("还记得我吗"));
+
+            List<Message> messages = chatMemory.get("a");
+            Assertions.assertEquals(List.of("你好", "你好，我是小雨", "还记得我吗"),
+                    messages.stream().map(Message::getText).toList());
+        }
+    }
+
+    @Test
+    void flushCoalescesConversationsIntoOneWrite() {
+        try (WriteBehindChatMemory chatMemory = newChatMemory(100, 100)) {
+            for (int i = 0; i < 10; i++) {
+                chatMemory.add("conversation-" + i, List.of(new UserMessage("问题" + i), new AssistantMessage("回答" + i)));
+            }
+            database.resetRoundTrips();
+            chatMemory.flush();
+
+            Assertions.assertEquals(1, database.roundTrips());
+            Assertions.assertEquals(0, chatMemory.pendingMessages());
+            Assertions.assertEquals(2, jdbcChatMemory.get("conversation-3").size());
+        }
+    }
+
+    @Test
+    void fullConversationLogFallsBackToSynchronousWrite() {
+        try (WriteBehindChatMemory chatMemory = newChatMemory(100, 4)) {
+            chatMemory.add("a", List.of(new UserMessage("1"), new AssistantMessage("2"), new UserMessage("3")));
+            chatMemory.add("a", List.of(new AssistantMessage("4"), new UserMessage("5")));
+
+            // 第二次写入超出容量，连同积压的消息一起同步落库
+            Assertions.assertEquals(List.of("1", "2", "3", "4", "5"),
+                    jdbcChatMemory.get("a").stream().map(Message::getText).toList());
+            Assertions.assertEquals(0, chatMemory.pendingMessages());
+        }
+    }
+
+    @Test
+    void closeDrainsPendingMessages() {
+        WriteBehindChatMemory chatMemory = newChatMemory(1000, 1000);
+        for (int i = 0; i < 50; i++) {
+            chatMemory.add("a", new UserMessage("消息" + i));
+        }
+        chatMemory.close();
+
+        Assertions.assertEquals(50, jdbcChatMemory.get("a").size());
+        // 关闭后的写入直接落库
+        chatMemory.add("a", new UserMessage("关闭后"));
+        Assertions.assertEquals(51, jdbcChatMemory.get("a").size());
+    }
+
+    @Test
+    void clearDiscardsPendingMessages() {
+        try (WriteBehindChatMemory chatMemory = newChatMemory(100, 100)) {
+            chatMemory.add("a", new UserMessage("已落库"));
+            chatMemory.flush();
+            chatMemory.add("a", new UserMessage("未落库"));
+
+            chatMemory.clear("a");
+            chatMemory.flush();
+
+            Assertions.assertTrue(chatMemory.get("a").isEmpty());
+            Assertions.assertEquals(0, chatMemory.pendingMessages());
+        }
+    }
+
+    private WriteBehindChatMemory newChatMemory(int queueCapacity, int conversationCapacity) {
+        // 刷盘间隔设得很长，测试里由 flush/close 显式控制落库时机
+        return new WriteBehindChatMemory(jdbcChatMemory, Duration.ofMinutes(10), 1000,
+                queueCapacity, conversationCapacity, Duration.ofMillis(10));
+    }
+}
@@ -0,0 +1,219 @@
+package com.lijay.lijayaiagent.tools;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.support.ToolCallbacks;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.annotation.ToolParam;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * CachingToolCallback 测试：参数规范化、过期与淘汰、失败不缓存、并发调用合并与指标
+ */
+class CachingToolCallbackTest {
+
+    private final SearchTool searchTool = new SearchTool();
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void sameArgumentsInDifferentOrderShareResult() {
+        CachingToolCallback callback = caching("search", Duration.ofMinutes(10), 100);
+
+        String first = callback.call("{\"query\":\"上海天气\",\"page\":1}");
+        String second = callback.call(" { \"page\" : 1, \"query\" : \"上海天气\" } ");
+        callback.call("{\"query\":\"杭州天气\",\"page\":1}");
+
+        Assertions.assertEquals(first, second);
+        Assertions.assertEquals(2, searchTool.calls.get());
+        Assertions.assertEquals(1, callback.hitCount());
+        Assertions.assertEquals(2, callback.missCount());
+    }
+
+    @Test
+    void expiresAfterTtlAndEvictsLeastRecentlyUsed() {
+        CachingToolCallback callback = caching("search", Duration.ofMinutes(10), 2);
+        callback.call("{\"query\":\"a\"}");
+        callback.call("{\"query\":\"b\"}");
+        // 访问 a，使 b 成为最久未访问的结果
+        callback.call("{\"query\":\"a\"}");
+        callback.call("{\"query\":\"c\"}");
+
+        Assertions.assertEquals(1, callback.evictionCount());
+        callback.call("{\"query\":\"a\"}");
+        Assertions.assertEquals(3, searchTool.calls.get());
+
+        now.addAndGet(Duration.ofMinutes(10).toNanos());
+        callback.call("{\"query\":\"a\"}");
+        Assertions.assertEquals(4, searchTool.calls.get());
+    }
+
+    @Test
+    void failuresAreNotCached() {
+        CachingToolCallback callback = caching("search", Duration.ofMinutes(10), 100);
+
+        callback.call("{\"query\":\"error\"}");
+        callback.call("{\"query\":\"error\"}");
+        Assertions.assertThrows(RuntimeException.class, () -> callback.call("{\"query\":\"throw\"}"));
+        Assertions.assertThrows(RuntimeException.class, () -> callback.call("{\"query\":\"throw\"}"));
+
+        Assertions.assertEquals(4, searchTool.calls.get());
+        Assertions.assertEquals(0, callback.size());
+
+        // 正常结果的正文恰好以 Error 开头，照常缓存
+        String page = callback.call("{\"query\":\"errorPage\"}");
+        Assertions.assertEquals(page, callback.call("{\"query\":\"errorPage\"}"));
+        Assertions.assertEquals(5, searchTool.calls.get());
+        Assertions.assertEquals(1, callback.size());
+    }
+
+    @Test
+    void coalescesConcurrentIdenticalCalls() throws Exception {
+        CachingToolCallback callback = caching("slowSearch", Duration.ofMinutes(10), 100);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        callback.bindTo(registry);
+
+        int callers = 8;
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> callback.call("{\"query\":\"今日天气\"}")));
+            }
+            // 第一个调用执行工具，其它调用全部等待它的结果后再放行
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (callback.coalescedCount() < callers - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            searchTool.release.countDown();
+            for (Future<String> result : results) {
+                Assertions.assertEquals(results.getFirst().get(), result.get());
+            }
+        }
+
+        Assertions.assertEquals(1, searchTool.calls.get());
+        Assertions.assertEquals(callers - 1, callback.coalescedCount());
+        Assertions.assertEquals(1, registry.get("cache.gets").tag("tool", "slowSearch").tag("result", "miss")
+                .functionCounter().count());
+        Assertions.assertEquals(callers - 1, registry.get("tool.cache.coalesced").functionCounter().count());
+
+        callback.call("{\"query\":\"今日天气\"}");
+        Assertions.assertEquals(1, registry.get("cache.gets").tag("tool", "slowSearch").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void cancellingOneCallerDoesNotFailOthers() throws Exception {
+        CachingToolCallback callback = caching("slowSearch", Duration.ofMinutes(10), 100);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> first = executor.submit(() -> callback.call("{\"query\":\"今日天气\"}"));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (searchTool.calls.get() < 1 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            Future<String> second = executor.submit(() -> callback.call("{\"query\":\"今日天气\"}"));
+            while (callback.coalescedCount() < 1 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            // 与 ParallelToolExecutor 超时相同：取消并中断发起执行的调用方
+            first.cancel(true);
+            searchTool.release.countDown();
+
+            Assertions.assertEquals("\"搜索结果 今日天气\"", second.get(5, TimeUnit.SECONDS));
+        }
+
+        Assertions.assertEquals(1, searchTool.calls.get());
+        Assertions.assertEquals(1, callback.coalescedCount());
+        Assertions.assertEquals(1, callback.size());
+    }
+
+    @Test
+    void cancellingAllCallersCancelsSharedCall() throws Exception {
+        CachingToolCallback callback = caching("slowSearch", Duration.ofMinutes(10), 100);
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread caller = Thread.ofVirtual().start(() -> {
+            try {
+                callback.call("{\"query\":\"今日天气\"}");
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (searchTool.calls.get() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        caller.interrupt();
+        caller.join();
+        Assertions.assertInstanceOf(IllegalStateException.class, failure.get());
+
+        // 没有调用方等待的执行被中断，结果不缓存，下一次调用重新执行
+        Assertions.assertEquals(0, callback.size());
+        searchTool.release.countDown();
+        Assertions.assertEquals("\"搜索结果 今日天气\"", callback.call("{\"query\":\"今日天气\"}"));
+        Assertions.assertEquals(2, searchTool.calls.get());
+        Assertions.assertEquals(0, callback.coalescedCount());
+    }
+
+    @Test
+    void normalizesArguments() {
+        Assertions.assertEquals(CachingToolCallback.cacheKey("search", "{\"b\":{\"y\":1,\"x\":[2,1]},\"a\":\"x\"}"),
+                CachingToolCallback.cacheKey("search", "{\"a\":\"x\",\"b\":{\"x\":[2,1],\"y\":1}}"));
+        Assertions.assertNotEquals(CachingToolCallback.cacheKey("search", "{\"b\":{\"x\":[1,2]}}"),
+                CachingToolCallback.cacheKey("search", "{\"b\":{\"x\":[2,1]}}"));
+        Assertions.assertEquals(CachingToolCallback.cacheKey("search", ""), CachingToolCallback.cacheKey("search", "{}"));
+        Assertions.assertNotEquals(CachingToolCallback.cacheKey("search", "{}"), CachingToolCallback.cacheKey("scrapeWebPage", "{}"));
+    }
+
+    private CachingToolCallback caching(String toolName, Duration ttl, int maxSize) {
+        for (ToolCallback toolCallback : ToolCallbacks.from(searchTool)) {
+            if (toolCallback.getToolDefinition().name().equals(toolName)) {
+                return new CachingToolCallback(toolCallback, ttl, maxSize, now::get);
+            }
+        }
+        throw new IllegalArgumentException(toolName);
+    }
+
+    public static class SearchTool {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Tool(description = "search")
+        public String search(@ToolParam(description = "query") String query,
+                             @ToolParam(description = "page", required = false) Integer page) {
+            calls.incrementAndGet();
+            if ("error".equals(query)) {
+                return "{\"success\":false,\"error\":\"搜索失败: 服务不可用\"}";
+            }
+            if ("errorPage".equals(query)) {
+                return "Error 404 页面的常见原因 " + calls.get();
+            }
+            if ("throw".equals(query)) {
+                throw new IllegalStateException("服务不可用");
+            }
+            return "搜索结果 " + query + " " + calls.get();
+        }
+
+        @Tool(description = "slow search")
+        public String slowSearch(@ToolParam(description = "query") String query) throws InterruptedException {
+            calls.incrementAndGet();
+            release.await(5, TimeUnit.SECONDS);
+            return "搜索结果 " + query;
+        }
+    }
+}